@@ -0,0 +1,51 @@
+package alien4cloud.dao;
+
+import org.elasticsearch.action.ActionListener;
+
+import alien4cloud.exception.IndexingServiceException;
+
+import com.google.common.util.concurrent.AbstractFuture;
+
+/**
+ * A {@link com.google.common.util.concurrent.ListenableFuture} completed by an elastic search {@link ActionListener}.
+ *
+ * The response conversion is performed on the elastic search thread that completes the request, callbacks added to this future should not block.
+ *
+ * @param <Response> The type of the elastic search response.
+ * @param <T> The type of the result of the future.
+ */
+public abstract class ActionListenerFuture<Response, T> extends AbstractFuture<T> implements ActionListener<Response> {
+    private final String operation;
+
+    /**
+     * @param operation Name of the dao operation, used in error messages.
+     */
+    protected ActionListenerFuture(String operation) {
+        this.operation = operation;
+    }
+
+    @Override
+    public void onResponse(Response response) {
+        try {
+            set(convert(response));
+        } catch (Throwable t) {
+            onFailure(t);
+        }
+    }
+
+    @Override
+    public void onFailure(Throwable e) {
+        String message = "Error when executing asynchronous operation <" + operation + ">";
+        ESIndexMapper.getLog().error(message, e);
+        setException(e instanceof IndexingServiceException ? e : new IndexingServiceException(message, e));
+    }
+
+    /**
+     * Convert the elastic search response into the result of the future.
+     *
+     * @param response The elastic search response.
+     * @return The result of the future.
+     * @throws Exception In case the conversion fails, the future is then completed with the exception.
+     */
+    protected abstract T convert(Response response) throws Exception;
+}
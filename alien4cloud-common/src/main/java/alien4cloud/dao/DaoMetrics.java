@@ -0,0 +1,238 @@
+package alien4cloud.dao;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+/**
+ * Records the latency and the payload size of the elastic search requests sent by the daos, by index, type and operation. Timers are named
+ * <code>alien4cloud.dao.[index].[type].[operation].latency</code> and payload histograms <code>alien4cloud.dao.[index].[type].[operation].payload_bytes</code>.
+ *
+ * When a slow query threshold is configured, the requests that take longer are logged in the {@link #SLOW_QUERY_LOGGER} logger with a fingerprint of the query
+ * (the query with every value replaced by '?') so identical queries with different parameters can be grouped.
+ */
+public class DaoMetrics {
+    /** Name of the logger in which the slow queries are logged. */
+    public static final String SLOW_QUERY_LOGGER = "alien4cloud.dao.slow_queries";
+    private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger(SLOW_QUERY_LOGGER);
+    private static final String PREFIX = "alien4cloud.dao";
+    private static final String ALL = "_all";
+    private static final String VALUE_PLACEHOLDER = "?";
+    private static final Pattern QUOTED_VALUE = Pattern.compile("\"[^\"]*\"(?!\\s*:)");
+    private static final Pattern NUMBER_VALUE = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+
+    /** Operations on elastic search. */
+    public enum Operation {
+        GET, MULTI_GET, INDEX, UPDATE, DELETE, BULK, DELETE_BY_QUERY, COUNT, SEARCH, FACETED_SEARCH, SUGGEST, SCROLL;
+
+        private final String metricName = name().toLowerCase();
+    }
+
+    private final MetricRegistry metricRegistry;
+    private final long slowQueryThresholdNanos;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    /**
+     * @param metricRegistry The registry in which to register timers and histograms, null to disable them.
+     * @param slowQueryThresholdMs Duration (in milliseconds) above which a request is logged as slow, 0 or less to disable the slow query log.
+     */
+    public DaoMetrics(MetricRegistry metricRegistry, long slowQueryThresholdMs) {
+        this.metricRegistry = metricRegistry;
+        this.slowQueryThresholdNanos = slowQueryThresholdMs > 0 ? TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMs) : 0;
+    }
+
+    /**
+     * Start measuring a request.
+     *
+     * @param operation The operation.
+     * @param index The targeted index.
+     * @param type The targeted type, null if the request targets multiple or unknown types.
+     * @return The context to stop once the response is received.
+     */
+    public Context start(Operation operation, String index, String type) {
+        return new Context(operation, index == null ? ALL : index, type == null ? ALL : type);
+    }
+
+    /**
+     * Start measuring a request that targets multiple indices or types.
+     *
+     * @param operation The operation.
+     * @param indices The targeted indices.
+     * @param types The targeted types.
+     * @return The context to stop once the response is received.
+     */
+    public Context start(Operation operation, String[] indices, String[] types) {
+        return start(operation, join(indices), join(types));
+    }
+
+    private String join(String[] values) {
+        if (values == null || values.length == 0) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(values[0]);
+        for (int i = 1; i < values.length; i++) {
+            builder.append('-').append(values[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Compute the fingerprint of a query: the json of the query in which every value is replaced by '?' and arrays are collapsed to their distinct elements.
+     *
+     * @param query The query (any object which toString is the json of the query, or a map of query parameters which values may be query or filter builders).
+     * @return The normalized query.
+     */
+    public String fingerprint(Object query) {
+        if (query == null) {
+            return "";
+        }
+        try {
+            return normalize(toJsonNode(query)).toString();
+        } catch (Exception e) {
+            // not a valid json, fallback to a textual normalization.
+            String normalized = QUOTED_VALUE.matcher(query.toString()).replaceAll("\"" + VALUE_PLACEHOLDER + "\"");
+            return NUMBER_VALUE.matcher(normalized).replaceAll(VALUE_PLACEHOLDER);
+        }
+    }
+
+    private JsonNode toJsonNode(Object query) throws IOException {
+        if (query instanceof Map) {
+            ObjectNode node = jsonMapper.createObjectNode();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) query).entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof ToXContent) {
+                    node.put(String.valueOf(entry.getKey()), jsonMapper.readTree(value.toString()));
+                } else if (value != null) {
+                    node.put(String.valueOf(entry.getKey()), jsonMapper.valueToTree(value));
+                }
+            }
+            return node;
+        }
+        return jsonMapper.readTree(query.toString());
+    }
+
+    private JsonNode normalize(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode normalized = jsonMapper.createObjectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                normalized.put(field.getKey(), normalize(field.getValue()));
+            }
+            return normalized;
+        }
+        if (node.isArray()) {
+            ArrayNode normalized = jsonMapper.createArrayNode();
+            for (JsonNode element : node) {
+                JsonNode normalizedElement = normalize(element);
+                if (!contains(normalized, normalizedElement)) {
+                    normalized.add(normalizedElement);
+                }
+            }
+            return normalized;
+        }
+        return new TextNode(VALUE_PLACEHOLDER);
+    }
+
+    private boolean contains(ArrayNode arrayNode, JsonNode node) {
+        for (JsonNode element : arrayNode) {
+            if (element.equals(node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the size of the sources of the hits of a search response.
+     *
+     * @param response The search response.
+     * @return The size in bytes of the sources of the hits.
+     */
+    public static long sourcesSize(SearchResponse response) {
+        long size = 0;
+        if (response != null && response.getHits() != null) {
+            for (SearchHit hit : response.getHits().getHits()) {
+                size += sourceSize(hit.sourceRef());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the size of a document source.
+     *
+     * @param source The source, may be null.
+     * @return The size in bytes of the source, 0 if null.
+     */
+    public static long sourceSize(BytesReference source) {
+        return source == null ? 0 : source.length();
+    }
+
+    /**
+     * Measure of a single request.
+     */
+    public final class Context {
+        private final Operation operation;
+        private final String index;
+        private final String type;
+        private final long start = System.nanoTime();
+
+        private Context(Operation operation, String index, String type) {
+            this.operation = operation;
+            this.index = index;
+            this.type = type;
+        }
+
+        /**
+         * Stop the measure of a request which payload is unknown or not relevant (count, delete etc.).
+         *
+         * @param query The query for the slow query log, may be null.
+         */
+        public void stop(Object query) {
+            stop(-1, query);
+        }
+
+        /**
+         * Stop the measure of a request.
+         *
+         * @param payloadBytes The size of the documents sent or received, negative if unknown.
+         * @param query The query for the slow query log, may be null.
+         */
+        public void stop(long payloadBytes, Object query) {
+            long elapsed = System.nanoTime() - start;
+            if (metricRegistry != null) {
+                String name = MetricRegistry.name(PREFIX, index, type, operation.metricName);
+                Timer timer = metricRegistry.timer(MetricRegistry.name(name, "latency"));
+                timer.update(elapsed, TimeUnit.NANOSECONDS);
+                if (payloadBytes >= 0) {
+                    Histogram histogram = metricRegistry.histogram(MetricRegistry.name(name, "payload_bytes"));
+                    histogram.update(payloadBytes);
+                }
+            }
+            if (slowQueryThresholdNanos > 0 && elapsed >= slowQueryThresholdNanos && SLOW_QUERY_LOG.isWarnEnabled()) {
+                String fingerprint = fingerprint(query);
+                SLOW_QUERY_LOG.warn("Slow <{}> on index <{}> type <{}> took <{}> ms, fingerprint <{}> query <{}>", operation.metricName, index, type,
+                        TimeUnit.NANOSECONDS.toMillis(elapsed), Integer.toHexString(fingerprint.hashCode()), fingerprint);
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package alien4cloud.dao;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.SneakyThrows;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.mapping.MappingBuilder;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
+
+/**
+ * Writes documents to elastic search asynchronously using bulk requests. Documents are queued by the callers and written by a single background thread that
+ * sends a bulk request when the number of pending documents, their size or the age of the oldest pending document reach the configured limits.
+ *
+ * Items of a bulk request that fail are retried (with a linear backoff) before being dropped. When the queue is full, callers block until the writer catches
+ * up.
+ */
+public class ESBulkWriter {
+    private static final Entry FLUSH_MARKER = new Entry(null, null);
+    private static final long RETRY_BACKOFF_MS = 500;
+
+    private final String name;
+    private final ESGenericIdDAO dao;
+    private final int maxActions;
+    private final long maxBytes;
+    private final long flushIntervalMs;
+    private final int maxRetries;
+    private final BlockingQueue<Entry> queue;
+
+    /** Number of documents added to the writer. */
+    private final AtomicLong added = new AtomicLong();
+    /** Number of documents processed by the writer (written or dropped). */
+    private long processed = 0;
+    private final Object processedLock = new Object();
+
+    private volatile boolean running = false;
+    private Thread writerThread;
+
+    private Meter queuedMeter;
+    private Meter writtenMeter;
+    private Meter retriedMeter;
+    private Meter failedMeter;
+    private Histogram batchSizeHistogram;
+    private Timer bulkTimer;
+
+    /**
+     * Create a new bulk writer, {@link #start()} must be called before adding documents.
+     *
+     * @param name Name of the writer (used for the thread name and metrics).
+     * @param dao The dao that manages the indices of the documents written.
+     * @param maxActions Maximum number of documents in a bulk request.
+     * @param maxBytes Maximum size (in bytes) of the documents of a bulk request.
+     * @param flushIntervalMs Maximum delay (in milliseconds) between the queuing of a document and the bulk request that writes it.
+     * @param queueSize Maximum number of documents waiting to be written.
+     * @param maxRetries Number of times a failed document is retried.
+     */
+    public ESBulkWriter(String name, ESGenericIdDAO dao, int maxActions, long maxBytes, long flushIntervalMs, int queueSize, int maxRetries) {
+        this.name = name;
+        this.dao = dao;
+        this.maxActions = maxActions;
+        this.maxBytes = maxBytes;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxRetries = maxRetries;
+        this.queue = new LinkedBlockingQueue<>(queueSize);
+        initMetrics(dao.getMetricRegistry() == null ? new MetricRegistry() : dao.getMetricRegistry());
+    }
+
+    private void initMetrics(MetricRegistry registry) {
+        String prefix = MetricRegistry.name(ESBulkWriter.class, name);
+        queuedMeter = registry.meter(MetricRegistry.name(prefix, "queued"));
+        writtenMeter = registry.meter(MetricRegistry.name(prefix, "written"));
+        retriedMeter = registry.meter(MetricRegistry.name(prefix, "retried"));
+        failedMeter = registry.meter(MetricRegistry.name(prefix, "failed"));
+        batchSizeHistogram = registry.histogram(MetricRegistry.name(prefix, "batch_size"));
+        bulkTimer = registry.timer(MetricRegistry.name(prefix, "bulk"));
+        String queueSizeName = MetricRegistry.name(prefix, "queue_size");
+        registry.remove(queueSizeName);
+        registry.register(queueSizeName, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return queue.size();
+            }
+        });
+    }
+
+    /**
+     * Start the background thread that writes the documents.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "es-bulk-writer-" + name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stop the writer once all the documents already queued are written.
+     */
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        queue.offer(FLUSH_MARKER);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue a document to be written. The document is serialized in the caller thread so it can be modified once this method returns.
+     *
+     * @param data The document to write.
+     */
+    @SneakyThrows({ IOException.class })
+    public void add(Object data) {
+        String indexName = dao.getIndexForDocument(data);
+        String typeName = MappingBuilder.indexTypeFromClass(data.getClass());
+        IndexRequest request = dao.getClient().prepareIndex(indexName, typeName).setSource(dao.getJsonMapper().writeValueAsString(data)).request();
+        Entry entry = new Entry(typeName, request);
+        added.incrementAndGet();
+        if (!queue.offer(entry)) {
+            ESIndexMapper.getLog().warn("Bulk writer <{}> queue is full, waiting for pending documents to be written.", name);
+            try {
+                queue.put(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                markProcessed(1);
+                throw new IllegalStateException("Interrupted while waiting to queue a document in bulk writer <" + name + ">", e);
+            }
+        }
+        queuedMeter.mark();
+    }
+
+    /**
+     * Wait until every document added before this call has been processed (written or dropped after retries).
+     */
+    public void flush() {
+        long target = added.get();
+        synchronized (processedLock) {
+            if (processed >= target || !running) {
+                return;
+            }
+        }
+        // wake up the writer so it doesn't wait for the flush interval.
+        queue.offer(FLUSH_MARKER);
+        synchronized (processedLock) {
+            while (processed < target && running) {
+                try {
+                    processedLock.wait(flushIntervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = Lists.newArrayList();
+        long batchBytes = 0;
+        long deadline = 0;
+        while (running || !queue.isEmpty()) {
+            Entry entry;
+            try {
+                long wait = batch.isEmpty() ? flushIntervalMs : Math.max(0, deadline - System.currentTimeMillis());
+                entry = queue.poll(wait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (entry == FLUSH_MARKER) {
+                writeBatch(batch);
+                batchBytes = 0;
+                continue;
+            }
+            if (entry != null) {
+                if (batch.isEmpty()) {
+                    deadline = System.currentTimeMillis() + flushIntervalMs;
+                }
+                batch.add(entry);
+                batchBytes += entry.request.source().length();
+            }
+            if (batch.size() >= maxActions || batchBytes >= maxBytes || (!batch.isEmpty() && System.currentTimeMillis() >= deadline)) {
+                writeBatch(batch);
+                batchBytes = 0;
+            }
+        }
+        writeBatch(batch);
+        synchronized (processedLock) {
+            processedLock.notifyAll();
+        }
+    }
+
+    /**
+     * Write the batch (with retries) and clear it.
+     */
+    private void writeBatch(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int batchSize = batch.size();
+        batchSizeHistogram.update(batchSize);
+        List<Entry> pending = batch;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                if (attempt > maxRetries) {
+                    ESIndexMapper.getLog().error("Bulk writer <{}> dropped <{}> documents after <{}> retries.", name, pending.size(), maxRetries);
+                    failedMeter.mark(pending.size());
+                    break;
+                }
+                retriedMeter.mark(pending.size());
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failedMeter.mark(pending.size());
+                    break;
+                }
+            }
+            pending = bulk(pending);
+        }
+        batch.clear();
+        markProcessed(batchSize);
+    }
+
+    /**
+     * Send a bulk request.
+     *
+     * @return The entries that failed and should be retried.
+     */
+    private List<Entry> bulk(List<Entry> entries) {
+        BulkRequestBuilder bulkRequestBuilder = dao.getClient().prepareBulk();
+        boolean refresh = false;
+        for (Entry entry : entries) {
+            bulkRequestBuilder.add(entry.request);
+            refresh = refresh || dao.isRefreshOnWrite(entry.typeName);
+        }
+        BulkResponse response;
+        Timer.Context timerContext = bulkTimer.time();
+        try {
+            response = bulkRequestBuilder.setRefresh(refresh).execute().actionGet();
+        } catch (RuntimeException e) {
+            ESIndexMapper.getLog().warn("Bulk writer <" + name + "> failed to write <" + entries.size() + "> documents.", e);
+            return entries;
+        } finally {
+            timerContext.stop();
+        }
+        List<Entry> failed = Lists.newArrayList();
+        for (BulkItemResponse itemResponse : response.getItems()) {
+            if (itemResponse.isFailed()) {
+                ESIndexMapper.getLog().warn("Bulk writer <{}> failed to write document of type <{}>: {}", name, itemResponse.getType(),
+                        itemResponse.getFailureMessage());
+                failed.add(entries.get(itemResponse.getItemId()));
+            } else {
+                dao.afterWrite(itemResponse.getType());
+                dao.invalidateCache(itemResponse.getType(), itemResponse.getId());
+                writtenMeter.mark();
+            }
+        }
+        return failed;
+    }
+
+    private void markProcessed(int count) {
+        synchronized (processedLock) {
+            processed += count;
+            processedLock.notifyAll();
+        }
+    }
+
+    private static final class Entry {
+        private final String typeName;
+        private final IndexRequest request;
+
+        private Entry(String typeName, IndexRequest request) {
+            this.typeName = typeName;
+            this.request = request;
+        }
+    }
+}
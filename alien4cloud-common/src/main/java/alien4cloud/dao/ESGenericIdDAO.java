@@ -5,35 +5,207 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import lombok.SneakyThrows;
 
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.deletebyquery.DeleteByQueryRequestBuilder;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetRequestBuilder;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
 import org.elasticsearch.action.get.MultiGetResponse;
-import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateRequestBuilder;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.mapping.MappingBuilder;
+import org.elasticsearch.mapping.SourceFetchContext;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.fetch.source.FetchSourceContext;
 
+import alien4cloud.dao.DaoMetrics.Operation;
+import alien4cloud.dao.model.MultiGetResult;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.exception.DocumentVersionConflictException;
 import alien4cloud.exception.IndexingServiceException;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * ElasticSearch DAO to manage id based operations.
  * 
  * @author luc boutier
  */
 public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericIdDAO {
+    /** Maximum number of documents requested by a single multi-get request. */
+    public static final int MULTI_GET_CHUNK_SIZE = 500;
+    private static final String SCRIPT_LANG = "groovy";
+    /** Read-through caches of the types for which caching has been enabled (by elastic search type name). */
+    private final Map<String, EntityCache> entityCaches = Maps.newConcurrentMap();
+
+    /**
+     * Enable a read-through cache for the {@link #findById(Class, String)} operations on the given type. The cache is kept coherent with the save and delete
+     * operations of this dao, writes performed outside of the dao are visible only once cached entries expire.
+     *
+     * @param clazz The class for which to enable caching (must already be mapped to an index).
+     * @param maximumSize The maximum number of documents to keep in the cache, 0 or less disables the cache.
+     * @param expireAfterWriteSeconds Duration (in seconds) after which a cached document expires.
+     */
+    public void enableCache(Class<?> clazz, long maximumSize, long expireAfterWriteSeconds) {
+        if (maximumSize <= 0 || expireAfterWriteSeconds <= 0) {
+            return;
+        }
+        String indexName = getIndexForType(clazz);
+        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        EntityCache entityCache = new EntityCache(maximumSize, expireAfterWriteSeconds);
+        if (getMetricRegistry() != null) {
+            entityCache.registerMetrics(getMetricRegistry(), MetricRegistry.name(ESGenericIdDAO.class, "cache", indexName, typeName));
+        }
+        entityCaches.put(typeName, entityCache);
+        ESIndexMapper.getLog().info("Enabled cache for type <{}> with maximum size <{}> and expiration <{}s>", typeName, maximumSize, expireAfterWriteSeconds);
+    }
 
     @Override
     @SneakyThrows({ IOException.class })
     public <T> void save(T data) {
-        String indexName = getIndexForType(data.getClass());
+        IndexResponse response = executeIndex(prepareIndex(data));
+        afterWrite(response.getType());
+        invalidateCache(response.getType(), response.getId());
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    public long saveIfVersion(Object data, long version) {
+        try {
+            IndexResponse response = executeIndex(prepareIndex(data).setVersion(version));
+            afterWrite(response.getType());
+            invalidateCache(response.getType(), response.getId());
+            return response.getVersion();
+        } catch (RuntimeException e) {
+            throw toVersionConflict(e, data.getClass(), version);
+        }
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    public long saveIfAbsent(Object data) {
+        try {
+            IndexResponse response = executeIndex(prepareIndex(data).setCreate(true));
+            afterWrite(response.getType());
+            invalidateCache(response.getType(), response.getId());
+            return response.getVersion();
+        } catch (RuntimeException e) {
+            if (ExceptionsHelper.unwrapCause(e) instanceof DocumentAlreadyExistsException) {
+                throw new DocumentVersionConflictException("Document of type <" + data.getClass().getSimpleName() + "> already exists", e);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    public long[] saveIfVersion(List<? extends Versioned<?>> entities) {
+        long[] versions = new long[entities.size()];
+        if (entities.isEmpty()) {
+            return versions;
+        }
+        BulkRequestBuilder bulkRequestBuilder = getClient().prepareBulk();
+        boolean refresh = false;
+        Set<String> indexNames = Sets.newTreeSet();
+        Set<String> typeNames = Sets.newTreeSet();
+        for (Versioned<?> entity : entities) {
+            IndexRequestBuilder indexRequestBuilder = prepareIndex(entity.getData());
+            if (entity.getVersion() == 0) {
+                indexRequestBuilder.setCreate(true);
+            } else {
+                indexRequestBuilder.setVersion(entity.getVersion());
+            }
+            IndexRequest request = indexRequestBuilder.request();
+            refresh = refresh || isRefreshOnWrite(request.type());
+            indexNames.add(request.index());
+            typeNames.add(request.type());
+            bulkRequestBuilder.add(indexRequestBuilder);
+        }
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.BULK, indexNames.toArray(new String[indexNames.size()]),
+                typeNames.toArray(new String[typeNames.size()]));
+        BulkResponse response = bulkRequestBuilder.setRefresh(refresh).execute().actionGet();
+        metrics.stop(bulkRequestBuilder.request().estimatedSizeInBytes(), null);
+        // items are in the order of the requests
+        BulkItemResponse[] itemResponses = response.getItems();
+        for (int i = 0; i < itemResponses.length; i++) {
+            if (itemResponses[i].isFailed()) {
+                if (itemResponses[i].getFailure().getStatus() != RestStatus.CONFLICT) {
+                    throw new IndexingServiceException("Failed to save document <" + itemResponses[i].getId() + "> in index <" + itemResponses[i].getIndex()
+                            + ">: " + itemResponses[i].getFailureMessage());
+                }
+                versions[i] = -1;
+            } else {
+                versions[i] = itemResponses[i].getVersion();
+                afterWrite(itemResponses[i].getType());
+                invalidateCache(itemResponses[i].getType(), itemResponses[i].getId());
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Asynchronous version of {@link #save(Object)}.
+     *
+     * @param data The entity to save.
+     * @return A future completed once the entity is saved.
+     */
+    @SneakyThrows({ IOException.class })
+    public <T> ListenableFuture<Void> saveAsync(T data) {
+        IndexRequestBuilder indexRequestBuilder = prepareIndex(data);
+        final IndexRequest request = indexRequestBuilder.request();
+        final DaoMetrics.Context metrics = getDaoMetrics().start(Operation.INDEX, request.index(), request.type());
+        ActionListenerFuture<IndexResponse, Void> future = new ActionListenerFuture<IndexResponse, Void>("saveAsync") {
+            @Override
+            protected Void convert(IndexResponse response) {
+                metrics.stop(DaoMetrics.sourceSize(request.source()), null);
+                afterWrite(response.getType());
+                invalidateCache(response.getType(), response.getId());
+                return null;
+            }
+        };
+        indexRequestBuilder.execute(future);
+        return future;
+    }
+
+    private IndexResponse executeIndex(IndexRequestBuilder indexRequestBuilder) {
+        IndexRequest request = indexRequestBuilder.request();
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.INDEX, request.index(), request.type());
+        IndexResponse response = indexRequestBuilder.execute().actionGet();
+        metrics.stop(DaoMetrics.sourceSize(request.source()), null);
+        return response;
+    }
+
+    private <T> IndexRequestBuilder prepareIndex(T data) throws IOException {
+        String indexName = getIndexForDocument(data);
         String typeName = MappingBuilder.indexTypeFromClass(data.getClass());
 
         String json = getJsonMapper().writeValueAsString(data);
-        getClient().prepareIndex(indexName, typeName).setOperationThreaded(false).setSource(json).setRefresh(true).execute().actionGet();
+        return getClient().prepareIndex(indexName, typeName).setOperationThreaded(false).setSource(json).setRefresh(isRefreshOnWrite(typeName));
     }
 
     @Override
@@ -42,61 +214,397 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
         if (entities == null || entities.length == 0) {
             return;
         }
-        BulkRequestBuilder bulkRequestBuilder = getClient().prepareBulk().setRefresh(true);
+        BulkRequestBuilder bulkRequestBuilder = getClient().prepareBulk();
+        boolean refresh = false;
+        Set<String> indexNames = Sets.newTreeSet();
+        Set<String> typeNames = Sets.newTreeSet();
         for (T data : entities) {
-            String indexName = getIndexForType(data.getClass());
+            String indexName = getIndexForDocument(data);
             String typeName = MappingBuilder.indexTypeFromClass(data.getClass());
+            refresh = refresh || isRefreshOnWrite(typeName);
+            indexNames.add(indexName);
+            typeNames.add(typeName);
 
             String json = getJsonMapper().writeValueAsString(data);
             bulkRequestBuilder.add(getClient().prepareIndex(indexName, typeName).setSource(json));
         }
-        bulkRequestBuilder.execute().actionGet();
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.BULK, indexNames.toArray(new String[indexNames.size()]),
+                typeNames.toArray(new String[typeNames.size()]));
+        BulkResponse response = bulkRequestBuilder.setRefresh(refresh).execute().actionGet();
+        metrics.stop(bulkRequestBuilder.request().estimatedSizeInBytes(), null);
+        for (BulkItemResponse itemResponse : response.getItems()) {
+            afterWrite(itemResponse.getType());
+            invalidateCache(itemResponse.getType(), itemResponse.getId());
+        }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     @SneakyThrows({ IOException.class })
     public <T> T findById(Class<T> clazz, String id) {
-        boolean abstractType = Modifier.isAbstract(clazz.getModifiers());
         assertIdNotNullFor(id, "findById");
+        EntityCache entityCache = getEntityCache(clazz);
+        long cacheGeneration = 0;
+        if (entityCache != null) {
+            String cachedSource = entityCache.get(id);
+            if (cachedSource != null) {
+                return getJsonMapper().readValue(cachedSource, clazz);
+            }
+            cacheGeneration = entityCache.generation();
+        }
+
+        GetResponse response = coalescedGet(clazz, id);
+        return toObject(clazz, id, response, entityCache, cacheGeneration);
+    }
+
+    /**
+     * Asynchronous version of {@link #findById(Class, String)}.
+     *
+     * @param clazz The class of the object to find.
+     * @param id The id of the object.
+     * @return A future of the object that has the given id or of null if no object matching the request is found.
+     */
+    @SneakyThrows({ IOException.class })
+    public <T> ListenableFuture<T> findByIdAsync(final Class<T> clazz, final String id) {
+        assertIdNotNullFor(id, "findByIdAsync");
+        final EntityCache entityCache = getEntityCache(clazz);
+        long generation = 0;
+        if (entityCache != null) {
+            String cachedSource = entityCache.get(id);
+            if (cachedSource != null) {
+                return Futures.immediateFuture(getJsonMapper().readValue(cachedSource, clazz));
+            }
+            generation = entityCache.generation();
+        }
+
+        final long cacheGeneration = generation;
+        GetRequestBuilder getRequestBuilder = prepareGet(clazz, id);
+        final DaoMetrics.Context metrics = getDaoMetrics().start(Operation.GET, getRequestBuilder.request().index(), getRequestBuilder.request().type());
+        ActionListenerFuture<GetResponse, T> future = new ActionListenerFuture<GetResponse, T>("findByIdAsync") {
+            @Override
+            protected T convert(GetResponse response) throws IOException {
+                metrics.stop(DaoMetrics.sourceSize(response.getSourceAsBytesRef()), null);
+                return toObject(clazz, id, response, entityCache, cacheGeneration);
+            }
+        };
+        getRequestBuilder.execute(future);
+        return future;
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    public <T> Versioned<T> findByIdWithVersion(Class<T> clazz, String id) {
+        assertIdNotNullFor(id, "findByIdWithVersion");
+        GetResponse response = coalescedGet(clazz, id);
+        T data = toObject(clazz, id, response, null, 0);
+        return data == null ? null : new Versioned<T>(data, response.getVersion());
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, Versioned<T>> findByIdsWithVersion(Class<T> clazz, String... ids) {
+        boolean abstractType = Modifier.isAbstract(clazz.getModifiers());
+        Map<String, Versioned<T>> versionedData = Maps.newHashMap();
+        for (int from = 0; from < ids.length; from += MULTI_GET_CHUNK_SIZE) {
+            String[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + MULTI_GET_CHUNK_SIZE));
+            DaoMetrics.Context metrics = startMultiGet(clazz);
+            MultiGetResponse response = prepareMultiGet(clazz, null, chunk).execute().actionGet();
+            metrics.stop(multiGetSourcesSize(response), null);
+            for (MultiGetItemResponse itemResponse : response.getResponses()) {
+                GetResponse getResponse = getItemResponse(itemResponse);
+                if (getResponse.isExists()) {
+                    Class<?> dataClass = abstractType ? getTypesToClasses().get(getResponse.getType()) : clazz;
+                    T data = (T) readSource(getResponse.getSourceAsBytesRef(), dataClass);
+                    versionedData.put(getResponse.getId(), new Versioned<T>(data, getResponse.getVersion()));
+                }
+            }
+        }
+        return versionedData;
+    }
+
+    private GetRequestBuilder prepareGet(Class<?> clazz, String id) {
+        boolean abstractType = Modifier.isAbstract(clazz.getModifiers());
         String indexName = getIndexForType(clazz);
         String typeName = abstractType ? null : MappingBuilder.indexTypeFromClass(clazz);
-        GetResponse response = getClient().prepareGet(indexName, typeName, id).execute().actionGet();
+        return getClient().prepareGet(indexName, typeName, id);
+    }
+
+    /**
+     * Get a document, identical concurrent gets share the same response (see {@link ReadCoalescer}).
+     */
+    private GetResponse coalescedGet(Class<?> clazz, String id) {
+        final GetRequestBuilder getRequestBuilder = prepareGet(clazz, id);
+        GetRequest request = getRequestBuilder.request();
+        String key = readKey(new String[] { request.index() }, Operation.GET, request.type(), id);
+        return getReadCoalescer().read(Operation.GET, key, new Supplier<GetResponse>() {
+            @Override
+            public GetResponse get() {
+                return executeGet(getRequestBuilder);
+            }
+        });
+    }
+
+    private GetResponse executeGet(GetRequestBuilder getRequestBuilder) {
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.GET, getRequestBuilder.request().index(), getRequestBuilder.request().type());
+        GetResponse response = getRequestBuilder.execute().actionGet();
+        metrics.stop(DaoMetrics.sourceSize(response.getSourceAsBytesRef()), null);
+        return response;
+    }
 
+    private EntityCache getEntityCache(Class<?> clazz) {
+        if (entityCaches.isEmpty() || Modifier.isAbstract(clazz.getModifiers())) {
+            return null;
+        }
+        return entityCaches.get(MappingBuilder.indexTypeFromClass(clazz));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T toObject(Class<T> clazz, String id, GetResponse response, EntityCache entityCache, long cacheGeneration) throws IOException {
         if (response == null || !response.isExists()) {
-            ESIndexMapper.getLog().debug("Nothing found in index <{}>, type <{}>, for Id <{}>.", indexName, typeName, id);
+            ESIndexMapper.getLog().debug("Nothing found in index <{}>, for class <{}>, for Id <{}>.", getIndexForType(clazz), clazz.getName(), id);
             return null;
         }
 
-        ESIndexMapper.getLog().debug("Found one in index <{}>, type <{}>, for Id <{}>.", indexName, typeName, id);
+        ESIndexMapper.getLog().debug("Found one in index <{}>, type <{}>, for Id <{}>.", response.getIndex(), response.getType(), id);
 
-        if (abstractType) {
-            return (T) getJsonMapper().readValue(response.getSourceAsString(), getTypesToClasses().get(response.getType()));
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            return (T) readSource(response.getSourceAsBytesRef(), getTypesToClasses().get(response.getType()));
         }
 
-        return getJsonMapper().readValue(response.getSourceAsString(), clazz);
+        if (entityCache != null) {
+            String source = response.getSourceAsString();
+            entityCache.put(id, source, cacheGeneration);
+            return getJsonMapper().readValue(source, clazz);
+        }
+        return readSource(response.getSourceAsBytesRef(), clazz);
     }
 
     @Override
-    @SneakyThrows({ IOException.class })
     public <T> List<T> findByIds(Class<T> clazz, String... ids) {
-        String indexName = getIndexForType(clazz);
-        String typeName = MappingBuilder.indexTypeFromClass(clazz);
-        MultiGetResponse response = getClient().prepareMultiGet().add(indexName, typeName, ids).execute().actionGet();
+        return multiGet(clazz, null, ids).getData();
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    public <T> MultiGetResult<T> multiGet(Class<T> clazz, String fetchContext, String... ids) {
+        FetchSourceContext fetchSourceContext = getFetchSourceContext(clazz, fetchContext);
+        List<T> data = new ArrayList<>(ids.length);
+        List<String> missingIds = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += MULTI_GET_CHUNK_SIZE) {
+            String[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + MULTI_GET_CHUNK_SIZE));
+            DaoMetrics.Context metrics = startMultiGet(clazz);
+            MultiGetResponse response = prepareMultiGet(clazz, fetchSourceContext, chunk).execute().actionGet();
+            metrics.stop(multiGetSourcesSize(response), null);
+            readMultiGetResponse(clazz, response, data, missingIds);
+        }
+        return new MultiGetResult<T>(data, missingIds);
+    }
 
-        if (response == null || response.getResponses() == null || response.getResponses().length == 0) {
-            ESIndexMapper.getLog().debug("Nothing found in index <{}>, type <{}>, for Ids <{}>.", indexName, typeName, Arrays.toString(ids));
+    /**
+     * Asynchronous version of {@link #findByIds(Class, String...)}, the ids are requested through concurrent multi-get requests of at most
+     * {@link #MULTI_GET_CHUNK_SIZE} ids.
+     *
+     * @param clazz The class for which to find an instance.
+     * @param ids array of id of the data to find.
+     * @return A future of the list of objects that have the given ids.
+     */
+    public <T> ListenableFuture<List<T>> findByIdsAsync(final Class<T> clazz, final String... ids) {
+        if (ids.length == 0) {
+            return Futures.<List<T>> immediateFuture(new ArrayList<T>());
+        }
+        if (ids.length <= MULTI_GET_CHUNK_SIZE) {
+            return findChunkAsync(clazz, ids);
+        }
+        List<ListenableFuture<List<T>>> chunkFutures = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += MULTI_GET_CHUNK_SIZE) {
+            chunkFutures.add(findChunkAsync(clazz, Arrays.copyOfRange(ids, from, Math.min(ids.length, from + MULTI_GET_CHUNK_SIZE))));
+        }
+        // results of the chunks are in the order of the requested ids
+        return Futures.transform(Futures.allAsList(chunkFutures), new Function<List<List<T>>, List<T>>() {
+            @Override
+            public List<T> apply(List<List<T>> chunkResults) {
+                List<T> result = new ArrayList<>();
+                for (List<T> chunkResult : chunkResults) {
+                    result.addAll(chunkResult);
+                }
+                return result;
+            }
+        });
+    }
+
+    private <T> ListenableFuture<List<T>> findChunkAsync(final Class<T> clazz, String... ids) {
+        final DaoMetrics.Context metrics = startMultiGet(clazz);
+        ActionListenerFuture<MultiGetResponse, List<T>> future = new ActionListenerFuture<MultiGetResponse, List<T>>("findByIdsAsync") {
+            @Override
+            protected List<T> convert(MultiGetResponse response) throws IOException {
+                metrics.stop(multiGetSourcesSize(response), null);
+                List<T> result = new ArrayList<>();
+                readMultiGetResponse(clazz, response, result, new ArrayList<String>());
+                return result;
+            }
+        };
+        prepareMultiGet(clazz, null, ids).execute(future);
+        return future;
+    }
+
+    protected FetchSourceContext getFetchSourceContext(Class<?> clazz, String fetchContext) {
+        if (fetchContext == null) {
             return null;
         }
+        SourceFetchContext sourceFetchContext = getMappingBuilder().getFetchSource(clazz.getName(), fetchContext);
+        if (sourceFetchContext == null) {
+            ESIndexMapper.getLog().warn("Unable to find fetch context <" + fetchContext + "> for class <" + clazz.getName() + ">. It will be ignored.");
+            return null;
+        }
+        List<String> includes = sourceFetchContext.getIncludes();
+        List<String> excludes = sourceFetchContext.getExcludes();
+        return new FetchSourceContext(includes.isEmpty() ? null : includes.toArray(new String[includes.size()]), excludes.isEmpty() ? null
+                : excludes.toArray(new String[excludes.size()]));
+    }
+
+    private MultiGetRequestBuilder prepareMultiGet(Class<?> clazz, FetchSourceContext fetchSourceContext, String... ids) {
+        String indexName = getIndexForType(clazz);
+        String typeName = Modifier.isAbstract(clazz.getModifiers()) ? null : MappingBuilder.indexTypeFromClass(clazz);
+        MultiGetRequestBuilder multiGetRequestBuilder = getClient().prepareMultiGet();
+        for (String id : ids) {
+            multiGetRequestBuilder.add(new MultiGetRequest.Item(indexName, typeName, id).fetchSourceContext(fetchSourceContext));
+        }
+        return multiGetRequestBuilder;
+    }
+
+    private DaoMetrics.Context startMultiGet(Class<?> clazz) {
+        String typeName = Modifier.isAbstract(clazz.getModifiers()) ? null : MappingBuilder.indexTypeFromClass(clazz);
+        return getDaoMetrics().start(Operation.MULTI_GET, getIndexForType(clazz), typeName);
+    }
+
+    private long multiGetSourcesSize(MultiGetResponse response) {
+        long size = 0;
+        for (MultiGetItemResponse itemResponse : response.getResponses()) {
+            if (!itemResponse.isFailed()) {
+                size += DaoMetrics.sourceSize(itemResponse.getResponse().getSourceAsBytesRef());
+            }
+        }
+        return size;
+    }
+
+    private GetResponse getItemResponse(MultiGetItemResponse itemResponse) {
+        if (itemResponse.isFailed()) {
+            throw new IndexingServiceException("Failed to get document <" + itemResponse.getId() + "> from index <" + itemResponse.getIndex() + ">: "
+                    + itemResponse.getFailure().getMessage());
+        }
+        return itemResponse.getResponse();
+    }
+
+    /**
+     * Read the items of a multi-get response (that are in the order of the requested ids) into the found data and missing ids.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void readMultiGetResponse(Class<T> clazz, MultiGetResponse response, List<T> data, List<String> missingIds) throws IOException {
+        boolean abstractType = Modifier.isAbstract(clazz.getModifiers());
+        for (MultiGetItemResponse itemResponse : response.getResponses()) {
+            GetResponse getResponse = getItemResponse(itemResponse);
+            if (getResponse.isExists()) {
+                Class<?> dataClass = abstractType ? getTypesToClasses().get(getResponse.getType()) : clazz;
+                data.add((T) readSource(getResponse.getSourceAsBytesRef(), dataClass));
+            } else {
+                missingIds.add(itemResponse.getId());
+            }
+        }
+    }
+
+    @Override
+    public void update(Class<?> clazz, String id, Map<String, ?> partialDocument) {
+        assertIdNotNullFor(id, "update");
+        executeUpdate(preparePartialUpdate(clazz, id, partialDocument), id);
+    }
 
-        List<T> result = new ArrayList<>();
-        for (MultiGetItemResponse getItemResponse : response.getResponses()) {
-            if (getItemResponse.getResponse().isExists()) {
-                result.add(getJsonMapper().readValue(getItemResponse.getResponse().getSourceAsString(), clazz));
+    @Override
+    public void update(Class<?> clazz, String[] ids, Map<String, ?> partialDocument) {
+        if (ids.length == 0) {
+            return;
+        }
+        BulkRequestBuilder bulkRequestBuilder = getClient().prepareBulk();
+        for (String id : ids) {
+            assertIdNotNullFor(id, "update");
+            bulkRequestBuilder.add(preparePartialUpdate(clazz, id, partialDocument));
+        }
+        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.BULK, getIndexForType(clazz), typeName);
+        BulkResponse response = bulkRequestBuilder.setRefresh(isRefreshOnWrite(typeName)).execute().actionGet();
+        metrics.stop(bulkRequestBuilder.request().estimatedSizeInBytes(), null);
+        for (BulkItemResponse itemResponse : response.getItems()) {
+            if (!itemResponse.isFailed()) {
+                afterWrite(itemResponse.getType());
+                invalidateCache(itemResponse.getType(), itemResponse.getId());
+            } else if (itemResponse.getFailure().getStatus() != RestStatus.NOT_FOUND) {
+                throw new IndexingServiceException("Failed to update document <" + itemResponse.getId() + "> in index <" + itemResponse.getIndex() + ">: "
+                        + itemResponse.getFailureMessage());
             }
         }
+    }
 
-        return result;
+    @Override
+    public void update(Class<?> clazz, String id, String script, Map<String, ?> parameters) {
+        assertIdNotNullFor(id, "update");
+        executeUpdate(prepareScriptedUpdate(clazz, id, script, parameters), id);
+    }
+
+    @Override
+    public long updateIfVersion(Class<?> clazz, String id, Map<String, ?> partialDocument, long version) {
+        assertIdNotNullFor(id, "updateIfVersion");
+        try {
+            return executeUpdate(preparePartialUpdate(clazz, id, partialDocument).setVersion(version), id);
+        } catch (RuntimeException e) {
+            throw toVersionConflict(e, clazz, version);
+        }
+    }
+
+    @Override
+    public long updateIfVersion(Class<?> clazz, String id, String script, Map<String, ?> parameters, long version) {
+        assertIdNotNullFor(id, "updateIfVersion");
+        try {
+            return executeUpdate(prepareScriptedUpdate(clazz, id, script, parameters).setVersion(version), id);
+        } catch (RuntimeException e) {
+            throw toVersionConflict(e, clazz, version);
+        }
+    }
+
+    @SneakyThrows({ IOException.class })
+    private UpdateRequestBuilder preparePartialUpdate(Class<?> clazz, String id, Map<String, ?> partialDocument) {
+        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        return getClient().prepareUpdate(getIndexForType(clazz), typeName, id).setDoc(getJsonMapper().writeValueAsString(partialDocument))
+                .setRefresh(isRefreshOnWrite(typeName));
+    }
+
+    @SneakyThrows({ IOException.class })
+    @SuppressWarnings("unchecked")
+    private UpdateRequestBuilder prepareScriptedUpdate(Class<?> clazz, String id, String script, Map<String, ?> parameters) {
+        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        // script parameters must be plain maps, lists and values: convert them the same way the documents are serialized.
+        Map<String, Object> scriptParameters = getJsonMapper().readValue(getJsonMapper().writeValueAsBytes(parameters), Map.class);
+        return getClient().prepareUpdate(getIndexForType(clazz), typeName, id).setScript(script, ScriptService.ScriptType.INLINE).setScriptLang(SCRIPT_LANG)
+                .setScriptParams(scriptParameters).setRefresh(isRefreshOnWrite(typeName));
+    }
+
+    private long executeUpdate(UpdateRequestBuilder updateRequestBuilder, String id) {
+        UpdateRequest request = updateRequestBuilder.request();
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.UPDATE, request.index(), request.type());
+        UpdateResponse response = updateRequestBuilder.execute().actionGet();
+        metrics.stop(request.doc() == null ? -1 : DaoMetrics.sourceSize(request.doc().source()), null);
+        afterWrite(response.getType());
+        invalidateCache(response.getType(), id);
+        return response.getVersion();
+    }
+
+    /**
+     * Convert the version conflicts reported by elastic search to {@link DocumentVersionConflictException}, other exceptions are returned as is.
+     */
+    private RuntimeException toVersionConflict(RuntimeException e, Class<?> clazz, long version) {
+        if (ExceptionsHelper.unwrapCause(e) instanceof VersionConflictEngineException) {
+            return new DocumentVersionConflictException("Document of type <" + clazz.getSimpleName() + "> has been modified since version <" + version
+                    + ">", e);
+        }
+        return e;
     }
 
     @Override
@@ -104,7 +612,11 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
         assertIdNotNullFor(id, "delete");
         String indexName = getIndexForType(clazz);
         String typeName = MappingBuilder.indexTypeFromClass(clazz);
-        getClient().prepareDelete(indexName, typeName, id).setRefresh(true).execute().actionGet();
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.DELETE, indexName, typeName);
+        getClient().prepareDelete(indexName, typeName, id).setRefresh(isRefreshOnWrite(typeName)).execute().actionGet();
+        metrics.stop(null);
+        afterWrite(typeName);
+        invalidateCache(typeName, id);
     }
 
     @Override
@@ -113,11 +625,32 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
         Class<?>[] clazzes = getRequestedTypes(clazz);
         String[] classes = getTypesStrings(clazzes);
 
+        // delete by query relies on search, pending writes must be visible
+        refreshBeforeRead(indexName);
         DeleteByQueryRequestBuilder deleteRequestBuilder = getClient().prepareDeleteByQuery(indexName).setTypes(classes);
         if (query != null) {
             deleteRequestBuilder.setQuery(query);
         }
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.DELETE_BY_QUERY, new String[] { indexName }, classes);
         deleteRequestBuilder.execute().actionGet();
+        metrics.stop(query);
+        // we don't know which documents have been deleted, drop every cached document of the types
+        if (classes != null) {
+            for (String typeName : classes) {
+                afterWrite(typeName);
+                EntityCache entityCache = entityCaches.get(typeName);
+                if (entityCache != null) {
+                    entityCache.invalidateAll();
+                }
+            }
+        }
+    }
+
+    void invalidateCache(String typeName, String id) {
+        EntityCache entityCache = entityCaches.get(typeName);
+        if (entityCache != null) {
+            entityCache.invalidate(id);
+        }
     }
 
     private void assertIdNotNullFor(String id, String operation) {
@@ -127,19 +660,6 @@ public abstract class ESGenericIdDAO extends ESIndexMapper implements IGenericId
         }
     }
 
-    protected Class<?>[] getRequestedTypes(Class<?> clazz) {
-        if (Modifier.isAbstract(clazz.getModifiers())) {
-            List<Class<?>> classes = Lists.newArrayList();
-            for (Class<?> registeredClass : this.getTypesToClasses().values()) {
-                if (clazz.isAssignableFrom(registeredClass)) {
-                    classes.add(registeredClass);
-                }
-            }
-            return classes.toArray(new Class<?>[classes.size()]);
-        }
-        return new Class<?>[] { clazz };
-    }
-
     protected String[] getTypesStrings(Class<?>... classes) {
         if (classes == null) {
             return null;
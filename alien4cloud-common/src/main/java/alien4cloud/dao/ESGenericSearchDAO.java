@@ -4,18 +4,27 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
 import lombok.SneakyThrows;
 
 import org.elasticsearch.action.count.CountRequestBuilder;
+import org.elasticsearch.action.count.CountResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.mapping.ElasticSearchClient;
@@ -23,72 +32,180 @@ import org.elasticsearch.mapping.FilterValuesStrategy;
 import org.elasticsearch.mapping.MappingBuilder;
 import org.elasticsearch.mapping.QueryHelper;
 import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
-import org.elasticsearch.mapping.SourceFetchContext;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.facet.Facet;
 import org.elasticsearch.search.facet.Facets;
 import org.elasticsearch.search.facet.terms.TermsFacet;
+import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.beans.factory.annotation.Value;
 
+import alien4cloud.dao.DaoMetrics.Operation;
+import alien4cloud.dao.model.CursorResult;
 import alien4cloud.dao.model.FacetedSearchFacet;
 import alien4cloud.dao.model.FacetedSearchResult;
 import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.ICloseableIterator;
 import alien4cloud.rest.utils.JsonUtil;
 import alien4cloud.utils.ElasticSearchUtil;
 import alien4cloud.utils.MapUtil;
 
+import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Elastic search dao that manages search operations.
  *
  * @author luc boutier
  */
-public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearchDAO {
-    private static final String SCORE_SCRIPT = "_score * ((doc.containsKey('alienScore') && !doc['alienScore'].empty) ? doc['alienScore'].value : 1)";
+public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearchDAO, IGenericAsyncSearchDAO {
+    /** Script that multiplies the score by the alienScore field, see {@link ScriptScoringStrategy}. */
+    public static final String SCORE_SCRIPT = "_score * ((doc.containsKey('alienScore') && !doc['alienScore'].empty) ? doc['alienScore'].value : 1)";
+    /** Maximum number of asynchronous query helper requests waiting for a thread, further requests are executed by the caller thread. */
+    private static final int ASYNC_QUEUE_SIZE = 1000;
+    /** Page size used when a scroll is used internally to fetch all the results of a query. */
+    public static final int DEFAULT_SCROLL_PAGE_SIZE = 100;
     @Resource
     private ElasticSearchClient esClient;
     @Resource
     private QueryHelper queryHelper;
+    @Value("${elasticSearch.async_pool_size:10}")
+    private int asyncPoolSize;
+    /** The query helper only exposes blocking requests, asynchronous searches built with it are executed on this bounded pool. */
+    private ListeningExecutorService asyncExecutor;
+    /** Scoring of the searches by class, searches on other classes are scored by text relevance only. */
+    private final Map<Class<?>, IScoringStrategy> scoringStrategies = Maps.newConcurrentMap();
+
+    @PostConstruct
+    public void initAsyncExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(asyncPoolSize, asyncPoolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(
+                ASYNC_QUEUE_SIZE), new ThreadFactoryBuilder().setNameFormat("es-dao-async-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        asyncExecutor = MoreExecutors.listeningDecorator(executor);
+    }
+
+    @PreDestroy
+    public void shutdownAsyncExecutor() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Define how the searches on a class (or on one of its parent classes) are scored.
+     *
+     * @param clazz The class.
+     * @param scoringStrategy The scoring strategy, null to score by text relevance only.
+     */
+    public void setScoringStrategy(Class<?> clazz, IScoringStrategy scoringStrategy) {
+        if (scoringStrategy == null) {
+            scoringStrategies.remove(clazz);
+        } else {
+            scoringStrategies.put(clazz, scoringStrategy);
+        }
+    }
+
+    private IScoringStrategy getScoringStrategy(Class<?> clazz) {
+        IScoringStrategy scoringStrategy = scoringStrategies.get(clazz);
+        if (scoringStrategy != null || clazz == null) {
+            return scoringStrategy;
+        }
+        // searches on a sub-class are scored as its parent, searches on a parent class contain other types and keep the text relevance.
+        for (Map.Entry<Class<?>, IScoringStrategy> entry : scoringStrategies.entrySet()) {
+            if (entry.getKey().isAssignableFrom(clazz)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
 
     @Override
     public <T> long count(Class<T> clazz, QueryBuilder query) {
+        DaoMetrics.Context metrics = startCount(clazz);
+        long count = prepareCount(clazz, query).execute().actionGet().getCount();
+        metrics.stop(query);
+        return count;
+    }
+
+    @Override
+    public <T> ListenableFuture<Long> countAsync(Class<T> clazz, final QueryBuilder query) {
+        final DaoMetrics.Context metrics = startCount(clazz);
+        ActionListenerFuture<CountResponse, Long> future = new ActionListenerFuture<CountResponse, Long>("countAsync") {
+            @Override
+            protected Long convert(CountResponse response) {
+                metrics.stop(query);
+                return response.getCount();
+            }
+        };
+        prepareCount(clazz, query).execute(future);
+        return future;
+    }
+
+    private DaoMetrics.Context startCount(Class<?> clazz) {
+        return getDaoMetrics().start(Operation.COUNT, getIndexForType(clazz), MappingBuilder.indexTypeFromClass(clazz));
+    }
+
+    private <T> CountRequestBuilder prepareCount(Class<T> clazz, QueryBuilder query) {
         String indexName = getIndexForType(clazz);
         String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        refreshBeforeRead(indexName);
         CountRequestBuilder countRequestBuilder = getClient().prepareCount(indexName).setTypes(typeName);
         if (query != null) {
             countRequestBuilder.setQuery(query);
         }
-        return countRequestBuilder.execute().actionGet().getCount();
+        return countRequestBuilder;
     }
 
     @Override
     public <T> long count(Class<T> clazz, String searchText, Map<String, String[]> filters) {
         String[] searchIndexes = clazz == null ? getAllIndexes() : new String[] { getIndexForType(clazz) };
         Class<?>[] requestedTypes = getRequestedTypes(clazz);
+        refreshBeforeRead(searchIndexes);
+
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.COUNT, searchIndexes, getTypesStrings(requestedTypes));
+        long count = this.queryHelper.buildCountQuery(searchIndexes, searchText).types(requestedTypes).filters(filters).count().getCount();
+        metrics.stop(describeQuery(searchText, filters, null));
+        return count;
+    }
 
-        return this.queryHelper.buildCountQuery(searchIndexes, searchText).types(requestedTypes).filters(filters).count().getCount();
+    @Override
+    public <T> ListenableFuture<Long> countAsync(final Class<T> clazz, final String searchText, final Map<String, String[]> filters) {
+        return asyncExecutor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return count(clazz, searchText, filters);
+            }
+        });
     }
 
     @SneakyThrows({ IOException.class })
     private <T> List<T> doCustomFind(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder, int size) {
-        String indexName = getIndexForType(clazz);
-        SearchRequestBuilder searchRequestBuilder = getClient().prepareSearch(indexName).setTypes(getTypesFromClass(clazz)).setSize(size);
+        String[] searchIndexes = new String[] { getIndexForType(clazz) };
+        String[] types = getTypesFromClass(clazz);
+        refreshBeforeRead(searchIndexes);
+        SearchRequestBuilder searchRequestBuilder = getClient().prepareSearch(searchIndexes).setTypes(types).setSize(size);
         if (query != null) {
             searchRequestBuilder.setQuery(query);
         }
         if (sortBuilder != null) {
             searchRequestBuilder.addSort(sortBuilder);
         }
-        SearchResponse response = searchRequestBuilder.execute().actionGet();
+        SearchResponse response = executeSearch(searchIndexes, types, searchRequestBuilder);
         if (!somethingFound(response)) {
             return null;
         } else {
             List<T> hits = Lists.newArrayList();
             for (int i = 0; i < response.getHits().getHits().length; i++) {
-                String hit = response.getHits().getAt(i).sourceAsString();
-                hits.add((T) getJsonMapper().readValue(hit, getClassFromType(response.getHits().getAt(i).getType())));
+                SearchHit hit = response.getHits().getAt(i);
+                hits.add((T) readSource(hit.sourceRef(), getClassFromType(hit.getType())));
             }
             return hits;
         }
@@ -116,7 +233,32 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
 
     @Override
     public <T> List<T> customFindAll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder) {
-        return doCustomFind(clazz, query, sortBuilder, Integer.MAX_VALUE);
+        List<T> results = Lists.newArrayList();
+        try (ICloseableIterator<T> iterator = scroll(clazz, query, sortBuilder, DEFAULT_SCROLL_PAGE_SIZE)) {
+            while (iterator.hasNext()) {
+                results.add(iterator.next());
+            }
+        }
+        return results.isEmpty() ? null : results;
+    }
+
+    @Override
+    public <T> ICloseableIterator<T> scroll(Class<T> clazz, QueryBuilder query, int pageSize) {
+        return scroll(clazz, query, null, pageSize);
+    }
+
+    @Override
+    public <T> ICloseableIterator<T> scroll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder, int pageSize) {
+        String indexName = getIndexForType(clazz);
+        refreshBeforeRead(indexName);
+        SearchRequestBuilder searchRequestBuilder = getClient().prepareSearch(indexName).setTypes(getTypesFromClass(clazz)).setSize(pageSize);
+        if (query != null) {
+            searchRequestBuilder.setQuery(query);
+        }
+        if (sortBuilder != null) {
+            searchRequestBuilder.addSort(sortBuilder);
+        }
+        return new ESScrollIterator<T>(this, searchRequestBuilder, sortBuilder != null);
     }
 
     @Override
@@ -131,7 +273,12 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
 
     @Override
     public GetMultipleDataResult<Object> search(SearchQueryHelperBuilder queryHelperBuilder, int from, int maxElements) {
-        return toGetMultipleDataResult(Object.class, queryHelperBuilder.search(from, maxElements), from);
+        // the indices targeted by the builder are unknown, make sure every index of the dao is up to date.
+        refreshBeforeRead(getAllIndexes());
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.SEARCH, getAllIndexes(), null);
+        SearchResponse searchResponse = queryHelperBuilder.search(from, maxElements);
+        metrics.stop(DaoMetrics.sourcesSize(searchResponse), null);
+        return toGetMultipleDataResult(Object.class, searchResponse, from);
     }
 
     @Override
@@ -156,6 +303,17 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
         return toGetMultipleDataResult(clazz, searchResponse, from);
     }
 
+    @Override
+    public <T> ListenableFuture<GetMultipleDataResult<T>> searchAsync(final Class<T> clazz, final String searchText, final Map<String, String[]> filters,
+            final FilterBuilder customFilter, final String fetchContext, final int from, final int maxElements) {
+        return asyncExecutor.submit(new Callable<GetMultipleDataResult<T>>() {
+            @Override
+            public GetMultipleDataResult<T> call() {
+                return search(clazz, searchText, filters, customFilter, fetchContext, from, maxElements);
+            }
+        });
+    }
+
     @Override
     public GetMultipleDataResult<Object> search(String[] searchIndices, Class<?>[] classes, String searchText, Map<String, String[]> filters,
             String fetchContext, int from, int maxElements) {
@@ -165,8 +323,13 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
     @Override
     public GetMultipleDataResult<Object> search(String[] searchIndices, Class<?>[] classes, String searchText, Map<String, String[]> filters,
             FilterBuilder customFilter, String fetchContext, int from, int maxElements) {
-        SearchResponse searchResponse = queryHelper.buildSearchQuery(searchIndices, searchText).fetchContext(fetchContext).filters(filters)
-                .customFilter(customFilter).types(classes).search(from, maxElements);
+        refreshBeforeRead(searchIndices);
+        final String[] types = getTypesStrings(classes);
+        final SearchQueryHelperBuilder searchQueryHelperBuilder = queryHelper.buildSearchQuery(searchIndices, searchText).fetchContext(fetchContext)
+                .filters(filters).customFilter(customFilter).types(classes);
+        String key = readKey(searchIndices, Operation.SEARCH, types, searchText, filters, customFilter, fetchContext, from, maxElements);
+        SearchResponse searchResponse = executeSearch(Operation.SEARCH, key, searchIndices, types, searchQueryHelperBuilder, from, maxElements,
+                describeQuery(searchText, filters, customFilter));
         return toGetMultipleDataResult(Object.class, searchResponse, from);
     }
 
@@ -203,16 +366,33 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
 
         fillMultipleDataResult(clazz, searchResponse, finalResponse, from, true);
 
-        finalResponse.setFacets(parseFacets(searchResponse.getFacets()));
+        Facets facets = getScoringStrategy(clazz) == null ? searchResponse.getFacets() : searchFacets(clazz, searchText, filters, customFilter);
+        finalResponse.setFacets(parseFacets(facets));
 
         return finalResponse;
     }
 
+    @Override
+    public <T> ListenableFuture<FacetedSearchResult> facetedSearchAsync(final Class<T> clazz, final String searchText, final Map<String, String[]> filters,
+            final FilterBuilder customFilter, final String fetchContext, final int from, final int maxElements) {
+        return asyncExecutor.submit(new Callable<FacetedSearchResult>() {
+            @Override
+            public FacetedSearchResult call() {
+                return facetedSearch(clazz, searchText, filters, customFilter, fetchContext, from, maxElements);
+            }
+        });
+    }
+
     @Override
     public GetMultipleDataResult<Object> suggestSearch(String[] searchIndices, Class<?>[] requestedTypes, String suggestFieldPath, String searchPrefix,
             String fetchContext, int from, int maxElements) {
+        refreshBeforeRead(searchIndices);
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.SUGGEST, searchIndices, getTypesStrings(requestedTypes));
         SearchResponse searchResponse = queryHelper.buildSearchSuggestQuery(searchIndices, searchPrefix, suggestFieldPath).types(requestedTypes)
                 .fetchContext(fetchContext).search(from, maxElements);
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("suggestFieldPath", suggestFieldPath);
+        metrics.stop(DaoMetrics.sourcesSize(searchResponse), query);
 
         return toGetMultipleDataResult(Object.class, searchResponse, from);
     }
@@ -222,9 +402,12 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
             Map<String, FilterValuesStrategy> filterStrategies, int maxElements) {
         String[] searchIndices = clazz == null ? getAllIndexes() : new String[] { getIndexForType(clazz) };
         Class<?>[] requestedTypes = getRequestedTypes(clazz);
+        refreshBeforeRead(searchIndices);
 
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.SEARCH, searchIndices, getTypesStrings(requestedTypes));
         SearchResponse searchResponse = queryHelper.buildSearchQuery(searchIndices).types(requestedTypes).filters(filters).filterStrategies(filterStrategies)
                 .search(0, maxElements);
+        metrics.stop(DaoMetrics.sourcesSize(searchResponse), describeQuery(null, filters, null));
 
         return toGetMultipleDataResult(clazz, searchResponse, 0);
     }
@@ -267,7 +450,7 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
         List<T> result = new ArrayList<>();
 
         for (int i = 0; i < searchResponse.getHits().getHits().length; i++) {
-            result.add(getJsonMapper().readValue(searchResponse.getHits().getAt(i).getSourceAsString(), clazz));
+            result.add(readSource(searchResponse.getHits().getAt(i).sourceRef(), clazz));
         }
 
         return result;
@@ -288,7 +471,7 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
         T[] resultData = (T[]) Array.newInstance(clazz, resultTypes.length);
         for (int i = 0; i < resultTypes.length; i++) {
             resultTypes[i] = searchResponse.getHits().getAt(i).getType();
-            resultData[i] = (T) getJsonMapper().readValue(searchResponse.getHits().getAt(i).getSourceAsString(), getClassFromType(resultTypes[i]));
+            resultData[i] = (T) readSource(searchResponse.getHits().getAt(i).sourceRef(), getClassFromType(resultTypes[i]));
         }
         finalResponse.setData(resultData);
 
@@ -299,10 +482,119 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
             int from, int maxElements, boolean enableFacets) {
         String[] searchIndexes = clazz == null ? getAllIndexes() : new String[] { getIndexForType(clazz) };
         Class<?>[] requestedTypes = getRequestedTypes(clazz);
+        refreshBeforeRead(searchIndexes);
+
+        String[] types = getTypesStrings(requestedTypes);
+        IScoringStrategy scoringStrategy = getScoringStrategy(clazz);
+        if (scoringStrategy != null) {
+            // the facets of a scored search are read by another request (see searchFacets)
+            return doScoredSearch(clazz, searchIndexes, types, searchText, filters, customFilter, fetchContext, from, maxElements, scoringStrategy);
+        }
+        Operation operation = enableFacets ? Operation.FACETED_SEARCH : Operation.SEARCH;
+        SearchQueryHelperBuilder searchQueryHelperBuilder = this.queryHelper.buildSearchQuery(searchIndexes, searchText).types(requestedTypes)
+                .fetchContext(fetchContext).filters(filters).customFilter(customFilter).facets(enableFacets);
+        String key = readKey(searchIndexes, operation, types, searchText, filters, customFilter, fetchContext, from, maxElements);
+        return executeSearch(operation, key, searchIndexes, types, searchQueryHelperBuilder, from, maxElements,
+                describeQuery(searchText, filters, customFilter));
+    }
+
+    /**
+     * Search on a scored class. The query helper can only wrap its query in a script function score so the search is built with the client: the text
+     * query is filtered and then scored by the strategy.
+     */
+    private SearchResponse doScoredSearch(Class<?> clazz, String[] searchIndexes, String[] types, String searchText, Map<String, String[]> filters,
+            FilterBuilder customFilter, String fetchContext, int from, int maxElements, IScoringStrategy scoringStrategy) {
+        QueryBuilder query = searchText == null || searchText.trim().isEmpty() ? QueryBuilders.matchAllQuery() : QueryBuilders.matchPhrasePrefixQuery(
+                "_all", searchText).maxExpansions(10);
+        FilterBuilder filter = buildFilter(filters, customFilter);
+        if (filter != null) {
+            query = QueryBuilders.filteredQuery(query, filter);
+        }
+        SearchRequestBuilder searchRequestBuilder = getClient().prepareSearch(searchIndexes).setTypes(types).setQuery(scoringStrategy.score(query))
+                .setFrom(from).setSize(maxElements);
+        FetchSourceContext fetchSourceContext = getFetchSourceContext(clazz, fetchContext);
+        if (fetchSourceContext != null) {
+            searchRequestBuilder.setFetchSource(fetchSourceContext.includes(), fetchSourceContext.excludes());
+        }
+        return executeSearch(searchIndexes, types, searchRequestBuilder);
+    }
+
+    /**
+     * Build the filter of the given filter values (terms filters on the fields, see {@link FilterValuesStrategy#OR}) and of the custom filter.
+     */
+    private FilterBuilder buildFilter(Map<String, String[]> filters, FilterBuilder customFilter) {
+        List<FilterBuilder> filterBuilders = Lists.newArrayList();
+        if (filters != null) {
+            for (Map.Entry<String, String[]> filter : filters.entrySet()) {
+                if (filter.getValue() != null && filter.getValue().length > 0) {
+                    filterBuilders.add(FilterBuilders.termsFilter(filter.getKey(), filter.getValue()));
+                }
+            }
+        }
+        if (customFilter != null) {
+            filterBuilders.add(customFilter);
+        }
+        if (filterBuilders.isEmpty()) {
+            return null;
+        }
+        return filterBuilders.size() == 1 ? filterBuilders.get(0) : FilterBuilders.andFilter(filterBuilders.toArray(new FilterBuilder[filterBuilders.size()]));
+    }
+
+    /**
+     * Read the facets of a scored search, the results are not fetched.
+     */
+    private Facets searchFacets(Class<?> clazz, String searchText, Map<String, String[]> filters, FilterBuilder customFilter) {
+        String[] searchIndexes = new String[] { getIndexForType(clazz) };
+        Class<?>[] requestedTypes = getRequestedTypes(clazz);
+        String[] types = getTypesStrings(requestedTypes);
+        SearchQueryHelperBuilder searchQueryHelperBuilder = this.queryHelper.buildSearchQuery(searchIndexes, searchText).types(requestedTypes)
+                .filters(filters).customFilter(customFilter).facets(true);
+        String key = readKey(searchIndexes, Operation.FACETED_SEARCH, types, searchText, filters, customFilter, 0, 0);
+        return executeSearch(Operation.FACETED_SEARCH, key, searchIndexes, types, searchQueryHelperBuilder, 0, 0,
+                describeQuery(searchText, filters, customFilter)).getFacets();
+    }
 
-        // we use for now a generic score computation based on a alienScore field.
-        return this.queryHelper.buildSearchQuery(searchIndexes, searchText).types(requestedTypes).fetchContext(fetchContext).filters(filters)
-                .customFilter(customFilter).functionScore(ESGenericSearchDAO.SCORE_SCRIPT).facets(enableFacets).search(from, maxElements);
+    /**
+     * Execute a search built with the client, identical concurrent searches share the same response (see {@link ReadCoalescer}).
+     */
+    private SearchResponse executeSearch(final String[] indices, final String[] types, final SearchRequestBuilder searchRequestBuilder) {
+        String key = readKey(indices, Operation.SEARCH, types, searchRequestBuilder.toString());
+        return getReadCoalescer().read(Operation.SEARCH, key, new Supplier<SearchResponse>() {
+            @Override
+            public SearchResponse get() {
+                DaoMetrics.Context metrics = getDaoMetrics().start(Operation.SEARCH, indices, types);
+                SearchResponse response = searchRequestBuilder.execute().actionGet();
+                metrics.stop(DaoMetrics.sourcesSize(response), searchRequestBuilder);
+                return response;
+            }
+        });
+    }
+
+    /**
+     * Execute a query helper search, identical concurrent searches share the same response (see {@link ReadCoalescer}).
+     */
+    private SearchResponse executeSearch(final Operation operation, String key, final String[] indices, final String[] types,
+            final SearchQueryHelperBuilder searchQueryHelperBuilder, final int from, final int maxElements, final Map<String, Object> query) {
+        return getReadCoalescer().read(operation, key, new Supplier<SearchResponse>() {
+            @Override
+            public SearchResponse get() {
+                DaoMetrics.Context metrics = getDaoMetrics().start(operation, indices, types);
+                SearchResponse searchResponse = searchQueryHelperBuilder.search(from, maxElements);
+                metrics.stop(DaoMetrics.sourcesSize(searchResponse), query);
+                return searchResponse;
+            }
+        });
+    }
+
+    /**
+     * The query helper doesn't expose the queries it builds, describe them by their parameters for the slow query log.
+     */
+    private Map<String, Object> describeQuery(String searchText, Map<String, String[]> filters, FilterBuilder customFilter) {
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("searchText", searchText);
+        query.put("filters", filters);
+        query.put("customFilter", customFilter);
+        return query;
     }
 
     private boolean somethingFound(final SearchResponse searchResponse) {
@@ -340,27 +632,8 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
 
     @Override
     public <T> List<T> findByIdsWithContext(Class<T> clazz, String fetchContext, String... ids) {
-
-        // get the fetch context for the given type and apply it to the search
-        List<String> includes = new ArrayList<String>();
-        List<String> excludes = new ArrayList<String>();
-        SourceFetchContext sourceFetchContext = getMappingBuilder().getFetchSource(clazz.getName(), fetchContext);
-        if (sourceFetchContext != null) {
-            includes.addAll(sourceFetchContext.getIncludes());
-            excludes.addAll(sourceFetchContext.getExcludes());
-        } else {
-            getLog().warn("Unable to find fetch context <" + fetchContext + "> for class <" + clazz.getName() + ">. It will be ignored.");
-        }
-
-        String[] inc = includes.isEmpty() ? null : includes.toArray(new String[includes.size()]);
-        String[] exc = excludes.isEmpty() ? null : excludes.toArray(new String[excludes.size()]);
-
-        // TODO: correctly manage "from" and "size"
-        SearchRequestBuilder searchRequestBuilder = getClient().prepareSearch(getIndexForType(clazz))
-                .setQuery(QueryBuilders.idsQuery(MappingBuilder.indexTypeFromClass(clazz)).ids(ids)).setFetchSource(inc, exc).setSize(20);
-
-        SearchResponse searchResponse = searchRequestBuilder.execute().actionGet();
-        return toGetListOfData(searchResponse, clazz);
+        List<T> data = multiGet(clazz, fetchContext, ids).getData();
+        return data.isEmpty() ? null : data;
     }
 
     @Override
@@ -377,8 +650,54 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
         return doSelectPath(index, types, queryBuilder, sortOrder, path, from, size);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    @SneakyThrows({ IOException.class })
+    public <T> CursorResult<T> searchAfter(Class<T> clazz, String[] indices, FilterBuilder filter, String sortField, String tieBreakerField,
+            boolean descending, String cursor, int size) {
+        String[] searchIndices = indices == null || indices.length == 0 ? new String[] { getIndexForType(clazz) } : indices;
+        String[] types = getTypesFromClass(clazz);
+        refreshBeforeRead(searchIndices);
+        FilterBuilder pageFilter = filter;
+        if (cursor != null) {
+            // ES doesn't support search after, documents after the cursor have a lower (or higher) sort value or the same with a lower (or higher) tie
+            // breaker value. The tie breaker is a regular not analyzed field, sorting on the _uid would load the uids of all the documents in memory.
+            SearchCursor after = SearchCursor.decode(cursor);
+            FilterBuilder afterFilter = FilterBuilders.orFilter(seekRangeFilter(sortField, after.getSortObject(), descending), FilterBuilders.andFilter(
+                    FilterBuilders.termFilter(sortField, after.getSortObject()), seekRangeFilter(tieBreakerField, after.getTieBreaker(), descending)));
+            pageFilter = filter == null ? afterFilter : FilterBuilders.andFilter(filter, afterFilter);
+        }
+        QueryBuilder query = pageFilter == null ? QueryBuilders.matchAllQuery() : QueryBuilders.constantScoreQuery(pageFilter);
+        SortOrder sortOrder = descending ? SortOrder.DESC : SortOrder.ASC;
+        SearchRequestBuilder searchRequestBuilder = getClient().prepareSearch(searchIndices).setTypes(types).setQuery(query).setSize(size)
+                .addSort(SortBuilders.fieldSort(sortField).order(sortOrder)).addSort(SortBuilders.fieldSort(tieBreakerField).order(sortOrder));
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.SEARCH, searchIndices, types);
+        SearchResponse searchResponse = searchRequestBuilder.execute().actionGet();
+        metrics.stop(DaoMetrics.sourcesSize(searchResponse), query);
+
+        SearchHit[] hits = searchResponse.getHits().getHits();
+        CursorResult<T> result = new CursorResult<T>();
+        result.setTypes(new String[hits.length]);
+        result.setData((T[]) Array.newInstance(clazz, hits.length));
+        for (int i = 0; i < hits.length; i++) {
+            result.getTypes()[i] = hits[i].getType();
+            result.getData()[i] = (T) readSource(hits[i].sourceRef(), getClassFromType(hits[i].getType()));
+        }
+        if (hits.length > 0 && hits.length == size) {
+            SearchHit last = hits[hits.length - 1];
+            result.setNextCursor(SearchCursor.encode(last.getSortValues()[0], String.valueOf(last.getSortValues()[1])));
+        }
+        result.setQueryDuration(searchResponse.getTookInMillis());
+        return result;
+    }
+
+    private FilterBuilder seekRangeFilter(String field, Object value, boolean descending) {
+        return descending ? FilterBuilders.rangeFilter(field).lt(value) : FilterBuilders.rangeFilter(field).gt(value);
+    }
+
     @SneakyThrows({ IOException.class })
     private String[] doSelectPath(String index, String[] types, QueryBuilder queryBuilder, SortOrder sortOrder, String path, int from, int size) {
+        refreshBeforeRead(index);
         SearchRequestBuilder searchRequestBuilder = esClient.getClient().prepareSearch(index);
         searchRequestBuilder.setSearchType(SearchType.QUERY_THEN_FETCH).setQuery(queryBuilder).setSize(size).setFrom(from);
         searchRequestBuilder.setFetchSource(path, null);
@@ -386,7 +705,9 @@ public class ESGenericSearchDAO extends ESGenericIdDAO implements IGenericSearch
         if (sortOrder != null) {
             searchRequestBuilder.addSort(SortBuilders.fieldSort(path).order(sortOrder));
         }
+        DaoMetrics.Context metrics = getDaoMetrics().start(Operation.SEARCH, new String[] { index }, types);
         SearchResponse searchResponse = searchRequestBuilder.execute().actionGet();
+        metrics.stop(DaoMetrics.sourcesSize(searchResponse), searchRequestBuilder);
         if (ElasticSearchUtil.isResponseEmpty(searchResponse)) {
             return new String[0];
         } else {
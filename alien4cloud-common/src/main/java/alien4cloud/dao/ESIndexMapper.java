@@ -2,35 +2,50 @@ package alien4cloud.dao;
 
 import java.beans.IntrospectionException;
 import java.io.IOException;
+import java.lang.reflect.Modifier;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 import lombok.Getter;
-import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequest;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.mapping.ElasticSearchClient;
 import org.elasticsearch.mapping.MappingBuilder;
 import org.elasticsearch.util.MapUtil;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
 import alien4cloud.exception.IndexingServiceException;
 import alien4cloud.rest.utils.JsonUtil;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -47,6 +62,9 @@ public abstract class ESIndexMapper {
     @Resource
     @Getter
     private MappingBuilder mappingBuilder;
+    @Autowired(required = false)
+    @Getter
+    private MetricRegistry metricRegistry;
 
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
@@ -54,42 +72,120 @@ public abstract class ESIndexMapper {
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
     private final Map<String, Class<?>> typesToClasses = Maps.newHashMap();
+    private final Map<String, RefreshPolicy> typesToRefreshPolicies = Maps.newHashMap();
+    /** Resolution of the mapped classes and of their parent classes, computed once all the indices are initialized (see {@link #initCompleted()}). */
+    private volatile Map<Class<?>, MappedClass> mappedClasses = ImmutableMap.of();
+    /** Writes not yet visible to searches for the indices that contains {@link RefreshPolicy#ON_NEXT_READ} types. */
+    private final Map<String, PendingRefresh> pendingRefreshes = Maps.newConcurrentMap();
+    /** Rolling indices by alias, the alias is the index of the types mapped to the rolling index. */
+    private final Map<String, RollingIndex> rollingIndices = Maps.newConcurrentMap();
+    private final Map<String, Class<?>[]> rollingIndicesClasses = Maps.newConcurrentMap();
+    /** Existing buckets of the rolling indices by alias. */
+    private final Map<String, NavigableSet<String>> rollingIndicesBuckets = Maps.newConcurrentMap();
+    /** Number of writes performed through this dao by index, used to prevent reads from being coalesced with reads sent before a write. */
+    private final Map<String, AtomicLong> writeGenerations = Maps.newConcurrentMap();
 
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
     private String[] allIndexes;
     @SuppressWarnings("PMD.UnusedPrivateField")
     @Getter
-    @Setter
     private ObjectMapper jsonMapper = new ObjectMapper();
+    /** Readers are immutable and thread-safe, caching them avoids the lookup of the root deserializer on every read. */
+    private final Map<Class<?>, ObjectReader> readers = Maps.newConcurrentMap();
 
     @Value("${paas_monitor.events_lifetime}")
     private String eventMonitoringTtl;
+    @Value("${elasticSearch.slow_query_threshold_ms:0}")
+    private long slowQueryThresholdMs;
+    @Value("${elasticSearch.coalesce_reads:true}")
+    private boolean coalesceReads;
+    /** Latency and payload metrics of the requests sent to elastic search. */
+    @Getter
+    private DaoMetrics daoMetrics = new DaoMetrics(null, 0);
+    private ReadCoalescer readCoalescer = new ReadCoalescer(null, false);
+
+    @PostConstruct
+    public void initDaoMetrics() {
+        daoMetrics = new DaoMetrics(metricRegistry, slowQueryThresholdMs);
+    }
+
+    @PostConstruct
+    public void initReadCoalescer() {
+        readCoalescer = new ReadCoalescer(metricRegistry, coalesceReads);
+    }
+
+    ReadCoalescer getReadCoalescer() {
+        return readCoalescer;
+    }
 
     /**
-     * Initialize the array of all indices managed by this dao.
+     * Initialize the array of all indices managed by this dao and the resolution of the mapped classes.
      */
     public void initCompleted() {
         Set<String> indices = new HashSet<>(typesToIndices.values());
         allIndexes = indices.toArray(new String[indices.size()]);
+        initMappedClasses();
         esClient.waitForGreenStatus(allIndexes);
     }
 
+    private void initMappedClasses() {
+        Map<Class<?>, MappedClass> resolved = Maps.newHashMap();
+        for (Class<?> mappedClass : typesToClasses.values()) {
+            for (Class<?> clazz = mappedClass; clazz != null && !Object.class.equals(clazz); clazz = clazz.getSuperclass()) {
+                if (!resolved.containsKey(clazz)) {
+                    String typeName = MappingBuilder.indexTypeFromClass(clazz);
+                    String index = clazz.equals(typesToClasses.get(typeName)) ? typesToIndices.get(typeName) : null;
+                    resolved.put(clazz, new MappedClass(index, resolveTypesFromClass(clazz), resolveRequestedTypes(clazz)));
+                }
+            }
+        }
+        mappedClasses = ImmutableMap.copyOf(resolved);
+    }
+
+    /**
+     * Index and types to query for a class, only contains the classes known when {@link #initCompleted()} is called.
+     */
+    private static final class MappedClass {
+        /** Index of the class, null if the class is only the parent of mapped classes. */
+        private final String index;
+        private final String[] types;
+        private final Class<?>[] requestedTypes;
+
+        private MappedClass(String index, String[] types, Class<?>[] requestedTypes) {
+            this.index = index;
+            this.types = types;
+            this.requestedTypes = requestedTypes;
+        }
+    }
+
+    /**
+     * Create if not exist indices. Writes on the given classes refresh the index immediately.
+     *
+     * @param indexName The index to initialize
+     * @param classes An array of classes to map to this index.
+     */
+    public void initIndices(String indexName, boolean ttlEnabled, Class<?>... classes) {
+        initIndices(indexName, ttlEnabled, RefreshPolicy.IMMEDIATE, classes);
+    }
+
     /**
      * Create if not exist indices.
      *
      * @param indexName The index to initialize
+     * @param refreshPolicy The policy that defines when writes on the given classes become visible to searches.
      * @param classes An array of classes to map to this index.
      */
     @SneakyThrows({ IOException.class, IntrospectionException.class })
-    public void initIndices(String indexName, boolean ttlEnabled, Class<?>... classes) {
+    public void initIndices(String indexName, boolean ttlEnabled, RefreshPolicy refreshPolicy, Class<?>... classes) {
         if (indexExist(indexName)) {
-            addToMappedClasses(indexName, classes);
+            addToMappedClasses(indexName, refreshPolicy, classes);
+            updateMappings(indexName, classes);
         } else {
             // create the index and add the mapping
             CreateIndexRequestBuilder createIndexRequestBuilder = esClient.getClient().admin().indices().prepareCreate(indexName);
             for (Class<?> clazz : classes) {
-                String typeName = addToMappedClasses(indexName, clazz);
+                String typeName = addToMappedClasses(indexName, refreshPolicy, clazz);
                 String typeMapping = mappingBuilder.getMapping(clazz);
 
                 // Adding TTL for a type
@@ -117,6 +213,169 @@ public abstract class ESIndexMapper {
         }
     }
 
+    /**
+     * Map classes to a rolling index: documents are written in an index per period and searched through the alias of the rolling index. The bucket of the
+     * current period is created if not exist.
+     *
+     * @param rollingIndex The rolling index to initialize.
+     * @param refreshPolicy The policy that defines when writes on the given classes become visible to searches.
+     * @param classes An array of classes to map to this rolling index.
+     */
+    public void initRollingIndices(RollingIndex rollingIndex, RefreshPolicy refreshPolicy, Class<?>... classes) {
+        String alias = rollingIndex.getAlias();
+        if (indexExist(alias) && loadBuckets(rollingIndex).isEmpty()) {
+            // events used to be stored in a single index with the name of the alias, they have a limited lifetime and are dropped.
+            log.warn("Dropping index <" + alias + "> to replace it by rolling indices.");
+            esClient.getClient().admin().indices().prepareDelete(alias).execute().actionGet();
+        }
+        addToMappedClasses(alias, refreshPolicy, classes);
+        rollingIndices.put(alias, rollingIndex);
+        rollingIndicesClasses.put(alias, classes);
+        rollingIndicesBuckets.put(alias, new ConcurrentSkipListSet<>(loadBuckets(rollingIndex)));
+        ensureBucket(rollingIndex, rollingIndex.indexFor(System.currentTimeMillis()));
+    }
+
+    @SneakyThrows({ IOException.class, IntrospectionException.class })
+    private void ensureBucket(RollingIndex rollingIndex, String indexName) {
+        NavigableSet<String> buckets = rollingIndicesBuckets.get(rollingIndex.getAlias());
+        if (buckets.contains(indexName)) {
+            return;
+        }
+        synchronized (buckets) {
+            if (buckets.contains(indexName)) {
+                return;
+            }
+            if (!indexExist(indexName)) {
+                log.info("Creating index <" + indexName + "> for rolling index <" + rollingIndex.getAlias() + ">");
+                CreateIndexRequestBuilder createIndexRequestBuilder = esClient.getClient().admin().indices().prepareCreate(indexName);
+                for (Class<?> clazz : rollingIndicesClasses.get(rollingIndex.getAlias())) {
+                    createIndexRequestBuilder.addMapping(MappingBuilder.indexTypeFromClass(clazz), mappingBuilder.getMapping(clazz));
+                }
+                try {
+                    if (!createIndexRequestBuilder.execute().actionGet().isAcknowledged()) {
+                        throw new IndexingServiceException("Failed to create index <" + indexName + ">");
+                    }
+                } catch (IndexAlreadyExistsException e) {
+                    log.debug("Index <" + indexName + "> has been created concurrently.");
+                }
+                esClient.getClient().admin().indices().prepareAliases().addAlias(indexName, rollingIndex.getAlias()).execute().actionGet();
+                esClient.waitForGreenStatus(indexName);
+            }
+            buckets.add(indexName);
+        }
+    }
+
+    private Set<String> loadBuckets(RollingIndex rollingIndex) {
+        Set<String> buckets = new HashSet<>();
+        GetAliasesResponse response = esClient.getClient().admin().indices().prepareGetAliases(rollingIndex.getAlias()).execute().actionGet();
+        Iterator<String> indices = response.getAliases().keysIt();
+        while (indices.hasNext()) {
+            String index = indices.next();
+            if (rollingIndex.isBucket(index)) {
+                buckets.add(index);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Drop the buckets of the rolling indices whose documents are all older than the retention duration of their rolling index.
+     *
+     * @return The names of the dropped indices.
+     */
+    public List<String> dropExpiredBuckets() {
+        List<String> dropped = Lists.newArrayList();
+        long now = System.currentTimeMillis();
+        for (RollingIndex rollingIndex : rollingIndices.values()) {
+            NavigableSet<String> buckets = rollingIndicesBuckets.get(rollingIndex.getAlias());
+            // the alias must always target at least the current bucket.
+            ensureBucket(rollingIndex, rollingIndex.indexFor(now));
+            synchronized (buckets) {
+                // buckets may have been created or dropped by another alien instance.
+                Set<String> existingBuckets = loadBuckets(rollingIndex);
+                buckets.retainAll(existingBuckets);
+                buckets.addAll(existingBuckets);
+                for (String bucket : Lists.newArrayList(buckets)) {
+                    if (rollingIndex.isExpired(bucket, now)) {
+                        log.info("Dropping expired index <" + bucket + "> of rolling index <" + rollingIndex.getAlias() + ">");
+                        esClient.getClient().admin().indices().prepareDelete(bucket).execute().actionGet();
+                        buckets.remove(bucket);
+                        dropped.add(bucket);
+                    }
+                }
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Get the indices that contain the documents of the given type for a time range. For rolling indices only the existing buckets of the range are returned,
+     * for other types the index of the type is returned.
+     *
+     * @param clazz The type for which to get the indices.
+     * @param fromTimestamp Start of the time range.
+     * @param toTimestamp End of the time range.
+     * @return The indices to search, from the oldest to the newest bucket for rolling indices.
+     */
+    public String[] getIndicesForType(Class<?> clazz, long fromTimestamp, long toTimestamp) {
+        String index = getIndexForType(clazz);
+        RollingIndex rollingIndex = rollingIndices.get(index);
+        if (rollingIndex == null) {
+            return new String[] { index };
+        }
+        // bucket names sort as their start date, the existing buckets of the range are read from the known buckets instead of enumerating every period.
+        List<String> indices = Lists.newArrayList();
+        if (fromTimestamp <= toTimestamp) {
+            indices.addAll(rollingIndicesBuckets.get(index).subSet(rollingIndex.indexFor(fromTimestamp), true, rollingIndex.indexFor(toTimestamp), true));
+        }
+        // no bucket for the range, the alias is searched so the query is still valid.
+        return indices.isEmpty() ? new String[] { index } : indices.toArray(new String[indices.size()]);
+    }
+
+    /**
+     * Get the index in which a document must be written: the index of its type or, for rolling indices, the bucket of the document timestamp (see
+     * {@link #getDocumentTimestamp(Object)}).
+     *
+     * @param data The document to write.
+     * @return The index in which to write the document.
+     */
+    protected String getIndexForDocument(Object data) {
+        String index = getIndexForType(data.getClass());
+        RollingIndex rollingIndex = rollingIndices.get(index);
+        if (rollingIndex == null) {
+            return index;
+        }
+        Long timestamp = getDocumentTimestamp(data);
+        String bucket = rollingIndex.indexFor(timestamp == null ? System.currentTimeMillis() : timestamp);
+        ensureBucket(rollingIndex, bucket);
+        return bucket;
+    }
+
+    /**
+     * Get the timestamp that defines the bucket of a document stored in a rolling index.
+     *
+     * @param data The document.
+     * @return The timestamp of the document or null to use the current time.
+     */
+    protected Long getDocumentTimestamp(Object data) {
+        return null;
+    }
+
+    /**
+     * Get the alias of the rolling index the given index is a bucket of.
+     *
+     * @param index The name of an index.
+     * @return The alias of the rolling index if the index is a bucket, the index itself otherwise.
+     */
+    protected String resolveRollingAlias(String index) {
+        for (RollingIndex rollingIndex : rollingIndices.values()) {
+            if (rollingIndex.isBucket(index)) {
+                return rollingIndex.getAlias();
+            }
+        }
+        return index;
+    }
+
     @SneakyThrows({ ExecutionException.class, InterruptedException.class })
     private boolean indexExist(String indexName) {
         // check if existing before
@@ -126,20 +385,156 @@ public abstract class ESIndexMapper {
         return response.isExists();
     }
 
-    private void addToMappedClasses(String indexName, Class<?>[] classes) {
+    /**
+     * Add the fields introduced in the classes to the mapping of the types that already exist in an index. Changes of existing fields cannot be merged by
+     * elastic search and are only logged.
+     */
+    private void updateMappings(String indexName, Class<?>[] classes) throws IOException, IntrospectionException {
+        ImmutableOpenMap<String, MappingMetaData> existingMappings = esClient.getClient().admin().indices().prepareGetMappings(indexName).execute()
+                .actionGet().getMappings().get(indexName);
+        for (Class<?> clazz : classes) {
+            String typeName = MappingBuilder.indexTypeFromClass(clazz);
+            if (existingMappings == null || !existingMappings.containsKey(typeName)) {
+                continue;
+            }
+            try {
+                esClient.getClient().admin().indices().preparePutMapping(indexName).setType(typeName).setSource(mappingBuilder.getMapping(clazz)).execute()
+                        .actionGet();
+            } catch (ElasticsearchException e) {
+                log.warn("Unable to update the mapping of type <" + typeName + "> in index <" + indexName + ">", e);
+            }
+        }
+    }
+
+    private void addToMappedClasses(String indexName, RefreshPolicy refreshPolicy, Class<?>[] classes) {
         for (Class<?> clazz : classes) {
-            addToMappedClasses(indexName, clazz);
+            addToMappedClasses(indexName, refreshPolicy, clazz);
         }
     }
 
-    private String addToMappedClasses(String indexName, Class<?> clazz) {
-        log.info("Mapping class <" + clazz.getName() + "> to index <" + indexName + ">");
+    private String addToMappedClasses(String indexName, RefreshPolicy refreshPolicy, Class<?> clazz) {
+        log.info("Mapping class <" + clazz.getName() + "> to index <" + indexName + "> with refresh policy <" + refreshPolicy + ">");
         String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        // the resolution of the classes is outdated until initCompleted is called again.
+        mappedClasses = ImmutableMap.of();
         typesToIndices.put(typeName, indexName);
         typesToClasses.put(typeName, clazz);
+        typesToRefreshPolicies.put(typeName, refreshPolicy);
+        if (!writeGenerations.containsKey(indexName)) {
+            writeGenerations.put(indexName, new AtomicLong());
+        }
+        if (RefreshPolicy.ON_NEXT_READ.equals(refreshPolicy) && !pendingRefreshes.containsKey(indexName)) {
+            pendingRefreshes.put(indexName, new PendingRefresh());
+        }
         return typeName;
     }
 
+    /**
+     * Check if a write on the given type must refresh the index.
+     *
+     * @param typeName The elastic search type.
+     * @return True if the type has the {@link RefreshPolicy#IMMEDIATE} policy.
+     */
+    protected boolean isRefreshOnWrite(String typeName) {
+        RefreshPolicy refreshPolicy = typesToRefreshPolicies.get(typeName);
+        return refreshPolicy == null || RefreshPolicy.IMMEDIATE.equals(refreshPolicy);
+    }
+
+    /**
+     * Register a completed write on the given type so that the next read refreshes the index if the type has the {@link RefreshPolicy#ON_NEXT_READ}
+     * policy.
+     *
+     * @param typeName The elastic search type.
+     */
+    protected void afterWrite(String typeName) {
+        String indexName = typesToIndices.get(typeName);
+        if (indexName != null) {
+            writeGenerations.get(indexName).incrementAndGet();
+        }
+        if (RefreshPolicy.ON_NEXT_READ.equals(typesToRefreshPolicies.get(typeName))) {
+            pendingRefreshes.get(indexName).writes.incrementAndGet();
+        }
+    }
+
+    /**
+     * Build the key that identifies identical reads (see {@link ReadCoalescer}). The key contains the write generation of the indices so reads sent after a
+     * write are never coalesced with reads sent before it.
+     *
+     * @param indices The indices targeted by the read.
+     * @param parts The parameters of the read.
+     * @return The key of the read.
+     */
+    protected String readKey(String[] indices, Object... parts) {
+        Object[] generations = new Object[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            // writes on the buckets of rolling indices are registered on the alias
+            AtomicLong generation = writeGenerations.get(resolveRollingAlias(indices[i]));
+            generations[i] = indices[i] + "@" + (generation == null ? 0 : generation.get());
+        }
+        return ReadCoalescer.key(generations, parts);
+    }
+
+    /**
+     * Refresh the given indices if they have writes that are not yet visible to searches (see {@link RefreshPolicy#ON_NEXT_READ}).
+     *
+     * @param indices The indices that are about to be searched.
+     */
+    protected void refreshBeforeRead(String... indices) {
+        if (pendingRefreshes.isEmpty() || indices == null) {
+            return;
+        }
+        for (String requestedIndex : indices) {
+            // writes on the buckets of rolling indices are registered on the alias
+            String index = resolveRollingAlias(requestedIndex);
+            PendingRefresh pendingRefresh = pendingRefreshes.get(index);
+            if (pendingRefresh != null && pendingRefresh.writes.get() > pendingRefresh.refreshedWrites) {
+                synchronized (pendingRefresh) {
+                    // concurrent readers wait for the refresh in progress and don't trigger another one.
+                    long writes = pendingRefresh.writes.get();
+                    if (writes > pendingRefresh.refreshedWrites) {
+                        esClient.getClient().admin().indices().prepareRefresh(index).execute().actionGet();
+                        pendingRefresh.refreshedWrites = writes;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class PendingRefresh {
+        private final AtomicLong writes = new AtomicLong();
+        private volatile long refreshedWrites;
+    }
+
+    /**
+     * Set the json mapper used to serialize and de-serialize the documents.
+     *
+     * @param jsonMapper The json mapper.
+     */
+    public void setJsonMapper(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+        this.readers.clear();
+    }
+
+    /**
+     * De-serialize a document source directly from its bytes (no intermediate String).
+     *
+     * @param source The source of the document as returned by elastic search.
+     * @param clazz The class of the object to read.
+     * @return The de-serialized object.
+     * @throws IOException In case the source cannot be de-serialized.
+     */
+    protected <T> T readSource(BytesReference source, Class<T> clazz) throws IOException {
+        ObjectReader reader = readers.get(clazz);
+        if (reader == null) {
+            reader = jsonMapper.reader(clazz);
+            readers.put(clazz, reader);
+        }
+        if (source.hasArray()) {
+            return reader.readValue(source.array(), source.arrayOffset(), source.length());
+        }
+        return reader.readValue(source.streamInput());
+    }
+
     /**
      * Get the index in which the given type lies.
      *
@@ -147,6 +542,10 @@ public abstract class ESIndexMapper {
      * @return The index in which the given type lies.
      */
     public String getIndexForType(Class<? extends Object> clazz) {
+        MappedClass mappedClass = mappedClasses.get(clazz);
+        if (mappedClass != null && mappedClass.index != null) {
+            return mappedClass.index;
+        }
         String typeName = MappingBuilder.indexTypeFromClass(clazz);
         String index = typesToIndices.get(typeName);
         if (index == null) {
@@ -190,7 +589,21 @@ public abstract class ESIndexMapper {
         }
     }
 
+    /**
+     * Get the elastic search types of the mapped classes that are assignable to the given class.
+     *
+     * @param clazz The class for which to get the types.
+     * @return The elastic search types of the class and of its mapped sub-classes.
+     */
     public String[] getTypesFromClass(Class<?> clazz) {
+        MappedClass mappedClass = mappedClasses.get(clazz);
+        if (mappedClass != null) {
+            return mappedClass.types.clone();
+        }
+        return resolveTypesFromClass(clazz);
+    }
+
+    private String[] resolveTypesFromClass(Class<?> clazz) {
         List<String> types = Lists.newArrayList();
         Collection<Class<?>> allManagedClasses = typesToClasses.values();
         for (Class<?> managedClass : allManagedClasses) {
@@ -201,6 +614,33 @@ public abstract class ESIndexMapper {
         return types.toArray(new String[types.size()]);
     }
 
+    /**
+     * Get the classes to query for the given class: the mapped classes assignable to the class if it is abstract, the class itself otherwise.
+     *
+     * @param clazz The requested class.
+     * @return The classes to query.
+     */
+    protected Class<?>[] getRequestedTypes(Class<?> clazz) {
+        MappedClass mappedClass = mappedClasses.get(clazz);
+        if (mappedClass != null) {
+            return mappedClass.requestedTypes.clone();
+        }
+        return resolveRequestedTypes(clazz);
+    }
+
+    private Class<?>[] resolveRequestedTypes(Class<?> clazz) {
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            List<Class<?>> classes = Lists.newArrayList();
+            for (Class<?> registeredClass : typesToClasses.values()) {
+                if (clazz.isAssignableFrom(registeredClass)) {
+                    classes.add(registeredClass);
+                }
+            }
+            return classes.toArray(new Class<?>[classes.size()]);
+        }
+        return new Class<?>[] { clazz };
+    }
+
     /**
      * Get the elastic search client linked to the index mapper.
      *
@@ -0,0 +1,108 @@
+package alien4cloud.dao;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import lombok.SneakyThrows;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+
+import alien4cloud.dao.DaoMetrics.Operation;
+import alien4cloud.dao.model.ICloseableIterator;
+
+/**
+ * Iterates over the results of a search using elastic search scroll so only a page of hits is kept in memory, hits are de-serialized lazily.
+ *
+ * Unsorted searches use the scan search type (most efficient, the page size is then per shard), sorted searches use a regular scroll.
+ *
+ * @param <T> The type of the elements.
+ */
+class ESScrollIterator<T> implements ICloseableIterator<T> {
+    private static final TimeValue KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+    private final ESIndexMapper indexMapper;
+    private final String[] indices;
+    private final String[] types;
+    private final SearchRequestBuilder searchRequestBuilder;
+    private String scrollId;
+    private SearchHit[] hits;
+    private int position = 0;
+    private boolean closed = false;
+
+    /**
+     * Start the scroll.
+     *
+     * @param indexMapper The index mapper used to access the client and de-serialize hits.
+     * @param searchRequestBuilder The search request (query, types and page size must be configured).
+     * @param sorted True if a sort is configured on the request.
+     */
+    ESScrollIterator(ESIndexMapper indexMapper, SearchRequestBuilder searchRequestBuilder, boolean sorted) {
+        this.indexMapper = indexMapper;
+        this.indices = searchRequestBuilder.request().indices();
+        this.types = searchRequestBuilder.request().types();
+        this.searchRequestBuilder = searchRequestBuilder;
+        DaoMetrics.Context metrics = indexMapper.getDaoMetrics().start(Operation.SCROLL, indices, types);
+        SearchResponse response = searchRequestBuilder.setSearchType(sorted ? SearchType.QUERY_THEN_FETCH : SearchType.SCAN).setScroll(KEEP_ALIVE).execute()
+                .actionGet();
+        metrics.stop(DaoMetrics.sourcesSize(response), searchRequestBuilder);
+        scrollId = response.getScrollId();
+        // the first response of a scan doesn't contains any hit.
+        hits = sorted ? response.getHits().getHits() : new SearchHit[0];
+        if (response.getHits().getTotalHits() == 0) {
+            close();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (position < hits.length) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        DaoMetrics.Context metrics = indexMapper.getDaoMetrics().start(Operation.SCROLL, indices, types);
+        SearchResponse response = indexMapper.getClient().prepareSearchScroll(scrollId).setScroll(KEEP_ALIVE).execute().actionGet();
+        metrics.stop(DaoMetrics.sourcesSize(response), searchRequestBuilder);
+        scrollId = response.getScrollId();
+        hits = response.getHits().getHits();
+        position = 0;
+        if (hits.length == 0) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    @SneakyThrows({ IOException.class })
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SearchHit hit = hits[position];
+        // release the hit as soon as it is consumed
+        hits[position++] = null;
+        return (T) indexMapper.readSource(hit.sourceRef(), indexMapper.getClassFromType(hit.getType()));
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Scroll results are read-only.");
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (scrollId != null) {
+            indexMapper.getClient().prepareClearScroll().addScrollId(scrollId).execute().actionGet();
+        }
+    }
+}
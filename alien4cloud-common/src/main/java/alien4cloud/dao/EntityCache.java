@@ -0,0 +1,127 @@
+package alien4cloud.dao;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded read-through cache of the json sources of the documents of a single elastic search type.
+ *
+ * Sources are cached rather than de-serialized objects so that callers always get their own instance and can modify it freely. A generation counter is
+ * incremented on every invalidation so that a source read from elastic search before a concurrent write is never put in the cache after the write.
+ */
+public class EntityCache {
+    private final Cache<String, String> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create a new cache.
+     *
+     * @param maximumSize The maximum number of documents to keep in the cache.
+     * @param expireAfterWriteSeconds Duration (in seconds) after which a cached document expires.
+     */
+    public EntityCache(long maximumSize, long expireAfterWriteSeconds) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS).recordStats().build();
+    }
+
+    /**
+     * Get the cached source of a document.
+     *
+     * @param id The id of the document.
+     * @return The json source of the document or null if not in the cache.
+     */
+    public String get(String id) {
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * Get the current generation of the cache, to be given back to {@link #put(String, String, long)} once the document has been read.
+     *
+     * @return The current generation of the cache.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Put a document source in the cache if no invalidation occurred since the given generation.
+     *
+     * @param id The id of the document.
+     * @param source The json source of the document.
+     * @param readGeneration The generation of the cache when the document was read from elastic search.
+     */
+    public synchronized void put(String id, String source, long readGeneration) {
+        if (readGeneration == generation.get()) {
+            cache.put(id, source);
+        }
+    }
+
+    /**
+     * Remove a document from the cache.
+     *
+     * @param id The id of the document to remove.
+     */
+    public synchronized void invalidate(String id) {
+        generation.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    /**
+     * Remove all documents from the cache.
+     */
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Register hit, miss, hit ratio and eviction gauges for this cache.
+     *
+     * @param metricRegistry The registry in which to register the gauges.
+     * @param prefix The prefix of the metrics names.
+     */
+    public void registerMetrics(MetricRegistry metricRegistry, String prefix) {
+        register(metricRegistry, name(prefix, "hits"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().hitCount();
+            }
+        });
+        register(metricRegistry, name(prefix, "misses"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().missCount();
+            }
+        });
+        register(metricRegistry, name(prefix, "hit_ratio"), new Gauge<Double>() {
+            @Override
+            public Double getValue() {
+                return cache.stats().hitRate();
+            }
+        });
+        register(metricRegistry, name(prefix, "evictions"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().evictionCount();
+            }
+        });
+        register(metricRegistry, name(prefix, "size"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.size();
+            }
+        });
+    }
+
+    private void register(MetricRegistry metricRegistry, String metricName, Gauge<?> gauge) {
+        // the registry may outlive the dao (static registry), replace any previous gauge.
+        metricRegistry.remove(metricName);
+        metricRegistry.register(metricName, gauge);
+    }
+}
@@ -0,0 +1,25 @@
+package alien4cloud.dao;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+
+/**
+ * Multiplies the text relevance of the results by the value of an indexed numeric boost field. The field values are read natively from the field data of
+ * the index by a field value factor function, no script is evaluated per matching document.
+ */
+public class FieldScoringStrategy implements IScoringStrategy {
+    private final String field;
+
+    /**
+     * @param field The numeric field that contains the boost of the documents.
+     */
+    public FieldScoringStrategy(String field) {
+        this.field = field;
+    }
+
+    @Override
+    public QueryBuilder score(QueryBuilder query) {
+        return QueryBuilders.functionScoreQuery(query, ScoreFunctionBuilders.fieldValueFactorFunction(field));
+    }
+}
@@ -0,0 +1,96 @@
+package alien4cloud.dao;
+
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+
+import alien4cloud.dao.model.FacetedSearchResult;
+import alien4cloud.dao.model.GetMultipleDataResult;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Non blocking companion of {@link IGenericSearchDAO}. Every operation returns immediately with a {@link ListenableFuture} so that callers (for example
+ * controllers returning a DeferredResult) can run several queries in parallel without holding a thread while waiting for elastic search.
+ *
+ * Failures are reported through the future as {@link alien4cloud.exception.IndexingServiceException}.
+ */
+public interface IGenericAsyncSearchDAO {
+
+    /**
+     * Asynchronous version of {@link IGenericIdDAO#findById(Class, String)}.
+     *
+     * @param clazz The class of the object to find.
+     * @param id The id of the object.
+     * @return A future of the object that has the given id or of null if no object matching the request is found.
+     */
+    <T> ListenableFuture<T> findByIdAsync(Class<T> clazz, String id);
+
+    /**
+     * Asynchronous version of {@link IGenericIdDAO#findByIds(Class, String...)}.
+     *
+     * @param clazz The class for which to find an instance.
+     * @param ids array of id of the data to find.
+     * @return A future of the list of objects that have the given ids.
+     */
+    <T> ListenableFuture<List<T>> findByIdsAsync(Class<T> clazz, String... ids);
+
+    /**
+     * Asynchronous version of {@link IGenericIdDAO#save(Object)}.
+     *
+     * @param entity the entity to save
+     * @return A future completed once the entity is saved.
+     */
+    <T> ListenableFuture<Void> saveAsync(T entity);
+
+    /**
+     * Asynchronous version of {@link IGenericSearchDAO#count(Class, QueryBuilder)}.
+     *
+     * @param clazz Class of the object.
+     * @param query Additional query.
+     * @return A future of the number of objects in the index in which the given class lies.
+     */
+    <T> ListenableFuture<Long> countAsync(Class<T> clazz, QueryBuilder query);
+
+    /**
+     * Asynchronous version of {@link IGenericSearchDAO#count(Class, String, Map)}.
+     *
+     * @param clazz The type of data to query.
+     * @param searchText The text of the search request (null to match all).
+     * @param filters The filters to apply to the request.
+     * @return A future of the number of objects matching the query.
+     */
+    <T> ListenableFuture<Long> countAsync(Class<T> clazz, String searchText, Map<String, String[]> filters);
+
+    /**
+     * Asynchronous version of {@link IGenericSearchDAO#search(Class, String, Map, FilterBuilder, String, int, int)}.
+     *
+     * @param clazz The type of data to query.
+     * @param searchText The search text if any.
+     * @param filters The filters for the search or null if no filters.
+     * @param customFilter The custom defined filter
+     * @param fetchContext A fetch context to define a partial response.
+     * @param from Offset from the first result you want to fetch.
+     * @param maxElements The maximum number of elements to return.
+     * @return A future of the {@link GetMultipleDataResult} that contains the result data.
+     */
+    <T> ListenableFuture<GetMultipleDataResult<T>> searchAsync(Class<T> clazz, String searchText, Map<String, String[]> filters, FilterBuilder customFilter,
+            String fetchContext, int from, int maxElements);
+
+    /**
+     * Asynchronous version of {@link IGenericSearchDAO#facetedSearch(Class, String, Map, FilterBuilder, String, int, int)}.
+     *
+     * @param clazz The type of data to query.
+     * @param searchText The search text if any.
+     * @param filters The filters for the search.
+     * @param customFilter The custom defined filter.
+     * @param fetchContext A fetch context to define a partial response.
+     * @param from Offset from the first result you want to fetch.
+     * @param maxElements The maximum number of elements to return.
+     * @return A future of the {@link FacetedSearchResult} that contains the result data and associated facets.
+     */
+    <T> ListenableFuture<FacetedSearchResult> facetedSearchAsync(Class<T> clazz, String searchText, Map<String, String[]> filters,
+            FilterBuilder customFilter, String fetchContext, int from, int maxElements);
+}
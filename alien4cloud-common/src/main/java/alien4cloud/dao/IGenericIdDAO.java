@@ -1,9 +1,14 @@
 package alien4cloud.dao;
 
 import java.util.List;
+import java.util.Map;
 
 import org.elasticsearch.index.query.QueryBuilder;
 
+import alien4cloud.dao.model.MultiGetResult;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.exception.DocumentVersionConflictException;
+
 /**
  * A DAO that allows accessing data by Id or / and multiple Ids.
  * 
@@ -24,6 +29,87 @@ public interface IGenericIdDAO {
      */
     <T> void save(T[] entities);
 
+    /**
+     * Saves an entity only if the stored document has not been modified since the given version (optimistic concurrency control).
+     * 
+     * @param entity The entity to save.
+     * @param version The version of the document the entity has been read from (see {@link #findByIdWithVersion(Class, String)}).
+     * @return The new version of the document.
+     * @throws DocumentVersionConflictException If the document has been modified (or deleted) since the given version.
+     */
+    long saveIfVersion(Object entity, long version);
+
+    /**
+     * Saves a new entity only if no document with the same id exists.
+     * 
+     * @param entity The entity to save.
+     * @return The version of the created document.
+     * @throws DocumentVersionConflictException If a document with the same id already exists.
+     */
+    long saveIfAbsent(Object entity);
+
+    /**
+     * Bulk save multiple entities, each one only if its stored document has not been modified since the version it has been read from.
+     * 
+     * @param entities The entities to save with the versions of their documents, a version of 0 saves an entity only if no document with the same id exists.
+     * @return The new versions of the documents in the order of the entities, -1 for the entities not saved because of a version conflict.
+     */
+    long[] saveIfVersion(List<? extends Versioned<?>> entities);
+
+    /**
+     * Update a part of an existing entity. The partial document is merged into the stored document: objects are merged recursively while values and arrays
+     * are replaced.
+     * 
+     * @param clazz The class of the entity to update.
+     * @param id The id of the entity to update.
+     * @param partialDocument The fields to merge into the stored document (values are serialized as when saving the entity).
+     */
+    void update(Class<?> clazz, String id, Map<String, ?> partialDocument);
+
+    /**
+     * Bulk update the same part of multiple existing entities (see {@link #update(Class, String, Map)}), ids of documents that don't exist are ignored.
+     * 
+     * @param clazz The class of the entities to update.
+     * @param ids The ids of the entities to update.
+     * @param partialDocument The fields to merge into the stored documents.
+     */
+    void update(Class<?> clazz, String[] ids, Map<String, ?> partialDocument);
+
+    /**
+     * Update an existing entity using a script executed on the stored document (available as <code>ctx._source</code>).
+     * 
+     * @param clazz The class of the entity to update.
+     * @param id The id of the entity to update.
+     * @param script The (groovy) script to execute.
+     * @param parameters The parameters of the script (values are serialized as when saving the entity).
+     */
+    void update(Class<?> clazz, String id, String script, Map<String, ?> parameters);
+
+    /**
+     * Same as {@link #update(Class, String, Map)} but only if the stored document has not been modified since the given version.
+     * 
+     * @param clazz The class of the entity to update.
+     * @param id The id of the entity to update.
+     * @param partialDocument The fields to merge into the stored document.
+     * @param version The version of the document the changes are based on.
+     * @return The new version of the document.
+     * @throws DocumentVersionConflictException If the document has been modified since the given version.
+     */
+    long updateIfVersion(Class<?> clazz, String id, Map<String, ?> partialDocument, long version);
+
+    /**
+     * Same as {@link #update(Class, String, String, Map)} but only if the stored document has not been modified since the given version.
+     * 
+     * @param clazz The class of the entity to update.
+     * @param id The id of the entity to update.
+     * @param script The (groovy) script to execute.
+     * @param parameters The parameters of the script.
+     * @param version The version of the document the changes are based on.
+     * @return The new version of the document.
+     * @throws DocumentVersionConflictException If the document has been modified since the given version.
+     */
+    long updateIfVersion(Class<?> clazz, String id, String script, Map<String, ?> parameters, long version);
+
     /**
      * Find an instance from the given class.
      * 
@@ -33,6 +119,24 @@ public interface IGenericIdDAO {
      */
     <T> T findById(Class<T> clazz, String id);
 
+    /**
+     * Find an instance from the given class along with the current version of its document, the entity cache is never used.
+     * 
+     * @param clazz The class of the object to find.
+     * @param id The id of the object.
+     * @return The object that has the given id and its version or null if no object matching the request is found.
+     */
+    <T> Versioned<T> findByIdWithVersion(Class<T> clazz, String id);
+
+    /**
+     * Find instances by id along with the current versions of their documents using multi-get requests, the entity cache is never used.
+     * 
+     * @param clazz The class for which to find instances.
+     * @param ids The ids of the data to find.
+     * @return The objects found and their versions by id, the ids that don't match any object are not in the map.
+     */
+    <T> Map<String, Versioned<T>> findByIdsWithVersion(Class<T> clazz, String... ids);
+
     /**
      * Find instances by id
      * 
@@ -42,6 +146,16 @@ public interface IGenericIdDAO {
      */
     <T> List<T> findByIds(Class<T> clazz, String... ids);
 
+    /**
+     * Find instances by id using multi-get requests (large lists of ids are split in several requests).
+     * 
+     * @param clazz The class for which to find instances.
+     * @param fetchContext The fetch context that defines the fields of the documents to retrieve, null to retrieve the whole documents.
+     * @param ids The ids of the data to find.
+     * @return The objects found and the ids that don't match any object, both in the order of the given ids.
+     */
+    <T> MultiGetResult<T> multiGet(Class<T> clazz, String fetchContext, String... ids);
+
     /**
      * Delete an instance from the given class.
      * 
@@ -11,8 +11,10 @@ import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 
+import alien4cloud.dao.model.CursorResult;
 import alien4cloud.dao.model.FacetedSearchResult;
 import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.ICloseableIterator;
 
 /**
  * A Dao that supports search and/or filter based queries.
@@ -36,6 +38,17 @@ public interface IGenericSearchDAO extends IGenericIdDAO {
      */
     String getIndexForType(Class<?> clazz);
 
+    /**
+     * Get the indices to search for the documents of a class in a time range. Classes stored in time partitioned indices only have to search the indices of
+     * the range.
+     *
+     * @param clazz The class for which to get the indices.
+     * @param fromTimestamp Start of the time range.
+     * @param toTimestamp End of the time range.
+     * @return The names of the indices to search.
+     */
+    String[] getIndicesForType(Class<?> clazz, long fromTimestamp, long toTimestamp);
+
     /**
      * Count the number of objects in the index in which a given class lies. The result is not limited to the actual given type.
      *
@@ -94,6 +107,29 @@ public interface IGenericSearchDAO extends IGenericIdDAO {
      */
     <T> List<T> customFindAll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder);
 
+    /**
+     * Stream all the results of a query using elastic search scan/scroll. Only one page of results is kept in memory and results are de-serialized when
+     * iterated. The iterator must be closed if not fully consumed (it is closed automatically once exhausted).
+     *
+     * @param clazz The type of data to query.
+     * @param query The query to execute (null to match all).
+     * @param pageSize The number of hits fetched from elastic search on each scroll request.
+     * @return An iterator over all the results of the query.
+     */
+    <T> ICloseableIterator<T> scroll(Class<T> clazz, QueryBuilder query, int pageSize);
+
+    /**
+     * Stream all the results of a sorted query using elastic search scroll. Only one page of results is kept in memory and results are de-serialized when
+     * iterated. The iterator must be closed if not fully consumed (it is closed automatically once exhausted).
+     *
+     * @param clazz The type of data to query.
+     * @param query The query to execute (null to match all).
+     * @param sortBuilder the sort configuration, null if the order of the results doesn't matter.
+     * @param pageSize The number of hits fetched from elastic search on each scroll request.
+     * @return An iterator over all the results of the query.
+     */
+    <T> ICloseableIterator<T> scroll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder, int pageSize);
+
     /**
      * Run a query build from a {@link SearchQueryHelperBuilder}.
      *
@@ -300,12 +336,12 @@ public interface IGenericSearchDAO extends IGenericIdDAO {
             int maxElements);
 
     /**
-     * Find instances by id, only retrieve specific fields of the object.
+     * Find instances by id, only retrieve specific fields of the object (see {@link #multiGet(Class, String, String...)}).
      *
      * @param clazz The class for which to find an instance.
      * @param ids array of id of the data to find.
      * @param fetchContext The fetch context to recover only the required field (Note that this should be simplified to directly use the given field...).
-     * @return List of Objects that has the given ids or null if no object matching the request is found.
+     * @return List of Objects that has the given ids (in the order of the ids) or null if no object matching the request is found.
      *
      */
     <T> List<T> findByIdsWithContext(Class<T> clazz, String fetchContext, String... ids);
@@ -337,4 +373,21 @@ public interface IGenericSearchDAO extends IGenericIdDAO {
      * @return the list of value for the path
      */
     String[] selectPath(String index, String[] types, QueryBuilder queryBuilder, SortOrder sortOrder, String path, int from, int size);
+
+    /**
+     * Search documents page by page using a cursor rather than an offset so the cost of a page doesn't depend on its position. Documents are ordered by the
+     * given field then by the tie breaker field.
+     *
+     * @param clazz The class of the documents to search.
+     * @param indices The indices to search, null to search the index of the class.
+     * @param filter The filter that documents must match, null to match all the documents.
+     * @param sortField The field used to order the documents.
+     * @param tieBreakerField A not analyzed field with a unique value per document, used to order the documents with the same sort value.
+     * @param descending True to get the highest values of the sort field first.
+     * @param cursor The cursor returned by the previous page, null to get the first page.
+     * @param size The maximum number of documents in the page.
+     * @return The page of documents with the cursor of the next page.
+     */
+    <T> CursorResult<T> searchAfter(Class<T> clazz, String[] indices, FilterBuilder filter, String sortField, String tieBreakerField, boolean descending,
+            String cursor, int size);
 }
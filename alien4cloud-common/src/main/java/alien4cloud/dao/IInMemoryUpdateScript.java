@@ -0,0 +1,17 @@
+package alien4cloud.dao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Java implementation of an update script for the {@link InMemorySearchDAO} (see {@link InMemorySearchDAO#registerUpdateScript(String, IInMemoryUpdateScript)}).
+ */
+public interface IInMemoryUpdateScript {
+    /**
+     * Apply the script on the source of a document.
+     *
+     * @param source The json source of the document to modify.
+     * @param parameters The parameters of the script, serialized as elastic search does.
+     */
+    void apply(ObjectNode source, JsonNode parameters);
+}
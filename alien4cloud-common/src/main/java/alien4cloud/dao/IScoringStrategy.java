@@ -0,0 +1,19 @@
+package alien4cloud.dao;
+
+import org.elasticsearch.index.query.QueryBuilder;
+
+/**
+ * Defines how the results of a search on a class are scored (see {@link ESGenericSearchDAO#setScoringStrategy(Class, IScoringStrategy)}).
+ *
+ * The query helper can only wrap its queries in a script function score, the searches on a scored class are therefore built with the elastic search client
+ * and their query is wrapped by the strategy.
+ */
+public interface IScoringStrategy {
+    /**
+     * Apply the scoring to the query of a search.
+     *
+     * @param query The text query of the search, filtered.
+     * @return The scored query.
+     */
+    QueryBuilder score(QueryBuilder query);
+}
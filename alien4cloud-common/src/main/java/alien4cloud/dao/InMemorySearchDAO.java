@@ -0,0 +1,1238 @@
+package alien4cloud.dao;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+import org.elasticsearch.annotation.Id;
+import org.elasticsearch.annotation.query.TermsFacet;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.mapping.FilterValuesStrategy;
+import org.elasticsearch.mapping.MappingBuilder;
+import org.elasticsearch.mapping.QueryHelper;
+import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+import alien4cloud.dao.model.CursorResult;
+import alien4cloud.dao.model.FacetedSearchFacet;
+import alien4cloud.dao.model.FacetedSearchResult;
+import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.ICloseableIterator;
+import alien4cloud.dao.model.MultiGetResult;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.exception.DocumentVersionConflictException;
+import alien4cloud.exception.IndexingServiceException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * In-memory implementation of the search dao to run services without an elastic search node (benchmarks, load harnesses). Implementations are activated by
+ * the {@link #PROFILE} spring profile.
+ *
+ * Documents are stored as their json source, so each read returns a new instance as elastic search does. Searches support the filters model, a simple
+ * text search (every word of the text must be contained in a value of the document), the terms facets declared on the classes, and the usual query and
+ * filter builders (term, terms, ids, bool, and, or, not, match, regexp, range, exists, missing, nested, constant score). Scripted updates are applied by the
+ * java implementations registered for the scripts. There is no query helper, searches built from a {@link SearchQueryHelperBuilder} are not supported.
+ * Fetch contexts are ignored, complete documents are returned.
+ */
+public class InMemorySearchDAO implements IGenericSearchDAO, IGenericAsyncSearchDAO {
+    /** Spring profile that activates the in-memory daos instead of the elastic search ones. */
+    public static final String PROFILE = "in-memory-dao";
+    private static final String ALIEN_SCORE = "alienScore";
+    private static final String DEFAULT_ID_PROPERTY = "id";
+    /** Expected version of a document that must not exist yet (versions of stored documents start at 1). */
+    private static final long ABSENT = 0;
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+    @Getter
+    private final Map<String, String> typesToIndices = Maps.newHashMap();
+    @Getter
+    private final Map<String, Class<?>> typesToClasses = Maps.newHashMap();
+    private final Map<String, String> typesToIdProperties = Maps.newHashMap();
+    private final Map<String, List<String>> typesToFacets = Maps.newHashMap();
+    /** Documents by id by elastic search type. */
+    private final Map<String, ConcurrentNavigableMap<String, Document>> documents = Maps.newConcurrentMap();
+    /** Java implementations of the update scripts by script. */
+    private final Map<String, IInMemoryUpdateScript> updateScripts = Maps.newConcurrentMap();
+    @Getter
+    private ObjectMapper jsonMapper = new ObjectMapper();
+
+    /**
+     * Set the json mapper used to serialize and de-serialize the documents.
+     *
+     * @param jsonMapper The json mapper.
+     */
+    public void setJsonMapper(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Register classes in an index.
+     *
+     * @param indexName The name of the index.
+     * @param classes The classes stored in the index.
+     */
+    public void initIndices(String indexName, Class<?>... classes) {
+        for (Class<?> clazz : classes) {
+            String typeName = MappingBuilder.indexTypeFromClass(clazz);
+            typesToIndices.put(typeName, indexName);
+            typesToClasses.put(typeName, clazz);
+            typesToIdProperties.put(typeName, findIdProperty(clazz));
+            typesToFacets.put(typeName, findFacets(clazz));
+            documents.put(typeName, new ConcurrentSkipListMap<String, Document>());
+        }
+    }
+
+    /**
+     * Register the java implementation of a script used in scripted updates.
+     *
+     * @param script The script, as given to the update methods.
+     * @param updateScript The implementation of the script.
+     */
+    public void registerUpdateScript(String script, IInMemoryUpdateScript updateScript) {
+        updateScripts.put(script, updateScript);
+    }
+
+    private String findIdProperty(Class<?> clazz) {
+        for (Class<?> current = clazz; current != null && !Object.class.equals(current); current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    return field.getName();
+                }
+            }
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Id.class)) {
+                    return propertyName(method);
+                }
+            }
+        }
+        return DEFAULT_ID_PROPERTY;
+    }
+
+    private List<String> findFacets(Class<?> clazz) {
+        List<String> facets = Lists.newArrayList();
+        for (Class<?> current = clazz; current != null && !Object.class.equals(current); current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                addFacets(facets, field, field.getName());
+            }
+            for (Method method : current.getDeclaredMethods()) {
+                addFacets(facets, method, propertyName(method));
+            }
+        }
+        return facets;
+    }
+
+    private void addFacets(List<String> facets, AccessibleObject member, String propertyName) {
+        TermsFacet termsFacet = member.getAnnotation(TermsFacet.class);
+        if (termsFacet == null) {
+            return;
+        }
+        if (termsFacet.paths().length == 0) {
+            facets.add(propertyName);
+        }
+        for (String path : termsFacet.paths()) {
+            facets.add(propertyName + "." + path);
+        }
+    }
+
+    private String propertyName(Method method) {
+        String name = method.getName();
+        if (name.startsWith("get") && name.length() > 3) {
+            return Introspector.decapitalize(name.substring(3));
+        }
+        if (name.startsWith("is") && name.length() > 2) {
+            return Introspector.decapitalize(name.substring(2));
+        }
+        return name;
+    }
+
+    @Override
+    public QueryHelper getQueryHelper() {
+        throw new UnsupportedOperationException("The in-memory dao has no query helper.");
+    }
+
+    @Override
+    public String getIndexForType(Class<?> clazz) {
+        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        String index = typesToIndices.get(typeName);
+        if (index == null) {
+            throw new IndexingServiceException("Requested type <" + typeName + "> is not registered in any indexes.");
+        }
+        return index;
+    }
+
+    @Override
+    public String[] getIndicesForType(Class<?> clazz, long fromTimestamp, long toTimestamp) {
+        return new String[] { getIndexForType(clazz) };
+    }
+
+    /*
+     * Writes
+     */
+
+    @Override
+    public <T> void save(T entity) {
+        write(entity, -1);
+    }
+
+    @Override
+    public <T> void save(T[] entities) {
+        for (T entity : entities) {
+            write(entity, -1);
+        }
+    }
+
+    @Override
+    public <T> ListenableFuture<Void> saveAsync(T entity) {
+        write(entity, -1);
+        return Futures.immediateFuture(null);
+    }
+
+    @Override
+    public long saveIfVersion(Object entity, long version) {
+        return write(entity, version);
+    }
+
+    @Override
+    public long saveIfAbsent(Object entity) {
+        return write(entity, ABSENT);
+    }
+
+    @Override
+    public long[] saveIfVersion(List<? extends Versioned<?>> entities) {
+        long[] versions = new long[entities.size()];
+        for (int i = 0; i < versions.length; i++) {
+            try {
+                versions[i] = write(entities.get(i).getData(), entities.get(i).getVersion());
+            } catch (DocumentVersionConflictException e) {
+                versions[i] = -1;
+            }
+        }
+        return versions;
+    }
+
+    @SneakyThrows({ IOException.class })
+    private long write(Object entity, long expectedVersion) {
+        String typeName = getTypeName(entity.getClass());
+        JsonNode source = jsonMapper.valueToTree(entity);
+        JsonNode idNode = source.get(typesToIdProperties.get(typeName));
+        String id = idNode == null || idNode.isNull() ? UUID.randomUUID().toString() : idNode.asText();
+        return put(typeName, id, source, expectedVersion);
+    }
+
+    private synchronized long put(String typeName, String id, JsonNode source, long expectedVersion) throws IOException {
+        ConcurrentNavigableMap<String, Document> typeDocuments = documents.get(typeName);
+        Document current = typeDocuments.get(id);
+        if (expectedVersion == ABSENT && current != null) {
+            throw new DocumentVersionConflictException("Document of type <" + typeName + "> already exists", null);
+        }
+        if (expectedVersion > ABSENT && (current == null || current.version != expectedVersion)) {
+            throw new DocumentVersionConflictException("Document of type <" + typeName + "> has been modified since version <" + expectedVersion + ">",
+                    null);
+        }
+        long version = current == null ? 1 : current.version + 1;
+        typeDocuments.put(id, new Document(typeName, id, jsonMapper.writeValueAsBytes(source), source, version));
+        return version;
+    }
+
+    @Override
+    public void update(Class<?> clazz, String id, Map<String, ?> partialDocument) {
+        updateIfVersion(clazz, id, partialDocument, -1);
+    }
+
+    @Override
+    public synchronized void update(Class<?> clazz, String[] ids, Map<String, ?> partialDocument) {
+        String typeName = getTypeName(clazz);
+        for (String id : ids) {
+            if (documents.get(typeName).containsKey(id)) {
+                updateIfVersion(clazz, id, partialDocument, -1);
+            }
+        }
+    }
+
+    @Override
+    public void update(Class<?> clazz, String id, String script, Map<String, ?> parameters) {
+        updateIfVersion(clazz, id, script, parameters, -1);
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    public synchronized long updateIfVersion(Class<?> clazz, String id, Map<String, ?> partialDocument, long version) {
+        String typeName = getTypeName(clazz);
+        Document current = documents.get(typeName).get(id);
+        if (current == null) {
+            throw new IndexingServiceException("Document <" + id + "> of type <" + typeName + "> doesn't exists.");
+        }
+        JsonNode source = current.source.deepCopy();
+        merge((ObjectNode) source, jsonMapper.valueToTree(partialDocument));
+        return put(typeName, id, source, version);
+    }
+
+    /** Merge the partial document in the source the way elastic search does (objects are merged recursively, other values are replaced). */
+    private void merge(ObjectNode source, JsonNode partialDocument) {
+        Iterator<Map.Entry<String, JsonNode>> fields = partialDocument.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode current = source.get(field.getKey());
+            if (current != null && current.isObject() && field.getValue().isObject()) {
+                merge((ObjectNode) current, field.getValue());
+            } else {
+                source.put(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    @Override
+    @SneakyThrows({ IOException.class })
+    public synchronized long updateIfVersion(Class<?> clazz, String id, String script, Map<String, ?> parameters, long version) {
+        IInMemoryUpdateScript updateScript = updateScripts.get(script);
+        if (updateScript == null) {
+            throw new UnsupportedOperationException("Script <" + script + "> has no implementation registered in the in-memory dao.");
+        }
+        String typeName = getTypeName(clazz);
+        Document current = documents.get(typeName).get(id);
+        if (current == null) {
+            throw new IndexingServiceException("Document <" + id + "> of type <" + typeName + "> doesn't exists.");
+        }
+        ObjectNode source = current.source.deepCopy();
+        updateScript.apply(source, jsonMapper.valueToTree(parameters));
+        return put(typeName, id, source, version);
+    }
+
+    @Override
+    public synchronized void delete(Class<?> clazz, String id) {
+        documents.get(getTypeName(clazz)).remove(id);
+    }
+
+    @Override
+    public synchronized void delete(Class<?> clazz, QueryBuilder query) {
+        for (Document document : select(clazz, toJson(query), null, null, null, null)) {
+            documents.get(document.typeName).remove(document.id);
+        }
+    }
+
+    /*
+     * Reads by id
+     */
+
+    @Override
+    public <T> T findById(Class<T> clazz, String id) {
+        Document document = get(clazz, id);
+        return document == null ? null : this.<T> read(document);
+    }
+
+    @Override
+    public <T> ListenableFuture<T> findByIdAsync(Class<T> clazz, String id) {
+        return Futures.immediateFuture(findById(clazz, id));
+    }
+
+    @Override
+    public <T> Versioned<T> findByIdWithVersion(Class<T> clazz, String id) {
+        Document document = get(clazz, id);
+        return document == null ? null : new Versioned<T>(this.<T> read(document), document.version);
+    }
+
+    @Override
+    public <T> Map<String, Versioned<T>> findByIdsWithVersion(Class<T> clazz, String... ids) {
+        Map<String, Versioned<T>> versionedData = Maps.newHashMap();
+        for (String id : ids) {
+            Document document = get(clazz, id);
+            if (document != null) {
+                versionedData.put(id, new Versioned<T>(this.<T> read(document), document.version));
+            }
+        }
+        return versionedData;
+    }
+
+    @Override
+    public <T> List<T> findByIds(Class<T> clazz, String... ids) {
+        return multiGet(clazz, null, ids).getData();
+    }
+
+    @Override
+    public <T> ListenableFuture<List<T>> findByIdsAsync(Class<T> clazz, String... ids) {
+        return Futures.immediateFuture(findByIds(clazz, ids));
+    }
+
+    @Override
+    public <T> MultiGetResult<T> multiGet(Class<T> clazz, String fetchContext, String... ids) {
+        List<T> data = new ArrayList<>(ids.length);
+        List<String> missingIds = new ArrayList<>();
+        for (String id : ids) {
+            Document document = get(clazz, id);
+            if (document == null) {
+                missingIds.add(id);
+            } else {
+                data.add(this.<T> read(document));
+            }
+        }
+        return new MultiGetResult<T>(data, missingIds);
+    }
+
+    @Override
+    public <T> List<T> findByIdsWithContext(Class<T> clazz, String fetchContext, String... ids) {
+        List<T> data = findByIds(clazz, ids);
+        return data.isEmpty() ? null : data;
+    }
+
+    private Document get(Class<?> clazz, String id) {
+        if (id == null || id.trim().isEmpty()) {
+            throw new IndexingServiceException("Null or empty Id is not allowed.");
+        }
+        for (String typeName : getRequestedTypeNames(clazz)) {
+            Document document = documents.get(typeName).get(id);
+            if (document != null) {
+                return document;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Counts and searches
+     */
+
+    @Override
+    public <T> long count(Class<T> clazz, QueryBuilder query) {
+        return select(clazz, toJson(query), null, null, null, null).size();
+    }
+
+    @Override
+    public <T> ListenableFuture<Long> countAsync(Class<T> clazz, QueryBuilder query) {
+        return Futures.immediateFuture(count(clazz, query));
+    }
+
+    @Override
+    public <T> long count(Class<T> clazz, String searchText, Map<String, String[]> filters) {
+        return select(clazz, null, searchText, filters, null, null).size();
+    }
+
+    @Override
+    public <T> ListenableFuture<Long> countAsync(Class<T> clazz, String searchText, Map<String, String[]> filters) {
+        return Futures.immediateFuture(count(clazz, searchText, filters));
+    }
+
+    @Override
+    public <T> T customFind(Class<T> clazz, QueryBuilder query) {
+        return customFind(clazz, query, null);
+    }
+
+    @Override
+    public <T> T customFind(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder) {
+        List<T> results = customFindAll(clazz, query, sortBuilder);
+        return results == null ? null : results.get(0);
+    }
+
+    @Override
+    public <T> List<T> customFindAll(Class<T> clazz, QueryBuilder query) {
+        return customFindAll(clazz, query, null);
+    }
+
+    @Override
+    public <T> List<T> customFindAll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder) {
+        List<Document> selected = select(clazz, toJson(query), null, null, null, null);
+        sort(selected, sortBuilder);
+        List<T> results = Lists.newArrayList();
+        for (Document document : selected) {
+            results.add(this.<T> read(document));
+        }
+        return results.isEmpty() ? null : results;
+    }
+
+    @Override
+    public <T> ICloseableIterator<T> scroll(Class<T> clazz, QueryBuilder query, int pageSize) {
+        return scroll(clazz, query, null, pageSize);
+    }
+
+    @Override
+    public <T> ICloseableIterator<T> scroll(Class<T> clazz, QueryBuilder query, SortBuilder sortBuilder, int pageSize) {
+        List<Document> selected = select(clazz, toJson(query), null, null, null, null);
+        sort(selected, sortBuilder);
+        final Iterator<Document> iterator = selected.iterator();
+        return new ICloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return read(iterator.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Scroll results are read-only.");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public GetMultipleDataResult<Object> search(SearchQueryHelperBuilder queryHelperBuilder, int from, int maxElements) {
+        throw new UnsupportedOperationException("Query helper searches are not supported by the in-memory dao.");
+    }
+
+    @Override
+    public <T> GetMultipleDataResult<T> find(Class<T> clazz, Map<String, String[]> filters, int maxElements) {
+        return find(clazz, filters, 0, maxElements);
+    }
+
+    @Override
+    public <T> GetMultipleDataResult<T> find(Class<T> clazz, Map<String, String[]> filters, int from, int maxElements) {
+        return search(clazz, null, filters, from, maxElements);
+    }
+
+    @Override
+    public <T> GetMultipleDataResult<T> search(Class<T> clazz, String searchText, Map<String, String[]> filters, int maxElements) {
+        return search(clazz, searchText, filters, 0, maxElements);
+    }
+
+    @Override
+    public <T> GetMultipleDataResult<T> search(Class<T> clazz, String searchText, Map<String, String[]> filters, int from, int maxElements) {
+        return search(clazz, searchText, filters, null, null, from, maxElements);
+    }
+
+    @Override
+    public <T> GetMultipleDataResult<T> search(Class<T> clazz, String searchText, Map<String, String[]> filters, String fetchContext, int from,
+            int maxElements) {
+        return search(clazz, searchText, filters, null, fetchContext, from, maxElements);
+    }
+
+    @Override
+    public <T> GetMultipleDataResult<T> search(Class<T> clazz, String searchText, Map<String, String[]> filters, FilterBuilder customFilter,
+            String fetchContext, int from, int maxElements) {
+        List<Document> selected = select(clazz, null, searchText, filters, null, toJson(customFilter));
+        GetMultipleDataResult<T> result = new GetMultipleDataResult<T>();
+        fillResult(clazz, scoreSort(selected), from, maxElements, result);
+        return result;
+    }
+
+    @Override
+    public <T> ListenableFuture<GetMultipleDataResult<T>> searchAsync(Class<T> clazz, String searchText, Map<String, String[]> filters,
+            FilterBuilder customFilter, String fetchContext, int from, int maxElements) {
+        return Futures.immediateFuture(search(clazz, searchText, filters, customFilter, fetchContext, from, maxElements));
+    }
+
+    @Override
+    public GetMultipleDataResult<Object> search(String[] searchIndices, Class<?>[] classes, String searchText, Map<String, String[]> filters,
+            String fetchContext, int from, int maxElements) {
+        return search(searchIndices, classes, searchText, filters, null, fetchContext, from, maxElements);
+    }
+
+    @Override
+    public GetMultipleDataResult<Object> search(String[] searchIndices, Class<?>[] classes, String searchText, Map<String, String[]> filters,
+            FilterBuilder customFilter, String fetchContext, int from, int maxElements) {
+        List<Document> selected = select(getTypeNames(searchIndices, classes), null, searchText, filters, null, toJson(customFilter));
+        GetMultipleDataResult<Object> result = new GetMultipleDataResult<Object>();
+        fillResult(Object.class, scoreSort(selected), from, maxElements, result);
+        return result;
+    }
+
+    @Override
+    public <T> GetMultipleDataResult<T> search(Class<T> clazz, String searchText, Map<String, String[]> filters,
+            Map<String, FilterValuesStrategy> filterStrategies, int maxElements) {
+        List<Document> selected = select(clazz, null, searchText, filters, filterStrategies, null);
+        GetMultipleDataResult<T> result = new GetMultipleDataResult<T>();
+        fillResult(clazz, scoreSort(selected), 0, maxElements, result);
+        return result;
+    }
+
+    @Override
+    public <T> FacetedSearchResult facetedSearch(Class<T> clazz, String searchText, Map<String, String[]> filters, int maxElements) {
+        return facetedSearch(clazz, searchText, filters, null, 0, maxElements);
+    }
+
+    @Override
+    public <T> FacetedSearchResult facetedSearch(Class<T> clazz, String searchText, Map<String, String[]> filters, String fetchContext, int from,
+            int maxElements) {
+        return facetedSearch(clazz, searchText, filters, null, fetchContext, from, maxElements);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> FacetedSearchResult facetedSearch(Class<T> clazz, String searchText, Map<String, String[]> filters, FilterBuilder customFilter,
+            String fetchContext, int from, int maxElements) {
+        List<Document> selected = select(clazz, null, searchText, filters, null, toJson(customFilter));
+        FacetedSearchResult result = new FacetedSearchResult();
+        fillResult(clazz, scoreSort(selected), from, maxElements, result);
+        result.setFacets(facets(clazz, selected));
+        return result;
+    }
+
+    @Override
+    public <T> ListenableFuture<FacetedSearchResult> facetedSearchAsync(Class<T> clazz, String searchText, Map<String, String[]> filters,
+            FilterBuilder customFilter, String fetchContext, int from, int maxElements) {
+        return Futures.immediateFuture(facetedSearch(clazz, searchText, filters, customFilter, fetchContext, from, maxElements));
+    }
+
+    @Override
+    public GetMultipleDataResult<Object> suggestSearch(String[] searchIndices, Class<?>[] requestedTypes, String suggestFieldPath, String searchPrefix,
+            String fetchContext, int from, int maxElements) {
+        String prefix = searchPrefix == null ? "" : searchPrefix.toLowerCase();
+        List<Document> selected = Lists.newArrayList();
+        for (Document document : select(getTypeNames(searchIndices, requestedTypes), null, null, null, null, null)) {
+            for (JsonNode value : values(document.source, suggestFieldPath)) {
+                if (value.asText().toLowerCase().startsWith(prefix)) {
+                    selected.add(document);
+                    break;
+                }
+            }
+        }
+        GetMultipleDataResult<Object> result = new GetMultipleDataResult<Object>();
+        fillResult(Object.class, selected, from, maxElements, result);
+        return result;
+    }
+
+    @Override
+    public String[] selectPath(String index, Class<?>[] types, QueryBuilder queryBuilder, SortOrder sortOrder, String path, int from, int size) {
+        String[] typeNames = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            typeNames[i] = MappingBuilder.indexTypeFromClass(types[i]);
+        }
+        return selectPath(index, typeNames, queryBuilder, sortOrder, path, from, size);
+    }
+
+    @Override
+    public String[] selectPath(String index, String[] types, QueryBuilder queryBuilder, SortOrder sortOrder, String path, int from, int size) {
+        List<Document> selected = select(getTypeNames(new String[] { index }, types), toJson(queryBuilder), null, null, null, null);
+        if (sortOrder != null) {
+            Collections.sort(selected, new FieldComparator(path, SortOrder.DESC.equals(sortOrder)));
+        }
+        List<String> results = Lists.newArrayList();
+        for (Document document : page(selected, from, size)) {
+            List<JsonNode> values = values(document.source, path);
+            results.add(values.isEmpty() ? String.valueOf((Object) null) : values.get(0).asText());
+        }
+        return results.toArray(new String[results.size()]);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CursorResult<T> searchAfter(Class<T> clazz, String[] indices, FilterBuilder filter, String sortField, final String tieBreakerField,
+            final boolean descending, String cursor, int size) {
+        List<Document> selected = select(clazz, null, null, null, null, toJson(filter));
+        final FieldComparator fieldComparator = new FieldComparator(sortField, descending);
+        final FieldComparator tieBreakerComparator = new FieldComparator(tieBreakerField, descending);
+        Collections.sort(selected, new Comparator<Document>() {
+            @Override
+            public int compare(Document left, Document right) {
+                int comparison = fieldComparator.compare(left, right);
+                return comparison == 0 ? tieBreakerComparator.compare(left, right) : comparison;
+            }
+        });
+        int start = 0;
+        if (cursor != null) {
+            SearchCursor after = SearchCursor.decode(cursor);
+            while (start < selected.size() && !isAfter(selected.get(start), sortField, tieBreakerField, descending, after)) {
+                start++;
+            }
+        }
+        List<Document> page = page(selected, start, size);
+        CursorResult<T> result = new CursorResult<T>();
+        result.setTypes(new String[page.size()]);
+        result.setData((T[]) Array.newInstance(clazz, page.size()));
+        for (int i = 0; i < page.size(); i++) {
+            result.getTypes()[i] = page.get(i).typeName;
+            result.getData()[i] = read(page.get(i));
+        }
+        if (!page.isEmpty() && page.size() == size) {
+            Document last = page.get(page.size() - 1);
+            JsonNode sortValue = firstValue(last, sortField);
+            JsonNode tieBreaker = firstValue(last, tieBreakerField);
+            result.setNextCursor(SearchCursor.encode(sortValue == null ? null : sortValue.isNumber() ? sortValue.numberValue() : sortValue.asText(),
+                    tieBreaker == null ? null : tieBreaker.asText()));
+        }
+        return result;
+    }
+
+    private boolean isAfter(Document document, String sortField, String tieBreakerField, boolean descending, SearchCursor after) {
+        JsonNode sortValue = firstValue(document, sortField);
+        JsonNode tieBreaker = firstValue(document, tieBreakerField);
+        if (sortValue == null || tieBreaker == null) {
+            // documents without value are last
+            return true;
+        }
+        int comparison = compare(sortValue, after.getSortValue());
+        if (comparison == 0) {
+            comparison = tieBreaker.asText().compareTo(after.getTieBreaker());
+        }
+        return descending ? comparison < 0 : comparison > 0;
+    }
+
+    private static JsonNode firstValue(Document document, String path) {
+        List<JsonNode> values = values(document.source, path);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /*
+     * Type resolution
+     */
+
+    private String getTypeName(Class<?> clazz) {
+        String typeName = MappingBuilder.indexTypeFromClass(clazz);
+        if (!typesToIndices.containsKey(typeName)) {
+            throw new IndexingServiceException("Requested type <" + typeName + "> is not registered in any indexes.");
+        }
+        return typeName;
+    }
+
+    /** Names of the registered types assignable to the given class (all the types if the class is null). */
+    private List<String> getRequestedTypeNames(Class<?> clazz) {
+        List<String> typeNames = Lists.newArrayList();
+        for (Map.Entry<String, Class<?>> entry : typesToClasses.entrySet()) {
+            if (clazz == null || clazz.isAssignableFrom(entry.getValue())) {
+                typeNames.add(entry.getKey());
+            }
+        }
+        return typeNames;
+    }
+
+    private List<String> getTypeNames(String[] indices, Object[] types) {
+        List<String> typeNames = Lists.newArrayList();
+        for (Map.Entry<String, String> entry : typesToIndices.entrySet()) {
+            if (indices != null && indices.length > 0 && !contains(indices, entry.getValue())) {
+                continue;
+            }
+            if (types == null || types.length == 0 || matchesType(entry.getKey(), types)) {
+                typeNames.add(entry.getKey());
+            }
+        }
+        return typeNames;
+    }
+
+    private boolean matchesType(String typeName, Object[] types) {
+        for (Object type : types) {
+            if (type instanceof Class ? ((Class<?>) type).isAssignableFrom(typesToClasses.get(typeName)) : typeName.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean contains(Object[] array, Object value) {
+        for (Object element : array) {
+            if (element != null && element.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Selection, sort and results
+     */
+
+    private List<Document> select(Class<?> clazz, JsonNode query, String searchText, Map<String, String[]> filters,
+            Map<String, FilterValuesStrategy> filterStrategies, JsonNode customFilter) {
+        return select(getRequestedTypeNames(clazz), query, searchText, filters, filterStrategies, customFilter);
+    }
+
+    private List<Document> select(List<String> typeNames, JsonNode query, String searchText, Map<String, String[]> filters,
+            Map<String, FilterValuesStrategy> filterStrategies, JsonNode customFilter) {
+        String[] words = searchText == null || searchText.trim().isEmpty() ? new String[0] : WHITESPACES.split(searchText.trim().toLowerCase());
+        List<Document> selected = Lists.newArrayList();
+        for (String typeName : typesToClasses.keySet()) {
+            if (!typeNames.contains(typeName)) {
+                continue;
+            }
+            for (Document document : documents.get(typeName).values()) {
+                if ((query == null || matches(query, document.source, document.id)) && (customFilter == null || matches(customFilter, document.source, document.id))
+                        && matchesFilters(document.source, filters, filterStrategies) && matchesText(document.source, words)) {
+                    selected.add(document);
+                }
+            }
+        }
+        return selected;
+    }
+
+    private boolean matchesFilters(JsonNode source, Map<String, String[]> filters, Map<String, FilterValuesStrategy> filterStrategies) {
+        if (filters == null) {
+            return true;
+        }
+        for (Map.Entry<String, String[]> filter : filters.entrySet()) {
+            if (filter.getValue() == null || filter.getValue().length == 0) {
+                continue;
+            }
+            FilterValuesStrategy strategy = filterStrategies == null ? null : filterStrategies.get(filter.getKey());
+            List<String> values = textValues(source, filter.getKey());
+            boolean allValues = FilterValuesStrategy.AND.equals(strategy);
+            boolean matched = allValues;
+            for (String expected : filter.getValue()) {
+                if (allValues && !values.contains(expected)) {
+                    matched = false;
+                    break;
+                } else if (!allValues && values.contains(expected)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesText(JsonNode source, String[] words) {
+        if (words.length == 0) {
+            return true;
+        }
+        List<String> values = Lists.newArrayList();
+        collectText(source, values);
+        for (String word : words) {
+            boolean found = false;
+            for (String value : values) {
+                if (value.contains(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void collectText(JsonNode node, List<String> values) {
+        if (node.isContainerNode()) {
+            for (JsonNode child : node) {
+                collectText(child, values);
+            }
+        } else if (node.isTextual()) {
+            values.add(node.asText().toLowerCase());
+        }
+    }
+
+    /** Sort the documents as the elastic search daos do when searching: by descending alien score. */
+    private List<Document> scoreSort(List<Document> selected) {
+        Collections.sort(selected, new FieldComparator(ALIEN_SCORE, true));
+        return selected;
+    }
+
+    private void sort(List<Document> selected, SortBuilder sortBuilder) {
+        if (sortBuilder == null) {
+            return;
+        }
+        JsonNode sort;
+        try {
+            // sort builders render a json fragment
+            sort = jsonMapper.readTree("{" + sortBuilder.toString() + "}");
+        } catch (IOException e) {
+            throw new UnsupportedOperationException("Sort <" + sortBuilder + "> is not supported by the in-memory dao.", e);
+        }
+        Map.Entry<String, JsonNode> field = sort.fields().next();
+        JsonNode order = field.getValue().get("order");
+        Collections.sort(selected, new FieldComparator(field.getKey(), order != null && "desc".equalsIgnoreCase(order.asText())));
+    }
+
+    private <T> void fillResult(Class<T> clazz, List<Document> selected, int from, int maxElements, GetMultipleDataResult<T> result) {
+        List<Document> page = page(selected, from, maxElements);
+        @SuppressWarnings("unchecked")
+        T[] data = (T[]) Array.newInstance(clazz, page.size());
+        String[] types = new String[page.size()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = read(page.get(i));
+            types[i] = page.get(i).typeName;
+        }
+        result.setData(data);
+        result.setTypes(types);
+        result.setFrom(from);
+        result.setTo(from + data.length - 1);
+        result.setTotalResults(selected.size());
+    }
+
+    private List<Document> page(List<Document> selected, int from, int size) {
+        if (from >= selected.size()) {
+            return Collections.emptyList();
+        }
+        return selected.subList(from, Math.min(selected.size(), from + size));
+    }
+
+    private <T> Map<String, FacetedSearchFacet[]> facets(Class<T> clazz, List<Document> selected) {
+        Map<String, FacetedSearchFacet[]> facets = Maps.newHashMap();
+        for (String typeName : getRequestedTypeNames(clazz)) {
+            for (String facet : typesToFacets.get(typeName)) {
+                if (facets.containsKey(facet)) {
+                    continue;
+                }
+                final Map<String, Long> counts = new LinkedHashMap<>();
+                for (Document document : selected) {
+                    for (String value : textValues(document.source, facet)) {
+                        Long count = counts.get(value);
+                        counts.put(value, count == null ? 1 : count + 1);
+                    }
+                }
+                List<FacetedSearchFacet> entries = Lists.newArrayList();
+                for (Map.Entry<String, Long> count : counts.entrySet()) {
+                    entries.add(new FacetedSearchFacet(count.getKey(), count.getValue()));
+                }
+                Collections.sort(entries, new Comparator<FacetedSearchFacet>() {
+                    @Override
+                    public int compare(FacetedSearchFacet left, FacetedSearchFacet right) {
+                        return Long.compare(right.getCount(), left.getCount());
+                    }
+                });
+                facets.put(facet, entries.toArray(new FacetedSearchFacet[entries.size()]));
+            }
+        }
+        return facets.isEmpty() ? null : facets;
+    }
+
+    @SuppressWarnings("unchecked")
+    @SneakyThrows({ IOException.class })
+    private <T> T read(Document document) {
+        return (T) jsonMapper.readValue(document.bytes, typesToClasses.get(document.typeName));
+    }
+
+    /*
+     * Query evaluation
+     */
+
+    @SneakyThrows({ IOException.class })
+    private JsonNode toJson(Object builder) {
+        return builder == null ? null : jsonMapper.readTree(builder.toString());
+    }
+
+    /**
+     * Evaluate a query or a filter (json rendering of a query or filter builder) on a document source.
+     */
+    private boolean matches(JsonNode clause, JsonNode source, String id) {
+        if (clause.isArray()) {
+            for (JsonNode element : clause) {
+                if (!matches(element, source, id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Map.Entry<String, JsonNode> entry = clause.fields().next();
+        JsonNode body = entry.getValue();
+        switch (entry.getKey()) {
+        case "match_all":
+            return true;
+        case "term":
+            Map.Entry<String, JsonNode> term = firstField(body);
+            return textValues(source, term.getKey()).contains(value(term.getValue(), "value").asText());
+        case "terms":
+        case "in":
+            Map.Entry<String, JsonNode> terms = firstField(body);
+            List<String> values = textValues(source, terms.getKey());
+            for (JsonNode expected : terms.getValue()) {
+                if (values.contains(expected.asText())) {
+                    return true;
+                }
+            }
+            return false;
+        case "ids":
+            for (JsonNode expected : body.get("values")) {
+                if (expected.asText().equals(id)) {
+                    return true;
+                }
+            }
+            return false;
+        case "match":
+            Map.Entry<String, JsonNode> match = firstField(body);
+            String[] words = WHITESPACES.split(value(match.getValue(), "query").asText().toLowerCase());
+            for (String value : textValues(source, match.getKey())) {
+                for (String word : words) {
+                    if (value.toLowerCase().contains(word)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        case "regexp":
+            Map.Entry<String, JsonNode> regexp = firstField(body);
+            Pattern pattern = Pattern.compile(value(regexp.getValue(), "value").asText());
+            for (String value : textValues(source, regexp.getKey())) {
+                if (pattern.matcher(value).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        case "range":
+            Map.Entry<String, JsonNode> range = firstField(body);
+            for (JsonNode value : values(source, range.getKey())) {
+                if (inRange(value, range.getValue())) {
+                    return true;
+                }
+            }
+            return false;
+        case "exists":
+            return !values(source, body.get("field").asText()).isEmpty();
+        case "missing":
+            return values(source, body.get("field").asText()).isEmpty();
+        case "bool":
+            return matchesBool(body, source, id);
+        case "and":
+            return matches(body.has("filters") ? body.get("filters") : body, source, id);
+        case "or":
+            for (JsonNode element : body.has("filters") ? body.get("filters") : body) {
+                if (matches(element, source, id)) {
+                    return true;
+                }
+            }
+            return false;
+        case "not":
+            return !matches(innerClause(body), source, id);
+        case "constant_score":
+            return matches(innerClause(body), source, id);
+        case "filtered":
+            return (!body.has("query") || matches(body.get("query"), source, id)) && (!body.has("filter") || matches(body.get("filter"), source, id));
+        case "nested":
+            String path = body.get("path").asText();
+            JsonNode nestedClause = innerClause(body);
+            for (JsonNode nested : values(source, path)) {
+                // nested clauses use the complete path of the fields
+                ObjectNode nestedSource = jsonMapper.createObjectNode();
+                nestedSource.put(path, nested);
+                if (matches(nestedClause, expand(nestedSource), id)) {
+                    return true;
+                }
+            }
+            return false;
+        default:
+            throw new UnsupportedOperationException("Query <" + entry.getKey() + "> is not supported by the in-memory dao.");
+        }
+    }
+
+    private boolean matchesBool(JsonNode body, JsonNode source, String id) {
+        if (body.has("must") && !matches(body.get("must"), source, id)) {
+            return false;
+        }
+        if (body.has("must_not")) {
+            for (JsonNode element : asArray(body.get("must_not"))) {
+                if (matches(element, source, id)) {
+                    return false;
+                }
+            }
+        }
+        if (body.has("should") && !body.has("must")) {
+            for (JsonNode element : asArray(body.get("should"))) {
+                if (matches(element, source, id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private JsonNode innerClause(JsonNode body) {
+        if (body.has("filter")) {
+            return body.get("filter");
+        }
+        if (body.has("query")) {
+            return body.get("query");
+        }
+        return body;
+    }
+
+    private JsonNode asArray(JsonNode node) {
+        if (node.isArray()) {
+            return node;
+        }
+        ArrayNode array = jsonMapper.createArrayNode();
+        array.add(node);
+        return array;
+    }
+
+    private Map.Entry<String, JsonNode> firstField(JsonNode body) {
+        Iterator<Map.Entry<String, JsonNode>> fields = body.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            // skip the options of the clause (boost, execution etc.)
+            if (!"boost".equals(field.getKey()) && !"execution".equals(field.getKey()) && !"_name".equals(field.getKey())
+                    && !"_cache".equals(field.getKey())) {
+                return field;
+            }
+        }
+        throw new UnsupportedOperationException("Clause <" + body + "> is not supported by the in-memory dao.");
+    }
+
+    /** Value of a clause that is either the value itself or an object with the value and its options. */
+    private JsonNode value(JsonNode node, String valueField) {
+        return node.isObject() ? node.get(valueField) : node;
+    }
+
+    private boolean inRange(JsonNode value, JsonNode range) {
+        Iterator<Map.Entry<String, JsonNode>> bounds = range.fields();
+        boolean includeLower = !range.has("include_lower") || range.get("include_lower").asBoolean();
+        boolean includeUpper = !range.has("include_upper") || range.get("include_upper").asBoolean();
+        while (bounds.hasNext()) {
+            Map.Entry<String, JsonNode> bound = bounds.next();
+            if (bound.getValue().isNull()) {
+                continue;
+            }
+            int comparison = compare(value, bound.getValue());
+            switch (bound.getKey()) {
+            case "from":
+                if (comparison < 0 || (comparison == 0 && !includeLower)) {
+                    return false;
+                }
+                break;
+            case "to":
+                if (comparison > 0 || (comparison == 0 && !includeUpper)) {
+                    return false;
+                }
+                break;
+            case "gt":
+                if (comparison <= 0) {
+                    return false;
+                }
+                break;
+            case "gte":
+                if (comparison < 0) {
+                    return false;
+                }
+                break;
+            case "lt":
+                if (comparison >= 0) {
+                    return false;
+                }
+                break;
+            case "lte":
+                if (comparison > 0) {
+                    return false;
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        return true;
+    }
+
+    private static int compare(JsonNode left, JsonNode right) {
+        if (left.isNumber() && right.isNumber()) {
+            return Double.compare(left.asDouble(), right.asDouble());
+        }
+        return left.asText().compareTo(right.asText());
+    }
+
+    /** Documents have fields with dots in their names for nested clauses, expand them to objects. */
+    private JsonNode expand(ObjectNode node) {
+        ObjectNode expanded = jsonMapper.createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String[] path = field.getKey().split("\\.");
+            ObjectNode parent = expanded;
+            for (int i = 0; i < path.length - 1; i++) {
+                parent = parent.has(path[i]) ? (ObjectNode) parent.get(path[i]) : parent.putObject(path[i]);
+            }
+            parent.put(path[path.length - 1], field.getValue());
+        }
+        return expanded;
+    }
+
+    private List<String> textValues(JsonNode source, String path) {
+        List<String> texts = Lists.newArrayList();
+        for (JsonNode value : values(source, path)) {
+            texts.add(value.asText());
+        }
+        return texts;
+    }
+
+    /** Get the values at the given path, arrays are flattened. */
+    private static List<JsonNode> values(JsonNode source, String path) {
+        List<JsonNode> values = Lists.newArrayList();
+        collectValues(source, path.split("\\."), 0, values);
+        return values;
+    }
+
+    private static void collectValues(JsonNode node, String[] path, int index, Collection<JsonNode> values) {
+        if (node == null || node.isNull()) {
+            return;
+        }
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                collectValues(element, path, index, values);
+            }
+            return;
+        }
+        if (index == path.length) {
+            values.add(node);
+            return;
+        }
+        if (node.isObject()) {
+            collectValues(node.get(path[index]), path, index + 1, values);
+        }
+    }
+
+    /**
+     * Compare documents on the first value of a field, documents without value are last.
+     */
+    private static final class FieldComparator implements Comparator<Document> {
+        private final String path;
+        private final boolean descending;
+
+        private FieldComparator(String path, boolean descending) {
+            this.path = path;
+            this.descending = descending;
+        }
+
+        @Override
+        public int compare(Document left, Document right) {
+            List<JsonNode> leftValues = values(left.source, path);
+            List<JsonNode> rightValues = values(right.source, path);
+            if (leftValues.isEmpty() || rightValues.isEmpty()) {
+                return Boolean.compare(leftValues.isEmpty(), rightValues.isEmpty());
+            }
+            int comparison = InMemorySearchDAO.compare(leftValues.get(0), rightValues.get(0));
+            return descending ? -comparison : comparison;
+        }
+    }
+
+    /**
+     * A stored document.
+     */
+    private static final class Document {
+        private final String typeName;
+        private final String id;
+        private final byte[] bytes;
+        private final JsonNode source;
+        private final long version;
+
+        private Document(String typeName, String id, byte[] bytes, JsonNode source, long version) {
+            this.typeName = typeName;
+            this.id = id;
+            this.bytes = bytes;
+            this.source = source;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package alien4cloud.dao;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import alien4cloud.dao.DaoMetrics.Operation;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Single-flight execution of identical reads: while a read is in flight, concurrent callers that request the same read (same key) wait for it and share its
+ * response instead of sending their own request to elastic search.
+ *
+ * Keys must contain the write generation of the targeted indices (see {@link ESIndexMapper#readKey(String[], Object...)}) so a read never joins a request
+ * sent before a write that completed earlier.
+ */
+class ReadCoalescer {
+    private static final String METRIC_PREFIX = "alien4cloud.dao.coalescing";
+    private final ConcurrentMap<String, SettableFuture<Object>> inFlight = Maps.newConcurrentMap();
+    private final MetricRegistry metricRegistry;
+    private final boolean enabled;
+
+    /**
+     * @param metricRegistry The registry in which to count the executed and coalesced reads, may be null.
+     * @param enabled False to execute every read.
+     */
+    ReadCoalescer(MetricRegistry metricRegistry, boolean enabled) {
+        this.metricRegistry = metricRegistry;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Execute a read or wait for the identical read in flight.
+     *
+     * @param operation The operation (for metrics).
+     * @param key The key that identifies identical reads.
+     * @param reader The read to execute if no identical read is in flight. The response is shared and must not be modified.
+     * @return The response of the read.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T read(Operation operation, String key, Supplier<T> reader) {
+        if (!enabled) {
+            return reader.get();
+        }
+        SettableFuture<Object> future = SettableFuture.create();
+        SettableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            mark(operation, "coalesced");
+            try {
+                return (T) Uninterruptibles.getUninterruptibly(existing);
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+        mark(operation, "executed");
+        try {
+            T result = reader.get();
+            future.set(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.setException(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private void mark(Operation operation, String outcome) {
+        if (metricRegistry != null) {
+            metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, operation.name().toLowerCase(), outcome)).mark();
+        }
+    }
+
+    /**
+     * Build a key from the parameters of a read. Arrays and maps (sorted by key) are expanded so equal parameters give equal keys.
+     *
+     * @param parts The parameters of the read.
+     * @return The key.
+     */
+    static String key(Object... parts) {
+        StringBuilder builder = new StringBuilder();
+        appendKeyPart(builder, parts);
+        return builder.toString();
+    }
+
+    private static void appendKeyPart(StringBuilder builder, Object part) {
+        if (part instanceof Object[]) {
+            builder.append('[');
+            for (Object element : (Object[]) part) {
+                appendKeyPart(builder, element);
+                builder.append(',');
+            }
+            builder.append(']');
+        } else if (part instanceof Map) {
+            SortedMap<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) part).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            builder.append('{');
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                builder.append(entry.getKey()).append('=');
+                appendKeyPart(builder, entry.getValue());
+                builder.append(',');
+            }
+            builder.append('}');
+        } else {
+            builder.append(part);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package alien4cloud.dao;
+
+/**
+ * Defines when the writes performed on a type become visible to searches. Document gets are real-time and never depend on the refresh policy.
+ */
+public enum RefreshPolicy {
+    /** Every write refreshes the index before returning (read-your-writes for searches, most expensive). */
+    IMMEDIATE,
+    /** Writes do not refresh the index, the index is refreshed once before the next search or count that targets it (coalesces refreshes). */
+    ON_NEXT_READ,
+    /** Writes never refresh the index, they become visible after the periodic refresh of the index (refresh_interval setting). */
+    INTERVAL
+}
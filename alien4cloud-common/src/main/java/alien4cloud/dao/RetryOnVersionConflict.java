@@ -0,0 +1,19 @@
+package alien4cloud.dao;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import alien4cloud.exception.DocumentVersionConflictException;
+
+/**
+ * Marks a method that reads documents with their version and writes them back only if they have not been modified in the meantime. The whole method is
+ * executed again when it throws a {@link DocumentVersionConflictException} so it must re-read the documents it modifies.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnVersionConflict {
+    /** Maximum number of executions of the method before the conflict is reported to the caller. */
+    int maxAttempts() default 5;
+}
@@ -0,0 +1,141 @@
+package alien4cloud.dao;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import lombok.Getter;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Describes an index partitioned by time: documents are written in an index per period (bucket) and searched through an alias that groups all the buckets.
+ * Retention is enforced by dropping the buckets that are older than the retention duration.
+ *
+ * Buckets are named after the alias and the (UTC) start date of their period: <i>alias-yyyy.MM.dd</i>. Weekly buckets start on monday.
+ */
+@Getter
+public class RollingIndex {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final String BUCKET_DATE_FORMAT = "yyyy.MM.dd";
+
+    /** Duration covered by an index. */
+    public enum Period {
+        DAILY, WEEKLY
+    }
+
+    /** Name of the alias that groups all the buckets. */
+    private final String alias;
+    private final Period period;
+    /** Duration (in milliseconds) during which the documents are kept. */
+    private final long retentionMs;
+
+    public RollingIndex(String alias, Period period, long retentionMs) {
+        this.alias = alias;
+        this.period = period;
+        this.retentionMs = retentionMs;
+    }
+
+    /**
+     * Get the name of the bucket in which a document with the given timestamp is written.
+     *
+     * @param timestamp The timestamp of the document.
+     * @return The name of the bucket index.
+     */
+    public String indexFor(long timestamp) {
+        return bucketName(bucketStart(timestamp));
+    }
+
+    /**
+     * Get the names of the buckets that cover the given time range.
+     *
+     * @param fromTimestamp Start of the range.
+     * @param toTimestamp End of the range.
+     * @return The names of the bucket indices, from the oldest to the newest.
+     */
+    public List<String> indicesBetween(long fromTimestamp, long toTimestamp) {
+        List<String> indices = Lists.newArrayList();
+        for (long start = bucketStart(fromTimestamp); start <= toTimestamp; start = nextBucketStart(start)) {
+            indices.add(bucketName(start));
+        }
+        return indices;
+    }
+
+    /**
+     * Check if an index is a bucket of this rolling index.
+     *
+     * @param indexName The name of the index.
+     * @return True if the index is a bucket of this rolling index.
+     */
+    public boolean isBucket(String indexName) {
+        return parseBucketStart(indexName) != null;
+    }
+
+    /**
+     * Check if all the documents of a bucket are older than the retention duration.
+     *
+     * @param indexName The name of the bucket index.
+     * @param now The current timestamp.
+     * @return True if the bucket can be dropped, false if it is still in the retention window or if the index is not a bucket.
+     */
+    public boolean isExpired(String indexName, long now) {
+        Long start = parseBucketStart(indexName);
+        return start != null && nextBucketStart(start) <= now - retentionMs;
+    }
+
+    long bucketStart(long timestamp) {
+        Calendar calendar = newCalendar();
+        calendar.setTimeInMillis(timestamp);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (Period.WEEKLY.equals(period)) {
+            calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+        }
+        return calendar.getTimeInMillis();
+    }
+
+    long nextBucketStart(long bucketStart) {
+        Calendar calendar = newCalendar();
+        calendar.setTimeInMillis(bucketStart);
+        calendar.add(Calendar.DAY_OF_MONTH, Period.WEEKLY.equals(period) ? 7 : 1);
+        return calendar.getTimeInMillis();
+    }
+
+    private String bucketName(long bucketStart) {
+        return alias + "-" + newDateFormat().format(new Date(bucketStart));
+    }
+
+    private Long parseBucketStart(String indexName) {
+        String prefix = alias + "-";
+        if (indexName == null || !indexName.startsWith(prefix)) {
+            return null;
+        }
+        String suffix = indexName.substring(prefix.length());
+        try {
+            SimpleDateFormat dateFormat = newDateFormat();
+            dateFormat.setLenient(false);
+            long start = dateFormat.parse(suffix).getTime();
+            // names that don't match a bucket start are not managed by this rolling index
+            return suffix.equals(dateFormat.format(new Date(start))) && start == bucketStart(start) ? start : null;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private Calendar newCalendar() {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.setFirstDayOfWeek(Calendar.MONDAY);
+        return calendar;
+    }
+
+    private SimpleDateFormat newDateFormat() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(BUCKET_DATE_FORMAT);
+        dateFormat.setTimeZone(UTC);
+        return dateFormat;
+    }
+}
@@ -0,0 +1,24 @@
+package alien4cloud.dao;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+
+/**
+ * Scores the results with a function score script evaluated for every matching document.
+ */
+public class ScriptScoringStrategy implements IScoringStrategy {
+    private final String script;
+
+    /**
+     * @param script The score script, its result replaces the text relevance.
+     */
+    public ScriptScoringStrategy(String script) {
+        this.script = script;
+    }
+
+    @Override
+    public QueryBuilder score(QueryBuilder query) {
+        return QueryBuilders.functionScoreQuery(query, ScoreFunctionBuilders.scriptFunction(script)).boostMode("replace");
+    }
+}
@@ -0,0 +1,73 @@
+package alien4cloud.dao;
+
+import java.io.IOException;
+
+import lombok.Getter;
+
+import alien4cloud.exception.InvalidArgumentException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Position of the last document of a page in a cursor based search: the value of the sort field and the value of the tie breaker field of the document,
+ * used to order the documents with the same sort value.
+ */
+@Getter
+final class SearchCursor {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Value of the sort field, a number or a string. */
+    private final JsonNode sortValue;
+    /** Value of the tie breaker field. */
+    private final String tieBreaker;
+
+    SearchCursor(JsonNode sortValue, String tieBreaker) {
+        this.sortValue = sortValue;
+        this.tieBreaker = tieBreaker;
+    }
+
+    /**
+     * Get the value of the sort field as a java object to be used in queries.
+     *
+     * @return The sort value.
+     */
+    Object getSortObject() {
+        return sortValue.isNumber() ? sortValue.numberValue() : sortValue.asText();
+    }
+
+    /**
+     * Create the cursor that follows the given document.
+     *
+     * @param sortValue The value of the sort field of the document.
+     * @param tieBreaker The value of the tie breaker field of the document.
+     * @return The opaque token of the cursor.
+     */
+    static String encode(Object sortValue, String tieBreaker) {
+        ObjectNode cursor = MAPPER.createObjectNode();
+        cursor.put("v", sortValue instanceof Number ? MAPPER.valueToTree(sortValue) : MAPPER.valueToTree(String.valueOf(sortValue)));
+        cursor.put("t", tieBreaker);
+        return BaseEncoding.base64Url().omitPadding().encode(cursor.toString().getBytes(Charsets.UTF_8));
+    }
+
+    /**
+     * Read a cursor token.
+     *
+     * @param token The opaque token of the cursor.
+     * @return The cursor.
+     */
+    static SearchCursor decode(String token) {
+        try {
+            JsonNode cursor = MAPPER.readTree(BaseEncoding.base64Url().omitPadding().decode(token));
+            if (cursor == null || !cursor.has("v") || !cursor.has("t")) {
+                throw new InvalidArgumentException("Invalid search cursor <" + token + ">");
+            }
+            return new SearchCursor(cursor.get("v"), cursor.get("t").asText());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidArgumentException("Invalid search cursor <" + token + ">", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package alien4cloud.dao;
+
+import java.util.Random;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.exception.DocumentVersionConflictException;
+
+/**
+ * Aspect that executes again the methods annotated with {@link RetryOnVersionConflict} when a concurrent modification of a document is detected.
+ */
+@Aspect
+@Component
+public class VersionConflictRetryAspect {
+    private static final int MAX_BACKOFF_MS = 50;
+    private final Random random = new Random();
+
+    @Around("@annotation(retryOnVersionConflict)")
+    public Object retry(ProceedingJoinPoint pjp, RetryOnVersionConflict retryOnVersionConflict) throws Throwable {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return pjp.proceed();
+            } catch (DocumentVersionConflictException e) {
+                if (attempt >= retryOnVersionConflict.maxAttempts()) {
+                    throw e;
+                }
+                ESIndexMapper.getLog().debug("Concurrent modification detected in <{}>, attempt <{}>, retrying.", pjp.getSignature().getName(), attempt);
+                // wait a bit so concurrent writers don't conflict again
+                Thread.sleep(random.nextInt(MAX_BACKOFF_MS * attempt));
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package alien4cloud.dao.model;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A page of results of a cursor based search.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class CursorResult<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String[] types;
+    private T[] data;
+    /** Opaque token to get the next page, null if there is no more results. */
+    private String nextCursor;
+    private long queryDuration;
+}
@@ -0,0 +1,16 @@
+package alien4cloud.dao.model;
+
+import java.util.Iterator;
+
+/**
+ * An iterator over a result set that may hold resources until it is exhausted or closed.
+ *
+ * @param <T> The type of the elements.
+ */
+public interface ICloseableIterator<T> extends Iterator<T>, AutoCloseable {
+    /**
+     * Release the resources held by the iterator. The iterator is automatically closed once exhausted, closing it multiple times has no effect.
+     */
+    @Override
+    void close();
+}
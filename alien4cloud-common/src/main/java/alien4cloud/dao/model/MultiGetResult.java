@@ -0,0 +1,19 @@
+package alien4cloud.dao.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of a multi-get of documents by ids.
+ */
+@Getter
+@AllArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class MultiGetResult<T> {
+    /** The entities found, in the order of the requested ids. */
+    private final List<T> data;
+    /** The requested ids for which no entity exists, in the order of the requested ids. */
+    private final List<String> missingIds;
+}
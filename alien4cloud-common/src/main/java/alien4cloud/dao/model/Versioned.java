@@ -0,0 +1,17 @@
+package alien4cloud.dao.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An entity with the version of the document it has been read from, to be used for optimistic concurrency control.
+ */
+@Getter
+@AllArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class Versioned<T> {
+    /** The entity. */
+    private final T data;
+    /** The version of the document in the index. */
+    private final long version;
+}
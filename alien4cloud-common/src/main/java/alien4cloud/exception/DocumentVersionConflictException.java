@@ -0,0 +1,12 @@
+package alien4cloud.exception;
+
+/**
+ * Exception thrown when a document cannot be written because it has been modified since the version it has been read from.
+ */
+public class DocumentVersionConflictException extends VersionConflictException {
+    private static final long serialVersionUID = 1L;
+
+    public DocumentVersionConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,53 @@
+package alien4cloud.dao;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Assert;
+import org.junit.Test;
+
+import alien4cloud.dao.DaoMetrics.Operation;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Maps;
+
+public class DaoMetricsTest {
+
+    @Test
+    public void timerAndHistogramAreRegisteredByIndexTypeAndOperation() {
+        MetricRegistry registry = new MetricRegistry();
+        DaoMetrics metrics = new DaoMetrics(registry, 0);
+        metrics.start(Operation.GET, "toscaelement", "indexednodetype").stop(128, null);
+        metrics.start(Operation.COUNT, new String[] { "application", "csar" }, null).stop(null);
+
+        Assert.assertEquals(1, registry.timer("alien4cloud.dao.toscaelement.indexednodetype.get.latency").getCount());
+        Assert.assertEquals(1, registry.histogram("alien4cloud.dao.toscaelement.indexednodetype.get.payload_bytes").getCount());
+        Assert.assertEquals(1, registry.timer("alien4cloud.dao.application-csar._all.count.latency").getCount());
+        Assert.assertFalse(registry.getHistograms().containsKey("alien4cloud.dao.application-csar._all.count.payload_bytes"));
+    }
+
+    @Test
+    public void fingerprintIgnoresValues() {
+        DaoMetrics metrics = new DaoMetrics(null, 0);
+        String first = metrics.fingerprint(QueryBuilders.termsQuery("elementId", "tosca.nodes.Compute", "tosca.nodes.Root"));
+        String second = metrics.fingerprint(QueryBuilders.termsQuery("elementId", "tosca.nodes.Network"));
+        Assert.assertEquals(first, second);
+        Assert.assertFalse(first.contains("tosca.nodes"));
+        Assert.assertFalse(first.equals(metrics.fingerprint(QueryBuilders.termsQuery("archiveName", "tosca.nodes.Network"))));
+    }
+
+    @Test
+    public void fingerprintOfQueryParameters() {
+        DaoMetrics metrics = new DaoMetrics(null, 0);
+        Map<String, Object> first = Maps.newLinkedHashMap();
+        first.put("searchText", "compute");
+        first.put("filters", Maps.newHashMap(Collections.singletonMap("archiveName", new String[] { "tosca-base-types" })));
+        first.put("customFilter", null);
+        Map<String, Object> second = Maps.newLinkedHashMap();
+        second.put("searchText", "network");
+        second.put("filters", Maps.newHashMap(Collections.singletonMap("archiveName", new String[] { "samples", "apache" })));
+        Assert.assertEquals(metrics.fingerprint(first), metrics.fingerprint(second));
+        Assert.assertEquals("{\"searchText\":\"?\",\"filters\":{\"archiveName\":[\"?\"]}}", metrics.fingerprint(first));
+    }
+}
@@ -0,0 +1,56 @@
+package alien4cloud.dao;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+public class EntityCacheTest {
+
+    @Test
+    public void cachedSourceIsReturned() {
+        EntityCache cache = new EntityCache(10, 60);
+        Assert.assertNull(cache.get("1"));
+        cache.put("1", "{\"id\":\"1\"}", cache.generation());
+        Assert.assertEquals("{\"id\":\"1\"}", cache.get("1"));
+    }
+
+    @Test
+    public void sourceReadBeforeInvalidationIsNotCached() {
+        EntityCache cache = new EntityCache(10, 60);
+        long generation = cache.generation();
+        // a write occurs while the source is read from elastic search
+        cache.invalidate("1");
+        cache.put("1", "{\"id\":\"1\"}", generation);
+        Assert.assertNull(cache.get("1"));
+    }
+
+    @Test
+    public void invalidateAllRemovesEverything() {
+        EntityCache cache = new EntityCache(10, 60);
+        cache.put("1", "{\"id\":\"1\"}", cache.generation());
+        cache.put("2", "{\"id\":\"2\"}", cache.generation());
+        cache.invalidateAll();
+        Assert.assertNull(cache.get("1"));
+        Assert.assertNull(cache.get("2"));
+    }
+
+    @Test
+    public void metricsAreRegistered() {
+        MetricRegistry registry = new MetricRegistry();
+        EntityCache cache = new EntityCache(1, 60);
+        cache.registerMetrics(registry, "test");
+        // registering twice must replace the previous gauges
+        cache.registerMetrics(registry, "test");
+
+        cache.get("1");
+        cache.put("1", "{\"id\":\"1\"}", cache.generation());
+        cache.get("1");
+        cache.put("2", "{\"id\":\"2\"}", cache.generation());
+
+        Assert.assertEquals(1L, ((Gauge<?>) registry.getGauges().get("test.hits")).getValue());
+        Assert.assertEquals(1L, ((Gauge<?>) registry.getGauges().get("test.misses")).getValue());
+        Assert.assertEquals(1L, ((Gauge<?>) registry.getGauges().get("test.evictions")).getValue());
+    }
+}
@@ -0,0 +1,153 @@
+package alien4cloud.dao;
+
+import java.util.Collections;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import org.elasticsearch.annotation.Id;
+import org.elasticsearch.annotation.query.TermsFacet;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import alien4cloud.dao.model.CursorResult;
+import alien4cloud.dao.model.FacetedSearchResult;
+import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.exception.DocumentVersionConflictException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Maps;
+
+public class InMemorySearchDAOTest {
+    private InMemorySearchDAO dao;
+
+    @Before
+    public void init() {
+        dao = new InMemorySearchDAO();
+        dao.initIndices("items", Item.class);
+        dao.save(new Item("1", "Compute node", "compute", 3));
+        dao.save(new Item("2", "Block storage", "storage", 1));
+        dao.save(new Item("3", "Object storage", "storage", 2));
+    }
+
+    @Test
+    public void documentsAreStoredById() {
+        Item item = dao.findById(Item.class, "2");
+        Assert.assertEquals("Block storage", item.getName());
+        // reads return new instances
+        Assert.assertNotSame(item, dao.findById(Item.class, "2"));
+        Assert.assertNull(dao.findById(Item.class, "4"));
+        Assert.assertEquals(2, dao.findByIds(Item.class, "1", "3", "4").size());
+
+        dao.delete(Item.class, "2");
+        Assert.assertNull(dao.findById(Item.class, "2"));
+    }
+
+    @Test
+    public void filtersAndTextAreApplied() {
+        Map<String, String[]> filters = Maps.newHashMap();
+        filters.put("category", new String[] { "storage" });
+        Assert.assertEquals(2, dao.count(Item.class, null, filters));
+        Assert.assertEquals(1, dao.count(Item.class, "object", filters));
+        Assert.assertEquals(0, dao.count(Item.class, "compute", filters));
+        Assert.assertEquals(3, dao.count(Item.class, QueryBuilders.matchAllQuery()));
+        Assert.assertEquals(1, dao.count(Item.class, QueryBuilders.boolQuery().must(QueryBuilders.termQuery("category", "storage"))
+                .mustNot(QueryBuilders.idsQuery().ids("3"))));
+        GetMultipleDataResult<Item> result = dao.search(Item.class, null, null, FilterBuilders.notFilter(FilterBuilders.termFilter("category", "compute")),
+                null, 0, 10);
+        Assert.assertEquals(2, result.getTotalResults());
+    }
+
+    @Test
+    public void resultsArePaginatedAndFaceted() {
+        // search results are ordered by score
+        FacetedSearchResult result = dao.facetedSearch(Item.class, null, null, null, 1, 1);
+        Assert.assertEquals(3, result.getTotalResults());
+        Assert.assertEquals(1, result.getData().length);
+        Assert.assertEquals("3", ((Item) result.getData()[0]).getId());
+        Assert.assertEquals("storage", result.getFacets().get("category")[0].getFacetValue());
+        Assert.assertEquals(2, result.getFacets().get("category")[0].getCount());
+
+        Item first = dao.customFind(Item.class, QueryBuilders.matchAllQuery(), SortBuilders.fieldSort("alienScore").order(SortOrder.ASC));
+        Assert.assertEquals("2", first.getId());
+    }
+
+    @Test
+    public void cursorPagesFollowEachOther() {
+        CursorResult<Item> page = dao.searchAfter(Item.class, null, null, "alienScore", "id", true, null, 2);
+        Assert.assertEquals("1", page.getData()[0].getId());
+        Assert.assertEquals("3", page.getData()[1].getId());
+        Assert.assertNotNull(page.getNextCursor());
+        page = dao.searchAfter(Item.class, null, null, "alienScore", "id", true, page.getNextCursor(), 2);
+        Assert.assertEquals(1, page.getData().length);
+        Assert.assertEquals("2", page.getData()[0].getId());
+        Assert.assertNull(page.getNextCursor());
+
+        page = dao.searchAfter(Item.class, null, FilterBuilders.termFilter("category", "storage"), "alienScore", "id", false, null, 1);
+        Assert.assertEquals("2", page.getData()[0].getId());
+        page = dao.searchAfter(Item.class, null, FilterBuilders.termFilter("category", "storage"), "alienScore", "id", false, page.getNextCursor(), 1);
+        Assert.assertEquals("3", page.getData()[0].getId());
+    }
+
+    @Test
+    public void versionsAreChecked() {
+        long version = dao.findByIdWithVersion(Item.class, "1").getVersion();
+        long newVersion = dao.updateIfVersion(Item.class, "1", Collections.singletonMap("name", "Compute"), version);
+        Assert.assertEquals("Compute", dao.findById(Item.class, "1").getName());
+        Assert.assertEquals("compute", dao.findById(Item.class, "1").getCategory());
+        try {
+            dao.saveIfVersion(new Item("1", "Other", "compute", 3), version);
+            Assert.fail("Saving an outdated version must fail");
+        } catch (DocumentVersionConflictException e) {
+            Assert.assertEquals(newVersion, dao.findByIdWithVersion(Item.class, "1").getVersion());
+        }
+        Assert.assertEquals(1, dao.saveIfAbsent(new Item("4", "Network", "network", 1)));
+        try {
+            dao.saveIfAbsent(new Item("4", "Other", "network", 1));
+            Assert.fail("Saving an existing document must fail");
+        } catch (DocumentVersionConflictException e) {
+            Assert.assertEquals("Network", dao.findById(Item.class, "4").getName());
+        }
+    }
+
+    @Test
+    public void scriptsAreAppliedByTheirRegisteredImplementation() {
+        dao.registerUpdateScript("ctx._source.name = name", new IInMemoryUpdateScript() {
+            @Override
+            public void apply(ObjectNode source, JsonNode parameters) {
+                source.put("name", parameters.get("name"));
+            }
+        });
+        long version = dao.findByIdWithVersion(Item.class, "1").getVersion();
+        dao.updateIfVersion(Item.class, "1", "ctx._source.name = name", Collections.singletonMap("name", "Compute"), version);
+        Assert.assertEquals("Compute", dao.findById(Item.class, "1").getName());
+        try {
+            dao.update(Item.class, "1", "ctx._source.category = category", Collections.singletonMap("category", "network"));
+            Assert.fail("A script without implementation must be rejected");
+        } catch (UnsupportedOperationException e) {
+            Assert.assertEquals("compute", dao.findById(Item.class, "1").getCategory());
+        }
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        @Id
+        private String id;
+        private String name;
+        @TermsFacet
+        private String category;
+        private long alienScore;
+    }
+}
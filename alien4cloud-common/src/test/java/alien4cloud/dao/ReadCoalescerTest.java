@@ -0,0 +1,102 @@
+package alien4cloud.dao;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import alien4cloud.dao.DaoMetrics.Operation;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+
+public class ReadCoalescerTest {
+
+    @Test
+    public void concurrentIdenticalReadsShareTheResponse() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        final ReadCoalescer coalescer = new ReadCoalescer(registry, true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        final Supplier<Object> reader = new Supplier<Object>() {
+            @Override
+            public Object get() {
+                executions.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Object();
+            }
+        };
+        Callable<Object> read = new Callable<Object>() {
+            @Override
+            public Object call() {
+                return coalescer.read(Operation.GET, "topology/1", reader);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executor.submit(read);
+            started.await(5, TimeUnit.SECONDS);
+            Future<Object> second = executor.submit(read);
+            // wait for the second read to join the first one
+            while (registry.meter("alien4cloud.dao.coalescing.get.coalesced").getCount() == 0) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            Assert.assertSame(first.get(), second.get());
+            Assert.assertEquals(1, executions.get());
+            Assert.assertEquals(1, registry.meter("alien4cloud.dao.coalescing.get.executed").getCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sequentialReadsAreExecuted() {
+        ReadCoalescer coalescer = new ReadCoalescer(null, true);
+        final AtomicInteger executions = new AtomicInteger();
+        Supplier<Integer> reader = new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                return executions.incrementAndGet();
+            }
+        };
+        Assert.assertEquals(Integer.valueOf(1), coalescer.read(Operation.SEARCH, "key", reader));
+        Assert.assertEquals(Integer.valueOf(2), coalescer.read(Operation.SEARCH, "key", reader));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void readFailureIsPropagated() {
+        new ReadCoalescer(null, true).read(Operation.SEARCH, "key", new Supplier<Object>() {
+            @Override
+            public Object get() {
+                throw new IllegalStateException("failure");
+            }
+        });
+    }
+
+    @Test
+    public void keysOfEqualParametersAreEqual() {
+        Map<String, String[]> first = Maps.newHashMap();
+        first.put("archiveName", new String[] { "tosca-base-types" });
+        first.put("elementId", new String[] { "tosca.nodes.Compute" });
+        Map<String, String[]> second = Maps.newLinkedHashMap();
+        second.put("elementId", new String[] { "tosca.nodes.Compute" });
+        second.put("archiveName", new String[] { "tosca-base-types" });
+        Assert.assertEquals(ReadCoalescer.key("search", first, 0, 20), ReadCoalescer.key("search", second, 0, 20));
+        Assert.assertFalse(ReadCoalescer.key("search", first, 0, 20).equals(ReadCoalescer.key("search", first, 20, 20)));
+    }
+}
@@ -0,0 +1,47 @@
+package alien4cloud.dao;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RollingIndexTest {
+
+    private long timestamp(String date) throws ParseException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat.parse(date).getTime();
+    }
+
+    @Test
+    public void dailyBucketsAreNamedByDay() throws ParseException {
+        RollingIndex rollingIndex = new RollingIndex("events", RollingIndex.Period.DAILY, TimeUnit.DAYS.toMillis(1));
+        Assert.assertEquals("events-2015.03.12", rollingIndex.indexFor(timestamp("2015-03-12 23:59")));
+        Assert.assertEquals(Arrays.asList("events-2015.03.11", "events-2015.03.12", "events-2015.03.13"),
+                rollingIndex.indicesBetween(timestamp("2015-03-11 10:00"), timestamp("2015-03-13 00:00")));
+    }
+
+    @Test
+    public void weeklyBucketsStartOnMonday() throws ParseException {
+        RollingIndex rollingIndex = new RollingIndex("events", RollingIndex.Period.WEEKLY, TimeUnit.DAYS.toMillis(7));
+        // 2015-03-15 is a sunday
+        Assert.assertEquals("events-2015.03.09", rollingIndex.indexFor(timestamp("2015-03-15 12:00")));
+        Assert.assertEquals("events-2015.03.16", rollingIndex.indexFor(timestamp("2015-03-16 00:00")));
+        Assert.assertEquals(Arrays.asList("events-2015.03.09", "events-2015.03.16"),
+                rollingIndex.indicesBetween(timestamp("2015-03-15 12:00"), timestamp("2015-03-17 12:00")));
+        Assert.assertFalse(rollingIndex.isBucket("events-2015.03.10"));
+    }
+
+    @Test
+    public void bucketsExpireOnceAllTheirDocumentsAreOutdated() throws ParseException {
+        RollingIndex rollingIndex = new RollingIndex("events", RollingIndex.Period.DAILY, TimeUnit.DAYS.toMillis(1));
+        Assert.assertFalse(rollingIndex.isExpired("events-2015.03.12", timestamp("2015-03-13 23:59")));
+        Assert.assertTrue(rollingIndex.isExpired("events-2015.03.12", timestamp("2015-03-14 00:00")));
+        Assert.assertFalse(rollingIndex.isExpired("events", timestamp("2015-03-14 00:00")));
+        Assert.assertFalse(rollingIndex.isExpired("other-2015.03.12", timestamp("2015-03-14 00:00")));
+    }
+}
@@ -75,8 +75,18 @@ public class ComparableVersion implements Comparable<ComparableVersion> {
         int getType();
 
         boolean isNull();
+
+        /** Append the key of the item, keys of items compare as strings in the same order as the items. */
+        void appendSortKey(StringBuilder key);
     }
 
+    /** Sort key prefixes, ordered as the items compare with each other (qualifier < end of list < other string < sub-list < number). */
+    private static final char KNOWN_QUALIFIER_KEY = '1';
+    private static final char END_OF_LIST_KEY = '2';
+    private static final char STRING_KEY = '3';
+    private static final char LIST_KEY = '4';
+    private static final char INTEGER_KEY = '5';
+
     /**
      * Represents a numeric item in the version item list.
      */
@@ -126,6 +136,13 @@ public class ComparableVersion implements Comparable<ComparableVersion> {
             }
         }
 
+        @Override
+        public void appendSortKey(StringBuilder key) {
+            // numbers are prefixed by their length so that they compare as strings
+            String digits = value.toString();
+            key.append(INTEGER_KEY).append(String.format("%02d", Math.min(digits.length(), 99))).append(digits);
+        }
+
         @Override
         public String toString() {
             return value.toString();
@@ -222,6 +239,19 @@ public class ComparableVersion implements Comparable<ComparableVersion> {
             }
         }
 
+        @Override
+        public void appendSortKey(StringBuilder key) {
+            int index = _QUALIFIERS.indexOf(value);
+            if (index >= 0 && index < _QUALIFIERS.indexOf("")) {
+                // alpha, beta, milestone, rc and snapshot are lower than the release
+                key.append(KNOWN_QUALIFIER_KEY).append(index);
+            } else if (index == _QUALIFIERS.indexOf("")) {
+                key.append(END_OF_LIST_KEY);
+            } else {
+                key.append(STRING_KEY).append(comparableQualifier(value));
+            }
+        }
+
         @Override
         public String toString() {
             return value;
@@ -296,6 +326,36 @@ public class ComparableVersion implements Comparable<ComparableVersion> {
             }
         }
 
+        @Override
+        public void appendSortKey(StringBuilder key) {
+            key.append(LIST_KEY);
+            appendItemsSortKey(key);
+        }
+
+        void appendItemsSortKey(StringBuilder key) {
+            for (int i = 0; i < size(); i++) {
+                if (isZero(get(i)) && !isFollowedByNumber(i)) {
+                    // a zero is equal to the end of a shorter list, the next items then decide: 1.0.rc1 < 1 as 1.rc1 < 1
+                    continue;
+                }
+                get(i).appendSortKey(key);
+            }
+            key.append(END_OF_LIST_KEY);
+        }
+
+        private boolean isFollowedByNumber(int index) {
+            for (int i = index + 1; i < size(); i++) {
+                if (!isZero(get(i))) {
+                    return get(i).getType() == INTEGER_ITEM;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isZero(Item item) {
+            return item.getType() == INTEGER_ITEM && item.isNull();
+        }
+
         @Override
         public String toString() {
             StringBuilder buffer = new StringBuilder("(");
@@ -397,6 +457,17 @@ public class ComparableVersion implements Comparable<ComparableVersion> {
         return items.compareTo(o.items);
     }
 
+    /**
+     * Get a key of the version that can be compared as a string: versions made of numbers and qualifiers have keys ordered as the versions.
+     *
+     * @return The sortable key of the version.
+     */
+    public String getSortKey() {
+        StringBuilder key = new StringBuilder();
+        items.appendItemsSortKey(key);
+        return key.toString();
+    }
+
     @Override
     public String toString() {
         return value;
@@ -93,6 +93,13 @@ public class Version implements Comparable<Version> {
         return qualifier;
     }
 
+    /**
+     * @return A key of the version that can be compared as a string (see {@link ComparableVersion#getSortKey()}).
+     */
+    public String getSortKey() {
+        return comparable.getSortKey();
+    }
+
     public final void parseVersion(String version) {
         comparable = new ComparableVersion(version);
 
@@ -159,15 +159,7 @@ public class ApplicationEnvironmentService {
      * @return The deployment associated with the environment.
      */
     public Deployment getActiveDeployment(String appEnvironmentId) {
-        GetMultipleDataResult<Deployment> dataResult = alienDAO.search(
-                Deployment.class,
-                null,
-                MapUtil.newHashMap(new String[] { "deploymentSetup.environmentId", "endDate" }, new String[][] { new String[] { appEnvironmentId },
-                        new String[] { null } }), 1);
-        if (dataResult.getData() != null && dataResult.getData().length > 0) {
-            return dataResult.getData()[0];
-        }
-        return null;
+        return deploymentService.getActiveDeployment(appEnvironmentId);
     }
 
     /**
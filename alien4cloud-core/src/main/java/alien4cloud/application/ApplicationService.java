@@ -11,14 +11,12 @@ import javax.annotation.Resource;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.mapping.QueryHelper;
-import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
 import org.springframework.stereotype.Service;
 
 import alien4cloud.model.common.Tag;
 import alien4cloud.dao.IGenericSearchDAO;
-import alien4cloud.dao.model.GetMultipleDataResult;
 import alien4cloud.exception.AlreadyExistException;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.application.Application;
@@ -26,7 +24,6 @@ import alien4cloud.model.deployment.Deployment;
 import alien4cloud.paas.exception.CloudDisabledException;
 import alien4cloud.security.ApplicationRole;
 import alien4cloud.security.AuthorizationUtil;
-import alien4cloud.utils.MapUtil;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -40,8 +37,6 @@ import com.google.common.collect.Sets;
 @Slf4j
 @Service
 public class ApplicationService {
-    @Resource
-    private QueryHelper queryHelper;
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO alienDAO;
     @Resource
@@ -146,13 +141,8 @@ public class ApplicationService {
      */
     public boolean delete(String applicationId) throws CloudDisabledException {
         // ensure that there is no active deployment(s).
-        String index = alienDAO.getIndexForType(Deployment.class);
-        SearchQueryHelperBuilder searchQueryHelperBuilder = queryHelper.buildSearchQuery(index).types(Deployment.class)
-                .filters(MapUtil.newHashMap(new String[] { "sourceId", "endDate" }, new String[][] { new String[] { applicationId }, new String[] { null } }))
-                .fieldSort("_timestamp", true);
-
-        GetMultipleDataResult<Object> result = alienDAO.search(searchQueryHelperBuilder, 0, 1);
-        if (result.getData().length > 0) {
+        if (alienDAO.count(Deployment.class,
+                QueryBuilders.filteredQuery(QueryBuilders.termQuery("sourceId", applicationId), FilterBuilders.missingFilter("endDate"))) > 0) {
             return false;
         }
         applicationVersionService.deleteByApplication(applicationId);
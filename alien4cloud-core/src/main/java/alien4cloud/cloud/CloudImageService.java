@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.MultiGetResult;
 import alien4cloud.exception.AlreadyExistException;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.cloud.Cloud;
@@ -76,9 +77,13 @@ public class CloudImageService {
     }
 
     public Map<String, CloudImage> getMultiple(Set<String> imageIds) {
+        MultiGetResult<CloudImage> result = alienDAO.multiGet(CloudImage.class, null, imageIds.toArray(new String[imageIds.size()]));
+        if (!result.getMissingIds().isEmpty()) {
+            throw new NotFoundException("Cloud images " + result.getMissingIds() + " cannot be found");
+        }
         Map<String, CloudImage> images = Maps.newHashMap();
-        for (String imageId : imageIds) {
-            images.put(imageId, getCloudImageFailIfNotExist(imageId));
+        for (CloudImage image : result.getData()) {
+            images.put(image.getId(), image);
         }
         return images;
     }
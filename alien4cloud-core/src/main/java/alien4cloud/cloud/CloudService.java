@@ -2,6 +2,7 @@ package alien4cloud.cloud;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -14,14 +15,15 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.apache.commons.lang3.StringUtils;
 import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.mapping.QueryHelper;
-import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.RetryOnVersionConflict;
 import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.Versioned;
 import alien4cloud.exception.AlreadyExistException;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.cloud.ActivableComputeTemplate;
@@ -58,8 +60,6 @@ import com.google.common.collect.Sets;
 @Component
 @DependsOn("plugin-manager")
 public class CloudService {
-    @Resource
-    private QueryHelper queryHelper;
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO alienDAO;
     @Resource
@@ -143,11 +143,17 @@ public class CloudService {
      *
      * @param updated The cloud to update.
      */
+    @RetryOnVersionConflict
     public synchronized void update(Cloud updated) {
         // ensure the current cloud exists.
-        Cloud current = getMandatoryCloud(updated.getId());
+        Versioned<Cloud> versionedCloud = alienDAO.findByIdWithVersion(Cloud.class, updated.getId());
+        if (versionedCloud == null) {
+            throw new NotFoundException("Cloud [" + updated.getId() + "] doesn't exists.");
+        }
+        Cloud current = versionedCloud.getData();
 
-        // Some data cannot be updated so we just update the authorized fields.
+        // Some data cannot be updated so we just update the authorized fields. The version check doesn't cover the unicity of the name, this is why cloud
+        // creations and updates are still synchronized.
         if (updated.getName() != null && !updated.getName().equals(current.getName())) {
             if (alienDAO.count(Cloud.class, QueryBuilders.termQuery("name", updated.getName())) > 0) {
                 throw new AlreadyExistException("a cloud with the given name already exists.");
@@ -167,7 +173,7 @@ public class CloudService {
             current.setIaaSType(updated.getIaaSType());
         }
 
-        alienDAO.save(current);
+        alienDAO.saveIfVersion(current, versionedCloud.getVersion());
     }
 
     /**
@@ -279,13 +285,15 @@ public class CloudService {
      * @param id Id of the cloud for which to update the configuration.
      * @param newConfiguration The new configuration.
      */
-    public synchronized void updateConfiguration(String id, Object newConfiguration) {
-        CloudConfiguration configuration = alienDAO.findById(CloudConfiguration.class, id);
-        if (configuration == null) {
+    @RetryOnVersionConflict
+    public void updateConfiguration(String id, Object newConfiguration) {
+        Versioned<CloudConfiguration> versionedConfiguration = alienDAO.findByIdWithVersion(CloudConfiguration.class, id);
+        if (versionedConfiguration == null) {
             throw new NotFoundException("No configuration exists for cloud [" + id + "].");
         }
+        CloudConfiguration configuration = versionedConfiguration.getData();
         configuration.setConfiguration(newConfiguration);
-        alienDAO.save(configuration);
+        alienDAO.saveIfVersion(configuration, versionedConfiguration.getVersion());
     }
 
     /**
@@ -304,9 +312,9 @@ public class CloudService {
 
         initCloud(cloud);
 
-        // set the cloud as enabled.
+        // set the cloud as enabled (only the flag is written so concurrent updates of the cloud are not lost).
         cloud.setEnabled(true);
-        alienDAO.save(cloud);
+        alienDAO.update(Cloud.class, cloud.getId(), Collections.singletonMap("enabled", true));
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -372,15 +380,9 @@ public class CloudService {
      */
     public synchronized boolean disableCloud(String id) {
 
-        String index = alienDAO.getIndexForType(Deployment.class);
-        SearchQueryHelperBuilder searchQueryHelperBuilder = queryHelper.buildSearchQuery(index).types(Deployment.class)
-                .filters(MapUtil.newHashMap(new String[] { "cloudId", "endDate" }, new String[][] { new String[] { id }, new String[] { null } }))
-                .fieldSort("_timestamp", true);
-
-        GetMultipleDataResult<Object> result = alienDAO.search(searchQueryHelperBuilder, 0, 1);
-
         // TODO place a lock to avoid deployments during disablement of the cloud.
-        if (result.getData().length > 0) {
+        if (alienDAO.count(Deployment.class,
+                QueryBuilders.filteredQuery(QueryBuilders.termQuery("cloudId", id), FilterBuilders.missingFilter("endDate"))) > 0) {
             return false;
         }
         Cloud cloud = getMandatoryCloud(id);
@@ -401,7 +403,7 @@ public class CloudService {
         } finally {
             // Mark the cloud as disabled
             cloud.setEnabled(false);
-            alienDAO.save(cloud);
+            alienDAO.update(Cloud.class, cloud.getId(), Collections.singletonMap("enabled", false));
         }
     }
 
@@ -5,10 +5,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.mapping.QueryHelper;
 import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
 import org.springframework.stereotype.Component;
@@ -16,11 +21,18 @@ import org.springframework.stereotype.Component;
 import alien4cloud.application.ApplicationEnvironmentService;
 import alien4cloud.application.ApplicationVersionService;
 import alien4cloud.application.DeploymentSetupService;
+import alien4cloud.dao.ESGenericSearchDAO;
 import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.model.CursorResult;
 import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.ICloseableIterator;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.exception.DocumentVersionConflictException;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.application.ApplicationEnvironment;
 import alien4cloud.model.application.DeploymentSetup;
+import alien4cloud.model.deployment.ActiveDeployment;
+import alien4cloud.model.deployment.CloudActiveDeployments;
 import alien4cloud.model.deployment.Deployment;
 import alien4cloud.model.deployment.DeploymentSourceType;
 import alien4cloud.model.deployment.IDeploymentSource;
@@ -42,6 +54,9 @@ import com.google.common.collect.Maps;
 @Component
 @Slf4j
 public class DeploymentService {
+    /** Maximum number of attempts to update the active deployments of a cloud modified concurrently. */
+    private static final int MAX_UPDATE_ATTEMPTS = 10;
+
     @Resource
     private QueryHelper queryHelper;
     @Resource(name = "alien-es-dao")
@@ -59,6 +74,33 @@ public class DeploymentService {
     @Resource
     private TopologyTreeBuilderService topologyTreeBuilderService;
 
+    /**
+     * Create the missing active deployment pointers of the deployments in progress, started before the pointers were introduced or whose pointers have not
+     * all been written. Existing pointers are kept.
+     */
+    @PostConstruct
+    public void initActiveDeployments() {
+        int created = 0;
+        QueryBuilder query = QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), FilterBuilders.missingFilter("endDate"));
+        try (ICloseableIterator<Deployment> deployments = alienDao.scroll(Deployment.class, query, ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE)) {
+            while (deployments.hasNext()) {
+                Deployment deployment = deployments.next();
+                for (String key : getActiveDeploymentKeys(deployment)) {
+                    try {
+                        alienDao.saveIfAbsent(new ActiveDeployment(key, deployment.getCloudId(), deployment.getId()));
+                        created++;
+                    } catch (DocumentVersionConflictException e) {
+                        log.debug("Active deployment pointer <{}> already exists", key);
+                    }
+                }
+                updateCloudActiveDeployments(deployment, true);
+            }
+        }
+        if (created > 0) {
+            log.info("Created <{}> missing active deployment pointers", created);
+        }
+    }
+
     /**
      * Get deployments for a given cloud
      *
@@ -99,10 +141,34 @@ public class DeploymentService {
         return searchEvents(from, size, deployment);
     }
 
+    /**
+     * Get a page of the events of the active deployment of an environment, from the most recent to the oldest. Pages are fetched using a cursor so the cost
+     * of a page doesn't depend on its position.
+     *
+     * @param applicationEnvironmentId The environment we want to get events from.
+     * @param fromDate Start of the time window of the events (null to start at the beginning of the deployment).
+     * @param toDate End of the time window of the events (null to end at the end of the deployment or now).
+     * @param cursor The cursor returned with the previous page, null to get the first page.
+     * @param size The number of events to get.
+     * @return A page of events with the cursor of the next page.
+     */
+    public CursorResult<AbstractMonitorEvent> getDeploymentEvents(String applicationEnvironmentId, Long fromDate, Long toDate, String cursor, int size) {
+        Deployment deployment = getActiveDeploymentFailIfNotExists(applicationEnvironmentId);
+        long windowStart = fromDate != null ? fromDate : deployment.getStartDate() == null ? 0 : deployment.getStartDate().getTime();
+        long windowEnd = toDate != null ? toDate : deployment.getEndDate() == null ? System.currentTimeMillis() : deployment.getEndDate().getTime();
+        String[] indices = alienMonitorDao.getIndicesForType(AbstractMonitorEvent.class, windowStart, windowEnd);
+        FilterBuilder filter = FilterBuilders.andFilter(FilterBuilders.termFilter("deploymentId", deployment.getId()), FilterBuilders.rangeFilter("date")
+                .gte(windowStart).lte(windowEnd));
+        return alienMonitorDao.searchAfter(AbstractMonitorEvent.class, indices, filter, "date", "eventId", true, cursor, size);
+    }
+
     private GetMultipleDataResult<?> searchEvents(int from, int size, Deployment deployment) {
-        String index = alienMonitorDao.getIndexForType(AbstractMonitorEvent.class);
+        // only search the events indices of the deployment period
+        long startDate = deployment.getStartDate() == null ? 0 : deployment.getStartDate().getTime();
+        long endDate = deployment.getEndDate() == null ? System.currentTimeMillis() : deployment.getEndDate().getTime();
+        String[] indices = alienMonitorDao.getIndicesForType(AbstractMonitorEvent.class, startDate, endDate);
         SearchQueryHelperBuilder searchQueryHelperBuilder = queryHelper
-                .buildSearchQuery(index)
+                .buildSearchQuery(indices)
                 .types(PaaSDeploymentStatusMonitorEvent.class, PaaSInstanceStateMonitorEvent.class, PaaSMessageMonitorEvent.class,
                         PaaSInstanceStorageMonitorEvent.class)
                 .filters(MapUtil.newHashMap(new String[] { "deploymentId" }, new String[][] { new String[] { deployment.getId() } }))
@@ -148,6 +214,7 @@ public class DeploymentService {
         deployment.setTopologyId(topologyId);
 
         alienDao.save(deployment);
+        saveActiveDeployment(deployment);
         // save the topology as a deployed topology.
         // change the Id before saving
         topology.setId(deployment.getId());
@@ -269,6 +336,7 @@ public class DeploymentService {
                 if (data == DeploymentStatus.UNDEPLOYED) {
                     deployment.setEndDate(new Date());
                     alienDao.save(deployment);
+                    deleteActiveDeployment(deployment);
                 }
                 callback.onSuccess(data);
             }
@@ -378,14 +446,7 @@ public class DeploymentService {
      * @return active deployment or null if not exist
      */
     public Deployment getActiveDeployment(String applicationEnvironmentId) {
-        Deployment deployment = null;
-        Map<String, String[]> activeDeploymentFilters = MapUtil.newHashMap(new String[] { "deploymentSetup.environmentId", "endDate" }, new String[][] {
-                new String[] { applicationEnvironmentId }, new String[] { null } });
-        GetMultipleDataResult<Deployment> dataResult = alienDao.search(Deployment.class, null, activeDeploymentFilters, 1);
-        if (dataResult.getData() != null && dataResult.getData().length > 0) {
-            deployment = dataResult.getData()[0];
-        }
-        return deployment;
+        return getActiveDeploymentByKey(ActiveDeployment.environmentKey(applicationEnvironmentId));
     }
 
     /**
@@ -396,14 +457,76 @@ public class DeploymentService {
      * @return a deployment
      */
     public Deployment getActiveDeployment(String cloudId, String topologyId) {
-        Deployment deployment = null;
-        Map<String, String[]> activeDeploymentFilters = MapUtil.newHashMap(new String[] { "cloudId", "topologyId", "endDate" }, new String[][] {
-                new String[] { cloudId }, new String[] { topologyId }, new String[] { null } });
-        GetMultipleDataResult<Deployment> dataResult = alienDao.search(Deployment.class, null, activeDeploymentFilters, 1);
-        if (dataResult.getData() != null && dataResult.getData().length > 0) {
-            deployment = dataResult.getData()[0];
+        return getActiveDeploymentByKey(ActiveDeployment.topologyKey(cloudId, topologyId));
+    }
+
+    private Deployment getActiveDeploymentByKey(String key) {
+        ActiveDeployment activeDeployment = alienDao.findById(ActiveDeployment.class, key);
+        if (activeDeployment == null) {
+            return null;
         }
-        return deployment;
+        Deployment deployment = alienDao.findById(Deployment.class, activeDeployment.getDeploymentId());
+        // a pointer may outlive its deployment if the deployment has been ended without going through this service
+        return deployment == null || deployment.getEndDate() != null ? null : deployment;
+    }
+
+    /**
+     * Remove the active deployment pointers of a deployment that has ended. Pointers that have already been replaced by a newer deployment are kept.
+     *
+     * @param deployment The deployment that has ended.
+     */
+    public void deleteActiveDeployment(Deployment deployment) {
+        for (String key : getActiveDeploymentKeys(deployment)) {
+            ActiveDeployment activeDeployment = alienDao.findById(ActiveDeployment.class, key);
+            if (activeDeployment != null && deployment.getId().equals(activeDeployment.getDeploymentId())) {
+                alienDao.delete(ActiveDeployment.class, key);
+            }
+        }
+        updateCloudActiveDeployments(deployment, false);
+    }
+
+    private void saveActiveDeployment(Deployment deployment) {
+        for (String key : getActiveDeploymentKeys(deployment)) {
+            alienDao.save(new ActiveDeployment(key, deployment.getCloudId(), deployment.getId()));
+        }
+        updateCloudActiveDeployments(deployment, true);
+    }
+
+    /**
+     * Add or remove a deployment from the deployments in progress on its cloud. The document is updated with optimistic concurrency control as deployments
+     * on the same cloud may start or end concurrently.
+     */
+    private void updateCloudActiveDeployments(Deployment deployment, boolean active) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                Versioned<CloudActiveDeployments> versioned = alienDao.findByIdWithVersion(CloudActiveDeployments.class, deployment.getCloudId());
+                CloudActiveDeployments cloudActiveDeployments = versioned == null ? new CloudActiveDeployments(deployment.getCloudId()) : versioned.getData();
+                boolean changed = active ? cloudActiveDeployments.getDeploymentIds().add(deployment.getId()) : cloudActiveDeployments.getDeploymentIds().remove(
+                        deployment.getId());
+                if (!changed) {
+                    return;
+                }
+                if (versioned == null) {
+                    alienDao.saveIfAbsent(cloudActiveDeployments);
+                } else {
+                    alienDao.saveIfVersion(cloudActiveDeployments, versioned.getVersion());
+                }
+                return;
+            } catch (DocumentVersionConflictException e) {
+                if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Active deployments of cloud <{}> modified concurrently, retrying update", deployment.getCloudId());
+            }
+        }
+    }
+
+    private List<String> getActiveDeploymentKeys(Deployment deployment) {
+        List<String> keys = Lists.newArrayList(ActiveDeployment.topologyKey(deployment.getCloudId(), deployment.getTopologyId()));
+        if (deployment.getDeploymentSetup() != null && deployment.getDeploymentSetup().getEnvironmentId() != null) {
+            keys.add(ActiveDeployment.environmentKey(deployment.getDeploymentSetup().getEnvironmentId()));
+        }
+        return keys;
     }
 
     /**
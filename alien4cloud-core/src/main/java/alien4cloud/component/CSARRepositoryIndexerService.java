@@ -2,27 +2,29 @@ package alien4cloud.component;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
+import lombok.extern.slf4j.Slf4j;
+
 import org.elasticsearch.index.query.BoolQueryBuilder;
-import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.IdsQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.mapping.ElasticSearchClient;
 import org.springframework.stereotype.Component;
 
+import alien4cloud.dao.ESGenericSearchDAO;
 import alien4cloud.dao.ElasticSearchDAO;
 import alien4cloud.dao.IGenericSearchDAO;
-import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.ICloseableIterator;
+import alien4cloud.dao.model.Versioned;
 import alien4cloud.exception.IndexingServiceException;
 import alien4cloud.images.IImageDAO;
 import alien4cloud.model.common.Tag;
@@ -30,21 +32,54 @@ import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.model.components.IndexedModelUtils;
 import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.components.ToscaElementVersions;
 import alien4cloud.tosca.ArchiveImageLoader;
-import alien4cloud.utils.MapUtil;
 import alien4cloud.utils.VersionUtil;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+@Slf4j
 @Component
 public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerService {
+    /** Maximum number of times the highest version flags are written for registries modified concurrently. */
+    private static final int MAX_FLAG_UPDATE_ATTEMPTS = 10;
+
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO alienDAO;
     @Resource
     private ElasticSearchClient elasticSearchClient;
     @Resource
     private IImageDAO imageDAO;
+    @Resource
+    private ResolvedTypeCache resolvedTypeCache;
+    @Resource
+    private ToscaElementVersionService toscaElementVersionService;
+
+    /**
+     * Compute the archive version keys of the elements indexed before the keys were introduced.
+     */
+    @PostConstruct
+    public void initVersionKeys() {
+        QueryBuilder query = QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), FilterBuilders.missingFilter("archiveVersionKey"));
+        int count = 0;
+        List<IndexedToscaElement> page = Lists.newArrayList();
+        try (ICloseableIterator<IndexedToscaElement> elements = alienDAO.scroll(IndexedToscaElement.class, query, ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE)) {
+            while (elements.hasNext()) {
+                // the key is computed when the version is set on de-serialization
+                page.add(elements.next());
+                count++;
+                if (page.size() == ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE || !elements.hasNext()) {
+                    alienDAO.save(page.toArray(new IndexedToscaElement[page.size()]));
+                    page.clear();
+                }
+            }
+        }
+        if (count > 0) {
+            log.info("Computed archive version keys of <{}> elements", count);
+        }
+    }
 
     private void refreshIndexForSearching() {
         elasticSearchClient.getClient().admin().indices().prepareRefresh(ElasticSearchDAO.TOSCA_ELEMENT_INDEX).execute().actionGet();
@@ -52,35 +87,30 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
 
     @Override
     public Map<String, IndexedToscaElement> getArchiveElements(String archiveName, String archiveVersion) {
-        GetMultipleDataResult<IndexedToscaElement> elements = alienDAO.find(
-                IndexedToscaElement.class,
-                MapUtil.newHashMap(new String[] { "archiveName", "archiveVersion" }, new String[][] { new String[] { archiveName },
-                        new String[] { archiveVersion } }), Integer.MAX_VALUE);
-
         Map<String, IndexedToscaElement> elementsByIds = Maps.newHashMap();
-        if (elements == null) {
-            return elementsByIds;
-        }
-
-        for (IndexedToscaElement element : elements.getData()) {
-            elementsByIds.put(element.getId(), element);
+        try (ICloseableIterator<IndexedToscaElement> elements = scrollArchiveElements(archiveName, archiveVersion)) {
+            while (elements.hasNext()) {
+                IndexedToscaElement element = elements.next();
+                elementsByIds.put(element.getId(), element);
+            }
         }
         return elementsByIds;
     }
 
     @Override
     public void deleteElements(String archiveName, String archiveVersion) {
-
-        FilterBuilder filter = FilterBuilders.boolFilter().must(FilterBuilders.termFilter("archiveName", archiveName))
-                .must(FilterBuilders.termFilter("archiveVersion", archiveVersion));
-        GetMultipleDataResult<IndexedToscaElement> result = alienDAO.search(IndexedToscaElement.class, null, null, filter, null, 0, Integer.MAX_VALUE);
-        IndexedToscaElement[] elements = result.getData();
-
         // we need to delete each element and find the new highest version element
-        for (IndexedToscaElement element : elements) {
-            deleteElement(element);
+        try (ICloseableIterator<IndexedToscaElement> elements = scrollArchiveElements(archiveName, archiveVersion)) {
+            while (elements.hasNext()) {
+                deleteElement(elements.next());
+            }
         }
+    }
 
+    private ICloseableIterator<IndexedToscaElement> scrollArchiveElements(String archiveName, String archiveVersion) {
+        QueryBuilder query = QueryBuilders.boolQuery().must(QueryBuilders.termQuery("archiveName", archiveName))
+                .must(QueryBuilders.termQuery("archiveVersion", archiveVersion));
+        return alienDAO.scroll(IndexedToscaElement.class, query, ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE);
     }
 
     @Override
@@ -89,18 +119,187 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
         if (archiveElements == null) {
             return;
         }
-        List<? extends IndexedInheritableToscaElement> orderedElements = IndexedModelUtils.orderByDerivedFromHierarchy(archiveElements);
-        for (IndexedInheritableToscaElement element : orderedElements) {
-            indexInheritableElement(archiveName, archiveVersion, element, dependencies);
-        }
+        indexArchiveElements(archiveName, archiveVersion, Collections.<Map<String, ? extends IndexedInheritableToscaElement>> singletonList(archiveElements),
+                dependencies);
     }
 
     @Override
-    public void indexInheritableElement(String archiveName, String archiveVersion, IndexedInheritableToscaElement element,
+    public void indexArchiveElements(String archiveName, String archiveVersion, List<Map<String, ? extends IndexedInheritableToscaElement>> archiveElements,
+            Collection<CSARDependency> dependencies) {
+        indexElements(archiveElements, dependencies, Collections.<String> emptySet());
+    }
+
+    @Override
+    public int updateArchiveElements(String archiveName, String archiveVersion, List<Map<String, ? extends IndexedInheritableToscaElement>> archiveElements,
+            Collection<CSARDependency> dependencies) {
+        Map<String, IndexedToscaElement> previousElements = Maps.newHashMap();
+        try (ICloseableIterator<IndexedToscaElement> elements = scrollArchiveElements(archiveName, archiveVersion)) {
+            while (elements.hasNext()) {
+                IndexedToscaElement element = elements.next();
+                previousElements.put(typedId(element.getClass(), element.getElementId()), element);
+            }
+        }
+        Set<String> unchangedTypedIds = Sets.newHashSet();
+        for (Map<String, ? extends IndexedInheritableToscaElement> elementsById : archiveElements) {
+            if (elementsById == null) {
+                continue;
+            }
+            // parents are before their children so we know if they changed
+            for (IndexedInheritableToscaElement element : IndexedModelUtils.orderByDerivedFromHierarchy(elementsById)) {
+                String typedId = typedId(element.getClass(), element.getElementId());
+                IndexedToscaElement previousElement = previousElements.remove(typedId);
+                if (previousElement == null) {
+                    continue;
+                }
+                element.setCreationDate(previousElement.getCreationDate());
+                if (isUnchanged(element, previousElement, elementsById, unchangedTypedIds)) {
+                    unchangedTypedIds.add(typedId);
+                    // the indexed element keeps its icon, the one imported again is not used
+                    deleteIcon(element, previousElement);
+                } else {
+                    deleteIcon(previousElement, element);
+                }
+            }
+        }
+        // the remaining previous elements are no more defined in the archive
+        deleteElements(previousElements.values());
+        indexElements(archiveElements, dependencies, unchangedTypedIds);
+        return unchangedTypedIds.size();
+    }
+
+    /**
+     * Check if an element is the same as the previously indexed one: same content hash and no change of its parent if defined in the archive as the
+     * merged parent content is part of the element.
+     */
+    private boolean isUnchanged(IndexedInheritableToscaElement element, IndexedToscaElement previousElement,
+            Map<String, ? extends IndexedInheritableToscaElement> elementsById, Set<String> unchangedTypedIds) {
+        if (element.getContentHash() == null || !element.getContentHash().equals(previousElement.getContentHash())) {
+            return false;
+        }
+        if (element.getDerivedFrom() != null && elementsById.containsKey(element.getDerivedFrom().get(0))) {
+            return unchangedTypedIds.contains(typedId(element.getClass(), element.getDerivedFrom().get(0)));
+        }
+        return true;
+    }
+
+    /**
+     * Delete the icon of an element if it is not the icon of the element that replaces it.
+     */
+    private void deleteIcon(IndexedToscaElement element, IndexedToscaElement replacingElement) {
+        Tag iconTag = ArchiveImageLoader.getIconTag(element.getTags());
+        Tag replacingIconTag = ArchiveImageLoader.getIconTag(replacingElement.getTags());
+        if (iconTag != null && (replacingIconTag == null || !iconTag.getValue().equals(replacingIconTag.getValue()))) {
+            imageDAO.delete(iconTag.getValue());
+        }
+    }
+
+    /**
+     * Index elements in a single bulk request.
+     * 
+     * @param archiveElements The elements of an archive, a map of elements by id for every type of element.
+     * @param dependencies The archive dependencies.
+     * @param unchangedTypedIds The typed ids of the elements that are already indexed (see {@link #typedId(Class, String)}), they are only used to resolve
+     *            the parents of other elements.
+     */
+    private void indexElements(List<Map<String, ? extends IndexedInheritableToscaElement>> archiveElements, Collection<CSARDependency> dependencies,
+            Set<String> unchangedTypedIds) {
+        Map<String, IndexedInheritableToscaElement> dependencyParents = findParentsInDependencies(archiveElements, dependencies);
+        List<IndexedToscaElement> elementsToSave = Lists.newArrayList();
+        for (Map<String, ? extends IndexedInheritableToscaElement> elementsById : archiveElements) {
+            if (elementsById == null) {
+                continue;
+            }
+            // parents are before their children so they are already merged with their own parents
+            for (IndexedInheritableToscaElement element : IndexedModelUtils.orderByDerivedFromHierarchy(elementsById)) {
+                initDates(element);
+                if (element.getDerivedFrom() != null) {
+                    String parentId = element.getDerivedFrom().get(0);
+                    IndexedInheritableToscaElement superElement = elementsById.get(parentId);
+                    if (superElement == null) {
+                        superElement = dependencyParents.get(typedId(element.getClass(), parentId));
+                    }
+                    if (superElement == null) {
+                        throw new IndexingServiceException("Indexing service is in an inconsistent state, the super element [" + element.getDerivedFrom()
+                                + "] is not found for element [" + element.getId() + "]");
+                    }
+                    IndexedModelUtils.mergeInheritableIndex(superElement, element);
+                }
+                if (!unchangedTypedIds.contains(typedId(element.getClass(), element.getElementId()))) {
+                    elementsToSave.add(element);
+                }
+            }
+        }
+        if (elementsToSave.isEmpty()) {
+            return;
+        }
+        // versions are registered once all the parents are resolved
+        saveAndRegisterVersions(elementsToSave);
+    }
+
+    /**
+     * Find in a single request the parents of the archive elements that are not defined in the archive itself.
+     * 
+     * @return The parents found in the dependencies by typed id (see {@link #typedId(Class, String)}).
+     */
+    private Map<String, IndexedInheritableToscaElement> findParentsInDependencies(List<Map<String, ? extends IndexedInheritableToscaElement>> archiveElements,
             Collection<CSARDependency> dependencies) {
+        Map<String, IndexedInheritableToscaElement> parents = Maps.newHashMap();
+        Set<String> missingParentIds = Sets.newHashSet();
+        Set<String> missingTypedIds = Sets.newHashSet();
+        for (Map<String, ? extends IndexedInheritableToscaElement> elementsById : archiveElements) {
+            if (elementsById == null) {
+                continue;
+            }
+            for (IndexedInheritableToscaElement element : elementsById.values()) {
+                if (element.getDerivedFrom() != null && !elementsById.containsKey(element.getDerivedFrom().get(0))) {
+                    missingParentIds.add(element.getDerivedFrom().get(0));
+                    missingTypedIds.add(typedId(element.getClass(), element.getDerivedFrom().get(0)));
+                }
+            }
+        }
+        if (missingParentIds.isEmpty() || dependencies == null || dependencies.isEmpty()) {
+            return parents;
+        }
+        BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
+        for (CSARDependency dependency : dependencies) {
+            IdsQueryBuilder matchIdQueryBuilder = QueryBuilders.idsQuery();
+            for (String parentId : missingParentIds) {
+                matchIdQueryBuilder.addIds(parentId + ":" + dependency.getVersion());
+            }
+            boolQueryBuilder.should(QueryBuilders.boolQuery().must(matchIdQueryBuilder).must(QueryBuilders.termQuery("archiveName", dependency.getName())));
+        }
+        try (ICloseableIterator<IndexedToscaElement> elements = alienDAO.scroll(IndexedToscaElement.class, boolQueryBuilder,
+                ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE)) {
+            while (elements.hasNext()) {
+                IndexedToscaElement element = elements.next();
+                String typedId = typedId(element.getClass(), element.getElementId());
+                if (!missingTypedIds.contains(typedId)) {
+                    continue;
+                }
+                // an element defined in multiple dependencies is resolved from the highest version
+                IndexedInheritableToscaElement resolved = parents.get(typedId);
+                if (resolved == null || VersionUtil.compare(element.getArchiveVersion(), resolved.getArchiveVersion()) > 0) {
+                    parents.put(typedId, (IndexedInheritableToscaElement) element);
+                }
+            }
+        }
+        return parents;
+    }
+
+    private static String typedId(Class<?> elementClass, String elementId) {
+        return elementClass.getName() + ":" + elementId;
+    }
+
+    private void initDates(IndexedToscaElement element) {
         element.setLastUpdateDate(new Date());
         Date creationDate = element.getCreationDate() == null ? element.getLastUpdateDate() : element.getCreationDate();
         element.setCreationDate(creationDate);
+    }
+
+    @Override
+    public void indexInheritableElement(String archiveName, String archiveVersion, IndexedInheritableToscaElement element,
+            Collection<CSARDependency> dependencies) {
+        initDates(element);
         if (element.getDerivedFrom() != null) {
             Class<? extends IndexedInheritableToscaElement> indexedType = element.getClass();
             BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
@@ -119,113 +318,121 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
             }
             IndexedModelUtils.mergeInheritableIndex(superElement, element);
         }
-        saveAndUpdateHighestVersion(element);
+        saveAndRegisterVersions(Lists.<IndexedToscaElement> newArrayList(element));
     }
-    
+
     /**
-     * Delete this indexed element and ensure that the <code>highestVersion<code> and <code>olderVersions</code> properties
-     * are up to date for the remaining ones.
+     * Save new elements in a single bulk request, then register their versions and set the <code>highestVersion</code> flags. Versions are registered only
+     * once the elements are saved so that a failure never leaves a registered version without element. Only a constant number of documents are written per
+     * element whatever the number of versions.
      */
-    private void deleteAndUpdateHighestVersion(IndexedToscaElement element) {
-        boolean elementWasHihestVersion = element.isHighestVersion();
-        String elementVersion = element.getArchiveVersion();
-        alienDAO.delete(element.getClass(), element.getId());
-
-        BoolQueryBuilder remainingElementQueryBuilder = QueryBuilders.boolQuery();
-        QueryBuilder archiveNameMatch = QueryBuilders.termQuery("archiveName", element.getArchiveName());
-        QueryBuilder elementIdMatch = QueryBuilders.matchQuery("elementId", element.getElementId());
-        remainingElementQueryBuilder.must(archiveNameMatch).must(elementIdMatch);
-        List<? extends IndexedToscaElement> remainingElements = alienDAO.customFindAll(element.getClass(), remainingElementQueryBuilder);
-
-        if (remainingElements == null) {
-            return;
+    private void saveAndRegisterVersions(List<IndexedToscaElement> elements) {
+        Map<String, Versioned<ToscaElementVersions>> registries = toscaElementVersionService.getRegistries(elements);
+        for (IndexedToscaElement element : elements) {
+            // older versions are derived from the version registry when elements are searched
+            element.setOlderVersions(null);
+            // the flag is checked against the registry as committed once the version is registered
+            Versioned<ToscaElementVersions> registry = registries.get(ToscaElementVersions.key(element));
+            String highestVersion = registry == null ? null : toscaElementVersionService.getHighestVersion(registry.getData().getVersions());
+            element.setHighestVersion(highestVersion == null || VersionUtil.compare(element.getArchiveVersion(), highestVersion) >= 0);
         }
+        alienDAO.save(elements.toArray(new IndexedToscaElement[elements.size()]));
+        Map<String, Versioned<ToscaElementVersions>> committedRegistries = toscaElementVersionService.addVersions(elements, registries);
+        List<IndexedToscaElement> registeredElements = Lists.newArrayList();
+        for (IndexedToscaElement element : elements) {
+            String key = ToscaElementVersions.key(element);
+            // a version indexed again leaves its registry and the flags unchanged
+            if (!registries.containsKey(key) || registries.get(key).getVersion() != committedRegistries.get(key).getVersion()) {
+                registeredElements.add(element);
+            }
+        }
+        updateHighestVersionFlags(registeredElements, committedRegistries);
+        refreshIndexForSearching();
+        // the new elements may replace the resolution of elements already cached
+        resolvedTypeCache.invalidateAll();
+    }
 
-        if (elementWasHihestVersion) {
-            // we have to search for the new highest version element candidate
-            IndexedToscaElement hightestVersionElement = null;
-            for (IndexedToscaElement remainingElement : remainingElements) {
-                if (hightestVersionElement == null) {
-                    // the first one is obviously the highest, at least currently
-                    hightestVersionElement = remainingElement;
-                } else if (VersionUtil.compare(remainingElement.getArchiveVersion(), hightestVersionElement.getArchiveVersion()) > 0) {
-                    hightestVersionElement = remainingElement;
+    /**
+     * Flag the highest version of every element in its committed registry, and clear the flags of the version it replaces and of the element itself if it
+     * is not the highest. The registries are read again once the flags are written: the flags of a registry committed concurrently meanwhile may have been
+     * written before ours, they are then written again from the new registry.
+     */
+    private void updateHighestVersionFlags(List<IndexedToscaElement> elements, Map<String, Versioned<ToscaElementVersions>> registries) {
+        List<IndexedToscaElement> pending = elements;
+        Map<String, Versioned<ToscaElementVersions>> current = registries;
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            Map<Class<? extends IndexedToscaElement>, Set<String>> highestIds = Maps.newHashMap();
+            Map<Class<? extends IndexedToscaElement>, Set<String>> replacedIds = Maps.newHashMap();
+            for (IndexedToscaElement element : pending) {
+                Set<String> versions = Sets.newHashSet(current.get(ToscaElementVersions.key(element)).getData().getVersions());
+                String highestVersion = toscaElementVersionService.getHighestVersion(versions);
+                versions.remove(highestVersion);
+                String replacedVersion = toscaElementVersionService.getHighestVersion(versions);
+                boolean highest = element.getArchiveVersion().equals(highestVersion);
+                // the first time, the flag of the element itself has been saved with the element
+                if (attempt > 1 || !highest || !element.isHighestVersion()) {
+                    addFlag(highestIds, element.getClass(), element.getElementId() + ":" + highestVersion);
                 }
-            }
-            if (hightestVersionElement != null) {
-                // the highest version has been identified, we'll update it's property
-                hightestVersionElement.setHighestVersion(true);
-                // this component has been promoted as highest version, we may set it's older versions ?
-                Collections.sort(remainingElements, new Comparator<IndexedToscaElement>() {
-                    @Override
-                    public int compare(IndexedToscaElement o1, IndexedToscaElement o2) {
-                        return VersionUtil.compare(o1.getArchiveVersion(), o2.getArchiveVersion());
-                    }
-                });
-                Set<String> olderVersions = new LinkedHashSet<String>();
-                for (IndexedToscaElement remainingElement : remainingElements) {
-                    if (VersionUtil.compare(remainingElement.getArchiveVersion(), hightestVersionElement.getArchiveVersion()) < 0) {
-                        // this is an older version
-                        olderVersions.add(remainingElement.getArchiveVersion());
-                    }
+                if (replacedVersion != null) {
+                    addFlag(replacedIds, element.getClass(), element.getElementId() + ":" + replacedVersion);
                 }
-                hightestVersionElement.setOlderVersions(olderVersions);
-                alienDAO.save(hightestVersionElement);
-            }
-        } else {
-            // deleted element was not the highest version so maybe it was referenced as an older version
-            for (IndexedToscaElement remainingElement : remainingElements) {
-                if (remainingElement.getOlderVersions() != null && remainingElement.getOlderVersions().contains(elementVersion)) {
-                    // just remove the deleted element version from the olderVersions of the current element
-                    remainingElement.getOlderVersions().remove(elementVersion);
-                    alienDAO.save(remainingElement);
+                if (!highest && (attempt > 1 || element.isHighestVersion())) {
+                    addFlag(replacedIds, element.getClass(), element.getId());
                 }
             }
-        }
-    }
+            setHighestVersion(highestIds, true);
+            setHighestVersion(replacedIds, false);
 
-    private void saveAndUpdateHighestVersion(IndexedToscaElement element) {
-        BoolQueryBuilder highestVersionElementQueryBuilder = QueryBuilders.boolQuery();
-        QueryBuilder archiveNameMatch = QueryBuilders.termQuery("archiveName", element.getArchiveName());
-        QueryBuilder elementIdMatch = QueryBuilders.matchQuery("elementId", element.getElementId().toLowerCase());
-        QueryBuilder beHighestVersion = QueryBuilders.termQuery("highestVersion", true);
-        highestVersionElementQueryBuilder.must(archiveNameMatch).must(elementIdMatch).must(beHighestVersion);
-        IndexedToscaElement highestVersionElement = alienDAO.customFind(element.getClass(), highestVersionElementQueryBuilder);
-        if (highestVersionElement != null) {
-            int compareVersionResult = VersionUtil.compare(element.getArchiveVersion(), highestVersionElement.getArchiveVersion());
-            if (compareVersionResult > 0) {
-                // Current version is less recent than mine, I'm the highest version
-                highestVersionElement.setHighestVersion(false);
-                element.setHighestVersion(true);
-                Set<String> currentOlderVersions = highestVersionElement.getOlderVersions();
-                Set<String> newOlderVersions = currentOlderVersions != null ? Sets.newHashSet(currentOlderVersions) : new HashSet<String>();
-                newOlderVersions.add(highestVersionElement.getArchiveVersion());
-                element.setOlderVersions(newOlderVersions);
-                highestVersionElement.setOlderVersions(null);
-                alienDAO.save(element);
-                alienDAO.save(highestVersionElement);
-            } else if (compareVersionResult == 0) {
-                // The same version as the highest --> override
-                element.setHighestVersion(true);
-                element.setOlderVersions(highestVersionElement.getOlderVersions());
-                alienDAO.save(element);
-            } else {
-                // Current version is more recent than mine, just save
-                Set<String> currentOlderVersions = highestVersionElement.getOlderVersions();
-                if (currentOlderVersions == null) {
-                    currentOlderVersions = Sets.newHashSet();
-                    highestVersionElement.setOlderVersions(currentOlderVersions);
+            Map<String, Versioned<ToscaElementVersions>> latest = toscaElementVersionService.getRegistries(pending);
+            List<IndexedToscaElement> modified = Lists.newArrayList();
+            for (IndexedToscaElement element : pending) {
+                String key = ToscaElementVersions.key(element);
+                if (latest.get(key) != null && latest.get(key).getVersion() != current.get(key).getVersion()) {
+                    modified.add(element);
                 }
-                currentOlderVersions.add(element.getArchiveVersion());
-                alienDAO.save(highestVersionElement);
-                alienDAO.save(element);
             }
-        } else {
-            // No element found with other version, I'm the highest version
-            element.setHighestVersion(true);
-            alienDAO.save(element);
+            if (modified.isEmpty()) {
+                return;
+            }
+            if (attempt >= MAX_FLAG_UPDATE_ATTEMPTS) {
+                log.warn("Version registries of <{}> elements are still modified concurrently, highest version flags may be outdated", modified.size());
+                return;
+            }
+            pending = modified;
+            current = latest;
         }
-        refreshIndexForSearching();
+    }
+
+    private static void addFlag(Map<Class<? extends IndexedToscaElement>, Set<String>> idsByClass, Class<? extends IndexedToscaElement> elementClass,
+            String id) {
+        Set<String> ids = idsByClass.get(elementClass);
+        if (ids == null) {
+            ids = Sets.newHashSet();
+            idsByClass.put(elementClass, ids);
+        }
+        ids.add(id);
+    }
+
+    private void setHighestVersion(Map<Class<? extends IndexedToscaElement>, Set<String>> idsByClass, boolean highestVersion) {
+        for (Map.Entry<Class<? extends IndexedToscaElement>, Set<String>> ids : idsByClass.entrySet()) {
+            alienDAO.update(ids.getKey(), ids.getValue().toArray(new String[ids.getValue().size()]),
+                    Collections.singletonMap("highestVersion", highestVersion));
+        }
+    }
+
+    /**
+     * Delete this indexed element, unregister its version and flag the remaining highest version element if the deleted element was the highest version.
+     */
+    private void deleteAndUnregisterVersion(IndexedToscaElement element) {
+        alienDAO.delete(element.getClass(), element.getId());
+        String highestVersion = toscaElementVersionService.removeVersion(element);
+        if (highestVersion != null && VersionUtil.compare(element.getArchiveVersion(), highestVersion) > 0) {
+            setHighestVersion(element.getClass(), element.getElementId(), highestVersion, true);
+        }
+    }
+
+    private void setHighestVersion(Class<? extends IndexedToscaElement> elementClass, String elementId, String archiveVersion, boolean highestVersion) {
+        alienDAO.update(elementClass, elementId + ":" + archiveVersion, Collections.singletonMap("highestVersion", highestVersion));
     }
 
     private static void addArchiveToQuery(BoolQueryBuilder boolQueryBuilder, String elementId, String archiveName, String archiveVersion) {
@@ -239,7 +446,8 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
         if (iconTag != null) {
             imageDAO.delete(iconTag.getValue());
         }
-        deleteAndUpdateHighestVersion(element);
+        deleteAndUnregisterVersion(element);
+        resolvedTypeCache.invalidateAll();
     }
 
     @Override
@@ -247,5 +455,9 @@ public class CSARRepositoryIndexerService implements ICSARRepositoryIndexerServi
         for (IndexedToscaElement element : elements) {
             deleteElement(element);
         }
+        if (!elements.isEmpty()) {
+            // the remaining versions must be searchable to compute the highest versions of the elements indexed next
+            refreshIndexForSearching();
+        }
     }
 }
\ No newline at end of file
@@ -1,9 +1,8 @@
 package alien4cloud.component;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Resource;
@@ -13,6 +12,8 @@ import lombok.NonNull;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.dao.IGenericSearchDAO;
@@ -23,12 +24,20 @@ import alien4cloud.model.components.IndexedToscaElement;
 import alien4cloud.utils.CollectionUtils;
 import alien4cloud.utils.VersionUtil;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 @Component
 public class CSARRepositorySearchService implements ICSARRepositorySearchService {
+    /** Maximum number of element ids resolved by a single query. */
+    private static final int RESOLUTION_CHUNK_SIZE = 100;
+    private static final String ARCHIVE_VERSION_KEY_FIELD = "archiveVersionKey";
+
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO searchDAO;
+    @Resource
+    private ResolvedTypeCache resolvedTypeCache;
 
     @Override
     public boolean isElementExistInDependencies(@NonNull Class<? extends IndexedToscaElement> elementClass, @NonNull String elementId,
@@ -51,6 +60,11 @@ public class CSARRepositorySearchService implements ICSARRepositorySearchService
         if (dependencies == null || dependencies.isEmpty()) {
             return null;
         }
+        T cachedElement = resolvedTypeCache.get(elementClass, elementId, dependencies);
+        if (cachedElement != null) {
+            return cachedElement;
+        }
+        long cacheGeneration = resolvedTypeCache.generation();
         // The query match element id of all defined dependencies' version from defined dependencies' archive name
         BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
         for (CSARDependency dependency : dependencies) {
@@ -59,18 +73,73 @@ public class CSARRepositorySearchService implements ICSARRepositorySearchService
             boolQueryBuilder.should(QueryBuilders.boolQuery().must(idQueryBuilder).must(matchArchiveNameQueryBuilder));
         }
 
-        List<T> elements = searchDAO.customFindAll(elementClass, boolQueryBuilder);
-        if (elements != null && !elements.isEmpty()) {
-            Collections.sort(elements, new Comparator<T>() {
-                @Override
-                public int compare(T left, T right) {
-                    return VersionUtil.parseVersion(left.getArchiveVersion()).compareTo(VersionUtil.parseVersion(right.getArchiveVersion()));
+        // the highest version is selected by elastic search
+        T element = searchDAO.customFind(elementClass, boolQueryBuilder, SortBuilders.fieldSort(ARCHIVE_VERSION_KEY_FIELD).order(SortOrder.DESC));
+        if (element != null) {
+            resolvedTypeCache.put(elementClass, elementId, dependencies, element, cacheGeneration);
+        }
+        return element;
+    }
+
+    @Override
+    public <T extends IndexedToscaElement> Map<String, T> getElementsInDependencies(Class<T> elementClass, Set<String> elementIds,
+            Collection<CSARDependency> dependencies) {
+        Map<String, T> elements = Maps.newHashMap();
+        if (elementIds == null || elementIds.isEmpty() || dependencies == null || dependencies.isEmpty()) {
+            return elements;
+        }
+        List<String> missingIds = Lists.newArrayList();
+        for (String elementId : elementIds) {
+            T cachedElement = resolvedTypeCache.get(elementClass, elementId, dependencies);
+            if (cachedElement == null) {
+                missingIds.add(elementId);
+            } else {
+                elements.put(elementId, cachedElement);
+            }
+        }
+        long cacheGeneration = resolvedTypeCache.generation();
+        for (List<String> chunk : Lists.partition(missingIds, RESOLUTION_CHUNK_SIZE)) {
+            // The query match the element ids of all defined dependencies' version from defined dependencies' archive name
+            BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
+            for (CSARDependency dependency : dependencies) {
+                String[] ids = new String[chunk.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = chunk.get(i) + ":" + dependency.getVersion();
                 }
-            });
-            return elements.get(elements.size() - 1);
-        } else {
-            return null;
+                QueryBuilder idsQueryBuilder = QueryBuilders.idsQuery().addIds(ids);
+                QueryBuilder matchArchiveNameQueryBuilder = QueryBuilders.termQuery("archiveName", dependency.getName());
+                boolQueryBuilder.should(QueryBuilders.boolQuery().must(idsQueryBuilder).must(matchArchiveNameQueryBuilder));
+            }
+            List<T> chunkElements = searchDAO.customFindAll(elementClass, boolQueryBuilder);
+            if (chunkElements == null) {
+                continue;
+            }
+            Map<String, T> highestVersionElements = Maps.newHashMap();
+            for (T element : chunkElements) {
+                T current = highestVersionElements.get(element.getElementId());
+                if (current == null || VersionUtil.compare(element.getArchiveVersion(), current.getArchiveVersion()) > 0) {
+                    highestVersionElements.put(element.getElementId(), element);
+                }
+            }
+            for (T element : highestVersionElements.values()) {
+                resolvedTypeCache.put(elementClass, element.getElementId(), dependencies, element, cacheGeneration);
+            }
+            elements.putAll(highestVersionElements);
+        }
+        return elements;
+    }
+
+    @Override
+    public <T extends IndexedToscaElement> Map<String, T> getRequiredElementsInDependencies(Class<T> elementClass, Set<String> elementIds,
+            Collection<CSARDependency> dependencies) throws NotFoundException {
+        Map<String, T> elements = getElementsInDependencies(elementClass, elementIds, dependencies);
+        if (elementIds != null && elements.size() < elementIds.size()) {
+            Set<String> missingIds = Sets.newHashSet(elementIds);
+            missingIds.removeAll(elements.keySet());
+            throw new NotFoundException("Elements elementIds: <" + missingIds + "> of type <" + elementClass.getSimpleName()
+                    + "> cannot be found in dependencies " + dependencies);
         }
+        return elements;
     }
 
     @Override
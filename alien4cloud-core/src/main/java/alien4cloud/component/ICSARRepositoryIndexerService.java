@@ -1,6 +1,7 @@
 package alien4cloud.component;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import alien4cloud.model.components.IndexedInheritableToscaElement;
@@ -39,6 +40,31 @@ public interface ICSARRepositoryIndexerService {
     void indexInheritableElements(String archiveName, String archiveVersion, Map<String, ? extends IndexedInheritableToscaElement> archiveElements,
             Collection<CSARDependency> dependencies);
 
+    /**
+     * Index all the elements of an archive into the repository. The parents of the elements are resolved from the archive first and then from the
+     * dependencies, all elements are written in a single bulk request.
+     * 
+     * @param archiveName The name of the archive in which the elements lies.
+     * @param archiveVersion The version of the archive in which the elements lies.
+     * @param archiveElements The elements to index, a map of elements by id for every type of element.
+     * @param dependencies The archive dependencies (in order to add infos from the parent element to the child...)
+     */
+    void indexArchiveElements(String archiveName, String archiveVersion, List<Map<String, ? extends IndexedInheritableToscaElement>> archiveElements,
+            Collection<CSARDependency> dependencies);
+
+    /**
+     * Index the elements of an archive that is already indexed (new upload of a SNAPSHOT archive). Only the elements added or changed since the previous
+     * indexing (based on their content hash) are written and the elements no more defined in the archive are deleted.
+     * 
+     * @param archiveName The name of the archive in which the elements lies.
+     * @param archiveVersion The version of the archive in which the elements lies.
+     * @param archiveElements The elements to index, a map of elements by id for every type of element.
+     * @param dependencies The archive dependencies (in order to add infos from the parent element to the child...)
+     * @return The number of unchanged elements that have not been written.
+     */
+    int updateArchiveElements(String archiveName, String archiveVersion, List<Map<String, ? extends IndexedInheritableToscaElement>> archiveElements,
+            Collection<CSARDependency> dependencies);
+
     /**
      * Index a single element into the repository.
      * 
@@ -1,6 +1,8 @@
 package alien4cloud.component;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.components.CSARDependency;
@@ -31,6 +33,30 @@ public interface ICSARRepositorySearchService {
      */
     <T extends IndexedToscaElement> T getElementInDependencies(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies);
 
+    /**
+     * Get a set of elements from defined dependencies. Elements are resolved with as few requests as possible, the highest version of an element is selected
+     * when it is defined in several dependencies.
+     *
+     * @param elementClass The elements class.
+     * @param elementIds The TOSCA element ids of the elements (without archive version).
+     * @param dependencies A list of CSAR in which the elements may be defined.
+     * @return A map of the found elements by element id, elements that are not found are not in the map.
+     */
+    <T extends IndexedToscaElement> Map<String, T> getElementsInDependencies(Class<T> elementClass, Set<String> elementIds,
+            Collection<CSARDependency> dependencies);
+
+    /**
+     * Get a set of elements from defined dependencies.
+     *
+     * @param elementClass The elements class.
+     * @param elementIds The TOSCA element ids of the elements (without archive version).
+     * @param dependencies A list of CSAR in which the elements may be defined.
+     * @return A map of the elements by element id.
+     * @throws NotFoundException if one of the elements cannot be found.
+     */
+    <T extends IndexedToscaElement> Map<String, T> getRequiredElementsInDependencies(Class<T> elementClass, Set<String> elementIds,
+            Collection<CSARDependency> dependencies) throws NotFoundException;
+
     /**
      * Get an element from defined dependencies.
      *
@@ -36,6 +36,8 @@ public class NodeTypeScoreService implements Runnable {
     private IGenericSearchDAO alienESDAO;
     @Resource(name = "node-type-score-scheduler")
     private TaskScheduler scheduler;
+    @Resource
+    private ResolvedTypeCache resolvedTypeCache;
 
     @Value("${components.search.boost.usage}")
     private long usageBoost;
@@ -79,6 +81,8 @@ public class NodeTypeScoreService implements Runnable {
             nodeType.setAlienScore(usageFactor + defaultFactor + versionFactor);
             alienESDAO.save(nodeType);
         }
+        // resolved types are served from the cache until its ttl, drop them so that they get the new scores.
+        resolvedTypeCache.invalidateAll();
     }
 
     private boolean isLatestVersion(IndexedNodeType nodeType) {
@@ -0,0 +1,129 @@
+package alien4cloud.component;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.dao.ElasticSearchDAO;
+import alien4cloud.dao.EntityCache;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedToscaElement;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Sets;
+
+/**
+ * Cache of the elements resolved from a set of dependencies (see {@link ICSARRepositorySearchService#getElementInDependencies(Class, String, Collection)}).
+ *
+ * Elements are kept as json so that callers always get their own instance. As the resolution of any element may change when an archive is indexed or
+ * deleted, the {@link CSARRepositoryIndexerService} invalidates the whole cache on every change of the repository.
+ */
+@Slf4j
+@Component
+public class ResolvedTypeCache {
+    private final ObjectMapper jsonMapper = new ElasticSearchDAO.ElasticSearchMapper();
+
+    @Value("${elasticSearch.cache.resolved_type.max_size:0}")
+    private long maximumSize;
+    @Value("${elasticSearch.cache.resolved_type.ttl_seconds:300}")
+    private long expireAfterWriteSeconds;
+    @Autowired(required = false)
+    private MetricRegistry metricRegistry;
+
+    private EntityCache cache;
+
+    @PostConstruct
+    public void init() {
+        if (maximumSize <= 0 || expireAfterWriteSeconds <= 0) {
+            return;
+        }
+        cache = new EntityCache(maximumSize, expireAfterWriteSeconds);
+        if (metricRegistry != null) {
+            cache.registerMetrics(metricRegistry, MetricRegistry.name(ResolvedTypeCache.class));
+        }
+        log.info("Enabled resolved type cache with maximum size <{}> and expiration <{}s>", maximumSize, expireAfterWriteSeconds);
+    }
+
+    /**
+     * Get a resolved element from the cache.
+     *
+     * @param elementClass The element class.
+     * @param elementId The TOSCA element id of the element (without archive version).
+     * @param dependencies The dependencies from which the element has been resolved.
+     * @return A new instance of the cached element or null if not in the cache.
+     */
+    public <T extends IndexedToscaElement> T get(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies) {
+        if (cache == null) {
+            return null;
+        }
+        String source = cache.get(key(elementClass, elementId, dependencies));
+        if (source == null) {
+            return null;
+        }
+        try {
+            return jsonMapper.readValue(source, elementClass);
+        } catch (IOException e) {
+            log.warn("Unable to read cached element <" + elementId + ">", e);
+            return null;
+        }
+    }
+
+    /**
+     * Get the current generation of the cache, to be given back to {@link #put(Class, String, Collection, IndexedToscaElement, long)} once the element has
+     * been resolved.
+     *
+     * @return The current generation of the cache.
+     */
+    public long generation() {
+        return cache == null ? 0 : cache.generation();
+    }
+
+    /**
+     * Put a resolved element in the cache if the repository has not changed since the given generation.
+     *
+     * @param elementClass The element class.
+     * @param elementId The TOSCA element id of the element (without archive version).
+     * @param dependencies The dependencies from which the element has been resolved.
+     * @param element The resolved element.
+     * @param readGeneration The generation of the cache when the resolution started.
+     */
+    public <T extends IndexedToscaElement> void put(Class<T> elementClass, String elementId, Collection<CSARDependency> dependencies, T element,
+            long readGeneration) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.put(key(elementClass, elementId, dependencies), jsonMapper.writeValueAsString(element), readGeneration);
+        } catch (IOException e) {
+            log.warn("Unable to cache element <" + elementId + ">", e);
+        }
+    }
+
+    /**
+     * Remove all the resolved elements from the cache.
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private String key(Class<?> elementClass, String elementId, Collection<CSARDependency> dependencies) {
+        // the order of the dependencies doesn't change the resolution
+        Set<String> sortedDependencies = Sets.newTreeSet();
+        for (CSARDependency dependency : dependencies) {
+            sortedDependencies.add(dependency.getName() + ":" + dependency.getVersion());
+        }
+        return elementClass.getName() + "/" + elementId + "/" + Joiner.on(',').join(sortedDependencies);
+    }
+}
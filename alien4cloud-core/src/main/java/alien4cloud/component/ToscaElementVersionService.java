@@ -0,0 +1,278 @@
+package alien4cloud.component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.elasticsearch.index.query.QueryBuilders;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.dao.ESGenericSearchDAO;
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.model.ICloseableIterator;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.exception.DocumentVersionConflictException;
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.components.ToscaElementVersions;
+import alien4cloud.utils.VersionUtil;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Maintains the {@link ToscaElementVersions} registries of the indexed TOSCA elements.
+ *
+ * A registry is updated with optimistic concurrency control so that concurrent uploads of versions of the same element never lose a version, adding or
+ * removing a version only reads and writes the registry of the element whatever the number of versions. The registries of the elements of an archive are
+ * read and written together in bulk requests.
+ */
+@Slf4j
+@Component
+public class ToscaElementVersionService {
+    /** Maximum number of attempts to update a registry modified concurrently. */
+    private static final int MAX_UPDATE_ATTEMPTS = 10;
+    /** Id of the registry document written once the registries of the elements indexed before their introduction are created. */
+    private static final String INITIALIZED_MARKER = "_initialized";
+
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDAO;
+
+    /**
+     * Create the registries of the elements indexed before the registries were introduced. The elements are read page by page and the versions of each
+     * page are merged into the registries, so an interrupted initialization is completed at the next start. The marker is written once every element is
+     * registered.
+     */
+    @PostConstruct
+    public void initVersions() {
+        if (alienDAO.findById(ToscaElementVersions.class, INITIALIZED_MARKER) != null) {
+            return;
+        }
+        int updatedRegistries = 0;
+        int pageElements = 0;
+        Map<String, Set<String>> versionsByKey = Maps.newHashMap();
+        try (ICloseableIterator<IndexedToscaElement> elements = alienDAO.scroll(IndexedToscaElement.class, QueryBuilders.matchAllQuery(),
+                ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE)) {
+            while (elements.hasNext()) {
+                IndexedToscaElement element = elements.next();
+                String key = ToscaElementVersions.key(element);
+                Set<String> versions = versionsByKey.get(key);
+                if (versions == null) {
+                    versions = Sets.newHashSet();
+                    versionsByKey.put(key, versions);
+                }
+                versions.add(element.getArchiveVersion());
+                if (++pageElements == ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE) {
+                    updatedRegistries += mergeVersions(versionsByKey);
+                    versionsByKey.clear();
+                    pageElements = 0;
+                }
+            }
+        }
+        updatedRegistries += mergeVersions(versionsByKey);
+        alienDAO.save(new ToscaElementVersions(INITIALIZED_MARKER));
+        log.info("Initialized version registries, <{}> registries created or updated", updatedRegistries);
+    }
+
+    /**
+     * Add versions to registries, creating the missing registries. The registries modified concurrently are read again and updated in another bulk request.
+     *
+     * @param versionsByKey The versions to add by registry key.
+     * @return The number of registries created or updated.
+     */
+    private int mergeVersions(Map<String, Set<String>> versionsByKey) {
+        int updated = 0;
+        Set<String> keys = versionsByKey.keySet();
+        for (int attempt = 1; !keys.isEmpty(); attempt++) {
+            Map<String, Versioned<ToscaElementVersions>> current = alienDAO.findByIdsWithVersion(ToscaElementVersions.class,
+                    keys.toArray(new String[keys.size()]));
+            List<Versioned<ToscaElementVersions>> updatedRegistries = Lists.newArrayList();
+            for (String key : keys) {
+                Versioned<ToscaElementVersions> versioned = current.get(key);
+                ToscaElementVersions registry = versioned == null ? new ToscaElementVersions(key) : versioned.getData();
+                if (registry.getVersions().addAll(versionsByKey.get(key))) {
+                    // a version of 0 creates the registry only if it is still absent
+                    updatedRegistries.add(new Versioned<ToscaElementVersions>(registry, versioned == null ? 0 : versioned.getVersion()));
+                }
+            }
+            long[] versions = alienDAO.saveIfVersion(updatedRegistries);
+            Set<String> conflictingKeys = Sets.newHashSet();
+            for (int i = 0; i < versions.length; i++) {
+                if (versions[i] < 0) {
+                    conflictingKeys.add(updatedRegistries.get(i).getData().getId());
+                } else {
+                    updated++;
+                }
+            }
+            if (!conflictingKeys.isEmpty() && attempt >= MAX_UPDATE_ATTEMPTS) {
+                throw new DocumentVersionConflictException("Version registries " + conflictingKeys + " modified concurrently", null);
+            }
+            keys = conflictingKeys;
+        }
+        return updated;
+    }
+
+    /**
+     * Get the registries of elements in a single multi-get.
+     *
+     * @param elements The elements.
+     * @return The registries with the versions of their documents by key (see {@link ToscaElementVersions#key(IndexedToscaElement)}), elements that have
+     *         no registry yet have no entry.
+     */
+    public Map<String, Versioned<ToscaElementVersions>> getRegistries(Collection<? extends IndexedToscaElement> elements) {
+        Set<String> keys = Sets.newHashSet();
+        for (IndexedToscaElement element : elements) {
+            keys.add(ToscaElementVersions.key(element));
+        }
+        return alienDAO.findByIdsWithVersion(ToscaElementVersions.class, keys.toArray(new String[keys.size()]));
+    }
+
+    /**
+     * Register the versions of elements in a single bulk request. The registries modified concurrently since they have been read are read again and
+     * updated in another bulk request.
+     *
+     * @param elements The elements indexed, at most one element per registry.
+     * @param registries The registries of the elements as read by {@link #getRegistries(Collection)}.
+     * @return The registries as committed with the version of every element, by key.
+     */
+    public Map<String, Versioned<ToscaElementVersions>> addVersions(Collection<? extends IndexedToscaElement> elements,
+            Map<String, Versioned<ToscaElementVersions>> registries) {
+        Map<String, Versioned<ToscaElementVersions>> committed = Maps.newHashMap();
+        Map<String, Versioned<ToscaElementVersions>> current = registries;
+        List<IndexedToscaElement> pending = Lists.newArrayList(elements);
+        for (int attempt = 1;; attempt++) {
+            List<IndexedToscaElement> updatedElements = Lists.newArrayList();
+            List<Versioned<ToscaElementVersions>> updatedRegistries = Lists.newArrayList();
+            for (IndexedToscaElement element : pending) {
+                String key = ToscaElementVersions.key(element);
+                Versioned<ToscaElementVersions> versioned = current.get(key);
+                ToscaElementVersions registry = versioned == null ? new ToscaElementVersions(key) : versioned.getData();
+                if (registry.getVersions().add(element.getArchiveVersion())) {
+                    updatedElements.add(element);
+                    // a version of 0 creates the registry
+                    updatedRegistries.add(new Versioned<ToscaElementVersions>(registry, versioned == null ? 0 : versioned.getVersion()));
+                } else {
+                    // re-indexing a version doesn't change the registry
+                    committed.put(key, versioned);
+                }
+            }
+            long[] versions = alienDAO.saveIfVersion(updatedRegistries);
+            Set<String> conflictingKeys = Sets.newHashSet();
+            pending = Lists.newArrayList();
+            for (int i = 0; i < versions.length; i++) {
+                ToscaElementVersions registry = updatedRegistries.get(i).getData();
+                if (versions[i] < 0) {
+                    conflictingKeys.add(registry.getId());
+                    pending.add(updatedElements.get(i));
+                } else {
+                    committed.put(registry.getId(), new Versioned<ToscaElementVersions>(registry, versions[i]));
+                }
+            }
+            if (pending.isEmpty()) {
+                return committed;
+            }
+            if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                throw new DocumentVersionConflictException("Version registries " + conflictingKeys + " modified concurrently", null);
+            }
+            log.debug("Version registries <{}> modified concurrently, retrying update", conflictingKeys);
+            current = alienDAO.findByIdsWithVersion(ToscaElementVersions.class, conflictingKeys.toArray(new String[conflictingKeys.size()]));
+        }
+    }
+
+    /**
+     * Unregister the version of an element.
+     *
+     * @param element The element deleted.
+     * @return The highest remaining version of the element, null if no other version is indexed.
+     */
+    public String removeVersion(IndexedToscaElement element) {
+        String key = ToscaElementVersions.key(element);
+        for (int attempt = 1;; attempt++) {
+            try {
+                Versioned<ToscaElementVersions> versioned = alienDAO.findByIdWithVersion(ToscaElementVersions.class, key);
+                if (versioned == null) {
+                    return null;
+                }
+                ToscaElementVersions registry = versioned.getData();
+                if (registry.getVersions().remove(element.getArchiveVersion())) {
+                    // an empty registry is kept rather than deleted so a concurrent upload is not lost
+                    alienDAO.saveIfVersion(registry, versioned.getVersion());
+                }
+                return getHighestVersion(registry.getVersions());
+            } catch (DocumentVersionConflictException e) {
+                checkAttempt(key, attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Set the older versions of elements (the registered versions lower than the version of each element) from their registries.
+     *
+     * @param elements The elements, as returned by a search.
+     */
+    public void fillOlderVersions(Object[] elements) {
+        if (elements == null || elements.length == 0) {
+            return;
+        }
+        Set<String> keys = Sets.newHashSet();
+        for (Object element : elements) {
+            if (element instanceof IndexedToscaElement) {
+                keys.add(ToscaElementVersions.key((IndexedToscaElement) element));
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<ToscaElementVersions> registries = alienDAO.findByIds(ToscaElementVersions.class, keys.toArray(new String[keys.size()]));
+        Map<String, ToscaElementVersions> registriesByKey = Maps.newHashMap();
+        for (ToscaElementVersions registry : registries) {
+            registriesByKey.put(registry.getId(), registry);
+        }
+        for (Object element : elements) {
+            if (element instanceof IndexedToscaElement) {
+                IndexedToscaElement toscaElement = (IndexedToscaElement) element;
+                ToscaElementVersions registry = registriesByKey.get(ToscaElementVersions.key(toscaElement));
+                toscaElement.setOlderVersions(registry == null ? null : getOlderVersions(registry.getVersions(), toscaElement.getArchiveVersion()));
+            }
+        }
+    }
+
+    private Set<String> getOlderVersions(Collection<String> versions, String version) {
+        Set<String> olderVersions = Sets.newHashSet();
+        for (String other : versions) {
+            if (VersionUtil.compare(other, version) < 0) {
+                olderVersions.add(other);
+            }
+        }
+        return olderVersions.isEmpty() ? null : olderVersions;
+    }
+
+    /**
+     * Get the highest of versions.
+     *
+     * @param versions The versions.
+     * @return The highest version, null if there is no version.
+     */
+    public String getHighestVersion(Collection<String> versions) {
+        String highestVersion = null;
+        for (String version : versions) {
+            if (highestVersion == null || VersionUtil.compare(version, highestVersion) > 0) {
+                highestVersion = version;
+            }
+        }
+        return highestVersion;
+    }
+
+    private void checkAttempt(String key, int attempt, DocumentVersionConflictException e) {
+        if (attempt >= MAX_UPDATE_ATTEMPTS) {
+            throw e;
+        }
+        log.debug("Version registry <{}> modified concurrently, retrying update", key);
+    }
+}
@@ -4,20 +4,25 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.springframework.stereotype.Component;
 
+import alien4cloud.dao.ESGenericSearchDAO;
 import alien4cloud.dao.IGenericSearchDAO;
-import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.ICloseableIterator;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.Csar;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.utils.VersionUtil;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -29,6 +34,25 @@ public class CsarService implements ICsarDependencyLoader {
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO csarDAO;
 
+    /**
+     * Compute the version keys of the archives saved before the keys were introduced.
+     */
+    @PostConstruct
+    public void initVersionKeys() {
+        QueryBuilder query = QueryBuilders.filteredQuery(QueryBuilders.matchAllQuery(), FilterBuilders.missingFilter("versionKey"));
+        List<Csar> page = Lists.newArrayList();
+        try (ICloseableIterator<Csar> csars = csarDAO.scroll(Csar.class, query, ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE)) {
+            while (csars.hasNext()) {
+                // the key is computed when the version is set on de-serialization
+                page.add(csars.next());
+                if (page.size() == ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE || !csars.hasNext()) {
+                    csarDAO.save(page.toArray(new Csar[page.size()]));
+                    page.clear();
+                }
+            }
+        }
+    }
+
     /**
      * Get a cloud service if exists in Dao.
      * 
@@ -57,29 +81,27 @@ public class CsarService implements ICsarDependencyLoader {
     }
 
     /**
-     * @return an array of CSARs that depend on this name:version.
+     * @return an iterator over the CSARs that depend on this name:version (must be closed if not fully consumed).
      */
-    public Csar[] getDependantCsars(String name, String version) {
-        FilterBuilder filter = FilterBuilders.nestedFilter(
-                "dependencies",
-                FilterBuilders.boolFilter().must(FilterBuilders.termFilter("dependencies.name", name))
-                        .must(FilterBuilders.termFilter("dependencies.version", version)));
-        GetMultipleDataResult<Csar> result = csarDAO.search(Csar.class, null, null, filter, null, 0, Integer.MAX_VALUE);
-        return result.getData();
+    public ICloseableIterator<Csar> getDependantCsars(String name, String version) {
+        return csarDAO.scroll(Csar.class, dependsOnQuery(name, version), ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE);
     }
 
     /**
-     * @return an array of <code>Topology</code>s that depend on this name:version.
+     * @return an iterator over the <code>Topology</code>s that depend on this name:version (must be closed if not fully consumed).
      */
-    public Topology[] getDependantTopologies(String name, String version) {
+    public ICloseableIterator<Topology> getDependantTopologies(String name, String version) {
+        return csarDAO.scroll(Topology.class, dependsOnQuery(name, version), ESGenericSearchDAO.DEFAULT_SCROLL_PAGE_SIZE);
+    }
+
+    private QueryBuilder dependsOnQuery(String name, String version) {
         FilterBuilder filter = FilterBuilders.nestedFilter(
                 "dependencies",
                 FilterBuilders.boolFilter().must(FilterBuilders.termFilter("dependencies.name", name))
                         .must(FilterBuilders.termFilter("dependencies.version", version)));
-        GetMultipleDataResult<Topology> result = csarDAO.search(Topology.class, null, null, filter, null, 0, Integer.MAX_VALUE);
-        return result.getData();
+        return QueryBuilders.constantScoreQuery(filter);
     }
-    
+
     /**
      * Save a Cloud Service Archive in ElasticSearch.
      * 
@@ -102,10 +124,18 @@ public class CsarService implements ICsarDependencyLoader {
         this.csarDAO.save(csar);
     }
 
+    /**
+     * Delete a Cloud Service Archive from ElasticSearch.
+     * 
+     * @param csar The csar to delete.
+     */
+    public void delete(Csar csar) {
+        this.csarDAO.delete(Csar.class, csar.getId());
+    }
+
     public Map<String, Csar> findByIds(String fetchContext, String... ids) {
         Map<String, Csar> csarMap = Maps.newHashMap();
-        List<Csar> csars = csarDAO.findByIdsWithContext(Csar.class, fetchContext, ids);
-        for (Csar csar : csars) {
+        for (Csar csar : csarDAO.multiGet(Csar.class, fetchContext, ids).getData()) {
             csarMap.put(csar.getId(), csar);
         }
         return csarMap;
@@ -5,6 +5,8 @@ import java.io.IOException;
 
 import javax.annotation.PostConstruct;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.exception.IndexingServiceException;
@@ -24,6 +26,9 @@ import alien4cloud.model.components.IndexedCapabilityType;
 import alien4cloud.model.components.IndexedNodeType;
 import alien4cloud.model.components.IndexedRelationshipType;
 import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.components.ToscaElementVersions;
+import alien4cloud.model.deployment.ActiveDeployment;
+import alien4cloud.model.deployment.CloudActiveDeployments;
 import alien4cloud.model.deployment.Deployment;
 import alien4cloud.model.templates.TopologyTemplate;
 import alien4cloud.model.topology.Topology;
@@ -39,8 +44,38 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * @author luc boutier
  */
 @Component("alien-es-dao")
+@Profile("!" + InMemorySearchDAO.PROFILE)
 public class ElasticSearchDAO extends ESGenericSearchDAO {
     public static final String TOSCA_ELEMENT_INDEX = "toscaelement";
+    /** Indexed boost of the node types. */
+    public static final String ALIEN_SCORE_FIELD = "alienScore";
+    /** Classes stored in the {@link #TOSCA_ELEMENT_INDEX} index. */
+    public static final Class<?>[] TOSCA_ELEMENT_CLASSES = new Class<?>[] { IndexedCapabilityType.class, IndexedArtifactType.class,
+            IndexedRelationshipType.class, IndexedNodeType.class };
+    /** Parent classes of the tosca elements, used to search all elements of the {@link #TOSCA_ELEMENT_INDEX} index. */
+    public static final Class<?>[] TOSCA_ELEMENT_PARENT_CLASSES = new Class<?>[] { IndexedArtifactToscaElement.class, IndexedToscaElement.class };
+    /** Classes stored in their own index (named by the lower case simple name of the class). */
+    public static final Class<?>[] SINGLE_INDEX_CLASSES = new Class<?>[] { Application.class, ApplicationVersion.class, ApplicationEnvironment.class,
+            DeploymentSetup.class, Topology.class, Csar.class, Plugin.class, PluginConfiguration.class, TopologyTemplate.class, MetaPropConfiguration.class,
+            Cloud.class, CloudConfiguration.class, Deployment.class, ActiveDeployment.class, CloudActiveDeployments.class, CloudImage.class,
+            ToscaElementVersions.class };
+
+    @Value("${elasticSearch.cache.topology.max_size:0}")
+    private long topologyCacheSize;
+    @Value("${elasticSearch.cache.topology.ttl_seconds:60}")
+    private long topologyCacheTtl;
+    @Value("${elasticSearch.cache.cloud.max_size:0}")
+    private long cloudCacheSize;
+    @Value("${elasticSearch.cache.cloud.ttl_seconds:60}")
+    private long cloudCacheTtl;
+    @Value("${elasticSearch.cache.application_environment.max_size:0}")
+    private long environmentCacheSize;
+    @Value("${elasticSearch.cache.application_environment.ttl_seconds:60}")
+    private long environmentCacheTtl;
+    @Value("${elasticSearch.cache.node_type.max_size:0}")
+    private long nodeTypeCacheSize;
+    @Value("${elasticSearch.cache.node_type.ttl_seconds:60}")
+    private long nodeTypeCacheTtl;
 
     /**
      * Initialize the dao after being loaded by spring (Create the indexes).
@@ -56,27 +91,20 @@ public class ElasticSearchDAO extends ESGenericSearchDAO {
         // init indices and mapped classes
         setJsonMapper(new ElasticSearchMapper());
 
-        initIndices(TOSCA_ELEMENT_INDEX, false, IndexedCapabilityType.class, IndexedArtifactType.class, IndexedRelationshipType.class, IndexedNodeType.class);
-        initIndices(TOSCA_ELEMENT_INDEX, false, IndexedArtifactToscaElement.class, IndexedToscaElement.class);
-        initIndice(Application.class);
-        initIndice(ApplicationVersion.class);
-        initIndice(ApplicationEnvironment.class);
-        initIndice(DeploymentSetup.class);
-        initIndice(Topology.class);
-        initIndice(Csar.class);
-        initIndice(Plugin.class);
-        initIndice(PluginConfiguration.class);
-        initIndice(TopologyTemplate.class);
-        initIndice(MetaPropConfiguration.class);
-        initIndice(Cloud.class);
-        initIndice(CloudConfiguration.class);
-        initIndice(Deployment.class);
-        initIndice(CloudImage.class);
+        initIndices(TOSCA_ELEMENT_INDEX, false, TOSCA_ELEMENT_CLASSES);
+        initIndices(TOSCA_ELEMENT_INDEX, false, TOSCA_ELEMENT_PARENT_CLASSES);
+        for (Class<?> clazz : SINGLE_INDEX_CLASSES) {
+            initIndices(clazz.getSimpleName().toLowerCase(), false, clazz);
+        }
         initCompleted();
-    }
 
-    private void initIndice(Class<?> clazz) {
-        initIndices(clazz.getSimpleName().toLowerCase(), false, clazz);
+        enableCache(Topology.class, topologyCacheSize, topologyCacheTtl);
+        enableCache(Cloud.class, cloudCacheSize, cloudCacheTtl);
+        enableCache(ApplicationEnvironment.class, environmentCacheSize, environmentCacheTtl);
+        enableCache(IndexedNodeType.class, nodeTypeCacheSize, nodeTypeCacheTtl);
+
+        // the text relevance of components is multiplied by their pre-computed score (see NodeTypeScoreService).
+        setScoringStrategy(IndexedNodeType.class, new FieldScoringStrategy(ALIEN_SCORE_FIELD));
     }
 
     public static class ElasticSearchMapper extends ObjectMapper {
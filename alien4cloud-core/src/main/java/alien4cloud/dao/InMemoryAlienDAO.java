@@ -0,0 +1,91 @@
+package alien4cloud.dao;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.topology.TopologyServiceCore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Sets;
+
+/**
+ * In-memory replacement of the {@link ElasticSearchDAO}, activated by the {@link InMemorySearchDAO#PROFILE} profile to run the services without indexing
+ * the alien documents. Monitor events are still stored in elastic search by the {@link MonitorESDAO}.
+ */
+@Component("alien-es-dao")
+@Profile(InMemorySearchDAO.PROFILE)
+public class InMemoryAlienDAO extends InMemorySearchDAO {
+    /**
+     * Register the classes of the alien indices and the scripts used to update them.
+     */
+    @PostConstruct
+    public void initEnvironment() {
+        setJsonMapper(new ElasticSearchDAO.ElasticSearchMapper());
+        initIndices(ElasticSearchDAO.TOSCA_ELEMENT_INDEX, ElasticSearchDAO.TOSCA_ELEMENT_CLASSES);
+        initIndices(ElasticSearchDAO.TOSCA_ELEMENT_INDEX, ElasticSearchDAO.TOSCA_ELEMENT_PARENT_CLASSES);
+        for (Class<?> clazz : ElasticSearchDAO.SINGLE_INDEX_CLASSES) {
+            initIndices(clazz.getSimpleName().toLowerCase(), clazz);
+        }
+        registerUpdateScript(TopologyServiceCore.UPDATE_TOPOLOGY_SCRIPT, new TopologyUpdateScript());
+    }
+
+    /**
+     * Java implementation of {@link TopologyServiceCore#UPDATE_TOPOLOGY_SCRIPT}, node templates are stored as an array of key/value entries.
+     */
+    private static final class TopologyUpdateScript implements IInMemoryUpdateScript {
+        @Override
+        public void apply(ObjectNode source, JsonNode parameters) {
+            JsonNode putNodeTemplates = parameters.get("putNodeTemplates");
+            if (parameters.get("replaceNodeTemplates").asBoolean()) {
+                source.put("nodeTemplates", putNodeTemplates);
+            } else if (parameters.get("nodeTemplateNames").size() > 0) {
+                Set<String> nodeTemplateNames = Sets.newHashSet();
+                for (JsonNode nodeTemplateName : parameters.get("nodeTemplateNames")) {
+                    nodeTemplateNames.add(nodeTemplateName.asText());
+                }
+                JsonNode currentNodeTemplates = source.get("nodeTemplates");
+                ArrayNode nodeTemplates = source.putArray("nodeTemplates");
+                if (currentNodeTemplates != null) {
+                    for (JsonNode entry : currentNodeTemplates) {
+                        if (!nodeTemplateNames.contains(entry.get("key").asText())) {
+                            nodeTemplates.add(entry);
+                        }
+                    }
+                }
+                nodeTemplates.addAll((ArrayNode) putNodeTemplates);
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = parameters.get("fields").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                source.put(field.getKey(), field.getValue());
+            }
+            Iterator<Map.Entry<String, JsonNode>> removedEntries = parameters.get("removedEntries").fields();
+            while (removedEntries.hasNext()) {
+                Map.Entry<String, JsonNode> entries = removedEntries.next();
+                JsonNode map = source.get(entries.getKey());
+                if (map != null && map.isObject()) {
+                    for (JsonNode key : entries.getValue()) {
+                        ((ObjectNode) map).remove(key.asText());
+                    }
+                }
+            }
+            Iterator<Map.Entry<String, JsonNode>> putEntries = parameters.get("putEntries").fields();
+            while (putEntries.hasNext()) {
+                Map.Entry<String, JsonNode> entries = putEntries.next();
+                JsonNode map = source.get(entries.getKey());
+                if (map == null || !map.isObject()) {
+                    map = source.putObject(entries.getKey());
+                }
+                ((ObjectNode) map).setAll((ObjectNode) entries.getValue());
+            }
+        }
+    }
+}
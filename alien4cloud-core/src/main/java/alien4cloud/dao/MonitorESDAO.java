@@ -2,9 +2,14 @@ package alien4cloud.dao;
 
 import java.beans.IntrospectionException;
 import java.io.IOException;
+import java.util.UUID;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import org.elasticsearch.common.unit.TimeValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.exception.IndexingServiceException;
@@ -22,6 +27,27 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 @Component("alien-monitor-es-dao")
 public class MonitorESDAO extends ESGenericSearchDAO {
+    public static final String DEPLOYED_TOPOLOGIES_INDEX = "deployedtopologies";
+    public static final String EVENTS_INDEX = "deploymentmonitorevents";
+    /** Classes stored in the {@link #EVENTS_INDEX} index. */
+    public static final Class<?>[] EVENT_CLASSES = new Class<?>[] { AbstractMonitorEvent.class, PaaSDeploymentStatusMonitorEvent.class,
+            PaaSInstanceStateMonitorEvent.class, PaaSMessageMonitorEvent.class, PaaSInstanceStorageMonitorEvent.class };
+    @Value("${paas_monitor.events_lifetime}")
+    private String eventsLifetime;
+    @Value("${paas_monitor.events_index.period:daily}")
+    private String eventsIndexPeriod;
+    @Value("${paas_monitor.events_bulk.max_actions:500}")
+    private int bulkMaxActions;
+    @Value("${paas_monitor.events_bulk.max_bytes:5242880}")
+    private long bulkMaxBytes;
+    @Value("${paas_monitor.events_bulk.flush_interval_ms:1000}")
+    private long bulkFlushIntervalMs;
+    @Value("${paas_monitor.events_bulk.queue_size:10000}")
+    private int bulkQueueSize;
+    @Value("${paas_monitor.events_bulk.max_retries:3}")
+    private int bulkMaxRetries;
+    /** Monitor events are written in background by bulk requests shared by all the clouds. */
+    private ESBulkWriter eventsWriter;
 
     /**
      * Initialize the dao after being loaded by spring (Create the indexes).
@@ -36,11 +62,89 @@ public class MonitorESDAO extends ESGenericSearchDAO {
         }
         // init indices and mapped classes
         setJsonMapper(new ElasticSearchMapper());
-        Class<?>[] classes = new Class<?>[] { AbstractMonitorEvent.class, PaaSDeploymentStatusMonitorEvent.class, PaaSInstanceStateMonitorEvent.class,
-                PaaSMessageMonitorEvent.class, PaaSInstanceStorageMonitorEvent.class };
-        initIndices("deployedtopologies", false, Topology.class);
-        initIndices("deploymentmonitorevents", true, classes);
+        initIndices(DEPLOYED_TOPOLOGIES_INDEX, false, Topology.class);
+        // events are written at a high rate and rarely searched, don't refresh the index on every write. Events are stored in an index per period and
+        // expired events are removed by dropping whole indices.
+        RollingIndex eventsIndex = new RollingIndex(EVENTS_INDEX, RollingIndex.Period.valueOf(eventsIndexPeriod.toUpperCase()), TimeValue.parseTimeValue(
+                eventsLifetime, null).millis());
+        initRollingIndices(eventsIndex, RefreshPolicy.ON_NEXT_READ, EVENT_CLASSES);
         initCompleted();
+
+        eventsWriter = new ESBulkWriter(EVENTS_INDEX, this, bulkMaxActions, bulkMaxBytes, bulkFlushIntervalMs, bulkQueueSize, bulkMaxRetries);
+        eventsWriter.start();
+    }
+
+    /**
+     * Write the pending events and stop the events writer.
+     */
+    @PreDestroy
+    public void closeEventsWriter() {
+        eventsWriter.close();
+    }
+
+    /**
+     * Drop the events indices that only contain events older than the events lifetime.
+     */
+    @Scheduled(fixedDelayString = "${paas_monitor.events_index.cleanup_interval_ms:3600000}")
+    public void dropExpiredEvents() {
+        dropExpiredBuckets();
+    }
+
+    @Override
+    protected Long getDocumentTimestamp(Object data) {
+        if (data instanceof AbstractMonitorEvent && ((AbstractMonitorEvent) data).getDate() > 0) {
+            return ((AbstractMonitorEvent) data).getDate();
+        }
+        return null;
+    }
+
+    @Override
+    public <T> void save(T data) {
+        if (data instanceof AbstractMonitorEvent) {
+            eventsWriter.add(identify((AbstractMonitorEvent) data));
+        } else {
+            super.save(data);
+        }
+    }
+
+    @Override
+    public <T> void save(T[] entities) {
+        if (entities instanceof AbstractMonitorEvent[]) {
+            for (T event : entities) {
+                eventsWriter.add(identify((AbstractMonitorEvent) event));
+            }
+        } else {
+            super.save(entities);
+        }
+    }
+
+    /** Events are paged by date then by id (see {@link alien4cloud.cloud.DeploymentService#getDeploymentEvents}), each event gets a unique id. */
+    private AbstractMonitorEvent identify(AbstractMonitorEvent event) {
+        if (event.getEventId() == null) {
+            event.setEventId(UUID.randomUUID().toString());
+        }
+        return event;
+    }
+
+    @Override
+    protected void refreshBeforeRead(String... indices) {
+        // events queued before a read of the events must be visible
+        if (readsEvents(indices)) {
+            eventsWriter.flush();
+        }
+        super.refreshBeforeRead(indices);
+    }
+
+    private boolean readsEvents(String... indices) {
+        if (indices == null) {
+            return false;
+        }
+        for (String index : indices) {
+            if (EVENTS_INDEX.equals(resolveRollingAlias(index))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public static class ElasticSearchMapper extends ObjectMapper {
@@ -16,6 +16,7 @@ import org.elasticsearch.mapping.MappingBuilder;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.dao.ESGenericIdDAO;
+import alien4cloud.dao.RefreshPolicy;
 import alien4cloud.exception.IndexingServiceException;
 import alien4cloud.images.exception.ImageUploadException;
 import alien4cloud.utils.ImageQuality;
@@ -41,7 +42,8 @@ public class ImageDAO extends ESGenericIdDAO implements IImageDAO {
             throw new IndexingServiceException("Could not initialize elastic search mapping builder", e);
         }
         // init indexes and mapped classes
-        initIndices(ImageData.class.getSimpleName().toLowerCase(), false, new Class<?>[] { ImageData.class });
+        // images are only read by id (real-time get), no need to refresh the index on writes.
+        initIndices(ImageData.class.getSimpleName().toLowerCase(), false, RefreshPolicy.INTERVAL, new Class<?>[] { ImageData.class });
         initCompleted();
     }
 
@@ -101,7 +103,10 @@ public class ImageDAO extends ESGenericIdDAO implements IImageDAO {
 
     @Override
     public void delete(String id) {
-        delete(ImageData.class, id);
+        // delete the resized images as well as the original one.
+        for (ImageQuality imageQuality : ImageQuality.values()) {
+            delete(ImageData.class, getImageId(imageQuality, id));
+        }
     }
 
     private String getImageId(final ImageQuality imageQuality, final String id) {
@@ -18,6 +18,7 @@ import org.elasticsearch.mapping.IndexType;
 
 import alien4cloud.exception.IndexingServiceException;
 import alien4cloud.model.deployment.IDeploymentSource;
+import alien4cloud.utils.VersionUtil;
 
 @Getter
 @Setter
@@ -31,6 +32,10 @@ public class Csar implements IDeploymentSource {
 	@TermFilter
 	private String version;
 
+	/** Key of the version that sorts as the versions (see {@link VersionUtil#getSortKey(String)}), updated with the version. */
+	@StringField(indexType = IndexType.not_analyzed, includeInAll = false)
+	private String versionKey;
+
 	private String toscaDefinitionsVersion;
 
 	private String toscaDefaultNamespace;
@@ -55,7 +60,12 @@ public class Csar implements IDeploymentSource {
 	/** Argument constructor */
 	public Csar(String name, String version) {
 		this.name = name;
+		setVersion(version);
+	}
+
+	public void setVersion(String version) {
 		this.version = version;
+		this.versionKey = VersionUtil.getSortKey(version);
 	}
 
 	@Id
@@ -20,6 +20,7 @@ import org.elasticsearch.annotation.query.TermFilter;
 import org.elasticsearch.mapping.IndexType;
 
 import alien4cloud.exception.IndexingServiceException;
+import alien4cloud.utils.VersionUtil;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
@@ -45,6 +46,11 @@ public abstract class IndexedToscaElement {
     @TermFilter
     private String archiveVersion;
 
+    /** Key of the archive version that sorts as the versions (see {@link VersionUtil#getSortKey(String)}), updated with the archive version. */
+    @FetchContext(contexts = { TAG_SUGGESTION }, include = { false })
+    @StringField(indexType = IndexType.not_analyzed, includeInAll = false)
+    private String archiveVersionKey;
+
     @BooleanField
     @TermFilter
     private boolean isHighestVersion;
@@ -59,6 +65,11 @@ public abstract class IndexedToscaElement {
     @DateField(includeInAll = false, index = IndexType.no)
     private Date lastUpdateDate;
 
+    /** Hash of the element as defined in its archive, used to re-index only the elements that changed when an archive is uploaded again. */
+    @FetchContext(contexts = { TAG_SUGGESTION }, include = { false })
+    @StringField(indexType = IndexType.no, includeInAll = false)
+    private String contentHash;
+
     /* Normative element */
     @FetchContext(contexts = { TAG_SUGGESTION }, include = { false })
     private String description;
@@ -66,6 +77,11 @@ public abstract class IndexedToscaElement {
     /* DSL extension */
     private List<Tag> tags;
 
+    public void setArchiveVersion(String archiveVersion) {
+        this.archiveVersion = archiveVersion;
+        this.archiveVersionKey = VersionUtil.getSortKey(archiveVersion);
+    }
+
     @Id
     public String getId() {
         if (elementId == null) {
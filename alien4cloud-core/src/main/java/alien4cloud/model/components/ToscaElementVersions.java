@@ -0,0 +1,48 @@
+package alien4cloud.model.components;
+
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.Id;
+import org.elasticsearch.annotation.StringField;
+import org.elasticsearch.mapping.IndexType;
+import org.elasticsearch.mapping.MappingBuilder;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Registry of the indexed versions of a TOSCA element (elements of the same type with the same archive name and element id). The highest version and the
+ * older versions of an element are derived from it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+@ESObject
+public class ToscaElementVersions {
+    /** Key of the registry (see {@link #key(IndexedToscaElement)}). */
+    @Id
+    private String id;
+
+    /** The archive versions in which the element is defined. */
+    @StringField(indexType = IndexType.no, includeInAll = false)
+    private Set<String> versions = Sets.newHashSet();
+
+    public ToscaElementVersions(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Get the key of the version registry of an element.
+     *
+     * @param element The element.
+     * @return The id of the registry document.
+     */
+    public static String key(IndexedToscaElement element) {
+        return MappingBuilder.indexTypeFromClass(element.getClass()) + ":" + element.getArchiveName() + ":" + element.getElementId();
+    }
+}
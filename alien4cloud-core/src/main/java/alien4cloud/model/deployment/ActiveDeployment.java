@@ -0,0 +1,61 @@
+package alien4cloud.model.deployment;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.Id;
+import org.elasticsearch.annotation.StringField;
+import org.elasticsearch.annotation.query.TermFilter;
+import org.elasticsearch.mapping.IndexType;
+
+/**
+ * Points to the active {@link Deployment} of an environment or of a topology on a cloud so the active deployment can be fetched by id rather than searched.
+ * Pointers are created when a deployment starts and removed when it ends.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+@ESObject
+public class ActiveDeployment {
+    private static final String ENVIRONMENT_KEY_PREFIX = "environment:";
+    private static final String TOPOLOGY_KEY_PREFIX = "topology:";
+
+    /** Key of the pointer (see {@link #environmentKey(String)} and {@link #topologyKey(String, String)}). */
+    @Id
+    private String id;
+
+    /** Id of the cloud on which the deployment is performed. */
+    @TermFilter
+    @StringField(indexType = IndexType.not_analyzed, includeInAll = false)
+    private String cloudId;
+
+    /** Id of the active deployment. */
+    @StringField(indexType = IndexType.no, includeInAll = false)
+    private String deploymentId;
+
+    /**
+     * Get the key of the pointer to the active deployment of an environment.
+     *
+     * @param environmentId The id of the environment.
+     * @return The id of the pointer document.
+     */
+    public static String environmentKey(String environmentId) {
+        return ENVIRONMENT_KEY_PREFIX + environmentId;
+    }
+
+    /**
+     * Get the key of the pointer to the active deployment of a topology on a cloud.
+     *
+     * @param cloudId The id of the cloud.
+     * @param topologyId The id of the deployed topology.
+     * @return The id of the pointer document.
+     */
+    public static String topologyKey(String cloudId, String topologyId) {
+        return TOPOLOGY_KEY_PREFIX + cloudId + ":" + topologyId;
+    }
+}
@@ -0,0 +1,37 @@
+package alien4cloud.model.deployment;
+
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.Id;
+import org.elasticsearch.annotation.StringField;
+import org.elasticsearch.mapping.IndexType;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Ids of the {@link Deployment}s in progress on a cloud, so whether a cloud has deployments to monitor is known by fetching a single document by id. It is
+ * maintained with the {@link ActiveDeployment} pointers.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+@ESObject
+public class CloudActiveDeployments {
+    /** Id of the cloud. */
+    @Id
+    private String id;
+
+    /** Ids of the deployments in progress on the cloud. */
+    @StringField(indexType = IndexType.no, includeInAll = false)
+    private Set<String> deploymentIds = Sets.newHashSet();
+
+    public CloudActiveDeployments(String id) {
+        this.id = id;
+    }
+}
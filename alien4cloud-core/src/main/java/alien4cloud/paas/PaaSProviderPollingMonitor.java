@@ -11,9 +11,8 @@ import org.elasticsearch.mapping.QueryHelper.SearchQueryHelperBuilder;
 
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.dao.model.GetMultipleDataResult;
-import alien4cloud.model.deployment.Deployment;
+import alien4cloud.model.deployment.CloudActiveDeployments;
 import alien4cloud.paas.model.AbstractMonitorEvent;
-import alien4cloud.utils.MapUtil;
 import alien4cloud.utils.TypeScanner;
 
 import com.google.common.collect.Maps;
@@ -58,14 +57,20 @@ public class PaaSProviderPollingMonitor implements Runnable {
         }
         Map<String, String[]> filter = Maps.newHashMap();
         filter.put("cloudId", new String[] { this.cloudId });
-        // sort by filed date DESC
-        SearchQueryHelperBuilder searchQueryHelperBuilder = monitorDAO.getQueryHelper().buildSearchQuery("deploymentmonitorevents")
-                .types(eventClasses.toArray(new Class<?>[eventClasses.size()])).filters(filter).fieldSort("date", true);
-
-        // the first one is the one with the latest date
-        GetMultipleDataResult lastestEventResult = monitorDAO.search(searchQueryHelperBuilder, 0, 1);
-        if (lastestEventResult.getData().length > 0) {
-            AbstractMonitorEvent lastEvent = (AbstractMonitorEvent) lastestEventResult.getData()[0];
+        // events indices are searched from the newest to the oldest until an event of the cloud is found.
+        String[] indices = monitorDAO.getIndicesForType(AbstractMonitorEvent.class, 0, System.currentTimeMillis());
+        AbstractMonitorEvent lastEvent = null;
+        for (int i = indices.length - 1; i >= 0 && lastEvent == null; i--) {
+            // sort by filed date DESC
+            SearchQueryHelperBuilder searchQueryHelperBuilder = monitorDAO.getQueryHelper().buildSearchQuery(indices[i])
+                    .types(eventClasses.toArray(new Class<?>[eventClasses.size()])).filters(filter).fieldSort("date", true);
+            // the first one is the one with the latest date
+            GetMultipleDataResult lastestEventResult = monitorDAO.search(searchQueryHelperBuilder, 0, 1);
+            if (lastestEventResult.getData().length > 0) {
+                lastEvent = (AbstractMonitorEvent) lastestEventResult.getData()[0];
+            }
+        }
+        if (lastEvent != null) {
             Date lastEventDate = new Date(lastEvent.getDate());
             log.info("Recovering events from the last in elasticsearch {} of type {}", lastEventDate, lastEvent.getClass().getName());
             this.lastPollingDate = lastEventDate;
@@ -138,18 +143,13 @@ public class PaaSProviderPollingMonitor implements Runnable {
             paaSProvider.getEventsSince(lastPollingDate, MAX_POLLED_EVENTS, paaSEventsCallback);
         } else {
             getEventsInProgress = false;
-            hasDeployments = getActiveDeployment() != null;
+            hasDeployments = hasActiveDeployments();
         }
     }
 
-    private Deployment getActiveDeployment() {
-        Deployment deployment = null;
-
-        GetMultipleDataResult<Deployment> dataResult = dao.search(Deployment.class, null,
-                MapUtil.newHashMap(new String[] { "cloudId", "endDate" }, new String[][] { new String[] { cloudId }, new String[] { null } }), 1);
-        if (dataResult.getData() != null && dataResult.getData().length > 0) {
-            deployment = dataResult.getData()[0];
-        }
-        return deployment;
+    private boolean hasActiveDeployments() {
+        // the deployments in progress on the cloud are maintained with the active deployment pointers
+        CloudActiveDeployments cloudActiveDeployments = dao.findById(CloudActiveDeployments.class, cloudId);
+        return cloudActiveDeployments != null && !cloudActiveDeployments.getDeploymentIds().isEmpty();
     }
 }
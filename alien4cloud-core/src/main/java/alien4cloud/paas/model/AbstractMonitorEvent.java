@@ -17,6 +17,9 @@ import org.elasticsearch.mapping.IndexType;
 @ToString
 @SuppressWarnings("PMD.UnusedPrivateField")
 public abstract class AbstractMonitorEvent {
+    /** Unique id of the event, orders the events that have the same date (see {@link alien4cloud.dao.IGenericSearchDAO#searchAfter}). */
+    @StringField(indexType = IndexType.not_analyzed, includeInAll = false)
+    private String eventId;
     @TermFilter
     @StringField(indexType = IndexType.not_analyzed)
     private String deploymentId;
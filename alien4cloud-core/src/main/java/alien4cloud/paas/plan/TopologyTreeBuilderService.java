@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.annotation.Resource;
 
@@ -37,6 +38,7 @@ import alien4cloud.utils.TypeMap;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * Utility to build an hosted on tree from a topology.
@@ -62,6 +64,7 @@ public class TopologyTreeBuilderService {
 
         // Fill in PaaSNodeTemplate by fetching node types and CSAR path from the repositories.
         if (topology.getNodeTemplates() != null) {
+            resolveTypes(cache, topology);
             for (Entry<String, NodeTemplate> templateEntry : topology.getNodeTemplates().entrySet()) {
                 NodeTemplate template = templateEntry.getValue();
 
@@ -213,6 +216,30 @@ public class TopologyTreeBuilderService {
         return relationships;
     }
 
+    /**
+     * Resolve all the node and relationship types of a topology at once and put them in the type map.
+     */
+    private void resolveTypes(TypeMap typeMap, Topology topology) {
+        Set<String> nodeTypeIds = Sets.newHashSet();
+        Set<String> relationshipTypeIds = Sets.newHashSet();
+        for (NodeTemplate template : topology.getNodeTemplates().values()) {
+            nodeTypeIds.add(template.getType());
+            if (template.getRelationships() != null) {
+                for (RelationshipTemplate relationshipTemplate : template.getRelationships().values()) {
+                    relationshipTypeIds.add(relationshipTemplate.getType());
+                }
+            }
+        }
+        // missing types are reported by fillType
+        for (IndexedNodeType nodeType : csarSearchService.getElementsInDependencies(IndexedNodeType.class, nodeTypeIds, topology.getDependencies()).values()) {
+            typeMap.put(nodeType.getElementId(), nodeType);
+        }
+        for (IndexedRelationshipType relationshipType : csarSearchService.getElementsInDependencies(IndexedRelationshipType.class, relationshipTypeIds,
+                topology.getDependencies()).values()) {
+            typeMap.put(relationshipType.getElementId(), relationshipType);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @SneakyThrows({ CSARVersionNotFoundException.class })
     private <V extends IndexedToscaElement> void fillType(TypeMap typeMap, Topology topology, AbstractTemplate template, IPaaSTemplate<V> paaSTemplate,
@@ -11,11 +11,16 @@ import javax.annotation.Resource;
 
 import org.apache.commons.collections4.MapUtils;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.stereotype.Service;
 
 import alien4cloud.component.ICSARRepositorySearchService;
 import alien4cloud.component.IToscaElementFinder;
 import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.RetryOnVersionConflict;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.exception.DocumentVersionConflictException;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.components.AbstractPropertyValue;
 import alien4cloud.model.components.CSARDependency;
@@ -36,12 +41,32 @@ import alien4cloud.model.topology.RelationshipTemplate;
 import alien4cloud.model.topology.Requirement;
 import alien4cloud.model.topology.Topology;
 import alien4cloud.utils.PropertyUtil;
+import alien4cloud.utils.jackson.MapEntry;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 @Service
 public class TopologyServiceCore {
 
+    /** Script that applies a {@link TopologyUpdate}, node templates are stored as an array of key/value entries. */
+    public static final String UPDATE_TOPOLOGY_SCRIPT = "if (replaceNodeTemplates) { ctx._source.nodeTemplates = putNodeTemplates } "
+            + "else if (!nodeTemplateNames.isEmpty()) { "
+            + "  if (ctx._source.nodeTemplates == null) { ctx._source.nodeTemplates = [] }; "
+            + "  def iterator = ctx._source.nodeTemplates.iterator(); "
+            + "  while (iterator.hasNext()) { if (nodeTemplateNames.contains(iterator.next().key)) { iterator.remove() } }; "
+            + "  ctx._source.nodeTemplates.addAll(putNodeTemplates) "
+            + "}; "
+            + "for (field in fields.entrySet()) { ctx._source[field.key] = field.value }; "
+            + "for (entries in removedEntries.entrySet()) { "
+            + "  if (ctx._source[entries.key] != null) { for (key in entries.value) { ctx._source[entries.key].remove(key) } } "
+            + "}; "
+            + "for (entries in putEntries.entrySet()) { "
+            + "  if (ctx._source[entries.key] == null) { ctx._source[entries.key] = [:] }; "
+            + "  ctx._source[entries.key].putAll(entries.value) "
+            + "}";
+
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO alienDAO;
 
@@ -72,6 +97,98 @@ public class TopologyServiceCore {
         return topology;
     }
 
+    /**
+     * Retrieve a topology given its Id along with the version of its document, to be modified through {@link #update(Topology, long, TopologyUpdate)}.
+     *
+     * @param topologyId The id of the topology.
+     * @return The topology and its version.
+     */
+    public Versioned<Topology> getMandatoryTopologyWithVersion(String topologyId) {
+        Versioned<Topology> topology = alienDAO.findByIdWithVersion(Topology.class, topologyId);
+        if (topology == null) {
+            throw new NotFoundException("Topology [" + topologyId + "] cannot be found");
+        }
+        return topology;
+    }
+
+    /**
+     * Write the given parts of a topology instead of re-indexing the whole document. Node templates are stored as an array of entries so they are updated
+     * through a script, updates that only add or modify map entries are merged as a partial document.
+     *
+     * The update is applied only if the topology has not been modified since the given version, callers should be annotated with
+     * {@link RetryOnVersionConflict} so they are executed again on a fresh copy of the topology in case of concurrent modification.
+     *
+     * @param topology The topology, already modified in memory.
+     * @param version The version of the topology the modifications are based on.
+     * @param update The parts of the topology that have been modified.
+     * @return The new version of the topology.
+     * @throws DocumentVersionConflictException If the topology has been modified since the given version.
+     */
+    @SuppressWarnings("unchecked")
+    public long update(Topology topology, long version, TopologyUpdate update) {
+        BeanWrapper topologyWrapper = new BeanWrapperImpl(topology);
+        Map<String, Map<String, Object>> putEntries = Maps.newHashMap();
+        Map<String, List<String>> removedEntries = Maps.newHashMap();
+        for (Entry<String, Set<String>> mapEntries : update.getMapEntries().entrySet()) {
+            Map<String, Object> map = (Map<String, Object>) topologyWrapper.getPropertyValue(mapEntries.getKey());
+            for (String key : mapEntries.getValue()) {
+                if (map != null && map.containsKey(key)) {
+                    addToMap(putEntries, mapEntries.getKey(), key, map.get(key));
+                } else {
+                    addToList(removedEntries, mapEntries.getKey(), key);
+                }
+            }
+        }
+
+        if (!update.isAllNodeTemplates() && update.getNodeTemplates().isEmpty() && update.getFields().isEmpty() && removedEntries.isEmpty()) {
+            if (putEntries.isEmpty()) {
+                return version;
+            }
+            return alienDAO.updateIfVersion(Topology.class, topology.getId(), putEntries, version);
+        }
+
+        Map<String, Object> fields = Maps.newHashMap();
+        for (String field : update.getFields()) {
+            fields.put(field, topologyWrapper.getPropertyValue(field));
+        }
+        List<MapEntry<String, NodeTemplate>> putNodeTemplates = Lists.newArrayList();
+        Map<String, NodeTemplate> nodeTemplates = topology.getNodeTemplates() == null ? Maps.<String, NodeTemplate> newHashMap() : topology
+                .getNodeTemplates();
+        Collection<String> nodeTemplateNames = update.isAllNodeTemplates() ? nodeTemplates.keySet() : update.getNodeTemplates();
+        for (String nodeTemplateName : nodeTemplateNames) {
+            if (nodeTemplates.containsKey(nodeTemplateName)) {
+                putNodeTemplates.add(new MapEntry<String, NodeTemplate>(nodeTemplateName, nodeTemplates.get(nodeTemplateName)));
+            }
+        }
+
+        Map<String, Object> parameters = Maps.newHashMap();
+        parameters.put("replaceNodeTemplates", update.isAllNodeTemplates());
+        parameters.put("nodeTemplateNames", update.getNodeTemplates());
+        parameters.put("putNodeTemplates", putNodeTemplates);
+        parameters.put("fields", fields);
+        parameters.put("putEntries", putEntries);
+        parameters.put("removedEntries", removedEntries);
+        return alienDAO.updateIfVersion(Topology.class, topology.getId(), UPDATE_TOPOLOGY_SCRIPT, parameters, version);
+    }
+
+    private void addToMap(Map<String, Map<String, Object>> map, String field, String key, Object value) {
+        Map<String, Object> fieldMap = map.get(field);
+        if (fieldMap == null) {
+            fieldMap = Maps.newHashMap();
+            map.put(field, fieldMap);
+        }
+        fieldMap.put(key, value);
+    }
+
+    private void addToList(Map<String, List<String>> map, String field, String key) {
+        List<String> fieldList = map.get(field);
+        if (fieldList == null) {
+            fieldList = Lists.newArrayList();
+            map.put(field, fieldList);
+        }
+        fieldList.add(key);
+    }
+
     /**
      * Get the Map of {@link NodeTemplate} from a topology
      *
@@ -128,14 +245,18 @@ public class TopologyServiceCore {
         if (topology.getNodeTemplates() == null) {
             return nodeTypes;
         }
+        Set<String> typeIds = Sets.newHashSet();
+        for (NodeTemplate template : topology.getNodeTemplates().values()) {
+            typeIds.add(template.getType());
+        }
+        // resolve all the types of the topology at once
+        Map<String, IndexedNodeType> typesById = csarRepoSearchService.getRequiredElementsInDependencies(IndexedNodeType.class, typeIds,
+                topology.getDependencies());
         for (Map.Entry<String, NodeTemplate> template : topology.getNodeTemplates().entrySet()) {
-            if (!nodeTypes.containsKey(template.getValue().getType())) {
-                IndexedNodeType nodeType = csarRepoSearchService.getRequiredElementInDependencies(IndexedNodeType.class, template.getValue().getType(),
-                        topology.getDependencies());
-                if (!abstractOnly || nodeType.isAbstract()) {
-                    String key = useTemplateNameAsKey ? template.getKey() : template.getValue().getType();
-                    nodeTypes.put(key, nodeType);
-                }
+            IndexedNodeType nodeType = typesById.get(template.getValue().getType());
+            if (!abstractOnly || nodeType.isAbstract()) {
+                String key = useTemplateNameAsKey ? template.getKey() : template.getValue().getType();
+                nodeTypes.put(key, nodeType);
             }
         }
         return nodeTypes;
@@ -148,24 +269,18 @@ public class TopologyServiceCore {
      * @return the map containing rel
      */
     public Map<String, IndexedRelationshipType> getIndexedRelationshipTypesFromTopology(Topology topology) {
-        Map<String, IndexedRelationshipType> relationshipTypes = Maps.newHashMap();
         if (topology.getNodeTemplates() == null) {
-            return relationshipTypes;
+            return Maps.newHashMap();
         }
-        for (Map.Entry<String, NodeTemplate> templateEntry : topology.getNodeTemplates().entrySet()) {
-            NodeTemplate template = templateEntry.getValue();
+        Set<String> typeIds = Sets.newHashSet();
+        for (NodeTemplate template : topology.getNodeTemplates().values()) {
             if (template.getRelationships() != null) {
-                for (Map.Entry<String, RelationshipTemplate> relationshipEntry : template.getRelationships().entrySet()) {
-                    RelationshipTemplate relationship = relationshipEntry.getValue();
-                    if (!relationshipTypes.containsKey(relationship.getType())) {
-                        IndexedRelationshipType relationshipType = csarRepoSearchService.getRequiredElementInDependencies(IndexedRelationshipType.class,
-                                relationship.getType(), topology.getDependencies());
-                        relationshipTypes.put(relationship.getType(), relationshipType);
-                    }
+                for (RelationshipTemplate relationship : template.getRelationships().values()) {
+                    typeIds.add(relationship.getType());
                 }
             }
         }
-        return relationshipTypes;
+        return csarRepoSearchService.getRequiredElementsInDependencies(IndexedRelationshipType.class, typeIds, topology.getDependencies());
     }
 
     public IndexedNodeType getRelatedIndexedNodeType(NodeTemplate nodeTemplate, Topology topology) {
@@ -0,0 +1,86 @@
+package alien4cloud.topology;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Describes the parts of a topology that have been modified in memory and that must be written to the index (see
+ * {@link TopologyServiceCore#update(alien4cloud.model.topology.Topology, long, TopologyUpdate)}).
+ */
+@Getter
+public class TopologyUpdate {
+    /** True if every node template may have changed. */
+    private boolean allNodeTemplates = false;
+    /** Names of the node templates added, modified or removed. */
+    private final Set<String> nodeTemplates = Sets.newHashSet();
+    /** Keys of the entries added, modified or removed by name of map field of the topology. */
+    private final Map<String, Set<String>> mapEntries = Maps.newHashMap();
+    /** Names of the fields of the topology to write as a whole. */
+    private final Set<String> fields = Sets.newHashSet();
+
+    /**
+     * Register node templates that have been added, modified or removed (removed if no more in the topology).
+     *
+     * @param names The names of the node templates.
+     * @return this update.
+     */
+    public TopologyUpdate nodeTemplates(String... names) {
+        return nodeTemplates(Arrays.asList(names));
+    }
+
+    /**
+     * Register node templates that have been added, modified or removed (removed if no more in the topology).
+     *
+     * @param names The names of the node templates.
+     * @return this update.
+     */
+    public TopologyUpdate nodeTemplates(Collection<String> names) {
+        nodeTemplates.addAll(names);
+        return this;
+    }
+
+    /**
+     * Register that any node template of the topology may have changed.
+     *
+     * @return this update.
+     */
+    public TopologyUpdate allNodeTemplates() {
+        allNodeTemplates = true;
+        return this;
+    }
+
+    /**
+     * Register entries of a map field of the topology that have been added, modified or removed (removed if no more in the map).
+     *
+     * @param field The name of the map field of the topology (scalingPolicies, outputProperties etc.).
+     * @param keys The keys of the entries.
+     * @return this update.
+     */
+    public TopologyUpdate mapEntries(String field, String... keys) {
+        Set<String> fieldKeys = mapEntries.get(field);
+        if (fieldKeys == null) {
+            fieldKeys = Sets.newHashSet();
+            mapEntries.put(field, fieldKeys);
+        }
+        fieldKeys.addAll(Arrays.asList(keys));
+        return this;
+    }
+
+    /**
+     * Register fields of the topology that must be written as a whole.
+     *
+     * @param names The names of the fields.
+     * @return this update.
+     */
+    public TopologyUpdate fields(String... names) {
+        fields.addAll(Arrays.asList(names));
+        return this;
+    }
+}
@@ -0,0 +1,453 @@
+package alien4cloud.tosca;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import alien4cloud.component.repository.CsarFileRepository;
+import alien4cloud.component.repository.exception.CSARVersionAlreadyExistsException;
+import alien4cloud.exception.NotFoundException;
+import alien4cloud.git.RepositoryManager;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.Csar;
+import alien4cloud.tosca.parser.ParsingContext;
+import alien4cloud.tosca.parser.ParsingError;
+import alien4cloud.tosca.parser.ParsingErrorLevel;
+import alien4cloud.tosca.parser.ParsingException;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.impl.ErrorCode;
+import alien4cloud.utils.FileUtil;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Imports all the archives of a directory or of a git repository.
+ *
+ * The name, version and dependencies of every archive are read first so that the archives can be imported in layers: an archive is imported once all the
+ * archives of the import it depends on are imported, the archives of a layer are imported in parallel. Dependencies that are not part of the import must
+ * already be in the repository.
+ */
+@Slf4j
+@Component
+public class ArchiveBulkImportService {
+    /** Maximum number of import tasks waiting for a thread, further tasks are executed by the importing thread. */
+    private static final int IMPORT_QUEUE_SIZE = 1000;
+    private static final String REPOSITORY_DIRECTORY = "repository";
+    private static final String TOSCA_METADATA_DIRECTORY = "TOSCA-Metadata";
+    private static final String TOSCA_DEFINITIONS_VERSION = "tosca_definitions_version";
+
+    @Resource
+    private ArchiveParser parser;
+    @Resource
+    private ArchiveUploadService archiveUploadService;
+    @Value("${archive.bulk_import_pool_size:4}")
+    private int importPoolSize;
+    @Value("${directories.alien}/${directories.upload_temp}")
+    private String alienTempUpload;
+    private final RepositoryManager repositoryManager = new RepositoryManager();
+    private ListeningExecutorService importExecutor;
+
+    @PostConstruct
+    public void initImportExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(importPoolSize, importPoolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(
+                IMPORT_QUEUE_SIZE), new ThreadFactoryBuilder().setNameFormat("archive-import-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        importExecutor = MoreExecutors.listeningDecorator(executor);
+    }
+
+    @PreDestroy
+    public void shutdownImportExecutor() {
+        if (importExecutor != null) {
+            importExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Clone a git repository and import all its archives.
+     *
+     * @param repositoryUrl The url of the git repository.
+     * @param branch The branch to import.
+     * @return The results of the imports by archive path (relative to the repository), in import order.
+     * @throws IOException In case the repository or its archives cannot be read.
+     */
+    public Map<String, ParsingResult<Csar>> importRepository(String repositoryUrl, String branch) throws IOException {
+        Path tempDirectory = Files.createTempDirectory(FileUtil.createDirectoryIfNotExists(alienTempUpload), "git");
+        try {
+            repositoryManager.cloneOrCheckout(tempDirectory, repositoryUrl, branch, REPOSITORY_DIRECTORY);
+            return importArchives(tempDirectory.resolve(REPOSITORY_DIRECTORY));
+        } finally {
+            FileUtil.delete(tempDirectory);
+        }
+    }
+
+    /**
+     * Import all the archives of a directory. An archive is either a zip file or a sub-directory that contains a TOSCA-Metadata directory or a definition file
+     * (a yaml file that declares its <code>tosca_definitions_version</code>).
+     *
+     * @param directory The directory in which to look for archives.
+     * @return The results of the imports by archive path (relative to the directory), in import order.
+     * @throws IOException In case the archives cannot be read.
+     */
+    public Map<String, ParsingResult<Csar>> importArchives(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new NotFoundException("Directory <" + directory + "> cannot be found");
+        }
+        List<ArchiveImport> archiveImports = findArchives(directory);
+        log.info("Importing <{}> archives from <{}>", archiveImports.size(), directory);
+        Path tempDirectory = Files.createTempDirectory(FileUtil.createDirectoryIfNotExists(alienTempUpload), "import");
+        try {
+            readArchives(archiveImports, tempDirectory);
+            Map<String, ParsingResult<Csar>> results = Maps.newLinkedHashMap();
+            List<List<ArchiveImport>> layers = sortInLayers(archiveImports, results);
+            for (List<ArchiveImport> layer : layers) {
+                importLayer(layer, results);
+            }
+            return results;
+        } finally {
+            FileUtil.delete(tempDirectory);
+        }
+    }
+
+    private List<ArchiveImport> findArchives(final Path directory) throws IOException {
+        final List<ArchiveImport> archiveImports = Lists.newArrayList();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.equals(directory)) {
+                    // the root of a repository is not an archive even if it contains yaml files
+                    return FileVisitResult.CONTINUE;
+                }
+                if (isHidden(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (isArchiveDirectory(dir)) {
+                    archiveImports.add(new ArchiveImport(getName(directory, dir), dir));
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(".zip") || fileName.endsWith("." + CsarFileRepository.CSAR_EXTENSION)) {
+                    archiveImports.add(new ArchiveImport(getName(directory, file), file));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return archiveImports;
+    }
+
+    private String getName(Path directory, Path archivePath) {
+        return directory.relativize(archivePath).toString();
+    }
+
+    private boolean isArchiveDirectory(Path dir) throws IOException {
+        if (Files.isDirectory(dir.resolve(TOSCA_METADATA_DIRECTORY))) {
+            return true;
+        }
+        try (DirectoryStream<Path> definitions = Files.newDirectoryStream(dir, "*.{yml,yaml}")) {
+            for (Path definition : definitions) {
+                if (!isHidden(definition) && isDefinitionFile(definition)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isDefinitionFile(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, Charsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.startsWith(TOSCA_DEFINITIONS_VERSION)) {
+                    return true;
+                }
+            }
+        } catch (CharacterCodingException e) {
+            // not a text file
+        }
+        return false;
+    }
+
+    private boolean isHidden(Path path) {
+        return path.getFileName() != null && path.getFileName().toString().startsWith(".");
+    }
+
+    /**
+     * Zip the archive directories and read the name, version and dependencies of all archives.
+     */
+    private void readArchives(List<ArchiveImport> archiveImports, final Path tempDirectory) {
+        Map<ArchiveImport, ListenableFuture<Void>> futures = Maps.newLinkedHashMap();
+        for (int i = 0; i < archiveImports.size(); i++) {
+            final ArchiveImport archiveImport = archiveImports.get(i);
+            final Path zipPath = tempDirectory.resolve(i + "." + CsarFileRepository.CSAR_EXTENSION);
+            futures.put(archiveImport, importExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    readArchive(archiveImport, zipPath);
+                    return null;
+                }
+            }));
+        }
+        waitFor(futures);
+    }
+
+    private void readArchive(ArchiveImport archiveImport, Path zipPath) {
+        try {
+            if (Files.isDirectory(archiveImport.path)) {
+                FileUtil.zip(archiveImport.path, zipPath);
+                archiveImport.path = zipPath;
+            }
+            archiveImport.header = parser.parseHeader(archiveImport.path);
+        } catch (ParsingException e) {
+            archiveImport.setResult(toResult(e.getFileName() == null ? archiveImport.name : e.getFileName(), null, e.getParsingErrors()));
+        } catch (IOException e) {
+            log.error("Unable to read archive <" + archiveImport.name + ">", e);
+            archiveImport.setResult(errorResult(archiveImport, ErrorCode.FAILED_TO_READ_FILE, "Problem happened while accessing file", archiveImport.name));
+        }
+    }
+
+    /**
+     * Sort the archives so that every archive is in a layer after the layers of the archives of the import it depends on.
+     *
+     * @param archiveImports The archives to import.
+     * @param results The results in which to add the archives that cannot be imported.
+     * @return The archives to import by layer.
+     */
+    private List<List<ArchiveImport>> sortInLayers(List<ArchiveImport> archiveImports, Map<String, ParsingResult<Csar>> results) {
+        Map<String, ArchiveImport> importsById = Maps.newHashMap();
+        List<ArchiveImport> remaining = Lists.newArrayList();
+        for (ArchiveImport archiveImport : archiveImports) {
+            if (archiveImport.result != null) {
+                results.put(archiveImport.name, archiveImport.result);
+            } else if (archiveImport.getId() == null) {
+                // the upload reports the missing name or version
+                remaining.add(archiveImport);
+            } else if (importsById.containsKey(archiveImport.getId())) {
+                archiveImport.setResult(errorResult(archiveImport, ErrorCode.DUPLICATED_ARCHIVE, "Archive is imported twice", archiveImport.getId()));
+                results.put(archiveImport.name, archiveImport.result);
+            } else {
+                importsById.put(archiveImport.getId(), archiveImport);
+                remaining.add(archiveImport);
+            }
+        }
+        for (ArchiveImport archiveImport : remaining) {
+            if (archiveImport.header.getDependencies() != null) {
+                for (CSARDependency dependency : archiveImport.header.getDependencies()) {
+                    ArchiveImport dependencyImport = importsById.get(new Csar(dependency.getName(), dependency.getVersion()).getId());
+                    if (dependencyImport != null && dependencyImport != archiveImport) {
+                        archiveImport.dependencies.add(dependencyImport);
+                    }
+                }
+            }
+        }
+
+        List<List<ArchiveImport>> layers = Lists.newArrayList();
+        Set<ArchiveImport> sorted = Sets.newHashSet();
+        while (!remaining.isEmpty()) {
+            List<ArchiveImport> layer = Lists.newArrayList();
+            List<ArchiveImport> next = Lists.newArrayList();
+            for (ArchiveImport archiveImport : remaining) {
+                if (sorted.containsAll(archiveImport.dependencies)) {
+                    layer.add(archiveImport);
+                } else {
+                    next.add(archiveImport);
+                }
+            }
+            if (layer.isEmpty()) {
+                reportCycles(next, results);
+                break;
+            }
+            sorted.addAll(layer);
+            layers.add(layer);
+            remaining = next;
+        }
+        return layers;
+    }
+
+    /**
+     * Report the archives that cannot be sorted: the archives of a dependency cycle and then the archives that depend on a cycle without being part of it.
+     *
+     * @param unsorted The archives that all depend on another unsorted archive.
+     * @param results The results in which to add the archives.
+     */
+    private void reportCycles(List<ArchiveImport> unsorted, Map<String, ParsingResult<Csar>> results) {
+        List<ArchiveImport> dependents = Lists.newArrayList();
+        for (ArchiveImport archiveImport : unsorted) {
+            Set<String> cycleIds = Sets.newTreeSet();
+            for (ArchiveImport dependency : getTransitiveDependencies(archiveImport)) {
+                if (getTransitiveDependencies(dependency).contains(archiveImport)) {
+                    cycleIds.add(dependency.getId());
+                }
+            }
+            if (cycleIds.isEmpty()) {
+                dependents.add(archiveImport);
+            } else {
+                archiveImport.setResult(errorResult(archiveImport, ErrorCode.CYCLIC_DEPENDENCY, "Archive dependencies are cyclic", Joiner.on(", ").join(
+                        cycleIds)));
+                results.put(archiveImport.name, archiveImport.result);
+            }
+        }
+        for (ArchiveImport archiveImport : dependents) {
+            // an unsorted archive always depends on another unsorted archive
+            ArchiveImport failedDependency = null;
+            for (ArchiveImport dependency : archiveImport.dependencies) {
+                if (unsorted.contains(dependency)) {
+                    failedDependency = dependency;
+                    break;
+                }
+            }
+            archiveImport.setResult(errorResult(archiveImport, ErrorCode.DEPENDENCY_IMPORT_FAILED, "Dependency import failed", failedDependency.getId()));
+            results.put(archiveImport.name, archiveImport.result);
+        }
+    }
+
+    private Set<ArchiveImport> getTransitiveDependencies(ArchiveImport archiveImport) {
+        Set<ArchiveImport> dependencies = Sets.newHashSet();
+        List<ArchiveImport> toVisit = Lists.newArrayList(archiveImport.dependencies);
+        while (!toVisit.isEmpty()) {
+            ArchiveImport dependency = toVisit.remove(toVisit.size() - 1);
+            if (dependencies.add(dependency)) {
+                toVisit.addAll(dependency.dependencies);
+            }
+        }
+        return dependencies;
+    }
+
+    private void importLayer(List<ArchiveImport> layer, Map<String, ParsingResult<Csar>> results) {
+        Map<ArchiveImport, ListenableFuture<Void>> futures = Maps.newLinkedHashMap();
+        for (final ArchiveImport archiveImport : layer) {
+            ArchiveImport failedDependency = getFailedDependency(archiveImport);
+            if (failedDependency != null) {
+                archiveImport.setResult(errorResult(archiveImport, ErrorCode.DEPENDENCY_IMPORT_FAILED, "Dependency import failed", failedDependency.getId()));
+                continue;
+            }
+            // uploads check the roles of the user that triggered the import
+            futures.put(archiveImport, importExecutor.submit(new DelegatingSecurityContextCallable<Void>(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    importArchive(archiveImport);
+                    return null;
+                }
+            }, SecurityContextHolder.getContext())));
+        }
+        waitFor(futures);
+        for (ArchiveImport archiveImport : layer) {
+            results.put(archiveImport.name, archiveImport.result);
+        }
+    }
+
+    private ArchiveImport getFailedDependency(ArchiveImport archiveImport) {
+        for (ArchiveImport dependency : archiveImport.dependencies) {
+            if (dependency.failed) {
+                return dependency;
+            }
+        }
+        return null;
+    }
+
+    private void importArchive(ArchiveImport archiveImport) {
+        try {
+            archiveImport.setResult(archiveUploadService.upload(archiveImport.path));
+            log.info("Imported archive <{}>", archiveImport.name);
+        } catch (ParsingException e) {
+            archiveImport.setResult(toResult(e.getFileName() == null ? archiveImport.name : e.getFileName(), archiveImport.header, e.getParsingErrors()));
+        } catch (CSARVersionAlreadyExistsException e) {
+            // not a failure, the released archive of the repository is used by the archives that depend on it
+            archiveImport.result = errorResult(archiveImport, ErrorCode.CSAR_ALREADY_EXISTS, "CSAR already exists", archiveImport.getId());
+        }
+    }
+
+    /**
+     * Wait for all tasks to complete (so that no task still reads the archives once the temporary files are deleted). The unexpected failure of a task is
+     * the error result of its archive so that the other archives are still imported.
+     */
+    private void waitFor(Map<ArchiveImport, ListenableFuture<Void>> futures) {
+        for (Map.Entry<ArchiveImport, ListenableFuture<Void>> future : futures.entrySet()) {
+            try {
+                Uninterruptibles.getUninterruptibly(future.getValue());
+            } catch (ExecutionException e) {
+                ArchiveImport archiveImport = future.getKey();
+                log.error("Unable to import archive <" + archiveImport.name + ">", e.getCause());
+                archiveImport.setResult(errorResult(archiveImport, ErrorCode.ARCHIVE_IMPORT_FAILED, "Archive import failed", String.valueOf(e.getCause())));
+            }
+        }
+    }
+
+    private static ParsingResult<Csar> errorResult(ArchiveImport archiveImport, ErrorCode errorCode, String problem, String note) {
+        return toResult(archiveImport.name, archiveImport.header, Lists.newArrayList(new ParsingError(errorCode, "Archive import", null, problem, null, note)));
+    }
+
+    private static ParsingResult<Csar> toResult(String fileName, Csar csar, List<ParsingError> parsingErrors) {
+        ParsingContext context = new ParsingContext(fileName);
+        context.getParsingErrors().addAll(parsingErrors);
+        return new ParsingResult<Csar>(csar, context);
+    }
+
+    /**
+     * Import of an archive.
+     */
+    private static class ArchiveImport {
+        /** Path of the archive relative to the imported directory. */
+        private final String name;
+        /** Path of the archive file (the zipped archive for directories). */
+        private Path path;
+        /** Name, version and dependencies of the archive. */
+        private Csar header;
+        /** The imported archives this archive depends on. */
+        private final Set<ArchiveImport> dependencies = Sets.newHashSet();
+        private ParsingResult<Csar> result;
+        /** True if the archive has not been imported, a released archive that already exists is not a failure. */
+        private boolean failed;
+
+        private ArchiveImport(String name, Path path) {
+            this.name = name;
+            this.path = path;
+        }
+
+        private String getId() {
+            return header == null || header.getName() == null || header.getVersion() == null ? null : header.getId();
+        }
+
+        private void setResult(ParsingResult<Csar> result) {
+            this.result = result;
+            this.failed = ArchiveUploadService.hasError(result, ParsingErrorLevel.ERROR);
+        }
+    }
+}
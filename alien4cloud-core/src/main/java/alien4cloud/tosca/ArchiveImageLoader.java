@@ -5,6 +5,7 @@ import java.nio.file.*;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Resource;
 
@@ -21,6 +22,15 @@ import alien4cloud.tosca.parser.ParsingErrorLevel;
 import alien4cloud.tosca.parser.ParsingResult;
 import alien4cloud.tosca.parser.impl.ErrorCode;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+
 /**
  * Import images from CloudServiceArchive to ElasticSearch
  */
@@ -36,23 +46,79 @@ public class ArchiveImageLoader {
      * 
      * @param archiveFile The path to the archive root.
      * @param archiveRoot The archive root object.
+     * @return The ids of the imported images.
+     */
+    public List<String> importImages(Path archiveFile, ParsingResult<ArchiveRoot> parsingResult) {
+        return importImages(archiveFile, parsingResult, MoreExecutors.sameThreadExecutor());
+    }
+
+    /**
+     * Import all images from the artifacts types in an archive. Icons are read from the archive by the calling thread while the executor resizes and saves
+     * the icons already read, the method returns once all images are saved. If an image cannot be saved (for another reason than an invalid format), the
+     * images already saved are deleted.
+     * 
+     * @param archiveFile The path to the archive root.
+     * @param archiveRoot The archive root object.
+     * @param executor The executor on which to resize and save the images.
+     * @return The ids of the imported images.
      */
+    public List<String> importImages(Path archiveFile, ParsingResult<ArchiveRoot> parsingResult, ListeningExecutorService executor) {
+        List<IconImport> iconImports = Lists.newArrayList();
+        try (FileSystem csarFS = FileSystems.newFileSystem(archiveFile, null)) {
+            readIcons(csarFS, parsingResult, executor, iconImports);
+        } catch (IOException e) {
+            parsingResult
+                    .getContext()
+                    .getParsingErrors()
+                    .add(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.FAILED_TO_READ_FILE, "Icon loading", null, "IO error while opening archive <"
+                            + archiveFile + ">", null, archiveFile.toString()));
+        }
+
+        List<IconImport> savedImports = Lists.newArrayList();
+        Throwable failure = null;
+        for (IconImport iconImport : iconImports) {
+            try {
+                Uninterruptibles.getUninterruptibly(iconImport.future);
+                savedImports.add(iconImport);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ImageUploadException) {
+                    iconImport.addWarning(ErrorCode.INVALID_ICON_FORMAT, "Invalid icon format at path <");
+                } else if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            for (IconImport iconImport : savedImports) {
+                imageDAO.delete(iconImport.imageData.getId());
+            }
+            throw Throwables.propagate(failure);
+        }
+
+        List<String> imageIds = Lists.newArrayList();
+        for (IconImport iconImport : savedImports) {
+            iconImport.complete();
+            imageIds.add(iconImport.imageData.getId());
+        }
+        return imageIds;
+    }
+
     @SuppressWarnings("unchecked")
-    public void importImages(Path archiveFile, ParsingResult<ArchiveRoot> parsingResult) {
-        importImages(archiveFile, parsingResult, parsingResult.getResult().getNodeTypes());
-        importImages(archiveFile, parsingResult, parsingResult.getResult().getRelationshipTypes());
-        importImages(archiveFile, parsingResult, parsingResult.getResult().getCapabilityTypes());
-        importImages(archiveFile, parsingResult, parsingResult.getResult().getArtifactTypes());
+    private void readIcons(FileSystem csarFS, ParsingResult<ArchiveRoot> parsingResult, ListeningExecutorService executor, List<IconImport> iconImports) {
+        readIcons(csarFS, parsingResult, parsingResult.getResult().getNodeTypes(), executor, iconImports);
+        readIcons(csarFS, parsingResult, parsingResult.getResult().getRelationshipTypes(), executor, iconImports);
+        readIcons(csarFS, parsingResult, parsingResult.getResult().getCapabilityTypes(), executor, iconImports);
+        readIcons(csarFS, parsingResult, parsingResult.getResult().getArtifactTypes(), executor, iconImports);
 
         for (ParsingResult<?> subResult : parsingResult.getContext().getSubResults()) {
             if (subResult.getResult() instanceof ArchiveRoot) {
-                importImages(archiveFile, (ParsingResult<ArchiveRoot>) subResult);
+                readIcons(csarFS, (ParsingResult<ArchiveRoot>) subResult, executor, iconImports);
             }
         }
     }
 
-    private void importImages(Path archiveFile, ParsingResult<ArchiveRoot> parsingResult,
-            Map<String, ? extends IndexedInheritableToscaElement> toscaInheritableElement) {
+    private void readIcons(FileSystem csarFS, ParsingResult<ArchiveRoot> parsingResult,
+            Map<String, ? extends IndexedInheritableToscaElement> toscaInheritableElement, ListeningExecutorService executor, List<IconImport> iconImports) {
         if (toscaInheritableElement == null) {
             return;
         }
@@ -61,52 +127,70 @@ public class ArchiveImageLoader {
                 List<Tag> tags = element.getValue().getTags();
                 Tag iconTag = ArchiveImageLoader.getIconTag(tags);
                 if (iconTag != null) {
-                    FileSystem csarFS = null;
-                    Path iconPath = null;
-
+                    IconImport iconImport = new IconImport(parsingResult, element.getValue(), iconTag);
                     try {
-                        csarFS = FileSystems.newFileSystem(archiveFile, null);
-                        iconPath = csarFS.getPath(iconTag.getValue());
+                        Path iconPath = csarFS.getPath(iconTag.getValue());
                         if (!Files.isDirectory(iconPath)) {
-                            String iconId = UUID.randomUUID().toString();
-                            // Saving the image
-                            ImageData imageData = new ImageData();
+                            final ImageData imageData = new ImageData();
                             imageData.setData(Files.readAllBytes(iconPath));
-                            imageData.setId(iconId);
-                            imageDAO.writeImage(imageData);
-                            // Replace the image uri by the indexed image ID
-                            iconTag.setValue(iconId);
+                            imageData.setId(UUID.randomUUID().toString());
+                            iconImport.imageData = imageData;
+                            // Saving the image (resized in every quality) while the next icons are read
+                            iconImport.future = executor.submit(new Runnable() {
+                                @Override
+                                public void run() {
+                                    imageDAO.writeImage(imageData);
+                                }
+                            });
+                            iconImports.add(iconImport);
                         } else {
-                            parsingResult
-                                    .getContext()
-                                    .getParsingErrors()
-                                    .add(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.INVALID_ICON_FORMAT, "Icon loading", null,
-                                            "Invalid icon format at path <" + iconPath + ">", null, iconPath.toString()));
+                            iconImport.addWarning(ErrorCode.INVALID_ICON_FORMAT, "Invalid icon format at path <");
                         }
                     } catch (NoSuchFileException | InvalidPathException e) {
-                        parsingResult
-                                .getContext()
-                                .getParsingErrors()
-                                .add(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.MISSING_FILE, "Icon loading", null, "No icon file found at path <"
-                                        + iconPath + ">", null, iconPath.toString()));
-                    } catch (ImageUploadException e) {
-                        parsingResult
-                                .getContext()
-                                .getParsingErrors()
-                                .add(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.INVALID_ICON_FORMAT, "Icon loading", null,
-                                        "Invalid icon format at path <" + iconPath + ">", null, iconPath.toString()));
+                        iconImport.addWarning(ErrorCode.MISSING_FILE, "No icon file found at path <");
                     } catch (IOException e) {
-                        parsingResult
-                                .getContext()
-                                .getParsingErrors()
-                                .add(new ParsingError(ParsingErrorLevel.WARNING, ErrorCode.FAILED_TO_READ_FILE, "Icon loading", null,
-                                        "IO error while loading icon at path <" + iconPath + ">", null, iconPath.toString()));
+                        iconImport.addWarning(ErrorCode.FAILED_TO_READ_FILE, "IO error while loading icon at path <");
                     }
                 }
             }
         }
     }
 
+    /**
+     * Import of the icon of an element.
+     */
+    private static class IconImport {
+        private final ParsingResult<ArchiveRoot> parsingResult;
+        private final IndexedInheritableToscaElement element;
+        private final Tag iconTag;
+        private ImageData imageData;
+        private ListenableFuture<?> future;
+
+        private IconImport(ParsingResult<ArchiveRoot> parsingResult, IndexedInheritableToscaElement element, Tag iconTag) {
+            this.parsingResult = parsingResult;
+            this.element = element;
+            this.iconTag = iconTag;
+        }
+
+        private void complete() {
+            // the icon file may change while its path doesn't
+            String contentHash = element.getContentHash();
+            if (contentHash != null) {
+                element.setContentHash(Hashing.sha1().newHasher().putString(contentHash, Charsets.UTF_8).putBytes(imageData.getData()).hash().toString());
+            }
+            // Replace the image uri by the indexed image ID
+            iconTag.setValue(imageData.getId());
+        }
+
+        private void addWarning(ErrorCode errorCode, String message) {
+            parsingResult
+                    .getContext()
+                    .getParsingErrors()
+                    .add(new ParsingError(ParsingErrorLevel.WARNING, errorCode, "Icon loading", null, message + iconTag.getValue() + ">", null, iconTag
+                            .getValue()));
+        }
+    }
+
     /**
      * Get the icon tag from a tag list.
      * 
@@ -1,16 +1,23 @@
 package alien4cloud.tosca;
 
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Resource;
 
 import org.springframework.stereotype.Component;
 
+import alien4cloud.model.components.IndexedArtifactType;
+import alien4cloud.model.components.IndexedCapabilityType;
 import alien4cloud.model.components.IndexedInheritableToscaElement;
-import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedRelationshipType;
 import alien4cloud.component.ICSARRepositoryIndexerService;
 import alien4cloud.tosca.model.ArchiveRoot;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
 @Component
 public class ArchiveIndexer {
     @Resource
@@ -23,54 +30,46 @@ public class ArchiveIndexer {
      * @param archiveVersion The version of the archive.
      * @param root The archive root.
      * @param update true if the archive is updated, false if the archive is just indexed.
+     * @return The number of elements of an updated archive that are unchanged and have not been indexed again.
      */
-    public void indexArchive(String archiveName, String archiveVersion, ArchiveRoot root, boolean update) {
+    public int indexArchive(String archiveName, String archiveVersion, ArchiveRoot root, boolean update) {
+        // elements of the local imports are indexed together with the root elements so parents are resolved in the whole archive
+        Map<String, IndexedArtifactType> artifactTypes = Maps.newHashMap();
+        Map<String, IndexedCapabilityType> capabilityTypes = Maps.newHashMap();
+        Map<String, IndexedNodeType> nodeTypes = Maps.newHashMap();
+        Map<String, IndexedRelationshipType> relationshipTypes = Maps.newHashMap();
+        collectElements(root, artifactTypes, capabilityTypes, nodeTypes, relationshipTypes);
+
+        List<Map<String, ? extends IndexedInheritableToscaElement>> archiveElements = Lists.newArrayList();
+        archiveElements.add(artifactTypes);
+        archiveElements.add(capabilityTypes);
+        archiveElements.add(nodeTypes);
+        archiveElements.add(relationshipTypes);
         if (update) {
-            // get element from the archive so we get the creation date.
-            Map<String, IndexedToscaElement> previousElements = indexerService.getArchiveElements(archiveName, archiveVersion);
-            prepareForUpdate(archiveName, archiveVersion, root, previousElements);
-            // delete all previous elements and their images
-            indexerService.deleteElements(previousElements.values());
+            // only the elements added or changed since the previous upload are indexed, the creation dates are kept.
+            return indexerService.updateArchiveElements(archiveName, archiveVersion, archiveElements, root.getArchive().getDependencies());
         }
-
-        performIndexing(archiveName, archiveVersion, root);
+        indexerService.indexArchiveElements(archiveName, archiveVersion, archiveElements, root.getArchive().getDependencies());
+        return 0;
     }
 
-    private void prepareForUpdate(String archiveName, String archiveVersion, ArchiveRoot root, Map<String, IndexedToscaElement> previousElements) {
-        updateCreationDates(root.getArtifactTypes(), previousElements);
-        updateCreationDates(root.getCapabilityTypes(), previousElements);
-        updateCreationDates(root.getNodeTypes(), previousElements);
-        updateCreationDates(root.getRelationshipTypes(), previousElements);
+    private void collectElements(ArchiveRoot root, Map<String, IndexedArtifactType> artifactTypes, Map<String, IndexedCapabilityType> capabilityTypes,
+            Map<String, IndexedNodeType> nodeTypes, Map<String, IndexedRelationshipType> relationshipTypes) {
+        putAll(artifactTypes, root.getArtifactTypes());
+        putAll(capabilityTypes, root.getCapabilityTypes());
+        putAll(nodeTypes, root.getNodeTypes());
+        putAll(relationshipTypes, root.getRelationshipTypes());
 
         if (root.getLocalImports() != null) {
             for (ArchiveRoot child : root.getLocalImports()) {
-                prepareForUpdate(archiveName, archiveVersion, child, previousElements);
-            }
-        }
-    }
-
-    private void updateCreationDates(Map<String, ? extends IndexedInheritableToscaElement> newElements, Map<String, IndexedToscaElement> previousElements) {
-        if(newElements == null) {
-            return;
-        }
-        for (IndexedInheritableToscaElement newElement : newElements.values()) {
-            IndexedToscaElement previousElement = previousElements.get(newElement.getId());
-            if (previousElement != null) {
-                newElement.setCreationDate(previousElement.getCreationDate());
+                collectElements(child, artifactTypes, capabilityTypes, nodeTypes, relationshipTypes);
             }
         }
     }
 
-    private void performIndexing(String archiveName, String archiveVersion, ArchiveRoot root) {
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getArtifactTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getCapabilityTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getNodeTypes(), root.getArchive().getDependencies());
-        indexerService.indexInheritableElements(archiveName, archiveVersion, root.getRelationshipTypes(), root.getArchive().getDependencies());
-
-        if (root.getLocalImports() != null) {
-            for (ArchiveRoot child : root.getLocalImports()) {
-                performIndexing(archiveName, archiveVersion, child);
-            }
+    private <T extends IndexedInheritableToscaElement> void putAll(Map<String, T> elements, Map<String, T> rootElements) {
+        if (rootElements != null) {
+            elements.putAll(rootElements);
         }
     }
-}
\ No newline at end of file
+}
@@ -7,7 +7,10 @@ import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.ProviderNotFoundException;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 import javax.validation.Validator;
@@ -17,6 +20,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import alien4cloud.tosca.model.ArchiveRoot;
+import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.Csar;
 import alien4cloud.tosca.model.ToscaMeta;
 import alien4cloud.tosca.parser.ParsingError;
@@ -28,6 +32,9 @@ import alien4cloud.tosca.parser.impl.ErrorCode;
 import alien4cloud.tosca.parser.impl.base.ValidatedNodeParser;
 import alien4cloud.tosca.parser.mapping.CsarMetaMapping;
 import alien4cloud.tosca.parser.mapping.ToscaMetaMapping;
+import alien4cloud.utils.YamlParserUtil;
+
+import com.google.common.collect.Sets;
 
 @Slf4j
 @Component
@@ -116,12 +123,16 @@ public class ArchiveParser {
     }
 
     private ParsingResult<ArchiveRoot> parseFromRootDefinitions(FileSystem csarFS) throws ParsingException {
+        return toscaParser.parseFile(getRootDefinitionFile(csarFS));
+    }
+
+    private Path getRootDefinitionFile(FileSystem csarFS) throws ParsingException {
         // load definitions from the archive root
         try {
             DefinitionVisitor visitor = new DefinitionVisitor(csarFS);
             Files.walkFileTree(csarFS.getPath(csarFS.getSeparator()), EnumSet.noneOf(FileVisitOption.class), 1, visitor);
             if (visitor.getDefinitionFiles().size() == 1) {
-                return toscaParser.parseFile(visitor.getDefinitionFiles().get(0));
+                return visitor.getDefinitionFiles().get(0);
             }
             throw new ParsingException("Archive", new ParsingError(ErrorCode.SINGLE_DEFINITION_SUPPORTED,
                     "Alien only supports archives with a single root definition.", null, null, null, String.valueOf(visitor.getDefinitionFiles().size())));
@@ -129,4 +140,81 @@ public class ArchiveParser {
             throw new ParsingException("Archive", new ParsingError(ErrorCode.FAILED_TO_READ_FILE, "Failed to list root definitions", null, null, null, null));
         }
     }
+
+    /**
+     * Read the name, version and dependencies of an archive without parsing its types and topology. The dependencies are the ones declared by the archive,
+     * they are not checked against the archives of the repository, so that the archives of a bulk import can be ordered before any of them is imported.
+     * 
+     * @param archiveFile The archive file.
+     * @return A csar with the name, version and declared dependencies of the archive.
+     * @throws ParsingException In case the meta-data or the definitions of the archive cannot be read.
+     */
+    public Csar parseHeader(Path archiveFile) throws ParsingException {
+        try (FileSystem csarFS = FileSystems.newFileSystem(archiveFile, null)) {
+            Csar csar = new Csar();
+            Set<CSARDependency> dependencies = Sets.newHashSet();
+            Path definitionFile;
+            if (Files.exists(csarFS.getPath(TOSCA_META_FILE_LOCATION))) {
+                YamlSimpleParser<ToscaMeta> parser = new YamlSimpleParser<ToscaMeta>(toscaMetaMapping.getParser());
+                ToscaMeta toscaMeta = parser.parseFile(csarFS.getPath(TOSCA_META_FILE_LOCATION)).getResult();
+                definitionFile = getEntryDefinitionFile(csarFS, toscaMeta, TOSCA_META_FILE_LOCATION);
+                csar.setName(toscaMeta.getName());
+                csar.setVersion(toscaMeta.getVersion());
+            } else if (Files.exists(csarFS.getPath(ALIEN_META_FILE_LOCATION))) {
+                YamlSimpleParser<ToscaMeta> parser = new YamlSimpleParser<ToscaMeta>(csarMetaMapping.getParser());
+                ToscaMeta toscaMeta = parser.parseFile(csarFS.getPath(ALIEN_META_FILE_LOCATION)).getResult();
+                if (toscaMeta.getEntryDefinitions() == null && toscaMeta.getDefinitions() != null && toscaMeta.getDefinitions().size() == 1) {
+                    toscaMeta.setEntryDefinitions(toscaMeta.getDefinitions().get(0));
+                }
+                definitionFile = getEntryDefinitionFile(csarFS, toscaMeta, ALIEN_META_FILE_LOCATION);
+                csar.setName(toscaMeta.getName());
+                csar.setVersion(toscaMeta.getVersion());
+                if (toscaMeta.getDependencies() != null) {
+                    dependencies.addAll(toscaMeta.getDependencies());
+                }
+            } else {
+                definitionFile = getRootDefinitionFile(csarFS);
+            }
+
+            Map<?, ?> definitions = YamlParserUtil.parseFromUTF8File(definitionFile, Map.class);
+            if (definitions == null) {
+                // empty definition file
+                throw new ParsingException(definitionFile.toString(), new ParsingError(ErrorCode.MISSING_TOSCA_VERSION,
+                        "File is not a valid tosca definition file.", null, null, null, null));
+            }
+            if (csar.getName() == null) {
+                csar.setName(toString(definitions.get("template_name")));
+                csar.setVersion(toString(definitions.get("template_version")));
+            }
+            if (definitions.get("imports") instanceof Collection) {
+                for (Object importDefinition : (Collection<?>) definitions.get("imports")) {
+                    String[] dependencyStrs = String.valueOf(importDefinition).split(":");
+                    if (dependencyStrs.length == 2) {
+                        dependencies.add(new CSARDependency(dependencyStrs[0].trim(), dependencyStrs[1].trim()));
+                    }
+                }
+            }
+            csar.setDependencies(dependencies);
+            return csar;
+        } catch (IOException e) {
+            log.error("Unable to read archive [" + archiveFile + "]", e);
+            throw new ParsingException("Archive", new ParsingError(ErrorCode.FAILED_TO_READ_FILE, "Problem happened while accessing file", null, null, null,
+                    archiveFile.toString()));
+        } catch (ProviderNotFoundException e) {
+            throw new ParsingException("Archive", new ParsingError(ErrorCode.ERRONEOUS_ARCHIVE_FILE, "File is not in good format, only zip file is supported ",
+                    null, e.getMessage(), null, null));
+        }
+    }
+
+    private Path getEntryDefinitionFile(FileSystem csarFS, ToscaMeta toscaMeta, String metaFileName) throws ParsingException {
+        if (toscaMeta != null && toscaMeta.getEntryDefinitions() != null) {
+            return csarFS.getPath(toscaMeta.getEntryDefinitions());
+        }
+        throw new ParsingException(metaFileName, new ParsingError(ErrorCode.ENTRY_DEFINITION_NOT_FOUND, "No entry definitions found in the meta file.", null,
+                null, null, null));
+    }
+
+    private static String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
 }
\ No newline at end of file
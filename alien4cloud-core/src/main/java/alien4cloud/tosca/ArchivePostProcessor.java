@@ -1,10 +1,17 @@
 package alien4cloud.tosca;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+
+import lombok.SneakyThrows;
 
 import org.springframework.stereotype.Component;
 
+import alien4cloud.dao.ElasticSearchDAO;
+import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.IndexedArtifactToscaElement;
 import alien4cloud.model.components.IndexedInheritableToscaElement;
 import alien4cloud.tosca.model.ArchiveRoot;
@@ -15,10 +22,20 @@ import alien4cloud.tosca.parser.ParsingError;
 import alien4cloud.tosca.parser.ParsingResult;
 import alien4cloud.tosca.parser.impl.ErrorCode;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 
 @Component
 public class ArchivePostProcessor {
+    /** Serializes the elements as stored, with sorted map entries so that equal elements have the same hash. */
+    private static final ObjectMapper HASH_MAPPER = new ElasticSearchDAO.ElasticSearchMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS,
+            true);
+
     /**
      * Post process the archive: For every definition of the model it fills the id fields in the TOSCA elements from the key of the elements map.
      * 
@@ -31,24 +48,56 @@ public class ArchivePostProcessor {
     @SuppressWarnings("unchecked")
     private void doPostProcess(ParsingResult<ArchiveRoot> parsedArchive) {
         Map<String, String> globalElementsMap = Maps.newHashMap();
+        String dependenciesKey = getDependenciesKey(parsedArchive.getResult().getArchive().getDependencies());
         postProcessArchive(parsedArchive.getResult().getArchive().getName(), parsedArchive.getResult().getArchive().getVersion(), parsedArchive,
-                globalElementsMap);
+                globalElementsMap, dependenciesKey);
         for (ParsingResult<?> subParsingResult : parsedArchive.getContext().getSubResults()) {
             if (subParsingResult.getResult() instanceof ArchiveRoot) {
                 postProcessArchive(parsedArchive.getResult().getArchive().getName(), parsedArchive.getResult().getArchive().getVersion(),
-                        (ParsingResult<ArchiveRoot>) subParsingResult, globalElementsMap);
+                        (ParsingResult<ArchiveRoot>) subParsingResult, globalElementsMap, dependenciesKey);
             }
         }
     }
 
     private final void postProcessArchive(String archiveName, String archiveVersion, ParsingResult<ArchiveRoot> parsedArchive,
-            Map<String, String> globalElementsMap) {
+            Map<String, String> globalElementsMap, String dependenciesKey) {
         postProcessElements(archiveName, archiveVersion, parsedArchive, parsedArchive.getResult().getNodeTypes(), globalElementsMap);
         postProcessIndexedArtifactToscaElement(parsedArchive.getResult(), parsedArchive.getResult().getNodeTypes());
         postProcessElements(archiveName, archiveVersion, parsedArchive, parsedArchive.getResult().getRelationshipTypes(), globalElementsMap);
         postProcessIndexedArtifactToscaElement(parsedArchive.getResult(), parsedArchive.getResult().getRelationshipTypes());
         postProcessElements(archiveName, archiveVersion, parsedArchive, parsedArchive.getResult().getCapabilityTypes(), globalElementsMap);
         postProcessElements(archiveName, archiveVersion, parsedArchive, parsedArchive.getResult().getArtifactTypes(), globalElementsMap);
+
+        computeContentHashes(parsedArchive.getResult().getNodeTypes(), dependenciesKey);
+        computeContentHashes(parsedArchive.getResult().getRelationshipTypes(), dependenciesKey);
+        computeContentHashes(parsedArchive.getResult().getCapabilityTypes(), dependenciesKey);
+        computeContentHashes(parsedArchive.getResult().getArtifactTypes(), dependenciesKey);
+    }
+
+    /**
+     * Compute the content hash of the elements from their definition and the dependencies of the archive (from which they inherit).
+     */
+    @SneakyThrows({ IOException.class })
+    private void computeContentHashes(Map<String, ? extends IndexedInheritableToscaElement> elements, String dependenciesKey) {
+        if (elements == null) {
+            return;
+        }
+        for (IndexedInheritableToscaElement element : elements.values()) {
+            element.setContentHash(null);
+            element.setContentHash(Hashing.sha1().newHasher().putBytes(HASH_MAPPER.writeValueAsBytes(element)).putString(dependenciesKey, Charsets.UTF_8)
+                    .hash().toString());
+        }
+    }
+
+    private String getDependenciesKey(Collection<CSARDependency> dependencies) {
+        if (dependencies == null) {
+            return "";
+        }
+        Set<String> sortedDependencies = Sets.newTreeSet();
+        for (CSARDependency dependency : dependencies) {
+            sortedDependencies.add(dependency.getName() + ":" + dependency.getVersion());
+        }
+        return Joiner.on(',').join(sortedDependencies);
     }
 
     private final void postProcessElements(String archiveName, String archiveVersion, ParsingResult<ArchiveRoot> parsedArchive,
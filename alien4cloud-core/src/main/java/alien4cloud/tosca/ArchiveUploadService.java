@@ -1,14 +1,28 @@
 package alien4cloud.tosca;
 
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import alien4cloud.component.ICSARRepositoryIndexerService;
 import alien4cloud.component.repository.ICsarRepositry;
 import alien4cloud.component.repository.exception.CSARVersionAlreadyExistsException;
 import alien4cloud.csar.services.CsarService;
+import alien4cloud.images.IImageDAO;
 import alien4cloud.model.components.Csar;
 import alien4cloud.security.AuthorizationUtil;
 import alien4cloud.security.Role;
@@ -22,8 +36,25 @@ import alien4cloud.tosca.parser.ParsingResult;
 import alien4cloud.tosca.parser.impl.ErrorCode;
 import alien4cloud.utils.VersionUtil;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Uploads TOSCA archives. Once an archive is parsed and saved, the archive file is stored in the repository while its images are imported and its elements
+ * indexed. If one of these stages fails, the data of a new archive is removed.
+ *
+ * The duration of every stage is recorded in a timer named <code>alien4cloud.tosca.ArchiveUploadService.stage.[stage]</code>.
+ */
+@Slf4j
 @Component
 public class ArchiveUploadService {
+    /** Maximum number of upload tasks waiting for a thread, further tasks are executed by the uploading thread. */
+    private static final int UPLOAD_QUEUE_SIZE = 100;
 
     @Resource
     private ArchiveParser parser;
@@ -38,7 +69,33 @@ public class ArchiveUploadService {
     @Resource
     private ArchiveIndexer archiveIndexer;
     @Resource
+    private ICSARRepositoryIndexerService indexerService;
+    @Resource
+    private IImageDAO imageDAO;
+    @Resource
     private TopologyServiceCore topologyServiceCore;
+    @Autowired(required = false)
+    private MetricRegistry metricRegistry;
+    @Value("${archive.upload_pool_size:4}")
+    private int uploadPoolSize;
+    /** Runs the archive storage and the image resizing of the uploads. */
+    private ListeningExecutorService uploadExecutor;
+
+    @PostConstruct
+    public void initUploadExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(uploadPoolSize, uploadPoolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(
+                UPLOAD_QUEUE_SIZE), new ThreadFactoryBuilder().setNameFormat("archive-upload-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        uploadExecutor = MoreExecutors.listeningDecorator(executor);
+    }
+
+    @PreDestroy
+    public void shutdownUploadExecutor() {
+        if (uploadExecutor != null) {
+            uploadExecutor.shutdown();
+        }
+    }
 
     /**
      * Upload a TOSCA archive and index it's components.
@@ -50,10 +107,13 @@ public class ArchiveUploadService {
      */
     public ParsingResult<Csar> upload(Path path) throws ParsingException, CSARVersionAlreadyExistsException {
         // TODO issue tolerance should depends of the version (SNAPSHOT) ?
+        long uploadStart = System.nanoTime();
 
         // parse the archive.
         ParsingResult<ArchiveRoot> parsingResult = parser.parse(path);
+        long stageStart = recordStage("parse", uploadStart);
         postProcessor.postProcess(parsingResult);
+        stageStart = recordStage("post_process", stageStart);
 
         String archiveName = parsingResult.getResult().getArchive().getName();
         String archiveVersion = parsingResult.getResult().getArchive().getVersion();
@@ -90,13 +150,18 @@ public class ArchiveUploadService {
 
         // save the archive (before we index and save other data so we can cleanup if anything goes wrong).
         csarService.save(parsingResult.getResult().getArchive());
-        // save the archive in the repository
-        archiveRepositry.storeCSAR(archiveName, archiveVersion, path);
-        // manage images before archive storage in the repository
-        imageLoader.importImages(path, parsingResult);
-        // index the archive content in elastic-search
-        archiveIndexer.indexArchive(archiveName, archiveVersion, parsingResult.getResult(), archive != null);
-        
+        stageStart = recordStage("save", stageStart);
+        // store the archive, import its images and index its content
+        int unchangedElements = storeAndIndex(path, parsingResult, archive != null);
+        stageStart = System.nanoTime();
+        if (unchangedElements > 0) {
+            simpleResult
+                    .getContext()
+                    .getParsingErrors()
+                    .add(new ParsingError(ParsingErrorLevel.INFO, ErrorCode.UNCHANGED_ELEMENTS, "", null, unchangedElements
+                            + " elements are unchanged since the previous upload and have not been re-indexed", null, String.valueOf(unchangedElements)));
+        }
+
         // if a topology has been added we want to notify the user
         if (parsingResult.getResult().getTopology() != null) {
             String topologyTemplateName = topologyServiceCore.ensureNameUnicity(archiveName + "-" + archiveVersion, 0);
@@ -108,11 +173,104 @@ public class ArchiveUploadService {
 
             topologyServiceCore.createTopologyTemplate(parsingResult.getResult().getTopology(), topologyTemplateName, parsingResult.getResult()
                     .getTopologyTemplateDescription());
+            recordStage("topology", stageStart);
         }
 
+        recordStage("total", uploadStart);
         return simpleResult;
     }
 
+    /**
+     * Store the archive in the repository, import its images and index its content. The archive file is stored on the upload executor while the images are
+     * imported then the elements (which reference the images) indexed.
+     * 
+     * @return The number of elements unchanged since the previous upload of the archive.
+     */
+    private int storeAndIndex(final Path path, ParsingResult<ArchiveRoot> parsingResult, boolean update) throws CSARVersionAlreadyExistsException {
+        final String archiveName = parsingResult.getResult().getArchive().getName();
+        final String archiveVersion = parsingResult.getResult().getArchive().getVersion();
+        ListenableFuture<Void> storage = uploadExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws CSARVersionAlreadyExistsException {
+                long stageStart = System.nanoTime();
+                archiveRepositry.storeCSAR(archiveName, archiveVersion, path);
+                recordStage("store", stageStart);
+                return null;
+            }
+        });
+
+        List<String> imageIds = null;
+        boolean indexing = false;
+        try {
+            long stageStart = System.nanoTime();
+            // manage images before archive indexing as elements reference the imported images
+            imageIds = imageLoader.importImages(path, parsingResult, uploadExecutor);
+            stageStart = recordStage("images", stageStart);
+            // index the archive content in elastic-search
+            indexing = true;
+            int unchangedElements = archiveIndexer.indexArchive(archiveName, archiveVersion, parsingResult.getResult(), update);
+            recordStage("index", stageStart);
+            getStorageResult(storage);
+            return unchangedElements;
+        } catch (CSARVersionAlreadyExistsException | RuntimeException | Error e) {
+            cleanup(parsingResult.getResult().getArchive(), update, storage, imageIds, indexing);
+            throw e;
+        }
+    }
+
+    private void getStorageResult(ListenableFuture<Void> storage) throws CSARVersionAlreadyExistsException {
+        try {
+            Uninterruptibles.getUninterruptibly(storage);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), CSARVersionAlreadyExistsException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Remove the data of an archive which upload failed. The previous content of an updated SNAPSHOT archive cannot be restored, only the images that are not
+     * referenced yet are removed.
+     */
+    private void cleanup(Csar archive, boolean update, ListenableFuture<Void> storage, List<String> imageIds, boolean indexing) {
+        // wait for the storage so the archive files are not written after the cleanup
+        try {
+            getStorageResult(storage);
+        } catch (CSARVersionAlreadyExistsException | RuntimeException e) {
+            log.debug("Failed to store archive <" + archive.getId() + ">", e);
+        }
+        try {
+            if (imageIds != null && !(update && indexing)) {
+                for (String imageId : imageIds) {
+                    imageDAO.delete(imageId);
+                }
+            }
+            if (update) {
+                log.error("Failed to upload archive <{}>, the content of the SNAPSHOT archive may be partially updated", archive.getId());
+                return;
+            }
+            indexerService.deleteElements(archive.getName(), archive.getVersion());
+            csarService.delete(archive);
+            archiveRepositry.removeCSAR(archive.getName(), archive.getVersion());
+        } catch (RuntimeException e) {
+            log.error("Failed to cleanup archive <" + archive.getId() + "> after a failed upload", e);
+        }
+    }
+
+    /**
+     * Record the duration of an upload stage.
+     * 
+     * @param stage The name of the stage.
+     * @param stageStart The start of the stage as returned by {@link System#nanoTime()}.
+     * @return The end of the stage.
+     */
+    private long recordStage(String stage, long stageStart) {
+        long stageEnd = System.nanoTime();
+        if (metricRegistry != null) {
+            metricRegistry.timer(MetricRegistry.name(ArchiveUploadService.class, "stage", stage)).update(stageEnd - stageStart, TimeUnit.NANOSECONDS);
+        }
+        return stageEnd;
+    }
+
     /**
      * Create a simple result without all the parsed data but just the {@link Csar} object as well as the eventual errors.
      * 
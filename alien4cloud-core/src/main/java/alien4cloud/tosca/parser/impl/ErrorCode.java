@@ -44,6 +44,16 @@ public enum ErrorCode {
     UNKNOWN_IMPLEMENTATION_ARTIFACT,
     /** A topology has been detected. */
     TOPOLOGY_DETECTED,
+    /** Elements of an archive uploaded again are unchanged and have not been re-indexed. */
+    UNCHANGED_ELEMENTS,
+    /** Multiple archives of a bulk import have the same name and version. */
+    DUPLICATED_ARCHIVE,
+    /** Archives of a bulk import depend on each other. */
+    CYCLIC_DEPENDENCY,
+    /** A dependency of an archive of a bulk import failed to be imported. */
+    DEPENDENCY_IMPORT_FAILED,
+    /** The import of an archive of a bulk import failed unexpectedly. */
+    ARCHIVE_IMPORT_FAILED,
     YAML_SEQUENCE_EXPECTED,
     YAML_MAPPING_NODE_EXPECTED,
     REQUIREMENT_TARGET_NODE_TEMPLATE_NAME_REQUIRED,
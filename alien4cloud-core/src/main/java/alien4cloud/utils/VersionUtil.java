@@ -3,8 +3,12 @@ package alien4cloud.utils;
 import java.util.regex.Pattern;
 
 import alien4cloud.utils.version.ApplicationVersionException;
+import alien4cloud.utils.version.ComparableVersion;
 import alien4cloud.utils.version.Version;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 public final class VersionUtil {
 
     /** Utility class should not have public constructor. */
@@ -17,6 +21,13 @@ public final class VersionUtil {
      */
     public static final Pattern VERSION_PATTERN = Pattern.compile("\\d+(?:\\.\\d+)*(?:[\\.-]\\p{Alnum}+)*");
     private static final String SNAPSHOT_IDENTIFIER = "SNAPSHOT";
+    /** Maximum number of parsed versions kept in memory. */
+    private static final int PARSED_VERSIONS_CACHE_SIZE = 10000;
+    /**
+     * Versions are compared a lot (in sort comparators) while there are few distinct versions, the parsing of a version is cached. The parsed versions are
+     * never returned so callers can't modify them.
+     */
+    private static final Cache<String, ParsedVersion> PARSED_VERSIONS = CacheBuilder.newBuilder().maximumSize(PARSED_VERSIONS_CACHE_SIZE).build();
 
     /**
      * Check if a version is a SNAPSHOT (development) version.
@@ -39,18 +50,29 @@ public final class VersionUtil {
     }
 
     /**
-     * Parse the version's text to produce a comparable version object
+     * Parse the version's text to produce a comparable version object.
      * 
      * @param version version text to parse
-     * @return a comparable version object
+     * @return a new comparable version object
      * @throws ApplicationVersionException if the version text is not following the defined version pattern
      */
     public static Version parseVersion(String version) {
-        if (!isValid(version)) {
-            throw new ApplicationVersionException("This version is not valid [" + version + "] as it does not match [" + VERSION_PATTERN + "]");
-        } else {
-            return new Version(version);
+        getValidParsedVersion(version);
+        return new Version(version);
+    }
+
+    /**
+     * Get a key of a version that can be compared as a string, used to sort versions in elastic search.
+     * 
+     * @param version The version text.
+     * @return A key that compares as strings like the versions compare with {@link #compare(String, String)}, null if the version is null.
+     */
+    public static String getSortKey(String version) {
+        if (version == null) {
+            return null;
         }
+        // keys are also computed for versions that doesn't match the pattern (old elements)
+        return getParsedVersion(version).sortKey;
     }
 
     /**
@@ -61,6 +83,36 @@ public final class VersionUtil {
      * @return
      */
     public static int compare(String versionLeft, String versionRight) {
-        return parseVersion(versionLeft).compareTo(parseVersion(versionRight));
+        return getValidParsedVersion(versionLeft).comparable.compareTo(getValidParsedVersion(versionRight).comparable);
+    }
+
+    private static ParsedVersion getValidParsedVersion(String version) {
+        ParsedVersion parsedVersion = getParsedVersion(version);
+        if (!parsedVersion.valid) {
+            throw new ApplicationVersionException("This version is not valid [" + version + "] as it does not match [" + VERSION_PATTERN + "]");
+        }
+        return parsedVersion;
+    }
+
+    private static ParsedVersion getParsedVersion(String version) {
+        ParsedVersion parsedVersion = PARSED_VERSIONS.getIfPresent(version);
+        if (parsedVersion == null) {
+            parsedVersion = new ParsedVersion(version);
+            PARSED_VERSIONS.put(version, parsedVersion);
+        }
+        return parsedVersion;
+    }
+
+    /** Cached parsing of a version, the comparable version is never modified. */
+    private static final class ParsedVersion {
+        private final boolean valid;
+        private final ComparableVersion comparable;
+        private final String sortKey;
+
+        private ParsedVersion(String version) {
+            this.valid = isValid(version);
+            this.comparable = new ComparableVersion(version);
+            this.sortKey = comparable.getSortKey();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package alien4cloud.component;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.IndexedNodeType;
+
+public class ResolvedTypeCacheTest {
+    private static final List<CSARDependency> DEPENDENCIES = Arrays.asList(new CSARDependency("tosca-normative-types", "1.0.0"), new CSARDependency(
+            "apache", "2.0.0"));
+    private static final List<CSARDependency> REORDERED_DEPENDENCIES = Arrays.asList(DEPENDENCIES.get(1), DEPENDENCIES.get(0));
+
+    private ResolvedTypeCache cache;
+
+    @Before
+    public void init() {
+        cache = new ResolvedTypeCache();
+        ReflectionTestUtils.setField(cache, "maximumSize", 10L);
+        ReflectionTestUtils.setField(cache, "expireAfterWriteSeconds", 60L);
+        cache.init();
+    }
+
+    @Test
+    public void resolvedElementsAreCachedByDependencySet() {
+        cache.put(IndexedNodeType.class, "tosca.nodes.WebServer", DEPENDENCIES, nodeType("tosca.nodes.WebServer", "1.0.0"), cache.generation());
+
+        IndexedNodeType cached = cache.get(IndexedNodeType.class, "tosca.nodes.WebServer", REORDERED_DEPENDENCIES);
+        Assert.assertNotNull(cached);
+        Assert.assertEquals("1.0.0", cached.getArchiveVersion());
+        // callers get their own instance
+        Assert.assertNotSame(cached, cache.get(IndexedNodeType.class, "tosca.nodes.WebServer", DEPENDENCIES));
+        Assert.assertNull(cache.get(IndexedNodeType.class, "tosca.nodes.WebServer", DEPENDENCIES.subList(0, 1)));
+    }
+
+    @Test
+    public void elementsResolvedBeforeAnInvalidationAreNotCached() {
+        long generation = cache.generation();
+        cache.invalidateAll();
+        cache.put(IndexedNodeType.class, "tosca.nodes.WebServer", DEPENDENCIES, nodeType("tosca.nodes.WebServer", "1.0.0"), generation);
+        Assert.assertNull(cache.get(IndexedNodeType.class, "tosca.nodes.WebServer", DEPENDENCIES));
+    }
+
+    private IndexedNodeType nodeType(String elementId, String archiveVersion) {
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setElementId(elementId);
+        nodeType.setArchiveName("tosca-normative-types");
+        nodeType.setArchiveVersion(archiveVersion);
+        return nodeType;
+    }
+}
@@ -0,0 +1,116 @@
+package alien4cloud.component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import alien4cloud.dao.InMemorySearchDAO;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.ToscaElementVersions;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class ToscaElementVersionServiceTest {
+    private InMemorySearchDAO dao;
+    private ToscaElementVersionService versionService;
+
+    @Before
+    public void init() {
+        dao = new InMemorySearchDAO();
+        dao.initIndices("toscaelement", IndexedNodeType.class);
+        dao.initIndices("toscaelementversions", ToscaElementVersions.class);
+        versionService = new ToscaElementVersionService();
+        ReflectionTestUtils.setField(versionService, "alienDAO", dao);
+    }
+
+    @Test
+    public void highestVersionIsCommittedWhenVersionsAreAdded() {
+        Assert.assertEquals("1.0", highestVersion(addVersion(nodeType("1.0")), 1));
+        Assert.assertEquals("3.0", highestVersion(addVersion(nodeType("3.0")), 2));
+        Assert.assertEquals("3.0", highestVersion(addVersion(nodeType("2.0")), 3));
+        // re-indexing a version doesn't change the registry
+        Assert.assertEquals("3.0", highestVersion(addVersion(nodeType("2.0")), 3));
+    }
+
+    @Test
+    public void registriesModifiedConcurrentlyAreReadAgain() {
+        addVersion(nodeType("1.0"));
+        List<IndexedNodeType> elements = Lists.newArrayList(nodeType("3.0"));
+        Map<String, Versioned<ToscaElementVersions>> registries = versionService.getRegistries(elements);
+        addVersion(nodeType("2.0"));
+
+        Map<String, Versioned<ToscaElementVersions>> committed = versionService.addVersions(elements, registries);
+        Assert.assertEquals(Sets.newHashSet("1.0", "2.0", "3.0"), committed.get(ToscaElementVersions.key(nodeType("3.0"))).getData().getVersions());
+        Assert.assertEquals("3.0", highestVersion(committed, 3));
+    }
+
+    @Test
+    public void highestRemainingVersionIsReturnedWhenVersionsAreRemoved() {
+        addVersion(nodeType("1.0"));
+        addVersion(nodeType("2.0-SNAPSHOT"));
+        addVersion(nodeType("2.0"));
+        Assert.assertEquals("2.0-SNAPSHOT", versionService.removeVersion(nodeType("2.0")));
+        Assert.assertEquals("1.0", versionService.removeVersion(nodeType("2.0-SNAPSHOT")));
+        Assert.assertNull(versionService.removeVersion(nodeType("1.0")));
+        Assert.assertNull(versionService.removeVersion(nodeType("1.0")));
+    }
+
+    @Test
+    public void olderVersionsAreDerivedFromTheRegistry() {
+        addVersion(nodeType("1.0"));
+        addVersion(nodeType("2.0"));
+        addVersion(nodeType("3.0"));
+        IndexedNodeType highest = nodeType("3.0");
+        IndexedNodeType middle = nodeType("2.0");
+        IndexedNodeType other = nodeType("1.0");
+        other.setElementId("tosca.nodes.Other");
+        versionService.fillOlderVersions(new Object[] { highest, middle, other });
+        Assert.assertEquals(Sets.newHashSet("1.0", "2.0"), highest.getOlderVersions());
+        Assert.assertEquals(Sets.newHashSet("1.0"), middle.getOlderVersions());
+        Assert.assertNull(other.getOlderVersions());
+    }
+
+    @Test
+    public void initializationMergesTheIndexedVersionsIntoTheRegistriesOnce() {
+        dao.save(nodeType("1.0"));
+        dao.save(nodeType("2.0"));
+        // a registry created before an interrupted initialization
+        addVersion(nodeType("3.0"));
+        versionService.initVersions();
+        Set<String> versions = dao.findById(ToscaElementVersions.class, ToscaElementVersions.key(nodeType("1.0"))).getVersions();
+        Assert.assertEquals(Sets.newHashSet("1.0", "2.0", "3.0"), versions);
+
+        // once completed the initialization is not run again
+        IndexedNodeType other = nodeType("1.0");
+        other.setElementId("tosca.nodes.Other");
+        dao.save(other);
+        versionService.initVersions();
+        Assert.assertNull(dao.findById(ToscaElementVersions.class, ToscaElementVersions.key(other)));
+    }
+
+    private Map<String, Versioned<ToscaElementVersions>> addVersion(IndexedNodeType element) {
+        List<IndexedNodeType> elements = Lists.newArrayList(element);
+        return versionService.addVersions(elements, versionService.getRegistries(elements));
+    }
+
+    private String highestVersion(Map<String, Versioned<ToscaElementVersions>> committed, int versionCount) {
+        Set<String> versions = committed.get(ToscaElementVersions.key(nodeType("1.0"))).getData().getVersions();
+        Assert.assertEquals(versionCount, versions.size());
+        return versionService.getHighestVersion(versions);
+    }
+
+    private IndexedNodeType nodeType(String archiveVersion) {
+        IndexedNodeType nodeType = new IndexedNodeType();
+        nodeType.setElementId("tosca.nodes.WebServer");
+        nodeType.setArchiveName("tosca-base-types");
+        nodeType.setArchiveVersion(archiveVersion);
+        return nodeType;
+    }
+}
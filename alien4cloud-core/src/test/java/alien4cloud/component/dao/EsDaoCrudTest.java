@@ -6,6 +6,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.springframework.util.Assert.isNull;
 import static org.springframework.util.Assert.isTrue;
 
@@ -29,8 +30,10 @@ import org.elasticsearch.action.admin.indices.exists.types.TypesExistsRequest;
 import org.elasticsearch.action.admin.indices.exists.types.TypesExistsResponse;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.mapping.ElasticSearchClient;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -41,9 +44,15 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import alien4cloud.model.components.IndexedNodeType;
 import alien4cloud.model.components.IndexedToscaElement;
 import alien4cloud.model.common.Tag;
+import alien4cloud.dao.ESGenericIdDAO;
 import alien4cloud.dao.ElasticSearchDAO;
+import alien4cloud.dao.IGenericAsyncSearchDAO;
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.dao.model.FetchContext;
+import alien4cloud.dao.model.ICloseableIterator;
+import alien4cloud.dao.model.MultiGetResult;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.exception.DocumentVersionConflictException;
 import alien4cloud.exception.IndexingServiceException;
 import alien4cloud.model.application.Application;
 import alien4cloud.rest.utils.JsonUtil;
@@ -56,6 +65,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration("classpath:application-context-test.xml")
@@ -73,6 +83,10 @@ public class EsDaoCrudTest {
     private Client nodeClient;
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO dao;
+    @Resource(name = "alien-es-dao")
+    private IGenericAsyncSearchDAO asyncDao;
+    @Resource(name = "alien-es-dao")
+    private ElasticSearchDAO esDao;
 
     private IndexedNodeType indexedNodeTypeTest = null;
 
@@ -163,6 +177,115 @@ public class EsDaoCrudTest {
 
     }
 
+    @Test
+    public void findByIdAsyncTest() throws IndexingServiceException, JsonProcessingException, InterruptedException, ExecutionException {
+        saveDataToES(indexedNodeTypeTest);
+
+        ListenableFuture<IndexedNodeType> existing = asyncDao.findByIdAsync(IndexedNodeType.class, indexedNodeTypeTest.getId());
+        ListenableFuture<IndexedNodeType> missing = asyncDao.findByIdAsync(IndexedNodeType.class, "5");
+        ListenableFuture<List<IndexedNodeType>> multiple = asyncDao.findByIdsAsync(IndexedNodeType.class, indexedNodeTypeTest.getId(), "5");
+        ListenableFuture<Long> count = asyncDao.countAsync(IndexedNodeType.class, (QueryBuilder) null);
+
+        assertBeanEqualsToOriginal(existing.get());
+        assertNull(missing.get());
+        assertEquals(1, multiple.get().size());
+        assertBeanEqualsToOriginal(multiple.get().get(0));
+        assertEquals(1L, count.get().longValue());
+    }
+
+    @Test
+    public void findByIdsAsyncChunksTest() throws InterruptedException, ExecutionException {
+        // more ids than the size of a multi-get request so that several requests are sent
+        int size = ESGenericIdDAO.MULTI_GET_CHUNK_SIZE + 10;
+        Application[] applications = new Application[size];
+        String[] ids = new String[size + 1];
+        for (int i = 0; i < size; i++) {
+            applications[i] = new Application();
+            applications[i].setId("chunk-" + i);
+            applications[i].setName("chunk-app-" + i);
+            ids[i] = applications[i].getId();
+        }
+        ids[size] = "missing";
+        dao.save(applications);
+
+        List<Application> found = asyncDao.findByIdsAsync(Application.class, ids).get();
+        assertEquals(size, found.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(ids[i], found.get(i).getId());
+        }
+    }
+
+    @Test
+    public void scrollTest() {
+        saveApplications();
+
+        // page size lower than the number of results to force several scroll requests
+        List<String> names = Lists.newArrayList();
+        try (ICloseableIterator<Application> iterator = dao.scroll(Application.class, null, SortBuilders.fieldSort("name"), 2)) {
+            while (iterator.hasNext()) {
+                names.add(iterator.next().getName());
+            }
+            assertFalse(iterator.hasNext());
+        }
+        assertEquals(Lists.newArrayList("app1", "app2", "app3"), names);
+
+        int count = 0;
+        try (ICloseableIterator<Application> iterator = dao.scroll(Application.class, QueryBuilders.termQuery("name", "app2"), 1)) {
+            while (iterator.hasNext()) {
+                assertEquals("app2", iterator.next().getName());
+                count++;
+            }
+        }
+        assertEquals(1, count);
+
+        assertEquals(3, dao.customFindAll(Application.class, null).size());
+        assertNull(dao.customFindAll(Application.class, QueryBuilders.termQuery("name", "unknown")));
+    }
+
+    @Test
+    public void multiGetTest() {
+        saveApplications();
+
+        MultiGetResult<Application> result = dao.multiGet(Application.class, FetchContext.DEPLOYMENT, "3", "8", "1", "2", "9");
+        List<String> names = Lists.newArrayList();
+        for (Application application : result.getData()) {
+            names.add(application.getName());
+            assertNull(application.getDescription());
+        }
+        assertEquals(Lists.newArrayList("app3", "app1", "app2"), names);
+        assertEquals(Lists.newArrayList("8", "9"), result.getMissingIds());
+
+        result = dao.multiGet(Application.class, null, "2");
+        assertEquals(1, result.getData().size());
+        assertEquals("this is app2", result.getData().get(0).getDescription());
+        assertTrue(result.getMissingIds().isEmpty());
+
+        assertTrue(dao.multiGet(Application.class, null).getData().isEmpty());
+    }
+
+    @Test
+    public void saveIfVersionTest() {
+        saveApplications();
+
+        Versioned<Application> versioned = dao.findByIdWithVersion(Application.class, "1");
+        assertEquals("app1", versioned.getData().getName());
+        versioned.getData().setName("app1-renamed");
+        long newVersion = dao.saveIfVersion(versioned.getData(), versioned.getVersion());
+        assertTrue(newVersion > versioned.getVersion());
+        assertEquals("app1-renamed", dao.findById(Application.class, "1").getName());
+
+        // the document has been modified since the version read
+        versioned.getData().setName("app1-lost");
+        try {
+            dao.saveIfVersion(versioned.getData(), versioned.getVersion());
+            fail("A version conflict was expected");
+        } catch (DocumentVersionConflictException e) {
+            assertEquals("app1-renamed", dao.findById(Application.class, "1").getName());
+        }
+
+        assertNull(dao.findByIdWithVersion(Application.class, "8"));
+    }
+
     private void saveApplications() {
         Application app = new Application();
         app.setId("1");
@@ -296,6 +419,18 @@ public class EsDaoCrudTest {
         nodeClient.prepareDeleteByQuery(indexName).setQuery(QueryBuilders.matchAllQuery()).setTypes(typeName).execute().actionGet();
     }
 
+    @Test
+    public void typeResolutionTest() {
+        assertEquals(ElasticSearchDAO.TOSCA_ELEMENT_INDEX, esDao.getIndexForType(IndexedNodeType.class));
+        assertEquals(ElasticSearchDAO.TOSCA_ELEMENT_INDEX, esDao.getIndexForType(IndexedToscaElement.class));
+        assertEquals(APPLICATION_INDEX, esDao.getIndexForType(Application.class));
+        assertArrayEquals(new String[] { "indexednodetype" }, esDao.getTypesFromClass(IndexedNodeType.class));
+        List<String> toscaTypes = Arrays.asList(esDao.getTypesFromClass(IndexedToscaElement.class));
+        assertTrue(toscaTypes.containsAll(Arrays.asList("indexednodetype", "indexedrelationshiptype", "indexedcapabilitytype",
+                "indexedartifacttype")));
+        assertFalse(toscaTypes.contains("application"));
+    }
+
     @After
     public void cleanup() throws InterruptedException {
         clearIndex(ElasticSearchDAO.TOSCA_ELEMENT_INDEX, IndexedNodeType.class);
@@ -0,0 +1,126 @@
+package alien4cloud.dao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the latency of a component search scored by the function score script ({@link ESGenericSearchDAO#SCORE_SCRIPT}, previous implementation),
+ * by a native field value factor function ({@link FieldScoringStrategy}) and by the order on the indexed boost field.
+ *
+ * Run the main method from the test classpath, a local elastic search node is started with a catalog of the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ComponentScoringBenchmark {
+    private static final String INDEX = "scoringbenchmark";
+    private static final String TYPE = "indexednodetype";
+    private static final String[] WORDS = { "compute", "network", "storage", "database", "server", "apache", "tomcat", "mysql", "java", "php" };
+
+    @Param({ "20000" })
+    private int catalogSize;
+    private Node node;
+    private Client client;
+    private QueryBuilder textQuery;
+
+    @Setup
+    public void setup() throws IOException {
+        node = NodeBuilder
+                .nodeBuilder()
+                .local(true)
+                .clusterName("scoring-benchmark")
+                .settings(
+                        ImmutableSettings.settingsBuilder().put("path.data", Files.createTempDirectory("scoring-benchmark").toString())
+                                .put("script.disable_dynamic", false)).node();
+        client = node.client();
+        client.admin()
+                .indices()
+                .prepareCreate(INDEX)
+                .addMapping(
+                        TYPE,
+                        XContentFactory.jsonBuilder().startObject().startObject(TYPE).startObject("properties").startObject("alienScore").field("type", "long")
+                                .endObject().endObject().endObject().endObject()).execute().actionGet();
+        Random random = new Random(42);
+        BulkRequestBuilder bulk = client.prepareBulk();
+        for (int i = 0; i < catalogSize; i++) {
+            StringBuilder description = new StringBuilder();
+            for (int j = 0; j < 5; j++) {
+                description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            bulk.add(client.prepareIndex(INDEX, TYPE, String.valueOf(i)).setSource(
+                    XContentFactory.jsonBuilder().startObject().field("elementId", "tosca.nodes.Element" + i).field("description", description.toString())
+                            .field("alienScore", random.nextInt(1000)).endObject()));
+            if (bulk.numberOfActions() == 1000) {
+                bulk.execute().actionGet();
+                bulk = client.prepareBulk();
+            }
+        }
+        if (bulk.numberOfActions() > 0) {
+            bulk.execute().actionGet();
+        }
+        client.admin().indices().prepareRefresh(INDEX).execute().actionGet();
+        textQuery = QueryBuilders.matchQuery("description", "compute");
+    }
+
+    @TearDown
+    public void tearDown() {
+        node.close();
+    }
+
+    @Benchmark
+    public SearchResponse scriptScore() {
+        return client.prepareSearch(INDEX).setTypes(TYPE)
+                .setQuery(QueryBuilders.functionScoreQuery(textQuery, ScoreFunctionBuilders.scriptFunction(ESGenericSearchDAO.SCORE_SCRIPT))).setSize(20)
+                .execute().actionGet();
+    }
+
+    @Benchmark
+    public SearchResponse fieldValueFactorScore() {
+        return client.prepareSearch(INDEX).setTypes(TYPE)
+                .setQuery(QueryBuilders.functionScoreQuery(textQuery, ScoreFunctionBuilders.fieldValueFactorFunction("alienScore"))).setSize(20).execute()
+                .actionGet();
+    }
+
+    @Benchmark
+    public SearchResponse fieldSort() {
+        return client.prepareSearch(INDEX).setTypes(TYPE).setQuery(textQuery).addSort(SortBuilders.fieldSort("alienScore").order(SortOrder.DESC))
+                .setSize(20).execute().actionGet();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ComponentScoringBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package alien4cloud.dao;
+
+import java.util.Date;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import alien4cloud.application.ApplicationService;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.model.application.Application;
+import alien4cloud.model.deployment.Deployment;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+import alien4cloud.topology.TopologyServiceCore;
+import alien4cloud.topology.TopologyUpdate;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Start the services with the {@link InMemorySearchDAO#PROFILE} profile.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:application-context-test.xml")
+@ActiveProfiles(InMemorySearchDAO.PROFILE)
+public class InMemoryDaoProfileTest {
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDAO;
+    @Resource(name = "alien-monitor-es-dao")
+    private IGenericSearchDAO monitorDAO;
+    @Resource
+    private TopologyServiceCore topologyServiceCore;
+    @Resource
+    private ApplicationService applicationService;
+
+    @Test
+    public void alienDocumentsAreStoredInMemory() {
+        Assert.assertTrue(alienDAO instanceof InMemoryAlienDAO);
+        // monitor events are still stored in elastic search
+        Assert.assertTrue(monitorDAO instanceof MonitorESDAO);
+    }
+
+    @Test
+    public void topologyIsUpdatedByTheScript() {
+        Topology topology = new Topology();
+        topology.setId("in-memory-topology");
+        Map<String, NodeTemplate> nodeTemplates = Maps.newHashMap();
+        nodeTemplates.put("Compute", nodeTemplate("Compute"));
+        topology.setNodeTemplates(nodeTemplates);
+        alienDAO.save(topology);
+
+        Versioned<Topology> versioned = topologyServiceCore.getMandatoryTopologyWithVersion(topology.getId());
+        versioned.getData().getNodeTemplates().put("Apache", nodeTemplate("Apache"));
+        versioned.getData().getNodeTemplates().remove("Compute");
+        long version = topologyServiceCore.update(versioned.getData(), versioned.getVersion(), new TopologyUpdate().nodeTemplates("Apache", "Compute"));
+
+        Versioned<Topology> updated = topologyServiceCore.getMandatoryTopologyWithVersion(topology.getId());
+        Assert.assertEquals(version, updated.getVersion());
+        Assert.assertEquals(Sets.newHashSet("Apache"), updated.getData().getNodeTemplates().keySet());
+    }
+
+    @Test
+    public void applicationWithActiveDeploymentIsNotDeleted() throws Exception {
+        Application application = new Application();
+        application.setId("in-memory-application");
+        application.setName("in-memory-application");
+        alienDAO.save(application);
+        Deployment deployment = new Deployment();
+        deployment.setId("in-memory-deployment");
+        deployment.setSourceId(application.getId());
+        deployment.setStartDate(new Date());
+        alienDAO.save(deployment);
+
+        Assert.assertFalse(applicationService.delete(application.getId()));
+
+        deployment.setEndDate(new Date());
+        alienDAO.save(deployment);
+        Assert.assertTrue(applicationService.delete(application.getId()));
+        Assert.assertNull(alienDAO.findById(Application.class, application.getId()));
+    }
+
+    private NodeTemplate nodeTemplate(String name) {
+        NodeTemplate nodeTemplate = new NodeTemplate();
+        nodeTemplate.setName(name);
+        nodeTemplate.setType("tosca.nodes.Compute");
+        return nodeTemplate;
+    }
+}
@@ -0,0 +1,99 @@
+package alien4cloud.dao;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Resource;
+
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import alien4cloud.dao.model.CursorResult;
+import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.paas.model.AbstractMonitorEvent;
+import alien4cloud.paas.model.PaaSMessageMonitorEvent;
+import alien4cloud.utils.MapUtil;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:application-context-test.xml")
+public class MonitorESDAOTest {
+    private static final String DEPLOYMENT_ID = "monitor-es-dao-test";
+
+    @Resource(name = "alien-monitor-es-dao")
+    private IGenericSearchDAO alienMonitorDao;
+
+    @After
+    public void after() {
+        alienMonitorDao.delete(AbstractMonitorEvent.class, QueryBuilders.termQuery("deploymentId", DEPLOYMENT_ID));
+    }
+
+    @Test
+    public void readsOnABucketSentAfterAWriteAreNotCoalescedWithEarlierReads() {
+        long date = System.currentTimeMillis();
+        alienMonitorDao.save(event(date, "first event"));
+        String[] buckets = alienMonitorDao.getIndicesForType(AbstractMonitorEvent.class, date, date);
+        Assert.assertNotEquals(alienMonitorDao.getIndexForType(AbstractMonitorEvent.class), buckets[0]);
+        ESIndexMapper indexMapper = (ESIndexMapper) alienMonitorDao;
+        String keyBeforeWrite = indexMapper.readKey(buckets, "read");
+
+        alienMonitorDao.save(event(date, "second event"));
+        // the write is registered on the alias of the bucket
+        Assert.assertNotEquals(keyBeforeWrite, indexMapper.readKey(buckets, "read"));
+        GetMultipleDataResult<Object> result = alienMonitorDao.search(buckets, new Class<?>[] { PaaSMessageMonitorEvent.class }, null,
+                MapUtil.newHashMap(new String[] { "deploymentId" }, new String[][] { new String[] { DEPLOYMENT_ID } }), null, 0, 10);
+        Assert.assertEquals(2, result.getData().length);
+    }
+
+    @Test
+    public void searchAfterReturnsEventsOfTheSameDateOnce() {
+        long date = System.currentTimeMillis();
+        // three events share the same date and are only ordered by their event id
+        long[] dates = new long[] { date, date, date, date - 1000, date - 2000 };
+        for (int i = 0; i < dates.length; i++) {
+            alienMonitorDao.save(event(dates[i], "event " + i));
+        }
+
+        String[] indices = alienMonitorDao.getIndicesForType(AbstractMonitorEvent.class, date - 2000, date);
+        FilterBuilder filter = FilterBuilders.termFilter("deploymentId", DEPLOYMENT_ID);
+        List<AbstractMonitorEvent> events = Lists.newArrayList();
+        String cursor = null;
+        do {
+            CursorResult<AbstractMonitorEvent> page = alienMonitorDao.searchAfter(AbstractMonitorEvent.class, indices, filter, "date", "eventId", true,
+                    cursor, 2);
+            Assert.assertTrue(page.getData().length <= 2);
+            events.addAll(Lists.newArrayList(page.getData()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        Assert.assertEquals(dates.length, events.size());
+        Set<String> eventIds = Sets.newHashSet();
+        for (int i = 0; i < events.size(); i++) {
+            Assert.assertNotNull(events.get(i).getEventId());
+            eventIds.add(events.get(i).getEventId());
+            Assert.assertEquals(dates[i], events.get(i).getDate());
+            if (i > 0 && dates[i] == dates[i - 1]) {
+                Assert.assertTrue(events.get(i - 1).getEventId().compareTo(events.get(i).getEventId()) > 0);
+            }
+        }
+        Assert.assertEquals(dates.length, eventIds.size());
+    }
+
+    private PaaSMessageMonitorEvent event(long date, String message) {
+        PaaSMessageMonitorEvent event = new PaaSMessageMonitorEvent();
+        event.setCloudId("CloudID");
+        event.setDeploymentId(DEPLOYMENT_ID);
+        event.setDate(date);
+        event.setMessage(message);
+        return event;
+    }
+}
@@ -0,0 +1,122 @@
+package alien4cloud.dao;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import alien4cloud.component.dao.TestModelUtil;
+import alien4cloud.model.common.Tag;
+import alien4cloud.model.components.AbstractPropertyValue;
+import alien4cloud.model.components.CSARDependency;
+import alien4cloud.model.components.CapabilityDefinition;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.RequirementDefinition;
+import alien4cloud.model.components.ScalarPropertyValue;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.Topology;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Compares the de-serialization of document sources through an intermediate String (previous implementation) with the de-serialization from the source
+ * bytes using cached readers ({@link ESIndexMapper#readSource(BytesReference, Class)}).
+ *
+ * Run the main method from the test classpath, the gc profiler reports the allocation rate per operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SourceDeserializationBenchmark {
+    private final ESIndexMapper indexMapper = new ESIndexMapper() {
+    };
+    private BytesReference nodeTypeSource;
+    private BytesReference topologySource;
+
+    @Setup
+    public void setup() throws IOException {
+        indexMapper.setJsonMapper(new ElasticSearchDAO.ElasticSearchMapper());
+        nodeTypeSource = new BytesArray(indexMapper.getJsonMapper().writeValueAsBytes(createNodeType()));
+        topologySource = new BytesArray(indexMapper.getJsonMapper().writeValueAsBytes(createTopology()));
+    }
+
+    @Benchmark
+    public IndexedNodeType nodeTypeFromString() throws IOException {
+        return indexMapper.getJsonMapper().readValue(nodeTypeSource.toUtf8(), IndexedNodeType.class);
+    }
+
+    @Benchmark
+    public IndexedNodeType nodeTypeFromBytes() throws IOException {
+        return indexMapper.readSource(nodeTypeSource, IndexedNodeType.class);
+    }
+
+    @Benchmark
+    public Topology topologyFromString() throws IOException {
+        return indexMapper.getJsonMapper().readValue(topologySource.toUtf8(), Topology.class);
+    }
+
+    @Benchmark
+    public Topology topologyFromBytes() throws IOException {
+        return indexMapper.readSource(topologySource, Topology.class);
+    }
+
+    private IndexedNodeType createNodeType() {
+        List<CapabilityDefinition> capabilities = Arrays.asList(new CapabilityDefinition("container", "container", 1), new CapabilityDefinition("feature",
+                "feature", 1));
+        List<RequirementDefinition> requirements = Arrays.asList(new RequirementDefinition("host", "host"), new RequirementDefinition("network", "network"));
+        List<Tag> tags = Lists.newArrayList(new Tag("icon", "my-icon.png"), new Tag("tag", "My free tag with my free content"));
+        IndexedNodeType nodeType = TestModelUtil.createIndexedNodeType("tosca.nodes.Compute", "tosca-base-types", "1.0", "A compute node.", capabilities,
+                requirements, Arrays.asList("tosca.nodes.Root"), Lists.<String> newArrayList(), tags, new Date(), new Date());
+        return nodeType;
+    }
+
+    private Topology createTopology() {
+        Topology topology = new Topology();
+        topology.setId("7c1c1f36-8b44-4d2f-8aef-4b43a7e0f4a1");
+        topology.setDelegateId("application");
+        topology.setDelegateType("application");
+        topology.setDependencies(Sets.newHashSet(new CSARDependency("tosca-base-types", "1.0")));
+        Map<String, NodeTemplate> nodeTemplates = Maps.newHashMap();
+        for (int i = 0; i < 20; i++) {
+            Map<String, AbstractPropertyValue> properties = Maps.newHashMap();
+            properties.put("os_type", new ScalarPropertyValue("linux"));
+            properties.put("os_distribution", new ScalarPropertyValue("ubuntu"));
+            properties.put("num_cpus", new ScalarPropertyValue("2"));
+            NodeTemplate nodeTemplate = new NodeTemplate();
+            nodeTemplate.setName("Compute_" + i);
+            nodeTemplate.setType("tosca.nodes.Compute:1.0");
+            nodeTemplate.setProperties(properties);
+            nodeTemplates.put(nodeTemplate.getName(), nodeTemplate);
+        }
+        topology.setNodeTemplates(nodeTemplates);
+        return topology;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SourceDeserializationBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -106,6 +106,27 @@ public class PaaSProviderPollingMonitorTest {
         assertEquals(lastDate, latestEventDate);
     }
 
+    @Test
+    public void testLoadEventsSavedThroughBulkWriter() throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
+        PaaSMessageMonitorEvent[] events = new PaaSMessageMonitorEvent[3];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new PaaSMessageMonitorEvent();
+            events[i].setCloudId("BulkCloudID");
+            events[i].setDate(addMinutesToDate(i + 1, new Date()).getTime());
+            events[i].setDeploymentId("ID-BULK-" + i);
+            events[i].setMessage("EVENT MESSAGE " + i);
+        }
+        // events are queued, the search performed by the monitor must see them
+        alienMonitorDao.save(events);
+
+        PaaSProviderPollingMonitor paaSProviderPollingMonitor = new PaaSProviderPollingMonitor(alienDao, alienMonitorDao, null, null, "BulkCloudID");
+        Field lastPollingDateField = PaaSProviderPollingMonitor.class.getDeclaredField("lastPollingDate");
+        lastPollingDateField.setAccessible(true);
+        Date lastDate = (Date) lastPollingDateField.get(paaSProviderPollingMonitor);
+
+        assertEquals(new Date(events[2].getDate()), lastDate);
+    }
+
     @Test
     public void testLoadEventsWithoutEvents() throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
 
@@ -0,0 +1,141 @@
+package alien4cloud.topology;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Resource;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.model.Versioned;
+import alien4cloud.exception.DocumentVersionConflictException;
+import alien4cloud.model.topology.NodeTemplate;
+import alien4cloud.model.topology.ScalingPolicy;
+import alien4cloud.model.topology.Topology;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:application-context-test.xml")
+public class TopologyServiceCoreTest {
+    private static final String TOPOLOGY_ID = "topology-service-core-test";
+
+    @Resource(name = "alien-es-dao")
+    private IGenericSearchDAO alienDAO;
+    @Resource
+    private TopologyServiceCore topologyServiceCore;
+
+    @Before
+    public void before() {
+        Topology topology = new Topology();
+        topology.setId(TOPOLOGY_ID);
+        Map<String, NodeTemplate> nodeTemplates = Maps.newHashMap();
+        nodeTemplates.put("Compute", nodeTemplate("Compute", "tosca.nodes.Compute"));
+        nodeTemplates.put("Apache", nodeTemplate("Apache", "fastconnect.nodes.Apache"));
+        topology.setNodeTemplates(nodeTemplates);
+        Map<String, ScalingPolicy> scalingPolicies = Maps.newHashMap();
+        scalingPolicies.put("Compute", new ScalingPolicy(1, 3, 1));
+        topology.setScalingPolicies(scalingPolicies);
+        alienDAO.save(topology);
+    }
+
+    @After
+    public void after() {
+        alienDAO.delete(Topology.class, TOPOLOGY_ID);
+    }
+
+    @Test
+    public void addedNodeTemplateIsWrittenByTheScript() {
+        Versioned<Topology> versioned = topologyServiceCore.getMandatoryTopologyWithVersion(TOPOLOGY_ID);
+        Topology topology = versioned.getData();
+        topology.getNodeTemplates().put("Tomcat", nodeTemplate("Tomcat", "fastconnect.nodes.Tomcat"));
+
+        long version = topologyServiceCore.update(topology, versioned.getVersion(), new TopologyUpdate().nodeTemplates("Tomcat"));
+
+        Versioned<Topology> updated = topologyServiceCore.getMandatoryTopologyWithVersion(TOPOLOGY_ID);
+        Assert.assertEquals(version, updated.getVersion());
+        Assert.assertEquals(Sets.newHashSet("Compute", "Apache", "Tomcat"), updated.getData().getNodeTemplates().keySet());
+        Assert.assertEquals("fastconnect.nodes.Tomcat", updated.getData().getNodeTemplates().get("Tomcat").getType());
+        // entries not part of the update are left untouched
+        Assert.assertEquals(3, updated.getData().getScalingPolicies().get("Compute").getMaxInstances());
+    }
+
+    @Test
+    public void modifiedAndRemovedNodeTemplatesAreWrittenByTheScript() {
+        Versioned<Topology> versioned = topologyServiceCore.getMandatoryTopologyWithVersion(TOPOLOGY_ID);
+        Topology topology = versioned.getData();
+        topology.getNodeTemplates().remove("Apache");
+        topology.getNodeTemplates().get("Compute").setType("tosca.nodes.Compute.Linux");
+
+        topologyServiceCore.update(topology, versioned.getVersion(), new TopologyUpdate().nodeTemplates("Apache", "Compute"));
+
+        Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getMandatoryTopology(TOPOLOGY_ID).getNodeTemplates();
+        Assert.assertEquals(Sets.newHashSet("Compute"), nodeTemplates.keySet());
+        Assert.assertEquals("tosca.nodes.Compute.Linux", nodeTemplates.get("Compute").getType());
+        Assert.assertEquals("Compute", nodeTemplates.get("Compute").getName());
+    }
+
+    @Test
+    public void allNodeTemplatesAreReplacedByTheScript() {
+        Versioned<Topology> versioned = topologyServiceCore.getMandatoryTopologyWithVersion(TOPOLOGY_ID);
+        Topology topology = versioned.getData();
+        Map<String, NodeTemplate> nodeTemplates = Maps.newHashMap();
+        nodeTemplates.put("Renamed", nodeTemplate("Renamed", "tosca.nodes.Compute"));
+        topology.setNodeTemplates(nodeTemplates);
+        topology.getScalingPolicies().remove("Compute");
+
+        topologyServiceCore.update(topology, versioned.getVersion(),
+                new TopologyUpdate().allNodeTemplates().mapEntries("scalingPolicies", "Compute"));
+
+        Topology updated = topologyServiceCore.getMandatoryTopology(TOPOLOGY_ID);
+        Assert.assertEquals(Sets.newHashSet("Renamed"), updated.getNodeTemplates().keySet());
+        Assert.assertFalse(updated.getScalingPolicies().containsKey("Compute"));
+    }
+
+    @Test
+    public void mapEntriesAreMergedAsPartialDocument() {
+        Versioned<Topology> versioned = topologyServiceCore.getMandatoryTopologyWithVersion(TOPOLOGY_ID);
+        Topology topology = versioned.getData();
+        topology.getScalingPolicies().put("Compute", new ScalingPolicy(2, 5, 2));
+        Map<String, Set<String>> outputProperties = Maps.newHashMap();
+        outputProperties.put("Apache", Sets.newHashSet("port"));
+        topology.setOutputProperties(outputProperties);
+
+        long version = topologyServiceCore.update(topology, versioned.getVersion(),
+                new TopologyUpdate().mapEntries("scalingPolicies", "Compute").mapEntries("outputProperties", "Apache"));
+
+        Versioned<Topology> updated = topologyServiceCore.getMandatoryTopologyWithVersion(TOPOLOGY_ID);
+        Assert.assertEquals(version, updated.getVersion());
+        Assert.assertEquals(5, updated.getData().getScalingPolicies().get("Compute").getMaxInstances());
+        Assert.assertEquals(Sets.newHashSet("port"), updated.getData().getOutputProperties().get("Apache"));
+        // node templates are not part of the partial document and must be kept as they are
+        Assert.assertEquals(Sets.newHashSet("Compute", "Apache"), updated.getData().getNodeTemplates().keySet());
+        Assert.assertEquals("fastconnect.nodes.Apache", updated.getData().getNodeTemplates().get("Apache").getType());
+    }
+
+    @Test(expected = DocumentVersionConflictException.class)
+    public void updateOfAnOutdatedVersionIsRejected() {
+        Versioned<Topology> versioned = topologyServiceCore.getMandatoryTopologyWithVersion(TOPOLOGY_ID);
+        Topology topology = versioned.getData();
+        topology.getNodeTemplates().put("Tomcat", nodeTemplate("Tomcat", "fastconnect.nodes.Tomcat"));
+        topologyServiceCore.update(topology, versioned.getVersion(), new TopologyUpdate().nodeTemplates("Tomcat"));
+
+        topology.getNodeTemplates().remove("Apache");
+        topologyServiceCore.update(topology, versioned.getVersion(), new TopologyUpdate().nodeTemplates("Apache"));
+    }
+
+    private NodeTemplate nodeTemplate(String name, String type) {
+        NodeTemplate nodeTemplate = new NodeTemplate();
+        nodeTemplate.setName(name);
+        nodeTemplate.setType(type);
+        return nodeTemplate;
+    }
+}
@@ -0,0 +1,144 @@
+package alien4cloud.tosca;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Resource;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import alien4cloud.model.components.Csar;
+import alien4cloud.security.Role;
+import alien4cloud.test.utils.SecurityTestUtils;
+import alien4cloud.tosca.parser.ParsingError;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.ToscaParserSimpleProfileWd03Test;
+import alien4cloud.tosca.parser.impl.ErrorCode;
+import alien4cloud.utils.FileUtil;
+
+import com.google.common.collect.Sets;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:application-context-test.xml")
+public class ArchiveBulkImportServiceTest {
+    private static final String CSAR_SOURCE_PATH = "src/test/resources/alien/paas/plan/csars/";
+    private static final Path IMPORT_PATH = Paths.get("target/bulk-import");
+
+    @Resource
+    private ArchiveBulkImportService bulkImportService;
+
+    @AfterClass
+    @BeforeClass
+    public static void cleanup() throws IOException {
+        FileUtil.delete(Paths.get("target/alien"));
+        FileUtil.delete(IMPORT_PATH);
+    }
+
+    @Test
+    public void archivesAreImportedAfterTheirDependencies() throws IOException {
+        SecurityTestUtils.setTestAuthentication(Role.ADMIN);
+        Map<String, ParsingResult<Csar>> results = bulkImportService.importArchives(Paths.get(CSAR_SOURCE_PATH));
+
+        Assert.assertEquals(4, results.size());
+        // tomcat types depend on the base types, the other archives depend on both
+        Iterator<String> archives = results.keySet().iterator();
+        Assert.assertEquals("tosca-base-types-1.0", archives.next());
+        Assert.assertEquals("tomcat-types-0.1", archives.next());
+        for (ParsingResult<Csar> result : results.values()) {
+            ToscaParserSimpleProfileWd03Test.assertNoBlocker(result);
+            Assert.assertNotNull(result.getResult());
+        }
+    }
+
+    @Test
+    public void duplicatedArchiveIsNotImported() throws IOException {
+        SecurityTestUtils.setTestAuthentication(Role.ADMIN);
+        Path directory = IMPORT_PATH.resolve("duplicated");
+        writeArchive(directory.resolve("first"), "duplicated-types", "test.nodes.Duplicated", null, null);
+        writeArchive(directory.resolve("second"), "duplicated-types", "test.nodes.Duplicated", null, null);
+        // the definition file of the root directory doesn't make it an archive
+        write(directory.resolve("definitions.yml"), "tosca_definitions_version: tosca_simple_yaml_1_0_0_wd03\n");
+
+        Map<String, ParsingResult<Csar>> results = bulkImportService.importArchives(directory);
+
+        Assert.assertEquals(Sets.newHashSet("first", "second"), results.keySet());
+        Iterator<ParsingResult<Csar>> archiveResults = results.values().iterator();
+        // the duplicate is reported before the layers are imported
+        Assert.assertEquals(Sets.newHashSet(ErrorCode.DUPLICATED_ARCHIVE), getErrorCodes(archiveResults.next()));
+        ToscaParserSimpleProfileWd03Test.assertNoBlocker(archiveResults.next());
+    }
+
+    @Test
+    public void archivesOfACycleAreNotImported() throws IOException {
+        SecurityTestUtils.setTestAuthentication(Role.ADMIN);
+        Path directory = IMPORT_PATH.resolve("cycle");
+        writeArchive(directory.resolve("first"), "first-cycle-types", "test.nodes.FirstCycle", "second-cycle-types", null);
+        writeArchive(directory.resolve("second"), "second-cycle-types", "test.nodes.SecondCycle", "first-cycle-types", null);
+        writeArchive(directory.resolve("dependent"), "cycle-dependent-types", "test.nodes.CycleDependent", "first-cycle-types", null);
+
+        Map<String, ParsingResult<Csar>> results = bulkImportService.importArchives(directory);
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(Sets.newHashSet(ErrorCode.CYCLIC_DEPENDENCY), getErrorCodes(results.get("first")));
+        Assert.assertEquals(Sets.newHashSet(ErrorCode.CYCLIC_DEPENDENCY), getErrorCodes(results.get("second")));
+        Assert.assertEquals("first-cycle-types:1.0, second-cycle-types:1.0", results.get("first").getContext().getParsingErrors().get(0).getNote());
+        // an archive that only depends on the cycle is not part of it
+        Assert.assertEquals(Sets.newHashSet(ErrorCode.DEPENDENCY_IMPORT_FAILED), getErrorCodes(results.get("dependent")));
+        Assert.assertEquals("first-cycle-types:1.0", results.get("dependent").getContext().getParsingErrors().get(0).getNote());
+    }
+
+    @Test
+    public void archiveIsNotImportedWhenItsDependencyFails() throws IOException {
+        SecurityTestUtils.setTestAuthentication(Role.ADMIN);
+        Path directory = IMPORT_PATH.resolve("failed");
+        writeArchive(directory.resolve("broken"), "broken-types", "test.nodes.Broken", null, "test.nodes.Unknown");
+        writeArchive(directory.resolve("dependent"), "broken-dependent-types", "test.nodes.BrokenDependent", "broken-types", "test.nodes.Broken");
+
+        Map<String, ParsingResult<Csar>> results = bulkImportService.importArchives(directory);
+
+        Assert.assertEquals(2, results.size());
+        Assert.assertTrue(getErrorCodes(results.get("broken")).contains(ErrorCode.TYPE_NOT_FOUND));
+        Assert.assertEquals(Sets.newHashSet(ErrorCode.DEPENDENCY_IMPORT_FAILED), getErrorCodes(results.get("dependent")));
+        Assert.assertEquals("broken-types:1.0", results.get("dependent").getContext().getParsingErrors().get(0).getNote());
+    }
+
+    private Set<ErrorCode> getErrorCodes(ParsingResult<Csar> result) {
+        Set<ErrorCode> errorCodes = Sets.newHashSet();
+        for (ParsingError error : result.getContext().getParsingErrors()) {
+            errorCodes.add(error.getErrorCode());
+        }
+        return errorCodes;
+    }
+
+    private void writeArchive(Path archivePath, String name, String nodeType, String dependency, String derivedFrom) throws IOException {
+        StringBuilder meta = new StringBuilder("name: \"").append(name).append("\"\nversion: \"1.0\"\n");
+        if (dependency != null) {
+            meta.append("dependencies:\n  - name: ").append(dependency).append("\n    version: 1.0\n");
+        }
+        meta.append("definitions:\n  - Definitions/types.yaml\n");
+        write(archivePath.resolve("TOSCA-Metadata/ALIEN-META.yaml"), meta.toString());
+        StringBuilder definitions = new StringBuilder("tosca_definitions_version: tosca_simple_yaml_1_0_0_wd03\n\nnode_types:\n  ").append(nodeType).append(
+                ":\n    description: Type of the bulk import tests\n");
+        if (derivedFrom != null) {
+            definitions.append("    derived_from: ").append(derivedFrom).append("\n");
+        }
+        write(archivePath.resolve("Definitions/types.yaml"), definitions.toString());
+    }
+
+    private void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
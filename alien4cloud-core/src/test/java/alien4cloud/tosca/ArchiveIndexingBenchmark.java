@@ -0,0 +1,115 @@
+package alien4cloud.tosca;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import alien4cloud.component.ICSARRepositoryIndexerService;
+import alien4cloud.model.components.IndexedInheritableToscaElement;
+import alien4cloud.model.components.IndexedModelUtils;
+import alien4cloud.tosca.model.ArchiveRoot;
+import alien4cloud.tosca.parser.ParsingException;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.utils.FileUtil;
+
+/**
+ * Compares the indexing of the normative types archive element per element (previous implementation, one parent search, highest version search, save and
+ * refresh for every element) with the indexing of the whole archive in a single bulk request ({@link ArchiveIndexer#indexArchive}).
+ *
+ * Run the main method from the test classpath, the elastic search node of the test context is used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ArchiveIndexingBenchmark {
+    private static final String ARCHIVE_PATH = "src/test/resources/alien/paas/plan/csars/tosca-base-types-1.0";
+
+    private ClassPathXmlApplicationContext context;
+    private ArchiveIndexer archiveIndexer;
+    private ICSARRepositoryIndexerService indexerService;
+    private ArchiveRoot root;
+    private String archiveName;
+    private String archiveVersion;
+
+    @Setup
+    public void setup() throws IOException, ParsingException {
+        FileUtil.delete(Paths.get("target/alien"));
+        context = new ClassPathXmlApplicationContext("application-context-test.xml");
+        archiveIndexer = context.getBean(ArchiveIndexer.class);
+        indexerService = context.getBean(ICSARRepositoryIndexerService.class);
+
+        Path zipPath = Files.createTempFile("csar", ".zip");
+        FileUtil.zip(Paths.get(ARCHIVE_PATH), zipPath);
+        ParsingResult<ArchiveRoot> parsingResult = context.getBean(ArchiveParser.class).parse(zipPath);
+        context.getBean(ArchivePostProcessor.class).postProcess(parsingResult);
+        root = parsingResult.getResult();
+        archiveName = root.getArchive().getName();
+        archiveVersion = root.getArchive().getVersion();
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteArchiveElements() {
+        indexerService.deleteElements(indexerService.getArchiveElements(archiveName, archiveVersion).values());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        FileUtil.delete(Paths.get("target/alien"));
+    }
+
+    @Benchmark
+    public void perElementIndexing() {
+        indexElementPerElement(root);
+    }
+
+    @Benchmark
+    public void bulkIndexing() {
+        archiveIndexer.indexArchive(archiveName, archiveVersion, root, false);
+    }
+
+    private void indexElementPerElement(ArchiveRoot archiveRoot) {
+        indexElementPerElement(archiveRoot.getArtifactTypes());
+        indexElementPerElement(archiveRoot.getCapabilityTypes());
+        indexElementPerElement(archiveRoot.getNodeTypes());
+        indexElementPerElement(archiveRoot.getRelationshipTypes());
+        if (archiveRoot.getLocalImports() != null) {
+            for (ArchiveRoot child : archiveRoot.getLocalImports()) {
+                indexElementPerElement(child);
+            }
+        }
+    }
+
+    private void indexElementPerElement(Map<String, ? extends IndexedInheritableToscaElement> elements) {
+        for (IndexedInheritableToscaElement element : IndexedModelUtils.orderByDerivedFromHierarchy(elements)) {
+            indexerService.indexInheritableElement(archiveName, archiveVersion, element, root.getArchive().getDependencies());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ArchiveIndexingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,181 @@
+package alien4cloud.tosca;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import alien4cloud.component.ICSARRepositoryIndexerService;
+import alien4cloud.dao.IGenericIdDAO;
+import alien4cloud.images.ImageData;
+import alien4cloud.model.components.Csar;
+import alien4cloud.model.components.IndexedInheritableToscaElement;
+import alien4cloud.model.components.IndexedNodeType;
+import alien4cloud.model.components.IndexedToscaElement;
+import alien4cloud.security.Role;
+import alien4cloud.test.utils.SecurityTestUtils;
+import alien4cloud.tosca.model.ArchiveRoot;
+import alien4cloud.tosca.parser.ParsingError;
+import alien4cloud.tosca.parser.ParsingResult;
+import alien4cloud.tosca.parser.ToscaParserSimpleProfileWd03Test;
+import alien4cloud.tosca.parser.impl.ErrorCode;
+import alien4cloud.utils.FileUtil;
+
+import com.google.common.collect.Maps;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:application-context-test.xml")
+public class ArchiveUploadServiceTest {
+    private static final Path ARCHIVE_PATH = Paths.get("target/snapshot-archive");
+    private static final Path ZIP_PATH = Paths.get("target/snapshot-archive.zip");
+    private static final Path ICON_PATH = Paths.get("src/test/resources/alien/tosca/container/csar/tosca-base-types-tags/work.jpg");
+    private static final String ARCHIVE_NAME = "snapshot-types";
+    private static final String ARCHIVE_VERSION = "1.0-SNAPSHOT";
+
+    @Resource
+    private ArchiveUploadService uploadService;
+    @Resource
+    private ArchiveParser parser;
+    @Resource
+    private ArchivePostProcessor postProcessor;
+    @Resource
+    private ICSARRepositoryIndexerService indexerService;
+    @Resource(name = "image-dao")
+    private IGenericIdDAO imageGenericIdDAO;
+
+    @AfterClass
+    @BeforeClass
+    public static void cleanup() throws IOException {
+        FileUtil.delete(Paths.get("target/alien"));
+    }
+
+    @Before
+    public void before() throws IOException {
+        SecurityTestUtils.setTestAuthentication(Role.ADMIN);
+        FileUtil.delete(ARCHIVE_PATH);
+        Files.createDirectories(ARCHIVE_PATH.resolve("TOSCA-Metadata"));
+        Files.createDirectories(ARCHIVE_PATH.resolve("Definitions"));
+        Files.createDirectories(ARCHIVE_PATH.resolve("images"));
+        Files.copy(ICON_PATH, ARCHIVE_PATH.resolve("images/icon.jpg"));
+        write("TOSCA-Metadata/ALIEN-META.yaml", "name: \"" + ARCHIVE_NAME + "\"\nversion: \"" + ARCHIVE_VERSION + "\"\ndefinitions:\n"
+                + "    - /Definitions/snapshot-types.yaml\n");
+    }
+
+    @Test
+    public void onlyChangedElementsAreIndexedWhenASnapshotIsUploadedAgain() throws Exception {
+        writeDefinitions(false, true);
+        ToscaParserSimpleProfileWd03Test.assertNoBlocker(upload());
+        Map<String, IndexedToscaElement> previousElements = indexerService.getArchiveElements(ARCHIVE_NAME, ARCHIVE_VERSION);
+        Assert.assertEquals(4, previousElements.size());
+
+        // the root type changes and a type is removed
+        writeDefinitions(true, false);
+        ParsingResult<Csar> result = upload();
+        ToscaParserSimpleProfileWd03Test.assertNoBlocker(result);
+        Assert.assertEquals("1", getUnchangedElements(result));
+
+        Map<String, IndexedToscaElement> elements = indexerService.getArchiveElements(ARCHIVE_NAME, ARCHIVE_VERSION);
+        Assert.assertEquals(3, elements.size());
+        Assert.assertNull(elements.get(id("test.nodes.Removed")));
+        // the unchanged element is not written again and keeps its icon
+        IndexedToscaElement other = elements.get(id("test.nodes.Other"));
+        IndexedToscaElement previousOther = previousElements.get(id("test.nodes.Other"));
+        Assert.assertEquals(previousOther.getLastUpdateDate(), other.getLastUpdateDate());
+        Assert.assertEquals(getIconId(previousOther), getIconId(other));
+        Assert.assertNotNull(imageGenericIdDAO.findById(ImageData.class, getIconId(other)));
+        // the changed element replaces its icon
+        IndexedToscaElement root = elements.get(id("test.nodes.Root"));
+        IndexedToscaElement previousRoot = previousElements.get(id("test.nodes.Root"));
+        Assert.assertEquals("Changed root type", root.getDescription());
+        Assert.assertEquals(previousRoot.getCreationDate(), root.getCreationDate());
+        Assert.assertNotEquals(getIconId(previousRoot), getIconId(root));
+        Assert.assertNull(imageGenericIdDAO.findById(ImageData.class, getIconId(previousRoot)));
+        Assert.assertNotNull(imageGenericIdDAO.findById(ImageData.class, getIconId(root)));
+        // the child is indexed again with the properties of its changed parent
+        IndexedNodeType child = (IndexedNodeType) elements.get(id("test.nodes.Child"));
+        Assert.assertTrue(child.getProperties().containsKey("port"));
+    }
+
+    @Test
+    public void contentHashIsStableAcrossParsings() throws Exception {
+        writeDefinitions(false, true);
+        Map<String, String> hashes = parseContentHashes();
+        Assert.assertEquals(4, hashes.size());
+        for (String hash : hashes.values()) {
+            Assert.assertNotNull(hash);
+        }
+        Assert.assertEquals(hashes, parseContentHashes());
+
+        writeDefinitions(true, true);
+        Map<String, String> changedHashes = parseContentHashes();
+        Assert.assertNotEquals(hashes.get("test.nodes.Root"), changedHashes.get("test.nodes.Root"));
+        Assert.assertEquals(hashes.get("test.nodes.Other"), changedHashes.get("test.nodes.Other"));
+    }
+
+    private Map<String, String> parseContentHashes() throws Exception {
+        FileUtil.zip(ARCHIVE_PATH, ZIP_PATH);
+        ParsingResult<ArchiveRoot> result = parser.parse(ZIP_PATH);
+        postProcessor.postProcess(result);
+        Map<String, String> hashes = Maps.newHashMap();
+        for (IndexedInheritableToscaElement element : result.getResult().getNodeTypes().values()) {
+            hashes.put(element.getElementId(), element.getContentHash());
+        }
+        return hashes;
+    }
+
+    private ParsingResult<Csar> upload() throws Exception {
+        FileUtil.zip(ARCHIVE_PATH, ZIP_PATH);
+        return uploadService.upload(ZIP_PATH);
+    }
+
+    private String getUnchangedElements(ParsingResult<Csar> result) {
+        for (ParsingError error : result.getContext().getParsingErrors()) {
+            if (ErrorCode.UNCHANGED_ELEMENTS.equals(error.getErrorCode())) {
+                return error.getNote();
+            }
+        }
+        return null;
+    }
+
+    private String getIconId(IndexedToscaElement element) {
+        return ArchiveImageLoader.getIconTag(element.getTags()).getValue();
+    }
+
+    private String id(String elementId) {
+        return elementId + ":" + ARCHIVE_VERSION;
+    }
+
+    private void writeDefinitions(boolean changedRoot, boolean withRemovedType) throws IOException {
+        StringBuilder definitions = new StringBuilder("tosca_definitions_version: tosca_simple_yaml_1_0_0_wd03\n\nnode_types:\n");
+        definitions.append("  test.nodes.Root:\n");
+        if (changedRoot) {
+            definitions.append("    description: Changed root type\n    properties:\n      port:\n        type: integer\n");
+        } else {
+            definitions.append("    description: Root type\n");
+        }
+        definitions.append("    tags:\n      icon: /images/icon.jpg\n");
+        definitions.append("  test.nodes.Child:\n    derived_from: test.nodes.Root\n    description: Child of the root type\n");
+        definitions.append("  test.nodes.Other:\n    description: Type independent from the root type\n    tags:\n      icon: /images/icon.jpg\n");
+        if (withRemovedType) {
+            definitions.append("  test.nodes.Removed:\n    description: Type removed from the archive\n");
+        }
+        write("Definitions/snapshot-types.yaml", definitions.toString());
+    }
+
+    private void write(String file, String content) throws IOException {
+        Files.write(ARCHIVE_PATH.resolve(file), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,7 +5,9 @@ import static org.junit.Assert.assertEquals;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Resource;
 
@@ -31,6 +33,9 @@ import alien4cloud.tosca.parser.ParsingException;
 import alien4cloud.tosca.parser.ParsingResult;
 import alien4cloud.utils.FileUtil;
 
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration("classpath:application-context-test.xml")
 public class ArchiveImageLoaderTest {
@@ -76,6 +81,27 @@ public class ArchiveImageLoaderTest {
         checkImages(result.getResult().getNodeTypes());
     }
 
+    @Test
+    public void importToscaElementImagesOnExecutor() throws IOException, ParsingException {
+        Path csarFileForTesting = Paths.get(CSAR_OUTPUT_FOLDER.toString(), tmpArchiveName);
+        FileUtil.zip(PATH_TOSCA_BASE_TYPES, csarFileForTesting);
+
+        ParsingResult<ArchiveRoot> result = parser.parse(csarFileForTesting);
+        processor.postProcess(result);
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(2));
+        try {
+            List<String> imageIds = imageLoader.importImages(csarFileForTesting, result, executor);
+            Assert.assertFalse(imageIds.isEmpty());
+            for (String imageId : imageIds) {
+                Assert.assertNotNull(imageGenericIdDAO.findById(ImageData.class, imageId));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        checkImages(result.getResult().getNodeTypes());
+    }
+
     private void checkImages(Map<String, ? extends IndexedInheritableToscaElement> elements) {
         boolean elementHasTags = false;
         String currentUUID = null;
@@ -5,6 +5,7 @@ import org.junit.Test;
 
 import alien4cloud.utils.VersionUtil;
 import alien4cloud.utils.version.ApplicationVersionException;
+import alien4cloud.utils.version.Version;
 
 public class VersionUtilTest {
 
@@ -42,5 +43,43 @@ public class VersionUtilTest {
     	Assert.assertTrue(VersionUtil.compare("10.0.10", "10.0.11-SNAPSHOT") < 0);
     	Assert.assertTrue(VersionUtil.compare("10.0.11", "10.0.11") == 0);
     }
-    
+
+    @Test
+    public void testParsedVersionsAreNotShared() {
+        Version version = VersionUtil.parseVersion("10.0.11");
+        Assert.assertNotSame(version, VersionUtil.parseVersion("10.0.11"));
+        // modifying a parsed version changes neither the next parsings nor the comparisons
+        version.parseVersion("1.0");
+        Assert.assertEquals(10, VersionUtil.parseVersion("10.0.11").getMajorVersion());
+        Assert.assertTrue(VersionUtil.compare("10.0.11", "10.0.10") > 0);
+        Assert.assertEquals(VersionUtil.getSortKey("10.0.11"), new Version("10.0.11").getSortKey());
+    }
+
+    @Test
+    public void testSortKeysCompareAsVersions() {
+        assertSortKeysCompareAsVersions("10.0.11", "10.0.10");
+        assertSortKeysCompareAsVersions("10.1", "10.0.10");
+        assertSortKeysCompareAsVersions("10.0.11", "10.0.11-SNAPSHOT");
+        assertSortKeysCompareAsVersions("10.0.10", "10.0.11-SNAPSHOT");
+        assertSortKeysCompareAsVersions("10", "9");
+        assertSortKeysCompareAsVersions("1.0", "1");
+        assertSortKeysCompareAsVersions("1.0.1", "1");
+        assertSortKeysCompareAsVersions("2.0.0-alpha1", "2.0.0-beta1");
+        assertSortKeysCompareAsVersions("2.0.0-beta1", "2.0.0");
+        assertSortKeysCompareAsVersions("1-1", "1.1");
+        assertSortKeysCompareAsVersions("1-1", "1");
+        assertSortKeysCompareAsVersions("2.0.RC1", "2");
+        assertSortKeysCompareAsVersions("1.0.0.RC1", "1.0.0");
+        assertSortKeysCompareAsVersions("1.0.0.alpha", "1.0.0");
+        assertSortKeysCompareAsVersions("1.0.0.SNAPSHOT", "1.0.0");
+        assertSortKeysCompareAsVersions("1.0.RC1", "1.0.1");
+        Assert.assertNull(VersionUtil.getSortKey(null));
+    }
+
+    private void assertSortKeysCompareAsVersions(String left, String right) {
+        Assert.assertEquals(Integer.signum(VersionUtil.compare(left, right)),
+                Integer.signum(VersionUtil.getSortKey(left).compareTo(VersionUtil.getSortKey(right))));
+        Assert.assertEquals(Integer.signum(VersionUtil.compare(right, left)),
+                Integer.signum(VersionUtil.getSortKey(right).compareTo(VersionUtil.getSortKey(left))));
+    }
 }
@@ -13,6 +13,8 @@ import org.springframework.web.bind.annotation.*;
 
 import alien4cloud.Constants;
 import alien4cloud.component.ICSARRepositorySearchService;
+import alien4cloud.component.ResolvedTypeCache;
+import alien4cloud.component.ToscaElementVersionService;
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.dao.model.FacetedSearchResult;
 import alien4cloud.dao.model.GetMultipleDataResult;
@@ -40,6 +42,10 @@ public class ComponentController {
 
     @Resource
     private ICSARRepositorySearchService searchService;
+    @Resource
+    private ToscaElementVersionService toscaElementVersionService;
+    @Resource
+    private ResolvedTypeCache resolvedTypeCache;
 
     /**
      * Get details for a component.
@@ -102,6 +108,7 @@ public class ComponentController {
         }
         FacetedSearchResult searchResult = dao.facetedSearch(classNameToQuery, searchRequest.getQuery(), searchRequest.getFilters(), "component_summary",
                 searchRequest.getFrom(), searchRequest.getSize());
+        toscaElementVersionService.fillOlderVersions(searchResult.getData());
         return RestResponseBuilder.<FacetedSearchResult> builder().data(searchResult).build();
     }
 
@@ -138,7 +145,7 @@ public class ComponentController {
             }
             component.getDefaultCapabilities().add(recommendationRequest.getCapability());
             log.info("Defining the component <" + component.getId() + "> as default for the capability <" + recommendationRequest.getCapability() + ">.");
-            dao.save(component);
+            saveComponent(component);
         }
         return RestResponseBuilder.<IndexedNodeType> builder().data(component).build();
     }
@@ -156,7 +163,7 @@ public class ComponentController {
         if (component != null && component.getDefaultCapabilities() != null) {
             component.getDefaultCapabilities().remove(recommendationRequest.getCapability());
             log.info("Undefining the component <" + component.getId() + "> as default for the capability <" + recommendationRequest.getCapability() + ">.");
-            dao.save(component);
+            saveComponent(component);
         }
         return RestResponseBuilder.<IndexedNodeType> builder().data(component).build();
     }
@@ -184,7 +191,7 @@ public class ComponentController {
                     component.getTags().remove(newTag);
                 }
                 component.getTags().add(newTag);
-                dao.save(component);
+                saveComponent(component);
             } else {
                 updateComponantTagError = RestErrorBuilder.builder(RestErrorCode.COMPONENT_INTERNALTAG_ERROR)
                         .message("Tag update operation failed. Could not update internal alien tag  <" + Constants.ALIEN_INTERNAL_TAG + ">.").build();
@@ -210,7 +217,7 @@ public class ComponentController {
                     return RestResponseBuilder.<Void> builder().error(deleteComponantTagError).build();
                 }
                 component.getTags().remove(new Tag(tagId, null));
-                dao.save(component);
+                saveComponent(component);
             } else {
                 deleteComponantTagError = RestErrorBuilder.builder(RestErrorCode.COMPONENT_INTERNALTAG_ERROR)
                         .message("Tag delete operation failed. Could not delete internal alien tag  <" + Constants.ALIEN_INTERNAL_TAG + ">.").build();
@@ -223,11 +230,17 @@ public class ComponentController {
         return RestResponseBuilder.<Void> builder().error(deleteComponantTagError).build();
     }
 
+    private void saveComponent(IndexedNodeType component) {
+        dao.save(component);
+        // the resolved types are copies of the indexed elements, they must not serve the previous tags or capabilities.
+        resolvedTypeCache.invalidateAll();
+    }
+
     private void removeFromDefaultCapabilities(String capability) {
         IndexedNodeType component = getDefaultNodeForCapability(capability);
         if (component != null) {
             component.getDefaultCapabilities().remove(capability);
-            dao.save(component);
+            saveComponent(component);
         }
     }
 
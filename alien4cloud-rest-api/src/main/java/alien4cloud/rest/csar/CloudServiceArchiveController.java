@@ -6,6 +6,7 @@ import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Map;
@@ -46,8 +47,10 @@ import alien4cloud.component.repository.exception.CSARVersionNotFoundException;
 import alien4cloud.csar.services.CsarService;
 import alien4cloud.dao.IGenericSearchDAO;
 import alien4cloud.dao.model.FacetedSearchResult;
+import alien4cloud.dao.model.ICloseableIterator;
 import alien4cloud.exception.AlreadyExistException;
 import alien4cloud.exception.DeleteReferencedObjectException;
+import alien4cloud.exception.InvalidArgumentException;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.application.DeploymentSetup;
 import alien4cloud.model.application.DeploymentSetupMatchInfo;
@@ -67,6 +70,8 @@ import alien4cloud.rest.model.RestResponseBuilder;
 import alien4cloud.rest.topology.TopologyService;
 import alien4cloud.security.AuthorizationUtil;
 import alien4cloud.security.CloudRole;
+import alien4cloud.security.Role;
+import alien4cloud.tosca.ArchiveBulkImportService;
 import alien4cloud.tosca.ArchiveUploadService;
 import alien4cloud.tosca.parser.ParsingError;
 import alien4cloud.tosca.parser.ParsingErrorLevel;
@@ -87,9 +92,12 @@ import com.wordnik.swagger.annotations.ApiOperation;
 @Slf4j
 public class CloudServiceArchiveController {
     private static final String DEFAULT_TEST_FOLDER = "test";
+    private static final String DEFAULT_BRANCH = "master";
 
     @Resource
     private ArchiveUploadService csarUploadService;
+    @Resource
+    private ArchiveBulkImportService bulkImportService;
     @Resource(name = "alien-es-dao")
     private IGenericSearchDAO csarDAO;
     @Resource
@@ -155,6 +163,31 @@ public class CloudServiceArchiveController {
         }
     }
 
+    @ApiOperation(value = "Import all the archives of a directory of the server or of a git repository.", notes = "Archives are imported after the archives they depend on, independent archives are imported in parallel. "
+            + "Role required is ADMIN.")
+    @RequestMapping(value = "/import", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public RestResponse<Map<String, CsarUploadResult>> importCSARs(@RequestBody CsarImportRequest request) throws IOException {
+        AuthorizationUtil.checkHasOneRoleIn(Role.ADMIN);
+        Map<String, ParsingResult<Csar>> results;
+        if (request.getRepositoryUrl() != null) {
+            results = bulkImportService.importRepository(request.getRepositoryUrl(), request.getBranch() == null ? DEFAULT_BRANCH : request.getBranch());
+        } else if (request.getPath() != null) {
+            results = bulkImportService.importArchives(Paths.get(request.getPath()));
+        } else {
+            throw new InvalidArgumentException("A path or a repository url is required to import archives");
+        }
+
+        Map<String, CsarUploadResult> uploadResults = Maps.newLinkedHashMap();
+        RestError error = null;
+        for (Map.Entry<String, ParsingResult<Csar>> result : results.entrySet()) {
+            uploadResults.put(result.getKey(), toUploadResult(result.getValue()));
+            if (ArchiveUploadService.hasError(result.getValue(), ParsingErrorLevel.ERROR)) {
+                error = RestErrorBuilder.builder(RestErrorCode.CSAR_PARSING_ERROR).build();
+            }
+        }
+        return RestResponseBuilder.<Map<String, CsarUploadResult>> builder().error(error).data(uploadResults).build();
+    }
+
     private CsarUploadResult toUploadResult(ParsingResult<Csar> result) {
         CsarUploadResult uploadResult = new CsarUploadResult();
         uploadResult.setCsar(result.getResult());
@@ -223,15 +256,17 @@ public class CloudServiceArchiveController {
         Csar csar = csarService.getMandatoryCsar(csarId);
 
         // a csar that is a dependency of another csar can not be deleted
-        Csar[] result = csarService.getDependantCsars(csar.getName(), csar.getVersion());
-        if (result != null && result.length > 0) {
-            throw new DeleteReferencedObjectException("This csar can not be deleted since it's a dependencie for others");
+        try (ICloseableIterator<Csar> dependantCsars = csarService.getDependantCsars(csar.getName(), csar.getVersion())) {
+            if (dependantCsars.hasNext()) {
+                throw new DeleteReferencedObjectException("This csar can not be deleted since it's a dependencie for others");
+            }
         }
 
         // check if some of the nodes are used in topologies.
-        Topology[] topologies = csarService.getDependantTopologies(csar.getName(), csar.getVersion());
-        if (topologies != null && topologies.length > 0) {
-            throw new DeleteReferencedObjectException("This csar can not be deleted since it's a dependencie for others");
+        try (ICloseableIterator<Topology> dependantTopologies = csarService.getDependantTopologies(csar.getName(), csar.getVersion())) {
+            if (dependantTopologies.hasNext()) {
+                throw new DeleteReferencedObjectException("This csar can not be deleted since it's a dependencie for others");
+            }
         }
         // latest version indicator will be recomputed to match this new reality
         indexerService.deleteElements(csar.getName(), csar.getVersion());
@@ -0,0 +1,25 @@
+package alien4cloud.rest.csar;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Request to import all the archives of a directory of the server or of a git repository.
+ */
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@SuppressWarnings("PMD.UnusedPrivateField")
+public class CsarImportRequest {
+    /** Path of a directory of the server, ignored if a repository url is defined. */
+    private String path;
+    /** Url of a git repository. */
+    private String repositoryUrl;
+    /** Branch of the git repository, master if not defined. */
+    private String branch;
+}
@@ -21,6 +21,7 @@ import alien4cloud.application.ApplicationService;
 import alien4cloud.cloud.DeploymentService;
 import alien4cloud.csar.services.CsarService;
 import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.model.CursorResult;
 import alien4cloud.dao.model.FetchContext;
 import alien4cloud.dao.model.GetMultipleDataResult;
 import alien4cloud.model.deployment.Deployment;
@@ -141,6 +142,18 @@ public class DeploymentController {
         return RestResponseBuilder.<GetMultipleDataResult> builder().data(deploymentService.getDeploymentEvents(applicationEnvironmentId, from, size)).build();
     }
 
+    @ApiOperation(value = "Get a page of the events of the active deployment of an environment, from the most recent to the oldest.", notes = "Use the cursor returned with a page to get the next page, there is no more events when the returned cursor is null.")
+    @RequestMapping(value = "/{applicationEnvironmentId}/events/cursor", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public RestResponse<CursorResult> getEventsPage(
+            @ApiParam(value = "Id of the environment for which to get events.", required = true) @Valid @NotBlank @PathVariable String applicationEnvironmentId,
+            @ApiParam(value = "Cursor returned with the previous page, none to get the first page.") @RequestParam(required = false) String cursor,
+            @ApiParam(value = "Start of the time window of the events (timestamp in milliseconds).") @RequestParam(required = false) Long fromDate,
+            @ApiParam(value = "End of the time window of the events (timestamp in milliseconds).") @RequestParam(required = false) Long toDate,
+            @ApiParam(value = "Maximum number of results to retrieve.") @RequestParam(required = false, defaultValue = "50") int size) {
+        return RestResponseBuilder.<CursorResult> builder().data(deploymentService.getDeploymentEvents(applicationEnvironmentId, fromDate, toDate, cursor, size))
+                .build();
+    }
+
     @ApiOperation(value = "Get deployment status from its id.", authorizations = { @Authorization("ADMIN"), @Authorization("APPLICATION_MANAGER") })
     @RequestMapping(value = "/{deploymentId}/status", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
     public DeferredResult<RestResponse<DeploymentStatus>> getDeploymentStatus(
@@ -146,6 +146,9 @@ public class DeploymentEventHandler implements IPaasEventListener<AbstractMonito
         }
         deployment.setDeploymentStatus(newStatus);
         alienDAO.save(deployment);
+        if (deployment.getEndDate() != null) {
+            deploymentService.deleteActiveDeployment(deployment);
+        }
     }
 
     /**
@@ -30,6 +30,8 @@ import alien4cloud.component.CSARRepositorySearchService;
 import alien4cloud.component.repository.ArtifactRepositoryConstants;
 import alien4cloud.component.repository.IFileRepository;
 import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.RetryOnVersionConflict;
+import alien4cloud.dao.model.Versioned;
 import alien4cloud.exception.AlreadyExistException;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.application.ApplicationEnvironment;
@@ -39,6 +41,7 @@ import alien4cloud.model.components.AbstractPropertyValue;
 import alien4cloud.model.components.DeploymentArtifact;
 import alien4cloud.model.components.IndexedNodeType;
 import alien4cloud.model.components.IndexedRelationshipType;
+import alien4cloud.model.components.IndexedToscaElement;
 import alien4cloud.model.components.PropertyDefinition;
 import alien4cloud.model.components.ScalarPropertyValue;
 import alien4cloud.model.topology.NodeTemplate;
@@ -55,6 +58,7 @@ import alien4cloud.rest.model.RestResponse;
 import alien4cloud.rest.model.RestResponseBuilder;
 import alien4cloud.security.ApplicationRole;
 import alien4cloud.topology.TopologyServiceCore;
+import alien4cloud.topology.TopologyUpdate;
 import alien4cloud.tosca.properties.constraints.ConstraintUtil.ConstraintInformation;
 import alien4cloud.tosca.properties.constraints.exception.ConstraintValueDoNotMatchPropertyTypeException;
 import alien4cloud.tosca.properties.constraints.exception.ConstraintViolationException;
@@ -130,8 +134,10 @@ public class TopologyController {
      */
     @ApiOperation(value = "Add a new node template in a topology.", notes = "Returns the details of the node template (computed from it's type). Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<TopologyDTO> addNodeTemplate(@PathVariable String topologyId, @RequestBody @Valid NodeTemplateRequest nodeTemplateRequest) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
@@ -153,21 +159,24 @@ public class TopologyController {
         } else {
             log.debug("Create application <{}>", nodeTemplateRequest.getName());
         }
-        indexedNodeType = topologyService.loadType(topology, indexedNodeType);
+        TopologyUpdate update = new TopologyUpdate().nodeTemplates(nodeTemplateRequest.getName());
+        indexedNodeType = loadType(topology, indexedNodeType, update);
         NodeTemplate nodeTemplate = topologyService.buildNodeTemplate(topology.getDependencies(), indexedNodeType, null);
         topology.getNodeTemplates().put(nodeTemplateRequest.getName(), nodeTemplate);
 
         log.debug("Adding a new Node template <" + nodeTemplateRequest.getName() + "> bound to the node type <" + nodeTemplateRequest.getIndexedNodeTypeId()
                 + "> to the topology <" + topology.getId() + "> .");
 
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), update);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
     @ApiOperation(value = "Add a new scaling policy for a node template in a topology.", notes = "Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/scalingPolicies/{nodeTemplateId}", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> addScalingPolicy(@PathVariable String topologyId, @PathVariable String nodeTemplateId, @RequestBody @Valid ScalingPolicy policy) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
@@ -177,14 +186,16 @@ public class TopologyController {
             topology.setScalingPolicies(policies);
         }
         policies.put(nodeTemplateId, policy);
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().mapEntries("scalingPolicies", nodeTemplateId));
         return RestResponseBuilder.<Void> builder().build();
     }
 
     @ApiOperation(value = "Remove scaling policy from a compute in a topology.", notes = "Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/scalingPolicies/{nodeTemplateId}", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> deleteScalingPolicy(@PathVariable String topologyId, @PathVariable String nodeTemplateId) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
@@ -196,7 +207,7 @@ public class TopologyController {
                 throw new NotFoundException("Scaling policy not found for node [" + nodeTemplateId + "]");
             }
         }
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().mapEntries("scalingPolicies", nodeTemplateId));
         return RestResponseBuilder.<Void> builder().build();
     }
 
@@ -210,9 +221,11 @@ public class TopologyController {
      */
     @ApiOperation(value = "Change the name of a node template in a topology.", notes = "Returns a response with no errors in case of success. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/updateName/{newNodeTemplateName}", method = RequestMethod.PUT, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> updateNodeTemplateName(@PathVariable String topologyId, @PathVariable String nodeTemplateName,
             @PathVariable String newNodeTemplateName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
@@ -222,12 +235,15 @@ public class TopologyController {
 
         nodeTemplates.put(newNodeTemplateName, nodeTemplate);
         nodeTemplates.remove(nodeTemplateName);
-        refreshNodeTempNameInRelationships(nodeTemplateName, newNodeTemplateName, nodeTemplates);
+        Set<String> impactedNodeTemplates = refreshNodeTempNameInRelationships(nodeTemplateName, newNodeTemplateName, nodeTemplates);
         updateArtifactsOnNodeTemplateNameChange(nodeTemplateName, newNodeTemplateName, topology);
 
         log.debug("Renaming the Node template <{}> with <{}> in the topology <{}> .", nodeTemplateName, newNodeTemplateName, topologyId);
 
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(),
+                new TopologyUpdate().nodeTemplates(nodeTemplateName, newNodeTemplateName).nodeTemplates(impactedNodeTemplates)
+                        .mapEntries("inputArtifacts", nodeTemplateName, newNodeTemplateName)
+                        .mapEntries("outputProperties", nodeTemplateName, newNodeTemplateName));
         return RestResponseBuilder.<Void> builder().build();
     }
 
@@ -265,24 +281,30 @@ public class TopologyController {
      * @param oldNodeTemplateName Name of the node template that changes.
      * @param newNodeTemplateName New name for the node template.
      * @param nodeTemplates Map of all node templates in the topology.
+     * @return The names of the node templates which relationships have been updated.
      */
-    private void refreshNodeTempNameInRelationships(String oldNodeTemplateName, String newNodeTemplateName, Map<String, NodeTemplate> nodeTemplates) {
+    private Set<String> refreshNodeTempNameInRelationships(String oldNodeTemplateName, String newNodeTemplateName, Map<String, NodeTemplate> nodeTemplates) {
+        Set<String> impactedNodeTemplates = Sets.newHashSet();
         // node templates copy
-        for (NodeTemplate nodeTemplate : nodeTemplates.values()) {
-            if (nodeTemplate.getRelationships() != null) {
-                refreshNodeTemplateNameInRelationships(oldNodeTemplateName, newNodeTemplateName, nodeTemplate.getRelationships());
+        for (Entry<String, NodeTemplate> nodeTemplateEntry : nodeTemplates.entrySet()) {
+            if (nodeTemplateEntry.getValue().getRelationships() != null
+                    && refreshNodeTemplateNameInRelationships(oldNodeTemplateName, newNodeTemplateName, nodeTemplateEntry.getValue().getRelationships())) {
+                impactedNodeTemplates.add(nodeTemplateEntry.getKey());
             }
         }
+        return impactedNodeTemplates;
     }
 
-    private void refreshNodeTemplateNameInRelationships(String oldNodeTemplateName, String newNodeTemplateName,
+    private boolean refreshNodeTemplateNameInRelationships(String oldNodeTemplateName, String newNodeTemplateName,
             Map<String, RelationshipTemplate> relationshipTemplates) {
+        boolean updated = false;
         Map<String, String> updatedKeys = Maps.newHashMap();
         for (Entry<String, RelationshipTemplate> relationshipTemplateEntry : relationshipTemplates.entrySet()) {
             String relationshipTemplateId = relationshipTemplateEntry.getKey();
             RelationshipTemplate relationshipTemplate = relationshipTemplateEntry.getValue();
 
             if (relationshipTemplate.getTarget().equals(oldNodeTemplateName)) {
+                updated = true;
                 relationshipTemplate.setTarget(newNodeTemplateName);
                 String formatedOldNodeName = topologyService.getRelationShipName(relationshipTemplate.getType(), oldNodeTemplateName);
                 // if the id/name of the relationship is auto-generated we should update it also as auto-generation is <typeName+targetId>
@@ -305,6 +327,7 @@ public class TopologyController {
             RelationshipTemplate relationshipTemplate = relationshipTemplates.remove(updateKeyEntry.getKey());
             relationshipTemplates.put(updateKeyEntry.getValue(), relationshipTemplate);
         }
+        return updated;
     }
 
     private void isUniqueNodeTemplateName(String topologyId, String newNodeTemplateName, Map<String, NodeTemplate> nodeTemplates) {
@@ -335,9 +358,11 @@ public class TopologyController {
      */
     @ApiOperation(value = "Add a relationship to a node template.", notes = "Returns a response with no errors in case of success. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId}/nodetemplates/{nodeTemplateName}/relationships/{relationshipName}", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<TopologyDTO> addRelationshipTemplate(@PathVariable String topologyId, @PathVariable String nodeTemplateName,
             @PathVariable String relationshipName, @RequestBody AddRelationshipTemplateRequest relationshipTemplateRequest) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         IndexedRelationshipType indexedRelationshipType = alienDAO.findById(IndexedRelationshipType.class, relationshipTemplateRequest
@@ -345,7 +370,8 @@ public class TopologyController {
         if (indexedRelationshipType == null) {
             return RestResponseBuilder.<TopologyDTO> builder().error(RestErrorBuilder.builder(RestErrorCode.COMPONENT_MISSING_ERROR).build()).build();
         }
-        topologyService.loadType(topology, indexedRelationshipType);
+        TopologyUpdate update = new TopologyUpdate().nodeTemplates(nodeTemplateName);
+        loadType(topology, indexedRelationshipType, update);
         Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getNodeTemplates(topology);
         NodeTemplate nodeTemplate = topologyServiceCore.getNodeTemplate(topologyId, nodeTemplateName, nodeTemplates);
 
@@ -386,7 +412,7 @@ public class TopologyController {
         TopologyServiceCore.fillProperties(properties, indexedRelationshipType.getProperties(), null);
         relationship.setProperties(properties);
         relationships.put(relationshipName, relationship);
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), update);
         log.info("Added relationship to the topology [" + topologyId + "], node name [" + nodeTemplateName + "], relationship name [" + relationshipName + "]");
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
@@ -412,8 +438,10 @@ public class TopologyController {
      */
     @ApiOperation(value = "Delete a node tempalte from a topology", notes = "If successful returns a result containing the list of impacted nodes (that will loose relationships). Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<TopologyDTO> deleteNodeTemplate(@PathVariable String topologyId, @PathVariable String nodeTemplateName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
@@ -441,12 +469,18 @@ public class TopologyController {
             }
         }
         topologyService.unloadType(topology, typesTobeUnloaded.toArray(new String[typesTobeUnloaded.size()]));
-        removeRelationShipReferences(nodeTemplateName, topology);
+        Map<String, NodeTemplate> impactedNodeTemplates = removeRelationShipReferences(nodeTemplateName, topology);
         nodeTemplates.remove(nodeTemplateName);
         removeArtifactsAndPolicies(nodeTemplateName, topology);
         removeOutputs(nodeTemplateName, topology);
 
-        alienDAO.save(topology);
+        TopologyUpdate update = new TopologyUpdate().nodeTemplates(nodeTemplateName).fields("dependencies")
+                .mapEntries("scalingPolicies", nodeTemplateName).mapEntries("inputArtifacts", nodeTemplateName)
+                .mapEntries("outputProperties", nodeTemplateName).mapEntries("outputAttributes", nodeTemplateName);
+        if (impactedNodeTemplates != null) {
+            update.nodeTemplates(impactedNodeTemplates.keySet());
+        }
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), update);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -494,9 +528,11 @@ public class TopologyController {
      */
     @ApiOperation(value = "Update properties values.", notes = "Returns a topology with it's details. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/properties", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<ConstraintInformation> updatePropertyValue(@PathVariable String topologyId, @PathVariable String nodeTemplateName,
             @RequestBody UpdatePropertyRequest updatePropertyRequest) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
@@ -522,7 +558,7 @@ public class TopologyController {
                 topology.getId(), nodeTemp.getProperties().get(propertyName), propertyValue);
 
         nodeTemp.getProperties().put(propertyName, new ScalarPropertyValue(propertyValue));
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().nodeTemplates(nodeTemplateName));
 
         return RestResponseBuilder.<ConstraintInformation> builder().build();
     }
@@ -537,9 +573,11 @@ public class TopologyController {
      */
     @ApiOperation(value = "Update a relationship property value.", notes = "Returns a topology with it's details. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/relationships/{relationshipName}/updateProperty", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<ConstraintInformation> updateRelationshipPropertyValue(@PathVariable String topologyId, @PathVariable String nodeTemplateName,
             @PathVariable String relationshipName, @RequestBody UpdateRelationshipPropertyRequest updatePropertyRequest) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
@@ -567,7 +605,7 @@ public class TopologyController {
         Map<String, RelationshipTemplate> relationships = nodeTemplate.getRelationships();
         relationships.get(relationshipName).getProperties().put(propertyName, new ScalarPropertyValue(propertyValue));
 
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().nodeTemplates(nodeTemplateName));
         return RestResponseBuilder.<ConstraintInformation> builder().build();
     }
 
@@ -625,9 +663,11 @@ public class TopologyController {
      */
     @ApiOperation(value = "Replace a node template possible with another one.", notes = "Returns the details of the new node template (computed from it's type). Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/replace", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<TopologyDTO> replaceNodeTemplate(@PathVariable String topologyId, @PathVariable String nodeTemplateName,
             @RequestBody @Valid NodeTemplateRequest nodeTemplateRequest) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         IndexedNodeType indexedNodeType = findIndexedNodeType(nodeTemplateRequest.getIndexedNodeTypeId());
@@ -636,7 +676,9 @@ public class TopologyController {
         Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getNodeTemplates(topology);
         NodeTemplate oldNodeTemplate = topologyServiceCore.getNodeTemplate(topologyId, nodeTemplateName, nodeTemplates);
         // Load the new type to the topology in order to update its dependencies
-        indexedNodeType = topologyService.loadType(topology, indexedNodeType);
+        TopologyUpdate update = new TopologyUpdate().nodeTemplates(nodeTemplateName, nodeTemplateRequest.getName())
+                .mapEntries("scalingPolicies", nodeTemplateName).mapEntries("inputArtifacts", nodeTemplateName);
+        indexedNodeType = loadType(topology, indexedNodeType, update);
         // Build the new one
         NodeTemplate newNodeTemplate = topologyService.buildNodeTemplate(topology.getDependencies(), indexedNodeType, null);
         newNodeTemplate.setRelationships(oldNodeTemplate.getRelationships());
@@ -648,10 +690,10 @@ public class TopologyController {
         nodeTemplates.remove(nodeTemplateName);
         removeArtifactsAndPolicies(nodeTemplateName, topology);
 
-        refreshNodeTempNameInRelationships(nodeTemplateName, nodeTemplateRequest.getName(), nodeTemplates);
+        update.nodeTemplates(refreshNodeTempNameInRelationships(nodeTemplateName, nodeTemplateRequest.getName(), nodeTemplates));
         log.debug("Replacing the node template<{}> with <{}> bound to the node type <{}> on the topology <{}> .", nodeTemplateName,
                 nodeTemplateRequest.getName(), nodeTemplateRequest.getIndexedNodeTypeId(), topology.getId());
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), update);
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -673,32 +715,26 @@ public class TopologyController {
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
-        // Get the node template's artifacts to update
-        Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getNodeTemplates(topology);
-        NodeTemplate nodeTemplate = topologyServiceCore.getNodeTemplate(topologyId, nodeTemplateName, nodeTemplates);
-        Map<String, DeploymentArtifact> artifacts = nodeTemplate.getArtifacts();
-        if (artifacts == null) {
-            throw new NotFoundException("Artifact with key [" + artifactId + "] do not exist");
-        }
-        DeploymentArtifact artifact = artifacts.get(artifactId);
-        if (artifact == null) {
-            throw new NotFoundException("Artifact with key [" + artifactId + "] do not exist");
-        }
-        String oldArtifactId = artifact.getArtifactRef();
-        if (ArtifactRepositoryConstants.ALIEN_ARTIFACT_REPOSITORY.equals(artifact.getArtifactRepository())) {
-            artifactRepository.deleteFile(oldArtifactId);
-        }
+        // the file is stored once, only the update of the topology is executed again on version conflict
+        String artifactFileId;
         InputStream artifactStream = artifactFile.getInputStream();
         try {
-            String artifactFileId = artifactRepository.storeFile(artifactStream);
-            artifact.setArtifactName(artifactFile.getOriginalFilename());
-            artifact.setArtifactRef(artifactFileId);
-            artifact.setArtifactRepository(ArtifactRepositoryConstants.ALIEN_ARTIFACT_REPOSITORY);
-            alienDAO.save(topology);
-            return RestResponseBuilder.<String> builder().data(artifactFileId).build();
+            artifactFileId = artifactRepository.storeFile(artifactStream);
         } finally {
             Closeables.close(artifactStream, true);
         }
+        String oldArtifactFileId;
+        try {
+            oldArtifactFileId = topologyService.updateDeploymentArtifact(topologyId, nodeTemplateName, artifactId, artifactFile.getOriginalFilename(),
+                    artifactFileId);
+        } catch (RuntimeException e) {
+            artifactRepository.deleteFile(artifactFileId);
+            throw e;
+        }
+        if (oldArtifactFileId != null) {
+            artifactRepository.deleteFile(oldArtifactFileId);
+        }
+        return RestResponseBuilder.<String> builder().data(artifactFileId).build();
     }
 
     private Map<String, NodeTemplate> removeRelationShipReferences(String nodeTemplateName, Topology topology) {
@@ -728,6 +764,20 @@ public class TopologyController {
         return impactedNodeTemplates.isEmpty() ? null : impactedNodeTemplates;
     }
 
+    /**
+     * Load a type in the topology and register the changes implied in the update: the dependencies and, if the topology has been upgraded to a more recent
+     * archive, every node template.
+     */
+    private <T extends IndexedToscaElement> T loadType(Topology topology, T element, TopologyUpdate update) {
+        Map<String, NodeTemplate> nodeTemplates = topology.getNodeTemplates();
+        T loadedElement = topologyService.loadType(topology, element);
+        update.fields("dependencies");
+        if (topology.getNodeTemplates() != nodeTemplates) {
+            update.allNodeTemplates();
+        }
+        return loadedElement;
+    }
+
     private IndexedNodeType findIndexedNodeType(final String indexedNodeTypeId) {
         IndexedNodeType indexedNodeType = alienDAO.findById(IndexedNodeType.class, indexedNodeTypeId);
         if (indexedNodeType == null) {
@@ -746,9 +796,11 @@ public class TopologyController {
      */
     @ApiOperation(value = "Delete a relationship from a node template.", notes = "Returns a response with no errors in case of success. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/relationships/{relationshipName}", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<TopologyDTO> deleteRelationshipTemplate(@PathVariable String topologyId, @PathVariable String nodeTemplateName,
             @PathVariable String relationshipName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
@@ -765,14 +817,16 @@ public class TopologyController {
             throw new NotFoundException("The relationship with name [" + relationshipName + "] do not exist for the node [" + nodeTemplateName
                     + "] of the topology [" + topologyId + "]");
         }
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().nodeTemplates(nodeTemplateName).fields("dependencies"));
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
     @ApiOperation(value = "Activate a property as an output property.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/property/{propertyName}/isOutput", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> addOutputProperty(@PathVariable String topologyId, @PathVariable String nodeTemplateName, @PathVariable String propertyName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getNodeTemplates(topology);
@@ -784,14 +838,16 @@ public class TopologyController {
             // attributeName does not exists in the node template
             return RestResponseBuilder.<Void> builder().error(RestErrorBuilder.builder(RestErrorCode.PROPERTY_MISSING_ERROR).build()).build();
         }
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().mapEntries("outputProperties", nodeTemplateName));
         return RestResponseBuilder.<Void> builder().build();
     }
 
     @ApiOperation(value = "Activate an attribute as an output attribute.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/attributes/{attributeName}/output", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> addOutputAttribute(@PathVariable String topologyId, @PathVariable String nodeTemplateName, @PathVariable String attributeName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getNodeTemplates(topology);
@@ -803,36 +859,42 @@ public class TopologyController {
             // attributeName does not exists in the node template
             return RestResponseBuilder.<Void> builder().error(RestErrorBuilder.builder(RestErrorCode.PROPERTY_MISSING_ERROR).build()).build();
         }
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().mapEntries("outputAttributes", nodeTemplateName));
         return RestResponseBuilder.<Void> builder().build();
     }
 
     @ApiOperation(value = "Remove a property from the output property list.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/property/{propertyName}/isOutput", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> removeOutputProperty(@PathVariable String topologyId, @PathVariable String nodeTemplateName, @PathVariable String propertyName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         topology.setOutputProperties(removeValueFromMap(topology.getOutputProperties(), nodeTemplateName, propertyName));
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().mapEntries("outputProperties", nodeTemplateName));
         return RestResponseBuilder.<Void> builder().build();
     }
 
     @ApiOperation(value = "Remove an attribute from the output attributes list.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/attributes/{attributeName}/output", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> removeOutputAttribute(@PathVariable String topologyId, @PathVariable String nodeTemplateName, @PathVariable String attributeName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         topology.setOutputAttributes(removeValueFromMap(topology.getOutputAttributes(), nodeTemplateName, attributeName));
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().mapEntries("outputAttributes", nodeTemplateName));
         return RestResponseBuilder.<Void> builder().build();
     }
 
     @ApiOperation(value = "Add an artifact in the input artifact list.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/artifact/{artifactName}", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> addInputArtifact(@PathVariable String topologyId, @PathVariable String nodeTemplateName, @PathVariable String artifactName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getNodeTemplates(topology);
@@ -844,18 +906,20 @@ public class TopologyController {
             // attributeName does not exists in the node template
             return RestResponseBuilder.<Void> builder().error(RestErrorBuilder.builder(RestErrorCode.PROPERTY_MISSING_ERROR).build()).build();
         }
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().mapEntries("inputArtifacts", nodeTemplateName));
         return RestResponseBuilder.<Void> builder().build();
     }
 
     @ApiOperation(value = "Remove an artifact from the input artifact list.", notes = "Returns a response with no errors and no data in success case. Application role required [ APPLICATION_MANAGER | ARCHITECT ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/artifact/{artifactName}", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> removeInputArtifact(@PathVariable String topologyId, @PathVariable String nodeTemplateName, @PathVariable String artifactName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         topology.setInputArtifacts(removeValueFromMap(topology.getInputArtifacts(), nodeTemplateName, artifactName));
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().mapEntries("inputArtifacts", nodeTemplateName));
         return RestResponseBuilder.<Void> builder().build();
     }
 
@@ -870,9 +934,11 @@ public class TopologyController {
      */
     @ApiOperation(value = "Change the name of a node template in a topology.", notes = "Returns a response with no errors in case of success. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/relationships/{relationshipName}/updateName", method = RequestMethod.PUT, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<String> updateRelationshipName(@PathVariable String topologyId, @PathVariable String nodeTemplateName,
             @PathVariable String relationshipName, @RequestParam(value = "newName") String newRelationshipName) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         topologyService.throwsErrorIfReleased(topology);
 
@@ -892,7 +958,7 @@ public class TopologyController {
         log.debug("Renaiming the relationship <{}> with <{}> in the node template <{}> of topology <{}> .", relationshipName, newRelationshipName,
                 nodeTemplateName, topologyId);
 
-        alienDAO.save(topology);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().nodeTemplates(nodeTemplateName));
         return RestResponseBuilder.<String> builder().data(newRelationshipName).build();
     }
 
@@ -21,6 +21,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import alien4cloud.component.ICSARRepositorySearchService;
 import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.RetryOnVersionConflict;
+import alien4cloud.dao.model.Versioned;
 import alien4cloud.exception.AlreadyExistException;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.model.components.AbstractPropertyValue;
@@ -67,10 +69,12 @@ public class TopologyInputsController {
      */
     @ApiOperation(value = "Activate a property as an input property.", notes = "Activate a property as an input property. Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId}/inputs/{inputId}", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> addInput(@ApiParam(value = "The topology id.", required = true) @NotBlank @PathVariable final String topologyId,
             @ApiParam(value = "The name of new input.", required = true) @NotBlank @PathVariable final String inputId,
             @ApiParam(value = "The property definition of the new input.", required = true) @RequestBody PropertyDefinition newPropertyDefinition) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         Map<String, PropertyDefinition> inputs = getInputs(topology, true);
 
@@ -82,7 +86,7 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Add a new input <{}> for the topology <{}>.", inputId, topologyId);
-        alienDAO.save(topology);
+        alienDAO.saveIfVersion(topology, versionedTopology.getVersion());
         return RestResponseBuilder.<Void> builder().build();
     }
 
@@ -113,10 +117,12 @@ public class TopologyInputsController {
      */
     @ApiOperation(value = "Change the name of an input parameter.", notes = "Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/inputs/{inputId}", method = RequestMethod.PUT, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<TopologyDTO> updateInputId(@ApiParam(value = "The topology id.", required = true) @NotBlank @PathVariable final String topologyId,
             @ApiParam(value = "The name of the old input.", required = true) @NotBlank @PathVariable final String inputId,
             @ApiParam(value = "The name of the new input.", required = true) @NotBlank @RequestParam final String newInputId) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         Map<String, PropertyDefinition> inputs = topology.getInputs();
@@ -141,7 +147,7 @@ public class TopologyInputsController {
         }
 
         log.debug("Change the name of an input parameter <{}> to <{}> for the topology ", inputId, newInputId, topologyId);
-        alienDAO.save(topology);
+        alienDAO.saveIfVersion(topology, versionedTopology.getVersion());
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topology)).build();
     }
 
@@ -175,9 +181,11 @@ public class TopologyInputsController {
      */
     @ApiOperation(value = "Remove an input from a topology.", notes = "Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/inputs/{inputId}", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<TopologyDTO> removeInput(@ApiParam(value = "The topology id.", required = true) @NotBlank @PathVariable final String topologyId,
             @ApiParam(value = "The name of the input.", required = true) @NotBlank @PathVariable final String inputId) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
 
         Map<String, PropertyDefinition> inputProperties = topology.getInputs();
@@ -197,7 +205,7 @@ public class TopologyInputsController {
         }
 
         log.debug("Remove the input " + inputId + " from the topology " + topologyId);
-        alienDAO.save(topology);
+        alienDAO.saveIfVersion(topology, versionedTopology.getVersion());
         return RestResponseBuilder.<TopologyDTO> builder().data(topologyService.buildTopologyDTO(topologyServiceCore.getMandatoryTopology(topologyId))).build();
     }
 
@@ -221,12 +229,14 @@ public class TopologyInputsController {
      */
     @ApiOperation(value = "Associate the property of a node template to an input of the topology.", notes = "Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId}/nodetemplates/{nodeTemplateName}/property/{propertyId}/input", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> setInputToNodeTemplate(@ApiParam(value = "The topology id.", required = true) @NotBlank @PathVariable final String topologyId,
             @ApiParam(value = "The name of the input.", required = true) @NotBlank @RequestParam final String inputId,
             @ApiParam(value = "The node temlate id.", required = true) @NotBlank @PathVariable final String nodeTemplateName,
             @ApiParam(value = "The property id.", required = true) @NotBlank @PathVariable final String propertyId)
             throws IncompatiblePropertyDefinitionException {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         Map<String, PropertyDefinition> inputs = getInputs(topology, false);
         NodeTemplate nodeTemplate = topology.getNodeTemplates().get(nodeTemplateName);
@@ -247,7 +257,7 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Associate the property <{}> of the node template <{}> to an input of the topology <{}>.", propertyId, nodeTemplateName, topologyId);
-        alienDAO.save(topology);
+        alienDAO.saveIfVersion(topology, versionedTopology.getVersion());
         return RestResponseBuilder.<Void> builder().build();
     }
 
@@ -262,10 +272,12 @@ public class TopologyInputsController {
      */
     @ApiOperation(value = "Disassociated the property of a node template to an input of the topology.", notes = "Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId}/nodetemplates/{nodeTemplateName}/property/{propertyId}/input", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> unsetInputToNodeTemplate(@ApiParam(value = "The topology id.", required = true) @NotBlank @PathVariable final String topologyId,
             @ApiParam(value = "The node temlate id.", required = true) @NotBlank @PathVariable final String nodeTemplateName,
             @ApiParam(value = "The property id.", required = true) @NotBlank @PathVariable final String propertyId) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         NodeTemplate nodeTemplate = topology.getNodeTemplates().get(nodeTemplateName);
 
@@ -281,7 +293,7 @@ public class TopologyInputsController {
                 nodeTemplate.getProperties().put(propertyId, null);
             }
             log.debug("Disassociated the property <{}> of the node template <{}> to an input of the topology <{}>.", propertyId, nodeTemplateName, topologyId);
-            alienDAO.save(topology);
+            alienDAO.saveIfVersion(topology, versionedTopology.getVersion());
         }
 
         return RestResponseBuilder.<Void> builder().build();
@@ -372,6 +384,7 @@ public class TopologyInputsController {
      */
     @ApiOperation(value = "Associate the property of a relationship template to an input of the topology.", notes = "Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/relationship/{relationshipId}/property/{propertyId}/input", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> setInputToRelationshipTemplate(
             @ApiParam(value = "The topology id.", required = true) @NotBlank @PathVariable final String topologyId,
             @ApiParam(value = "The name of the input.", required = true) @NotBlank @RequestParam final String inputId,
@@ -379,7 +392,8 @@ public class TopologyInputsController {
             @ApiParam(value = "The property id.", required = true) @NotBlank @PathVariable final String propertyId,
             @ApiParam(value = "The relationship template id.", required = true) @NotBlank @PathVariable final String relationshipId)
             throws IncompatiblePropertyDefinitionException {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         Map<String, PropertyDefinition> inputs = getInputs(topology, false);
         if (topology.getNodeTemplates() == null || !topology.getNodeTemplates().containsKey(nodeTemplateName)) {
@@ -409,7 +423,7 @@ public class TopologyInputsController {
         topology.setInputs(inputs);
 
         log.debug("Associate the property <{}> of the relationship template <{}> to an input of the topology <{}>.", propertyId, relationshipId, topologyId);
-        alienDAO.save(topology);
+        alienDAO.saveIfVersion(topology, versionedTopology.getVersion());
         return RestResponseBuilder.<Void> builder().build();
     }
 
@@ -425,12 +439,14 @@ public class TopologyInputsController {
      */
     @ApiOperation(value = "Associate the property of a relationship template to an input of the topology.", notes = "Application role required [ APPLICATION_MANAGER | APPLICATION_DEVOPS ]")
     @RequestMapping(value = "/{topologyId:.+}/nodetemplates/{nodeTemplateName}/relationship/{relationshipId}/property/{propertyId}/input", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @RetryOnVersionConflict
     public RestResponse<Void> unsetInputToRelationshipTemplate(
             @ApiParam(value = "The topology id.", required = true) @NotBlank @PathVariable final String topologyId,
             @ApiParam(value = "The node temlate id.", required = true) @NotBlank @PathVariable final String nodeTemplateName,
             @ApiParam(value = "The property id.", required = true) @NotBlank @PathVariable final String propertyId,
             @ApiParam(value = "The relationship template id.", required = true) @NotBlank @PathVariable final String relationshipId) {
-        Topology topology = topologyServiceCore.getMandatoryTopology(topologyId);
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
         topologyService.checkEditionAuthorizations(topology);
         if (topology.getNodeTemplates() == null || !topology.getNodeTemplates().containsKey(nodeTemplateName)) {
             throw new NotFoundException("Node " + nodeTemplateName + " do not exist");
@@ -457,7 +473,7 @@ public class TopologyInputsController {
         } else {
             throw new NotFoundException("Property " + propertyId + " do not exist for relationship " + relationshipId + " of node " + nodeTemplateName);
         }
-        alienDAO.save(topology);
+        alienDAO.saveIfVersion(topology, versionedTopology.getVersion());
         return RestResponseBuilder.<Void> builder().build();
     }
 
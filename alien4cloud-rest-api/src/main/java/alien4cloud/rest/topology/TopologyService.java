@@ -23,9 +23,12 @@ import alien4cloud.application.ApplicationEnvironmentService;
 import alien4cloud.application.ApplicationService;
 import alien4cloud.application.ApplicationVersionService;
 import alien4cloud.component.CSARRepositorySearchService;
+import alien4cloud.component.repository.ArtifactRepositoryConstants;
 import alien4cloud.csar.services.CsarService;
 import alien4cloud.dao.IGenericSearchDAO;
+import alien4cloud.dao.RetryOnVersionConflict;
 import alien4cloud.dao.model.GetMultipleDataResult;
+import alien4cloud.dao.model.Versioned;
 import alien4cloud.exception.NotFoundException;
 import alien4cloud.exception.VersionConflictException;
 import alien4cloud.model.application.Application;
@@ -33,6 +36,7 @@ import alien4cloud.model.application.ApplicationVersion;
 import alien4cloud.model.components.AbstractPropertyValue;
 import alien4cloud.model.components.CSARDependency;
 import alien4cloud.model.components.CapabilityDefinition;
+import alien4cloud.model.components.DeploymentArtifact;
 import alien4cloud.model.components.FunctionPropertyValue;
 import alien4cloud.model.components.IndexedCapabilityType;
 import alien4cloud.model.components.IndexedInheritableToscaElement;
@@ -59,6 +63,7 @@ import alien4cloud.security.ApplicationRole;
 import alien4cloud.security.AuthorizationUtil;
 import alien4cloud.security.Role;
 import alien4cloud.topology.TopologyServiceCore;
+import alien4cloud.topology.TopologyUpdate;
 import alien4cloud.tosca.container.ToscaTypeLoader;
 import alien4cloud.utils.MapUtil;
 import alien4cloud.utils.VersionUtil;
@@ -123,6 +128,8 @@ public class TopologyService {
         if (topo.getNodeTemplates() == null) {
             return indexedRelationshipTypesMap;
         }
+        // resolve all the relationship types of the topology at once
+        Map<String, IndexedRelationshipType> relationshipTypes = topologyServiceCore.getIndexedRelationshipTypesFromTopology(topo);
         for (Map.Entry<String, NodeTemplate> template : topo.getNodeTemplates().entrySet()) {
             if (template.getValue().getRelationships() == null) {
                 continue;
@@ -130,8 +137,7 @@ public class TopologyService {
 
             Set<IndexedRelationshipType> indexedRelationshipTypes = Sets.newHashSet();
             for (RelationshipTemplate relTemplate : template.getValue().getRelationships().values()) {
-                IndexedRelationshipType indexedRelationshipType = csarRepoSearchService.getElementInDependencies(IndexedRelationshipType.class,
-                        relTemplate.getType(), topo.getDependencies());
+                IndexedRelationshipType indexedRelationshipType = relationshipTypes.get(relTemplate.getType());
                 if (indexedRelationshipType != null) {
                     if (abstractOnes == null || abstractOnes.equals(indexedRelationshipType.isAbstract())) {
                         indexedRelationshipTypes.add(indexedRelationshipType);
@@ -211,17 +217,15 @@ public class TopologyService {
      * @return A map of capability types defined in the given node types.
      */
     public Map<String, IndexedCapabilityType> getIndexedCapabilityTypes(Collection<IndexedNodeType> nodeTypes, Collection<CSARDependency> dependencies) {
-        Map<String, IndexedCapabilityType> capabilityTypes = Maps.newHashMap();
+        Set<String> capabilityTypeIds = Sets.newHashSet();
         for (IndexedNodeType nodeType : nodeTypes) {
             if (nodeType.getCapabilities() != null) {
                 for (CapabilityDefinition capabilityDefinition : nodeType.getCapabilities()) {
-                    IndexedCapabilityType capabilityType = csarRepoSearchService.getRequiredElementInDependencies(IndexedCapabilityType.class,
-                            capabilityDefinition.getType(), dependencies);
-                    capabilityTypes.put(capabilityDefinition.getType(), capabilityType);
+                    capabilityTypeIds.add(capabilityDefinition.getType());
                 }
             }
         }
-        return capabilityTypes;
+        return csarRepoSearchService.getRequiredElementsInDependencies(IndexedCapabilityType.class, capabilityTypeIds, dependencies);
     }
 
     /**
@@ -776,6 +780,41 @@ public class TopologyService {
         return null;
     }
 
+    /**
+     * Reference a file of the artifact repository from a deployment artifact of a node template.
+     *
+     * @param topologyId The id of the topology.
+     * @param nodeTemplateName The name of the node template.
+     * @param artifactId The id of the deployment artifact.
+     * @param artifactName The name of the artifact file.
+     * @param artifactFileId The id of the file in the artifact repository.
+     * @return The id of the file of the artifact repository previously referenced by the artifact, null if the artifact referenced an external file.
+     */
+    @RetryOnVersionConflict
+    public String updateDeploymentArtifact(String topologyId, String nodeTemplateName, String artifactId, String artifactName, String artifactFileId) {
+        Versioned<Topology> versionedTopology = topologyServiceCore.getMandatoryTopologyWithVersion(topologyId);
+        Topology topology = versionedTopology.getData();
+        checkEditionAuthorizations(topology);
+        throwsErrorIfReleased(topology);
+
+        Map<String, NodeTemplate> nodeTemplates = topologyServiceCore.getNodeTemplates(topology);
+        NodeTemplate nodeTemplate = topologyServiceCore.getNodeTemplate(topologyId, nodeTemplateName, nodeTemplates);
+        Map<String, DeploymentArtifact> artifacts = nodeTemplate.getArtifacts();
+        DeploymentArtifact artifact = artifacts == null ? null : artifacts.get(artifactId);
+        if (artifact == null) {
+            throw new NotFoundException("Artifact with key [" + artifactId + "] do not exist");
+        }
+        String oldArtifactFileId = null;
+        if (ArtifactRepositoryConstants.ALIEN_ARTIFACT_REPOSITORY.equals(artifact.getArtifactRepository())) {
+            oldArtifactFileId = artifact.getArtifactRef();
+        }
+        artifact.setArtifactName(artifactName);
+        artifact.setArtifactRef(artifactFileId);
+        artifact.setArtifactRepository(ArtifactRepositoryConstants.ALIEN_ARTIFACT_REPOSITORY);
+        topologyServiceCore.update(topology, versionedTopology.getVersion(), new TopologyUpdate().nodeTemplates(nodeTemplateName));
+        return oldArtifactFileId;
+    }
+
     /**
      * Retrieve the topology template from its id
      *
@@ -56,6 +56,7 @@ public interface IAlienUserDao {
      * Read users from the store.
      * 
      * @param usernames an array of unique ids.
+     * @return The users found, never null (users that don't exist are not in the list).
      */
     List<User> find(String... usernames);
 }
\ No newline at end of file
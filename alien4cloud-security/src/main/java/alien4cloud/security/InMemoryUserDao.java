@@ -57,8 +57,14 @@ public class InMemoryUserDao implements IAlienUserDao {
 
     @Override
     public List<User> find(String... usernames) {
-        // TODO Auto-generated method stub
-        return null;
+        List<User> users = Lists.newArrayList();
+        for (String username : usernames) {
+            User user = userMap.get(username);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
     }
 
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package alien4cloud.security;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -20,6 +22,7 @@ import alien4cloud.security.groups.Group;
 import alien4cloud.security.groups.IAlienGroupDao;
 import alien4cloud.utils.ReflectionUtil;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 @Component
@@ -118,6 +121,28 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Retrieve multiple users at once.
+     * 
+     * @param usernames the usernames of the users to retrieve
+     * @return the users, in the order of the given usernames.
+     * @throws NotFoundException if any of the users doesn't exist.
+     */
+    public List<User> retrieveUsers(Collection<String> usernames) {
+        if (CollectionUtils.isEmpty(usernames)) {
+            return Lists.newArrayList();
+        }
+        List<User> users = alienUserDao.find(usernames.toArray(new String[usernames.size()]));
+        Set<String> missingUsernames = Sets.newLinkedHashSet(usernames);
+        for (User user : users) {
+            missingUsernames.remove(user.getUsername());
+        }
+        if (!missingUsernames.isEmpty()) {
+            throw new NotFoundException("Users " + missingUsernames + " cannot be found");
+        }
+        return users;
+    }
+
     /**
      * Add a group to a user, including all the group roles
      * 
@@ -155,7 +180,16 @@ public class UserService {
      * @param username The username of the user to process
      */
     public void addGroupRoleToUser(String username, String role) {
-        User user = retrieveUser(username);
+        addGroupRoleToUser(retrieveUser(username), role);
+    }
+
+    /**
+     * Add a group role to a user
+     * 
+     * @param user The user to process
+     * @param role The group role to add
+     */
+    public void addGroupRoleToUser(User user, String role) {
         Set<String> groupRolesSet = user.getGroupRoles() == null ? new HashSet<String>() : user.getGroupRoles();
         groupRolesSet.add(Role.getStringFormatedRole(role));
         user.setGroupRoles(groupRolesSet);
@@ -178,15 +212,16 @@ public class UserService {
             user.setGroupRoles(null);
         } else {
             Set<String> groupRolesSet = Sets.newHashSet();
-            for (String groupId : user.getGroups()) {
-                Group group = alienGroupDao.find(groupId);
-                if (group == null) {
-                    throw new NotFoundException("Group [" + groupId + "] cannot be found");
-                }
+            Set<String> missingGroupIds = Sets.newHashSet(user.getGroups());
+            for (Group group : alienGroupDao.find(user.getGroups().toArray(new String[user.getGroups().size()]))) {
+                missingGroupIds.remove(group.getId());
                 if (CollectionUtils.isNotEmpty(group.getRoles())) {
                     groupRolesSet.addAll(group.getRoles());
                 }
             }
+            if (!missingGroupIds.isEmpty()) {
+                throw new NotFoundException("Groups " + missingGroupIds + " cannot be found");
+            }
             user.setGroupRoles(groupRolesSet);
         }
         alienUserDao.save(user);
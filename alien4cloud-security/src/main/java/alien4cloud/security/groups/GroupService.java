@@ -20,7 +20,6 @@ import alien4cloud.security.User;
 import alien4cloud.security.UserService;
 import alien4cloud.utils.ReflectionUtil;
 
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 @Slf4j
@@ -50,10 +49,8 @@ public class GroupService {
 
     public void deleteGroup(String groupId) {
         Group group = retrieveGroup(groupId);
-        if (CollectionUtils.isNotEmpty(group.getUsers())) {
-            for (String username : group.getUsers()) {
-                userService.removeGroupFromUser(username, group);
-            }
+        for (User user : userService.retrieveUsers(group.getUsers())) {
+            userService.removeGroupFromUser(user, group);
         }
         alienGroupDao.delete(groupId);
     }
@@ -105,13 +102,8 @@ public class GroupService {
 
         List<User> usersList = null;
         if (CollectionUtils.isNotEmpty(users)) {
-            usersList = Lists.newArrayList();
-            Set<String> usersSet = Sets.newHashSet();
-            for (String username : users) {
-                usersList.add(userService.retrieveUser(username));
-                usersSet.add(username);
-            }
-            group.setUsers(usersSet);
+            usersList = userService.retrieveUsers(users);
+            group.setUsers(Sets.newHashSet(users));
         }
 
         alienGroupDao.save(group);
@@ -135,10 +127,8 @@ public class GroupService {
         alienGroupDao.save(group);
 
         // update groupRoles in users objects
-        if (CollectionUtils.isNotEmpty(group.getUsers())) {
-            for (String username : group.getUsers()) {
-                userService.addGroupRoleToUser(username, role);
-            }
+        for (User user : userService.retrieveUsers(group.getUsers())) {
+            userService.addGroupRoleToUser(user, role);
         }
     }
 
@@ -160,10 +150,8 @@ public class GroupService {
         alienGroupDao.save(group);
 
         // update groupRoles in users objects
-        if (CollectionUtils.isNotEmpty(group.getUsers())) {
-            for (String username : group.getUsers()) {
-                userService.updateUserGroupRoles(username);
-            }
+        for (User user : userService.retrieveUsers(group.getUsers())) {
+            userService.updateUserGroupRoles(user);
         }
 
     }
@@ -65,6 +65,7 @@ public interface IAlienGroupDao {
      * Read groups from the store.
      * 
      * @param ids an array of unique ids.
+     * @return The groups found, never null (groups that don't exist are not in the list).
      */
     List<Group> find(String... ids);
 
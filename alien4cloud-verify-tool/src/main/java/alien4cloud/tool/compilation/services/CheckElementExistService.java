@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -87,6 +89,18 @@ public class CheckElementExistService implements ICSARRepositorySearchService, I
         throw new NotImplementedException("This method is not used in the compilation tool.");
     }
 
+    @Override
+    public <T extends IndexedToscaElement> Map<String, T> getElementsInDependencies(Class<T> elementClass, Set<String> elementIds,
+            Collection<CSARDependency> dependencies) {
+        throw new NotImplementedException("This method is not used in the compilation tool.");
+    }
+
+    @Override
+    public <T extends IndexedToscaElement> Map<String, T> getRequiredElementsInDependencies(Class<T> elementClass, Set<String> elementIds,
+            Collection<CSARDependency> dependencies) throws NotFoundException {
+        throw new NotImplementedException("This method is not used in the compilation tool.");
+    }
+
     @Override
     public <T extends IndexedToscaElement> T getParentOfElement(Class<T> elementClass, T indexedToscaElement, String parentElementId) {
         throw new NotImplementedException("This method is not used in the compilation tool.");